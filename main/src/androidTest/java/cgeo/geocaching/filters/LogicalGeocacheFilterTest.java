@@ -1,20 +1,33 @@
 package cgeo.geocaching.filters;
 
 import cgeo.geocaching.filters.core.AndGeocacheFilter;
+import cgeo.geocaching.filters.core.DescriptionGeocacheFilter;
+import cgeo.geocaching.filters.core.DifficultyGeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilter;
 import cgeo.geocaching.filters.core.GeocacheFilterType;
 import cgeo.geocaching.filters.core.IGeocacheFilter;
 import cgeo.geocaching.filters.core.LogicalGeocacheFilter;
+import cgeo.geocaching.filters.core.NameGeocacheFilter;
 import cgeo.geocaching.filters.core.NotGeocacheFilter;
 import cgeo.geocaching.filters.core.OrGeocacheFilter;
 import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.config.LegacyFilterConfig;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Test;
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 public class LogicalGeocacheFilterTest {
 
@@ -44,6 +57,166 @@ public class LogicalGeocacheFilterTest {
         assertLogicFilter(new NotGeocacheFilter(), null, getConstantFilter(null));
     }
 
+    @Test
+    public void evaluationOrder() {
+        final IGeocacheFilter expensive = getConstantFilter(true, IGeocacheFilter.COST_DATABASE, 0.5f, false, null);
+        final IGeocacheFilter cheap = getConstantFilter(true, IGeocacheFilter.COST_CHEAP, 0.5f, false, null);
+        final IGeocacheFilter cheapRarelyPassing = getConstantFilter(true, IGeocacheFilter.COST_CHEAP, 0.1f, false, null);
+
+        final AndGeocacheFilter and = new AndGeocacheFilter();
+        and.addChild(expensive);
+        and.addChild(cheap);
+        and.addChild(cheapRarelyPassing);
+        assertThat(and.getChildrenInEvaluationOrder()).containsExactly(cheapRarelyPassing, cheap, expensive);
+        assertThat(and.getChildren()).containsExactly(expensive, cheap, cheapRarelyPassing);
+
+        final OrGeocacheFilter or = new OrGeocacheFilter();
+        or.addChild(expensive);
+        or.addChild(cheapRarelyPassing);
+        or.addChild(cheap);
+        assertThat(or.getChildrenInEvaluationOrder()).containsExactly(cheap, cheapRarelyPassing, expensive);
+    }
+
+    @Test
+    public void expensiveFilterIsShortCircuited() {
+        final AtomicInteger expensiveCalls = new AtomicInteger();
+        final AndGeocacheFilter and = new AndGeocacheFilter();
+        and.addChild(getConstantFilter(true, IGeocacheFilter.COST_DATABASE, 0.5f, false, expensiveCalls));
+        and.addChild(getConstantFilter(false, IGeocacheFilter.COST_CHEAP, 0.5f, false, null));
+        assertThat(and.filter(new Geocache())).isFalse();
+        assertThat(expensiveCalls.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void resultCache() {
+        final AtomicInteger calls = new AtomicInteger();
+        final AndGeocacheFilter and = new AndGeocacheFilter();
+        and.addChild(getConstantFilter(true, IGeocacheFilter.COST_DATABASE, 0.5f, true, calls));
+        final Geocache cache = new Geocache();
+        cache.setGeocode("GCFILTERCACHE");
+
+        assertThat(and.filter(cache)).isTrue();
+        assertThat(and.filter(cache)).isTrue();
+        assertThat(calls.get()).isEqualTo(1);
+
+        //changing cache data invalidates cached result
+        cache.setDescription("changed");
+        assertThat(and.filter(cache)).isTrue();
+        assertThat(calls.get()).isEqualTo(2);
+
+        //another cache object with same geocode does not use cached result
+        final Geocache other = new Geocache();
+        other.setGeocode("GCFILTERCACHE");
+        assertThat(and.filter(other)).isTrue();
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    /**
+     * Filters 50k in-memory caches (enough for parallel filtering) with mixed filter trees,
+     * result must be the same as with plain sequential evaluation, also when cached results are used.
+     * The measured times are only logged.
+     */
+    @Test
+    public void filterListMatchesSequentialFilter() {
+        final Random random = new Random(4711);
+        final List<Geocache> caches = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode("GCLIST" + i);
+            cache.setName("Cache " + i);
+            cache.setDifficulty(1 + random.nextInt(9) / 2f);
+            cache.setDescription(random.nextInt(10) == 0 ? "a special description " + i : "a description " + i);
+            caches.add(cache);
+        }
+
+        for (String config : Arrays.asList(
+                "and(description:special;difficulty:[1.5;3])",
+                "or(description:special;name:7;difficulty:[4.5;5])",
+                "and(not(name:9);or(description:special;difficulty:[1;1.5]))")) {
+            final GeocacheFilter filter = GeocacheFilter.create("", false, false, createTree(config));
+
+            final long startSequential = System.nanoTime();
+            final List<Geocache> expected = new ArrayList<>();
+            for (Geocache cache : caches) {
+                if (filter.filter(cache)) {
+                    expected.add(cache);
+                }
+            }
+            final long sequentialMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startSequential);
+            assertThat(expected.size()).isGreaterThan(0).isLessThan(caches.size());
+
+            final long startList = System.nanoTime();
+            final List<Geocache> result = new ArrayList<>(caches);
+            filter.filterList(result);
+            final long listMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startList);
+            assertThat(result).containsExactlyElementsOf(expected);
+
+            final long startCached = System.nanoTime();
+            final List<Geocache> result2 = new ArrayList<>(caches);
+            filter.filterList(result2);
+            final long cachedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startCached);
+            assertThat(result2).containsExactlyElementsOf(expected);
+
+            Log.i("LogicalGeocacheFilterTest: filtering " + caches.size() + " caches with '" + config + "' took " + sequentialMillis
+                    + "ms sequential, " + listMillis + "ms filterList, " + cachedMillis + "ms filterList with cached results");
+        }
+    }
+
+    @Test
+    public void childrenCanOnlyBeAddedThroughFilter() {
+        final AndGeocacheFilter and = new AndGeocacheFilter();
+        and.addChild(getConstantFilter(true));
+        try {
+            and.getChildren().add(getConstantFilter(false));
+            fail("children must not be modifiable");
+        } catch (UnsupportedOperationException expected) {
+            //expected
+        }
+        and.addChild(getConstantFilter(false));
+        assertThat(and.getChildrenInEvaluationOrder()).hasSize(2);
+        assertThat(and.filter(null)).isFalse();
+    }
+
+    /** creates a filter tree from a simple notation, e.g. "and(name:abc;not(difficulty:[1;2]))" */
+    private static IGeocacheFilter createTree(final String config) {
+        final int open = config.indexOf('(');
+        if (open < 0 || config.indexOf(':') < open) {
+            final String[] parts = config.split(":", 2);
+            switch (parts[0]) {
+                case "description":
+                    final DescriptionGeocacheFilter description = GeocacheFilterType.DESCRIPTION.create();
+                    description.getStringFilter().setTextValue(parts[1]);
+                    return description;
+                case "name":
+                    final NameGeocacheFilter name = GeocacheFilterType.NAME.create();
+                    name.getStringFilter().setTextValue(parts[1]);
+                    return name;
+                default:
+                    final String[] range = parts[1].substring(1, parts[1].length() - 1).split(";");
+                    final DifficultyGeocacheFilter difficulty = GeocacheFilterType.DIFFICULTY.create();
+                    difficulty.setMinMaxRange(Float.parseFloat(range[0]), Float.parseFloat(range[1]));
+                    return difficulty;
+            }
+        }
+        final String type = config.substring(0, open);
+        final LogicalGeocacheFilter logical = "and".equals(type) ? new AndGeocacheFilter() : "or".equals(type) ? new OrGeocacheFilter() : new NotGeocacheFilter();
+        int depth = 0;
+        int childStart = open + 1;
+        for (int i = open + 1; i < config.length() - 1; i++) {
+            final char c = config.charAt(i);
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ';' && depth == 0) {
+                logical.addChild(createTree(config.substring(childStart, i)));
+                childStart = i + 1;
+            }
+        }
+        logical.addChild(createTree(config.substring(childStart, config.length() - 1)));
+        return logical;
+    }
+
     private static void assertLogicFilter(final LogicalGeocacheFilter filter, final Boolean expectedResult, final IGeocacheFilter... children) {
         for (IGeocacheFilter child : children) {
             filter.addChild(child);
@@ -53,13 +226,35 @@ public class LogicalGeocacheFilterTest {
 
 
     private static IGeocacheFilter getConstantFilter(final Boolean returnValue) {
+        return getConstantFilter(returnValue, IGeocacheFilter.COST_CHEAP, 0.5f, false, null);
+    }
+
+    private static IGeocacheFilter getConstantFilter(final Boolean returnValue, final float cost, final float selectivity, final boolean cacheable, @Nullable final AtomicInteger callCounter) {
         return new IGeocacheFilter() {
             @Nullable
             @Override
             public Boolean filter(final Geocache cache) {
+                if (callCounter != null) {
+                    callCounter.incrementAndGet();
+                }
                 return returnValue;
             }
 
+            @Override
+            public float getEvaluationCost() {
+                return cost;
+            }
+
+            @Override
+            public float getSelectivity() {
+                return selectivity;
+            }
+
+            @Override
+            public boolean isResultCacheable() {
+                return cacheable;
+            }
+
             @Override
             public GeocacheFilterType getType() {
                 return null;
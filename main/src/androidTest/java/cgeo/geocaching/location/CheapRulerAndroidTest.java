@@ -0,0 +1,68 @@
+package cgeo.geocaching.location;
+
+import cgeo.geocaching.utils.IndexSortUtils;
+import cgeo.geocaching.utils.Log;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CheapRulerAndroidTest {
+
+    /**
+     * Sorts 100k points (some beyond the accurate distance) by approximated distances refined where needed and by exact distances.
+     * Both orders must be equal, the measured times are only logged.
+     */
+    @Test
+    public void testSortByApproximationAgainstExact() {
+        final Random random = new Random(1);
+        final Geopoint center = new Geopoint(51.5, -0.1);
+        final int size = 100_000;
+        final Geopoint[] points = new Geopoint[size];
+        final int[] lats = new int[size];
+        final int[] lons = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = center.project(random.nextDouble() * 360, random.nextDouble() * 2 * CheapRuler.MAX_ACCURATE_DISTANCE_KM);
+            lats[i] = points[i].getLatitudeE6();
+            lons[i] = points[i].getLongitudeE6();
+        }
+
+        final long startApproximated = System.nanoTime();
+        final float[] approximated = new float[size];
+        CheapRuler.distancesKm(center.getLatitudeE6(), center.getLongitudeE6(), lats, lons, size, approximated);
+        final boolean[] exact = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            if (!CheapRuler.hasErrorBound(approximated[i], center.getLatitudeE6())) {
+                approximated[i] = center.distanceTo(points[i]);
+                exact[i] = true;
+            }
+        }
+        final boolean[] ambiguous = CheapRuler.findOrderAmbiguities(approximated, exact, size, center.getLatitudeE6());
+        int refined = 0;
+        for (int i = 0; i < size; i++) {
+            if (ambiguous[i]) {
+                approximated[i] = center.distanceTo(points[i]);
+                refined++;
+            }
+        }
+        final int[] approximatedOrder = IndexSortUtils.sortIndexes(size, (i1, i2) -> Float.compare(approximated[i1], approximated[i2]), false);
+        final long approximatedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startApproximated);
+
+        final long startExact = System.nanoTime();
+        final float[] distances = new float[size];
+        for (int i = 0; i < size; i++) {
+            distances[i] = center.distanceTo(points[i]);
+        }
+        final int[] exactOrder = IndexSortUtils.sortIndexes(size, (i1, i2) -> Float.compare(distances[i1], distances[i2]), false);
+        final long exactMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startExact);
+
+        Log.i("CheapRulerAndroidTest: sorting " + size + " points took " + approximatedMillis + "ms approximated (" + refined
+                + " refined), " + exactMillis + "ms exact");
+        for (int p = 0; p < size; p++) {
+            assertThat(distances[approximatedOrder[p]]).as("distance at position " + p).isEqualTo(distances[exactOrder[p]]);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package cgeo.geocaching.location;
+
+import cgeo.geocaching.utils.Log;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class GeoSpatialIndexAndroidTest {
+
+    /**
+     * Resolves 10k taps on 100k primitives with the spatial index and with a linear scan over all bounding boxes.
+     * Results must be the same, the measured times are only logged.
+     */
+    @Test
+    public void testTapQueriesAgainstLinearScan() {
+        final int count = 100_000;
+        final int taps = 10_000;
+        final Random random = new Random(3);
+        final double[][] boxes = new double[count][];
+        for (int i = 0; i < count; i++) {
+            final double lat = 47 + random.nextDouble() * 3;
+            final double lon = 8 + random.nextDouble() * 5;
+            // mostly markers (points), some small polygons, few long tracks
+            final int kind = random.nextInt(100);
+            final double size = kind < 90 ? 0 : kind < 99 ? random.nextDouble() * 0.01 : random.nextDouble() * 2;
+            boxes[i] = new double[]{lat, lon, lat + size, lon + size * 1.5};
+        }
+
+        final long buildStart = System.nanoTime();
+        final GeoSpatialIndex<Integer> index = new GeoSpatialIndex<>();
+        for (int i = 0; i < count; i++) {
+            index.put(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+        final long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+
+        final double margin = 0.0005;
+        final double[] tapLats = new double[taps];
+        final double[] tapLons = new double[taps];
+        for (int t = 0; t < taps; t++) {
+            tapLats[t] = 47 + random.nextDouble() * 3;
+            tapLons[t] = 8 + random.nextDouble() * 5;
+        }
+
+        final long indexStart = System.nanoTime();
+        final Set<Long> indexHits = new HashSet<>();
+        for (int t = 0; t < taps; t++) {
+            final long tap = t;
+            index.query(tapLats[t] - margin, tapLons[t] - margin, tapLats[t] + margin, tapLons[t] + margin, i -> indexHits.add(tap * count + i));
+        }
+        final long indexMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - indexStart);
+
+        final long linearStart = System.nanoTime();
+        final Set<Long> linearHits = new HashSet<>();
+        for (int t = 0; t < taps; t++) {
+            final double minLat = tapLats[t] - margin;
+            final double maxLat = tapLats[t] + margin;
+            final double minLon = tapLons[t] - margin;
+            final double maxLon = tapLons[t] + margin;
+            for (int i = 0; i < count; i++) {
+                if (boxes[i][0] <= maxLat && boxes[i][2] >= minLat && boxes[i][1] <= maxLon && boxes[i][3] >= minLon) {
+                    linearHits.add((long) t * count + i);
+                }
+            }
+        }
+        final long linearMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - linearStart);
+
+        Log.i("GeoSpatialIndexAndroidTest: index for " + count + " primitives built in " + buildMillis + "ms, " + taps + " taps took "
+                + indexMillis + "ms with index, " + linearMillis + "ms with linear scan (" + linearHits.size() + " hits)");
+        assertThat(linearHits).isNotEmpty();
+        assertThat(indexHits).isEqualTo(linearHits);
+    }
+
+}
@@ -0,0 +1,117 @@
+package cgeo.geocaching.network;
+
+import cgeo.geocaching.storage.LocalStorage;
+import cgeo.geocaching.utils.BitmapMemoryCache;
+import cgeo.geocaching.utils.FileUtils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.net.Uri;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class HtmlImageTest {
+
+    private static final String GEOCODE = "GCHTMLIMAGETEST";
+    private static final int THUMBNAIL_SIZE = 50;
+
+    private File original;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        original = File.createTempFile("htmlimage", ".png");
+        url = Uri.fromFile(original).toString();
+        writeImage(Color.RED);
+    }
+
+    @After
+    public void tearDown() {
+        BitmapMemoryCache.getInstance().remove(url);
+        FileUtils.deleteDirectory(LocalStorage.getGeocacheDataDirectory(GEOCODE));
+        FileUtils.deleteIgnoringFailure(original);
+    }
+
+    @Test
+    public void testThumbnailIsCachedSeparatelyFromFullSize() {
+        final BitmapDrawable thumbnail = fetch(THUMBNAIL_SIZE);
+        final BitmapDrawable fullSize = fetch(0);
+
+        assertThat(Math.max(thumbnail.getBitmap().getWidth(), thumbnail.getBitmap().getHeight())).isLessThanOrEqualTo(THUMBNAIL_SIZE);
+        assertThat(fullSize.getBitmap().getWidth()).isGreaterThan(THUMBNAIL_SIZE);
+        assertThat(getThumbnailFile().isFile()).isTrue();
+
+        // both sizes are kept in memory under their own keys
+        assertThat(BitmapMemoryCache.getInstance().get(BitmapMemoryCache.getKey(url, THUMBNAIL_SIZE, THUMBNAIL_SIZE, false)).left.getBitmap())
+                .isSameAs(thumbnail.getBitmap());
+        final BitmapDrawable fetchedAgain = fetch(THUMBNAIL_SIZE);
+        assertThat(fetchedAgain.getBitmap()).isSameAs(thumbnail.getBitmap());
+        assertThat(fetch(0).getBitmap()).isSameAs(fullSize.getBitmap());
+    }
+
+    @Test
+    public void testThumbnailIsReusedIfNotOlderThanOriginal() {
+        assertThat(getRed(fetch(THUMBNAIL_SIZE))).isGreaterThan(200);
+        final File thumbnailFile = getThumbnailFile();
+
+        writeImage(Color.BLUE);
+        assertThat(original.setLastModified(thumbnailFile.lastModified() - 60000)).isTrue();
+        BitmapMemoryCache.getInstance().remove(url);
+
+        assertThat(getRed(fetch(THUMBNAIL_SIZE))).isGreaterThan(200);
+    }
+
+    @Test
+    public void testRefreshedOriginalInvalidatesThumbnail() {
+        assertThat(getRed(fetch(THUMBNAIL_SIZE))).isGreaterThan(200);
+        final File thumbnailFile = getThumbnailFile();
+
+        writeImage(Color.BLUE);
+        assertThat(thumbnailFile.setLastModified(original.lastModified() - 60000)).isTrue();
+
+        // the memory tier does not check files: it serves the old image until the image is removed, as done after a download
+        assertThat(getRed(fetch(THUMBNAIL_SIZE))).isGreaterThan(200);
+        BitmapMemoryCache.getInstance().remove(url);
+
+        final BitmapDrawable refreshed = fetch(THUMBNAIL_SIZE);
+        assertThat(getRed(refreshed)).isLessThan(50);
+        assertThat(Color.blue(refreshed.getBitmap().getPixel(refreshed.getBitmap().getWidth() / 2, refreshed.getBitmap().getHeight() / 2))).isGreaterThan(200);
+        assertThat(thumbnailFile.lastModified()).isGreaterThanOrEqualTo(original.lastModified());
+    }
+
+    private BitmapDrawable fetch(final int thumbnailSize) {
+        final HtmlImage htmlImage = new HtmlImage(GEOCODE, false, false, false);
+        htmlImage.setThumbnailSize(thumbnailSize);
+        return htmlImage.fetchDrawable(url).blockingLast();
+    }
+
+    private File getThumbnailFile() {
+        return LocalStorage.getGeocacheDataFile(GEOCODE, Uri.fromFile(original) + "#thumbnail" + THUMBNAIL_SIZE, true, false);
+    }
+
+    private static int getRed(final BitmapDrawable drawable) {
+        final Bitmap bitmap = drawable.getBitmap();
+        return Color.red(bitmap.getPixel(bitmap.getWidth() / 2, bitmap.getHeight() / 2));
+    }
+
+    /** writes a plain 400x300 image in given color to the original file */
+    private void writeImage(final int color) {
+        final Bitmap bitmap = Bitmap.createBitmap(400, 300, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        try (OutputStream out = new FileOutputStream(original)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.CgeoApplication;
+import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.list.StoredList;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Online backup of a (synthetic) large database: reads must keep working while the backup is running
+ */
+public class DataStoreBackupTest {
+
+    private static final String GEOCODE_PREFIX = "TESTBACKUP";
+    private static final int CACHE_COUNT = 3000;
+    private static final Viewport VIEWPORT = new Viewport(new Geopoint(47.9, 10.9), new Geopoint(48.6, 11.6));
+
+    @Test
+    public void testReadsDuringBackup() throws Exception {
+        final File backupDir = new File(CgeoApplication.getInstance().getCacheDir(), "backup-test");
+        try {
+            createCaches();
+            for (final boolean compress : new boolean[]{false, true}) {
+                FileUtils.deleteQuietly(backupDir);
+                assertThat(backupDir.mkdirs()).isTrue();
+
+                final AtomicReference<Uri> backup = new AtomicReference<>();
+                final AtomicInteger lastProgress = new AtomicInteger();
+                final Thread backupThread = new Thread(() -> backup.set(DataStore.backupDatabaseInternal(Folder.fromFile(backupDir), compress, lastProgress::set)));
+                backupThread.start();
+                int reads = 0;
+                while (backupThread.isAlive()) {
+                    assertThat(DataStore.loadCachedInViewport(VIEWPORT).getCount()).isGreaterThan(0);
+                    reads++;
+                }
+                backupThread.join();
+
+                assertThat(backup.get()).isNotNull();
+                assertThat(lastProgress.get()).isEqualTo(100);
+                assertThat(reads).isGreaterThan(0);
+                final File backupFile = new File(backupDir, compress ? DataStore.DB_FILE_NAME_BACKUP_ZIP : DataStore.DB_FILE_NAME_BACKUP);
+                assertThat(backupFile.length()).isGreaterThan(0);
+                if (!compress) {
+                    final SQLiteDatabase copy = SQLiteDatabase.openDatabase(backupFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+                    try {
+                        assertThat(DatabaseUtils.longForQuery(copy, "SELECT COUNT(*) FROM cg_caches WHERE geocode LIKE '" + GEOCODE_PREFIX + "%'", null)).isEqualTo(CACHE_COUNT);
+                    } finally {
+                        copy.close();
+                    }
+                }
+            }
+        } finally {
+            FileUtils.deleteQuietly(backupDir);
+            DataStore.removeCaches(getGeocodes(), EnumSet.of(LoadFlags.RemoveFlag.DB));
+        }
+    }
+
+    private static void createCaches() {
+        final String description = StringUtils.repeat("A long description for the backup test. ", 50);
+        final List<Geocache> caches = new ArrayList<>();
+        for (int i = 0; i < CACHE_COUNT; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode(GEOCODE_PREFIX + i);
+            cache.setName("Backup test cache " + i);
+            cache.setCoords(new Geopoint(48 + (i % 50) / 100.0, 11 + (i / 50) / 100.0));
+            cache.setDescription(description);
+            cache.setDetailed(true);
+            cache.setLists(new HashSet<>(Collections.singletonList(StoredList.STANDARD_LIST_ID)));
+            caches.add(cache);
+        }
+        DataStore.saveCaches(caches, EnumSet.of(LoadFlags.SaveFlag.DB));
+    }
+
+    private static Set<String> getGeocodes() {
+        final Set<String> geocodes = new HashSet<>();
+        for (int i = 0; i < CACHE_COUNT; i++) {
+            geocodes.add(GEOCODE_PREFIX + i);
+        }
+        return geocodes;
+    }
+
+}
@@ -0,0 +1,127 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.list.StoredList;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Reading from the database while it is written to (e.g. moving the map during a background download)
+ */
+public class DataStoreConcurrencyTest {
+
+    private static final String GEOCODE_PREFIX = "TESTWAL";
+    private static final int CACHE_COUNT = 2000;
+    private static final int BATCH_SIZE = 200;
+    private static final Viewport VIEWPORT = new Viewport(new Geopoint(47.9, 10.9), new Geopoint(48.6, 11.6));
+
+    @Test
+    public void testReadsProceedWhileWriteTransactionIsOpen() throws InterruptedException {
+        DataStore.setWriteAheadLoggingEnabled(true);
+        DataStore.saveCaches(Collections.singletonList(createCache(0)), EnumSet.of(LoadFlags.SaveFlag.DB));
+        try {
+            final CountDownLatch transactionOpen = new CountDownLatch(1);
+            final CountDownLatch readDone = new CountDownLatch(1);
+            final AtomicInteger readCount = new AtomicInteger(-1);
+            final Thread writer = new Thread(() -> DataStore.runInWriteTransaction(() -> {
+                transactionOpen.countDown();
+                try {
+                    readDone.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            writer.start();
+            assertThat(transactionOpen.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // the writer keeps its transaction open until the read has finished, so a blocked read would time out here
+            final Thread reader = new Thread(() -> {
+                readCount.set(DataStore.loadCachedInViewport(VIEWPORT).getCount());
+                readDone.countDown();
+            });
+            reader.start();
+            final boolean readWhileWriting = readDone.await(5, TimeUnit.SECONDS);
+            final boolean writerStillOpen = writer.isAlive();
+            readDone.countDown();
+            writer.join();
+            reader.join();
+
+            assertThat(readWhileWriting).isTrue();
+            assertThat(writerStillOpen).isTrue();
+            assertThat(readCount.get()).isGreaterThan(0);
+        } finally {
+            DataStore.removeCaches(getGeocodes(), EnumSet.of(LoadFlags.RemoveFlag.DB));
+        }
+    }
+
+    @Test
+    public void testReadsDuringBulkStore() throws InterruptedException {
+        DataStore.removeCaches(getGeocodes(), EnumSet.of(LoadFlags.RemoveFlag.DB));
+        DataStore.setWriteAheadLoggingEnabled(true);
+
+        final AtomicLong reads = new AtomicLong();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                DataStore.loadCachedInViewport(VIEWPORT);
+                reads.incrementAndGet();
+            }
+        });
+
+        reader.start();
+        try {
+            for (int batch = 0; batch < CACHE_COUNT / BATCH_SIZE; batch++) {
+                final List<Geocache> caches = new ArrayList<>();
+                for (int i = batch * BATCH_SIZE; i < (batch + 1) * BATCH_SIZE; i++) {
+                    caches.add(createCache(i));
+                }
+                DataStore.saveCaches(caches, EnumSet.of(LoadFlags.SaveFlag.DB));
+            }
+            writing.set(false);
+            reader.join();
+
+            assertThat(reads.get()).isGreaterThan(0);
+            assertThat(DataStore.loadCachedInViewport(VIEWPORT).getCount()).isGreaterThan(0);
+        } finally {
+            writing.set(false);
+            reader.join();
+            DataStore.removeCaches(getGeocodes(), EnumSet.of(LoadFlags.RemoveFlag.DB));
+        }
+    }
+
+    private static Geocache createCache(final int index) {
+        final Geocache cache = new Geocache();
+        cache.setGeocode(GEOCODE_PREFIX + index);
+        cache.setName("Concurrency test cache " + index);
+        cache.setCoords(new Geopoint(48 + (index % 50) / 100.0, 11 + (index / 50) / 100.0));
+        cache.setDescription("A long description");
+        cache.setDetailed(true);
+        cache.setLists(new HashSet<>(Collections.singletonList(StoredList.STANDARD_LIST_ID)));
+        return cache;
+    }
+
+    private static Set<String> getGeocodes() {
+        final Set<String> geocodes = new HashSet<>();
+        for (int i = 0; i < CACHE_COUNT; i++) {
+            geocodes.add(GEOCODE_PREFIX + i);
+        }
+        return geocodes;
+    }
+
+}
@@ -11,22 +11,29 @@ import cgeo.geocaching.log.LogEntry;
 import cgeo.geocaching.log.LogType;
 import cgeo.geocaching.log.LogTypeTrackable;
 import cgeo.geocaching.log.OfflineLogEntry;
+import cgeo.geocaching.log.PagedLogs;
 import cgeo.geocaching.log.ReportProblemType;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.models.Image;
 import cgeo.geocaching.models.Trackable;
+import cgeo.geocaching.utils.Log;
 import static cgeo.geocaching.enumerations.LoadFlags.REMOVE_ALL;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.junit.Test;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
@@ -106,6 +113,278 @@ public class DataStoreTest {
         }
     }
 
+    @Test
+    public void testBulkListOperations() {
+        int listId1 = StoredList.STANDARD_LIST_ID;
+        int listId2 = StoredList.STANDARD_LIST_ID;
+        final List<Geocache> caches = new ArrayList<>();
+        try {
+            listId1 = DataStore.createList("DataStore bulk test 1");
+            listId2 = DataStore.createList("DataStore bulk test 2");
+            for (int i = 0; i < 50; i++) {
+                final Geocache cache = new Geocache();
+                cache.setGeocode("BULK" + i);
+                cache.setDetailed(true);
+                cache.getLists().add(listId1);
+                if (i % 2 == 0) {
+                    cache.getLists().add(StoredList.STANDARD_LIST_ID);
+                }
+                cache.setAssignedEmoji(i);
+                caches.add(cache);
+            }
+            DataStore.saveCaches(caches, LoadFlags.SAVE_ALL);
+            final Map<String, Set<Integer>> oldLists = new HashMap<>();
+            for (final Geocache cache : caches) {
+                oldLists.put(cache.getGeocode(), new HashSet<>(cache.getLists()));
+            }
+
+            DataStore.moveToList(caches, listId1, listId2);
+            assertThat(DataStore.getAllStoredCachesCount(listId1)).isEqualTo(0);
+            assertThat(DataStore.getAllStoredCachesCount(listId2)).isEqualTo(50);
+            assertThat(caches.get(0).getLists()).containsOnly(StoredList.STANDARD_LIST_ID, listId2);
+
+            DataStore.removeFromOtherLists(caches, listId2);
+            assertThat(DataStore.loadLists("BULK0")).containsOnly(listId2);
+            assertThat(caches.get(0).getLists()).containsOnly(listId2);
+
+            // undo restores the individual lists of each cache
+            DataStore.saveLists(caches, oldLists);
+            assertThat(DataStore.loadLists("BULK0")).containsOnly(StoredList.STANDARD_LIST_ID, listId1);
+            assertThat(DataStore.loadLists("BULK1")).containsOnly(listId1);
+            assertThat(caches.get(1).getLists()).containsOnly(listId1);
+
+            final HashMap<String, Integer> oldIcons = new HashMap<>();
+            for (final Geocache cache : caches) {
+                oldIcons.put(cache.getGeocode(), cache.getAssignedEmoji());
+            }
+            DataStore.setCacheIcons(caches, 42);
+            assertThat(DataStore.loadCache("BULK7", LoadFlags.LOAD_ALL_DB_ONLY).getAssignedEmoji()).isEqualTo(42);
+            DataStore.setCacheIcons(caches, oldIcons);
+            assertThat(DataStore.loadCache("BULK7", LoadFlags.LOAD_ALL_DB_ONLY).getAssignedEmoji()).isEqualTo(7);
+            assertThat(caches.get(7).getAssignedEmoji()).isEqualTo(7);
+
+            final Map<String, Set<Integer>> dropped = DataStore.markDropped(caches);
+            assertThat(dropped).isEqualTo(oldLists);
+            assertThat(DataStore.loadLists("BULK0")).isEmpty();
+            DataStore.addToLists(caches, dropped);
+            assertThat(DataStore.loadLists("BULK0")).containsOnly(StoredList.STANDARD_LIST_ID, listId1);
+        } finally {
+            DataStore.removeCaches(Geocache.getGeocodes(caches), REMOVE_ALL);
+            DataStore.removeList(listId1);
+            DataStore.removeList(listId2);
+        }
+    }
+
+    /**
+     * benchmark of a list refresh (geocodes near a moving position, then the caches of these geocodes),
+     * which should run with a few compiled statements only, as positions, list ids and geocodes are bound.
+     */
+    @Test
+    public void testRepeatedListRefreshes() {
+        int listId = StoredList.STANDARD_LIST_ID;
+        final List<Geocache> caches = new ArrayList<>();
+        try {
+            listId = DataStore.createList("DataStore refresh benchmark");
+            // more caches than fit into one IN list
+            for (int i = 0; i < SqlBuilder.MAX_IN_VALUES + 44; i++) {
+                final Geocache cache = new Geocache();
+                cache.setGeocode("REFRESH" + i);
+                cache.setCoords(new Geopoint(48 + i * 0.001, 11));
+                cache.setDetailed(true);
+                cache.getLists().add(listId);
+                caches.add(cache);
+            }
+            DataStore.saveCaches(caches, LoadFlags.SAVE_ALL);
+
+            assertThat(DataStore.loadCaches(Geocache.getGeocodes(caches), LoadFlags.LOAD_ALL_DB_ONLY)).hasSize(caches.size());
+
+            final int refreshes = 50;
+            final long start = System.nanoTime();
+            DataStore.getMetrics().reset();
+            Set<String> firstRefreshTexts = null;
+            for (int refresh = 0; refresh < refreshes; refresh++) {
+                // the position moves along the caches
+                final int nearest = refresh * 5;
+                final SearchResult search = DataStore.getBatchOfStoredCaches(new Geopoint(48 + nearest * 0.001, 11), listId, null, null, false, 3);
+                assertThat(search.getGeocodes()).contains("REFRESH" + nearest);
+                assertThat(DataStore.loadCaches(search.getGeocodes(), LoadFlags.LOAD_ALL_DB_ONLY)).hasSize(3);
+                if (firstRefreshTexts == null) {
+                    firstRefreshTexts = DataStore.getMetrics().getQueryTexts();
+                }
+            }
+            // values are bound, so further refreshes (with other positions and geocodes) must reuse the SQL texts of the first one
+            assertThat(firstRefreshTexts).isNotEmpty();
+            assertThat(DataStore.getMetrics().getQueryTexts()).isEqualTo(firstRefreshTexts);
+            Log.i("DataStoreTest: " + refreshes + " list refreshes took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } finally {
+            DataStore.removeCaches(Geocache.getGeocodes(caches), REMOVE_ALL);
+            DataStore.removeList(listId);
+        }
+    }
+
+    /**
+     * Viewport scans of the CacheCache must see coordinate changes of cached caches, also if they are not stored again
+     */
+    @Test
+    public void testCachedCachesInViewportFollowCoordinateChanges() {
+        final String geocode = "GCVIEWPORTMOVE";
+        final Geocache cache = new Geocache();
+        cache.setGeocode(geocode);
+        cache.setCoords(new Geopoint(10, 10));
+        try {
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.CACHE));
+            final Viewport oldArea = new Viewport(new Geopoint(9.9, 9.9), new Geopoint(10.1, 10.1));
+            final Viewport newArea = new Viewport(new Geopoint(19.9, 19.9), new Geopoint(20.1, 20.1));
+            assertThat(DataStore.loadCachedInViewport(oldArea).getGeocodes()).contains(geocode);
+
+            // e.g. corrected coordinates
+            cache.setCoords(new Geopoint(20, 20));
+            assertThat(DataStore.loadCachedInViewport(newArea).getGeocodes()).contains(geocode);
+            assertThat(DataStore.loadCachedInViewport(oldArea).getGeocodes()).doesNotContain(geocode);
+        } finally {
+            DataStore.removeCache(geocode, REMOVE_ALL);
+        }
+    }
+
+    /**
+     * Measures the heap of stored caches loaded as {@link Geocache} objects and as {@link CacheSummaryTable} rows. The values are only logged.
+     */
+    @Test
+    public void testCacheSummariesHeapComparedToGeocache() {
+        int listId = StoredList.STANDARD_LIST_ID;
+        final List<Geocache> caches = new ArrayList<>();
+        try {
+            listId = DataStore.createList("DataStore summary heap");
+            for (int i = 0; i < 5000; i++) {
+                final Geocache cache = new Geocache();
+                cache.setGeocode("SUMMARY" + i);
+                cache.setName("Summary cache " + i);
+                cache.setCoords(new Geopoint(48 + i * 0.0001, 11));
+                cache.setDetailed(true);
+                cache.getLists().add(listId);
+                caches.add(cache);
+            }
+            DataStore.saveCaches(caches, LoadFlags.SAVE_ALL);
+            final Set<String> geocodes = Geocache.getGeocodes(caches);
+            // the saved cache objects stay referenced by the list, only new objects are measured
+            DataStore.removeAllFromCache();
+
+            final long beforeCaches = usedHeap();
+            final Set<Geocache> loaded = DataStore.loadCaches(geocodes, EnumSet.of(LoadFlags.LoadFlag.DB_MINIMAL));
+            final long cachesHeap = usedHeap() - beforeCaches;
+            final int loadedCount = loaded.size();
+            assertThat(loadedCount).isEqualTo(geocodes.size());
+            loaded.clear();
+            DataStore.removeAllFromCache();
+
+            final long beforeSummaries = usedHeap();
+            final CacheSummaryTable summaries = DataStore.loadCacheSummaries(true);
+            final long summariesHeap = usedHeap() - beforeSummaries;
+            for (String geocode : geocodes) {
+                assertThat(summaries.indexOf(geocode)).isGreaterThanOrEqualTo(0);
+            }
+
+            Log.i("DataStoreTest: heap per cache " + cachesHeap / loadedCount + " bytes as Geocache, " + summariesHeap / summaries.size()
+                    + " bytes as summary row (estimated " + summaries.estimateHeapBytes() / summaries.size() + " bytes)");
+        } finally {
+            DataStore.removeCaches(Geocache.getGeocodes(caches), REMOVE_ALL);
+            DataStore.removeList(listId);
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void testStoreCachesInBatches() {
+        final List<Geocache> caches = createCachesWithAttributes("GCBATCH", 250);
+        try {
+            final DataStore.StoreStatistics statistics = new DataStore.StoreStatistics();
+            assertThat(DataStore.storeIntoDatabase(caches, statistics)).isEqualTo(caches.size());
+            assertThat(statistics.getRows("cg_caches")).isEqualTo(caches.size());
+            assertThat(statistics.getRows("cg_attributes")).isEqualTo(2 * caches.size());
+
+            final Set<Geocache> loaded = DataStore.loadCaches(Geocache.getGeocodes(caches), LoadFlags.LOAD_ALL_DB_ONLY);
+            assertThat(loaded).hasSize(caches.size());
+            for (final Geocache cache : loaded) {
+                assertThat(cache.getAttributes()).containsOnly("dogs_yes", "wheelchair_no");
+            }
+        } finally {
+            DataStore.removeCaches(Geocache.getGeocodes(caches), REMOVE_ALL);
+        }
+    }
+
+    @Test
+    public void testStoreSkipsUnchangedChildTables() {
+        final List<Geocache> caches = createCachesWithAttributes("GCUNCHANGED", 2);
+        try {
+            DataStore.storeIntoDatabase(caches, null);
+
+            final DataStore.StoreStatistics unchanged = new DataStore.StoreStatistics();
+            DataStore.storeIntoDatabase(caches, unchanged);
+            assertThat(unchanged.getRows("cg_caches")).isEqualTo(2);
+            assertThat(unchanged.getRows("cg_attributes")).isEqualTo(0);
+            assertThat(unchanged.getSkipped("cg_attributes")).isEqualTo(2);
+
+            caches.get(1).setAttributes(Collections.singletonList("dogs_no"));
+            final DataStore.StoreStatistics changed = new DataStore.StoreStatistics();
+            DataStore.storeIntoDatabase(caches, changed);
+            assertThat(changed.getRows("cg_attributes")).isEqualTo(1);
+            assertThat(changed.getSkipped("cg_attributes")).isEqualTo(1);
+
+            final Geocache loaded = DataStore.loadCache(caches.get(1).getGeocode(), LoadFlags.LOAD_ALL_DB_ONLY);
+            assertThat(loaded).isNotNull();
+            assertThat(loaded.getAttributes()).containsExactly("dogs_no");
+        } finally {
+            DataStore.removeCaches(Geocache.getGeocodes(caches), REMOVE_ALL);
+        }
+    }
+
+    /**
+     * A broken cache makes its batch fail. The other caches of the batch must then be stored one by one,
+     * including their child tables (the content hashes of the failed batch must not be remembered).
+     */
+    @Test
+    public void testFailedBatchIsStoredPerCache() {
+        final List<Geocache> caches = createCachesWithAttributes("GCRETRY", 3);
+        final List<Geocache> batch = new ArrayList<>(caches);
+        // caches without geocode cannot be stored
+        batch.add(new Geocache());
+        try {
+            final DataStore.StoreStatistics statistics = new DataStore.StoreStatistics();
+            assertThat(DataStore.storeIntoDatabase(batch, statistics)).isEqualTo(caches.size());
+            assertThat(statistics.getRows("cg_caches")).isEqualTo(caches.size());
+            assertThat(statistics.getRows("cg_attributes")).isEqualTo(2 * caches.size());
+
+            final Set<Geocache> loaded = DataStore.loadCaches(Geocache.getGeocodes(caches), LoadFlags.LOAD_ALL_DB_ONLY);
+            assertThat(loaded).hasSize(caches.size());
+            for (final Geocache cache : loaded) {
+                assertThat(cache.getAttributes()).containsOnly("dogs_yes", "wheelchair_no");
+            }
+        } finally {
+            DataStore.removeCaches(Geocache.getGeocodes(caches), REMOVE_ALL);
+        }
+    }
+
+    private static List<Geocache> createCachesWithAttributes(final String prefix, final int count) {
+        final List<Geocache> caches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode(prefix + i);
+            cache.setCoords(new Geopoint(48 + i * 0.001, 11));
+            cache.setDetailed(true);
+            cache.setAttributes(Arrays.asList("dogs_yes", "wheelchair_no"));
+            caches.add(cache);
+        }
+        return caches;
+    }
+
     // Check that queries don't throw an exception (see issue #1429).
     @Test
     @SuppressWarnings("PMD.JUnitTestsShouldIncludeAssert")
@@ -194,6 +473,147 @@ public class DataStoreTest {
         assertThat(logsLoadeded).containsExactlyInAnyOrderElementsOf(logs);
     }
 
+    @Test
+    public void testLogPages() {
+        DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        try {
+            final long now = new Date().getTime();
+            final List<LogEntry> logs = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                // several logs share the same date to check that paging does not skip or repeat them
+                logs.add(new LogEntry.Builder().setDate(now - MILLISECONDS_PER_DAY * (i / 3)).setLog("testlog" + i)
+                        .setLogType(i % 2 == 0 ? LogType.FOUND_IT : LogType.NOTE).setAuthor(i % 5 == 0 ? "author5" : "author").setFriend(i % 10 == 0).build());
+            }
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, logs, true);
+
+            // the old API still returns the newest 100 logs
+            assertThat(DataStore.loadLogs(ARTIFICIAL_GEOCODE)).hasSize(100);
+
+            final List<LogEntry> all = new ArrayList<>();
+            final PagedLogs pagedLogs = new PagedLogs(ARTIFICIAL_GEOCODE, false);
+            List<LogEntry> page = pagedLogs.loadNextPage();
+            assertThat(page).hasSize(PagedLogs.PAGE_SIZE);
+            while (!page.isEmpty()) {
+                all.addAll(page);
+                page = pagedLogs.loadNextPage();
+            }
+            assertThat(pagedLogs.isComplete()).isTrue();
+            assertThat(all).hasSize(250);
+            assertThat(all).containsExactlyInAnyOrderElementsOf(logs);
+            for (int i = 1; i < all.size(); i++) {
+                assertThat(all.get(i).date).isLessThanOrEqualTo(all.get(i - 1).date);
+            }
+
+            assertThat(loadAllPages(new PagedLogs(ARTIFICIAL_GEOCODE, true))).hasSize(25);
+            assertThat(loadAllPages(new PagedLogs(ARTIFICIAL_GEOCODE, false, Collections.singleton(LogType.FOUND_IT), null))).hasSize(125);
+            assertThat(loadAllPages(new PagedLogs(ARTIFICIAL_GEOCODE, false, Collections.singleton(LogType.NOTE), "author5"))).hasSize(25);
+            assertThat(loadAllPages(new PagedLogs(ARTIFICIAL_GEOCODE, false, null, "author5"))).hasSize(50);
+        } finally {
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+    }
+
+    @Test
+    public void testCompressedTexts() {
+        DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        final String description = StringUtils.repeat("<p>A <b>long</b> description, stored compressed.</p>\n", 50);
+        final String hint = StringUtils.repeat("Under the stone. ", 20);
+        final String logText = StringUtils.repeat("Thanks for the cache! ", 20);
+        final Geocache cache = new Geocache();
+        cache.setGeocode(ARTIFICIAL_GEOCODE);
+        cache.setDetailed(true);
+        cache.setDescription(description);
+        cache.setShortDescription("short");
+        cache.setHint(hint);
+        try {
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, Collections.singletonList(new LogEntry.Builder().setDate(new Date().getTime()).setLog(logText).setLogType(LogType.NOTE).build()), true);
+
+            final ImmutablePair<Long, Long> compressed = DataStore.recodeCompressibleTexts(true, null);
+            assertThat(compressed.right).isLessThan(compressed.left);
+            assertStoredTexts(description, hint, logText);
+
+            final ImmutablePair<Long, Long> decompressed = DataStore.recodeCompressibleTexts(false, null);
+            assertThat(decompressed.right).isGreaterThan(decompressed.left);
+            assertStoredTexts(description, hint, logText);
+        } finally {
+            DataStore.recodeCompressibleTexts(false, null);
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+    }
+
+    private static void assertStoredTexts(final String description, final String hint, final String logText) {
+        final Geocache texts = DataStore.loadCacheTexts(ARTIFICIAL_GEOCODE);
+        assertThat(texts.getDescription()).isEqualTo(description);
+        assertThat(texts.getShortDescription()).isEqualTo("short");
+        assertThat(texts.getHint()).isEqualTo(hint);
+        assertThat(DataStore.loadLogs(ARTIFICIAL_GEOCODE).get(0).log).isEqualTo(logText);
+    }
+
+    @Test
+    public void testHotQueriesUseIndexes() {
+        DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        final Geocache cache = new Geocache();
+        cache.setGeocode(ARTIFICIAL_GEOCODE);
+        cache.setCoords(new Geopoint(48.0, 11.0));
+        cache.setDetailed(true);
+        try {
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, Collections.singletonList(new LogEntry.Builder().setDate(new Date().getTime()).setLog("testlog").setLogType(LogType.NOTE).build()), true);
+
+            DataStore.getMetrics().reset();
+            DataStore.loadCaches(Collections.singleton(ARTIFICIAL_GEOCODE), LoadFlags.LOAD_ALL_DB_ONLY);
+            DataStore.loadCacheTexts(ARTIFICIAL_GEOCODE);
+            new PagedLogs(ARTIFICIAL_GEOCODE, false).loadNextPage();
+            DataStore.loadCachedInViewport(new Viewport(new Geopoint(47.9, 10.9), new Geopoint(48.1, 11.1)));
+
+            final Map<String, List<String>> plans = DataStore.explainRecordedQueries();
+            assertThat(plans).isNotEmpty();
+            for (final Map.Entry<String, List<String>> plan : plans.entrySet()) {
+                assertThat(DataStoreMetrics.findFullTableScans(plan.getValue())).as(plan.getKey() + " " + plan.getValue()).isEmpty();
+            }
+        } finally {
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+    }
+
+    @Test
+    public void testLogAuthorsUseUserDictionary() {
+        DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        final Geocache cache = new Geocache();
+        cache.setGeocode(ARTIFICIAL_GEOCODE);
+        cache.setDetailed(true);
+        try {
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
+            final List<LogEntry> logs = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                logs.add(new LogEntry.Builder().setDate(new Date().getTime() - MILLISECONDS_PER_DAY * i).setLog("testlog" + i).setLogType(LogType.FOUND_IT)
+                        .setAuthor(i % 2 == 0 ? "dictionaryFinder" : "otherDictionaryFinder").setAuthorGuid(i % 2 == 0 ? "guid-a" : "guid-b").build());
+            }
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, logs, true);
+
+            final List<LogEntry> loaded = DataStore.loadLogs(ARTIFICIAL_GEOCODE);
+            assertThat(loaded).containsExactlyInAnyOrderElementsOf(logs);
+            // all logs of an author share the same name instance
+            assertThat(loaded.get(2).author).isEqualTo("dictionaryFinder");
+            assertThat(loaded.get(2).author).isSameAs(loaded.get(0).author);
+            assertThat(loaded.get(2).authorGuid).isEqualTo("guid-a");
+
+            assertThat(DataStore.loadLogsPage(ARTIFICIAL_GEOCODE, null, "otherDictionaryFinder", false, null, 100)).hasSize(5);
+            assertThat(DataStore.getSuggestionsFinderName("ictionaryFind")).contains("dictionaryFinder", "otherDictionaryFinder");
+            assertThat(DataStore.getSuggestionsOwnerName("otherDictionaryFinder")).isEmpty();
+        } finally {
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+    }
+
+    private static List<LogEntry> loadAllPages(final PagedLogs pagedLogs) {
+        while (!pagedLogs.loadNextPage().isEmpty()) {
+            // load all
+        }
+        return pagedLogs.getLoaded();
+    }
+
     @Test
     public void testLoadCacheHistory() {
         final SearchResult history = DataStore.getBatchOfStoredCaches(null, PseudoList.HISTORY_LIST.id);
@@ -0,0 +1,112 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.log.LogEntry;
+import cgeo.geocaching.log.LogType;
+import cgeo.geocaching.storage.extension.MaintenanceHistory;
+import cgeo.geocaching.storage.extension.MaintenanceProgress;
+import static cgeo.geocaching.enumerations.LoadFlags.REMOVE_ALL;
+import static cgeo.geocaching.storage.DataStoreTest.ARTIFICIAL_GEOCODE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DatabaseMaintenanceTest {
+
+    @Test
+    public void testOrphanedLogsAreRemoved() {
+        DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        try {
+            // logs of a cache which is not stored
+            final List<LogEntry> logs = new ArrayList<>();
+            for (int i = 0; i < DatabaseMaintenance.ORPHAN_CHUNK_SIZE + 10; i++) {
+                logs.add(new LogEntry.Builder().setDate(new Date().getTime()).setLog("orphan" + i).setLogType(LogType.NOTE).build());
+            }
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, logs, true);
+            assertThat(DataStore.loadLogs(ARTIFICIAL_GEOCODE)).isNotEmpty();
+
+            MaintenanceProgress.setOrphanCleanup(0, 0);
+            final DatabaseMaintenance.Result result = DatabaseMaintenance.run(() -> false);
+
+            assertThat(result.completed).isTrue();
+            assertThat(result.statisticsUpdated).isTrue();
+            assertThat(result.orphansDeleted).isGreaterThanOrEqualTo(logs.size());
+            assertThat(DataStore.loadLogs(ARTIFICIAL_GEOCODE)).isEmpty();
+            assertThat(DataStore.isIncrementalAutoVacuum()).isTrue();
+            assertThat(DataStore.getPageStatistics()[2]).isEqualTo(0);
+
+            final List<MaintenanceHistory> history = MaintenanceHistory.getAll();
+            assertThat(history).isNotEmpty();
+            assertThat(history.get(history.size() - 1).getOrphansDeleted()).isEqualTo(result.orphansDeleted);
+        } finally {
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+    }
+
+    /** ids of users remembered when storing logs must be forgotten when the users are removed as orphans */
+    @Test
+    public void testRemovedUsersAreNotReferencedAgain() {
+        DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        try {
+            // logs of a cache which is not stored, their author is only referenced by them
+            final List<LogEntry> logs = Collections.singletonList(new LogEntry.Builder().setDate(new Date().getTime()).setLog("orphan")
+                    .setLogType(LogType.FOUND_IT).setAuthor("orphanedAuthor").setAuthorGuid("guid-orphaned").build());
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, logs, true);
+
+            MaintenanceProgress.setOrphanCleanup(0, 0);
+            assertThat(DatabaseMaintenance.run(() -> false).completed).isTrue();
+            assertThat(DataStore.loadLogs(ARTIFICIAL_GEOCODE)).isEmpty();
+
+            DataStore.saveLogs(ARTIFICIAL_GEOCODE, logs, true);
+            final List<LogEntry> loaded = DataStore.loadLogs(ARTIFICIAL_GEOCODE);
+            assertThat(loaded).hasSize(1);
+            assertThat(loaded.get(0).author).isEqualTo("orphanedAuthor");
+            assertThat(loaded.get(0).authorGuid).isEqualTo("guid-orphaned");
+        } finally {
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+    }
+
+    @Test
+    public void testStoppedRunIsInterrupted() {
+        final DatabaseMaintenance.Result result = DatabaseMaintenance.run(() -> true);
+        assertThat(result.completed).isFalse();
+        assertThat(result.orphansDeleted).isEqualTo(0);
+    }
+
+    @Test
+    public void testCompactionIsRecorded() {
+        final DatabaseMaintenance.Result result = DatabaseMaintenance.compact();
+
+        assertThat(result.completed).isTrue();
+        assertThat(DataStore.isIncrementalAutoVacuum()).isTrue();
+        assertThat(DataStore.getPageStatistics()[2]).isEqualTo(0);
+
+        final List<MaintenanceHistory> history = MaintenanceHistory.getAll();
+        assertThat(history).isNotEmpty();
+        assertThat(history.get(history.size() - 1).isCompleted()).isTrue();
+        assertThat(history.get(history.size() - 1).getSummary()).startsWith("compaction completed");
+    }
+
+    @Test
+    public void testInterruptedOrphanCleanupIsContinued() {
+        MaintenanceProgress.setOrphanCleanup(0, 0);
+        // stops after the first chunk
+        final AtomicInteger checks = new AtomicInteger();
+        final DatabaseMaintenance.Result result = DatabaseMaintenance.run(() -> checks.incrementAndGet() > 1);
+        assertThat(result.completed).isFalse();
+
+        final long[] progress = MaintenanceProgress.getOrphanCleanup();
+        assertThat(progress[0] > 0 || progress[1] > 0).isTrue();
+
+        // the next run finishes the cleanup and starts from the beginning afterwards
+        assertThat(DatabaseMaintenance.run(() -> false).completed).isTrue();
+        assertThat(MaintenanceProgress.getOrphanCleanup()).containsExactly(0, 0);
+    }
+
+}
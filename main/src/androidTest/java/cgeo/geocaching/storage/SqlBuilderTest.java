@@ -1,5 +1,10 @@
 package cgeo.geocaching.storage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
@@ -84,5 +89,34 @@ public class SqlBuilderTest {
         assertThat(sb.getSqlWhereArgsArray()).isEqualTo(new String[]{"abc", "3", "4"});
     }
 
+    @Test
+    public void orderWithArgs() {
+        final SqlBuilder sb = new SqlBuilder("mytable", new String[]{"col1", "col2"})
+                .addWhere("col1=?", "abc")
+                .addOrder("ABS(col2 - ?)", true, Collections.singletonList("5"))
+                .addOrder("col1", false);
+        assertThat(sb.getSql()).isEqualTo("SELECT t.col1, t.col2 FROM mytable t WHERE (col1=?) ORDER BY (ABS(col2 - ?)) DESC, (col1) ASC");
+        assertThat(sb.getSqlArgsArray()).isEqualTo(new String[]{"abc", "5"});
+        // the count has no order, so it must not get its arguments
+        assertThat(sb.getSqlWhereArgsArray()).isEqualTo(new String[]{"abc"});
+    }
+
+    @Test
+    public void inExpression() {
+        assertThat(SqlBuilder.createInExpression("geocode", 3)).isEqualTo("geocode IN (?,?,?)");
+        assertThat(SqlBuilder.toInArgs(Collections.emptyList())).isEmpty();
+        assertThat(SqlBuilder.toInArgs(Collections.singletonList("GC1"))).containsExactly(new String[]{"GC1"});
+        // padded to the next power of two by repeating the last value
+        assertThat(SqlBuilder.toInArgs(Arrays.asList("GC1", "GC2", "GC3"))).containsExactly(new String[]{"GC1", "GC2", "GC3", "GC3"});
+
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < SqlBuilder.MAX_IN_VALUES + 3; i++) {
+            values.add("GC" + i);
+        }
+        final List<String[]> chunks = SqlBuilder.toInArgs(values);
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0)).hasSize(SqlBuilder.MAX_IN_VALUES);
+        assertThat(chunks.get(1)).containsExactly("GC" + SqlBuilder.MAX_IN_VALUES, "GC" + (SqlBuilder.MAX_IN_VALUES + 1), "GC" + (SqlBuilder.MAX_IN_VALUES + 2), "GC" + (SqlBuilder.MAX_IN_VALUES + 2));
+    }
 
 }
@@ -0,0 +1,71 @@
+package cgeo.geocaching.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+
+import com.drew.metadata.Metadata;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class BitmapMemoryCacheTest {
+
+    private static final String URL = "https://img.geocaching.com/cache/large/image.jpg";
+
+    /** 10x10 ARGB_8888: 400 bytes */
+    private static ImmutablePair<BitmapDrawable, Metadata> createImage() {
+        return ImmutablePair.of(new BitmapDrawable(null, Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888)), null);
+    }
+
+    @Test
+    public void testKeyComposition() {
+        assertThat(BitmapMemoryCache.getKey(URL, 100, 200, false)).isEqualTo("100x200|" + URL);
+        assertThat(BitmapMemoryCache.getKey(URL, 100, 200, true)).isEqualTo("100x200m|" + URL);
+        assertThat(BitmapMemoryCache.getKey(URL, 200, 100, false)).isNotEqualTo(BitmapMemoryCache.getKey(URL, 100, 200, false));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWithinByteBudget() {
+        final BitmapMemoryCache cache = new BitmapMemoryCache(1000);
+        final ImmutablePair<BitmapDrawable, Metadata> first = createImage();
+        cache.put("a", first);
+        cache.put("b", createImage());
+        assertThat(cache.get("a")).isSameAs(first);
+
+        // third image exceeds the budget of two images: "b" is the least recently used one
+        cache.put("c", createImage());
+        assertThat(cache.get("a")).isSameAs(first);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNotNull();
+    }
+
+    @Test
+    public void testImageLargerThanBudgetIsNotKept() {
+        final BitmapMemoryCache cache = new BitmapMemoryCache(100);
+        cache.put("a", createImage());
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void testImagesWithoutBitmapAreNotKept() {
+        final BitmapMemoryCache cache = new BitmapMemoryCache(1000);
+        cache.put("a", ImmutablePair.of(null, null));
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void testRemoveDropsAllSizesOfUrl() {
+        final BitmapMemoryCache cache = new BitmapMemoryCache(10000);
+        final String otherUrl = "https://img.geocaching.com/cache/large/other.jpg";
+        cache.put(BitmapMemoryCache.getKey(URL, 50, 50, false), createImage());
+        cache.put(BitmapMemoryCache.getKey(URL, 1000, 2000, true), createImage());
+        cache.put(BitmapMemoryCache.getKey(otherUrl, 50, 50, false), createImage());
+
+        cache.remove(URL);
+
+        assertThat(cache.get(BitmapMemoryCache.getKey(URL, 50, 50, false))).isNull();
+        assertThat(cache.get(BitmapMemoryCache.getKey(URL, 1000, 2000, true))).isNull();
+        assertThat(cache.get(BitmapMemoryCache.getKey(otherUrl, 50, 50, false))).isNotNull();
+    }
+
+}
@@ -4,6 +4,7 @@ import cgeo.geocaching.network.Cookies;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.storage.DataStore;
 import cgeo.geocaching.ui.notifications.NotificationChannels;
+import cgeo.geocaching.utils.BitmapMemoryCache;
 import cgeo.geocaching.utils.ContextLogger;
 import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.MessageCenterUtils;
@@ -122,6 +123,7 @@ public class CgeoApplication extends Application {
         if (level >= TRIM_MEMORY_MODERATE) {
             Log.i("Cleaning applications cache to trim memory");
             DataStore.removeAllFromCache();
+            BitmapMemoryCache.getInstance().clear();
         }
     }
 
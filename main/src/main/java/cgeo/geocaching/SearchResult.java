@@ -30,6 +30,7 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
@@ -383,18 +384,52 @@ public class SearchResult implements Parcelable {
             if (!connector.isActive()) {
                 return Maybe.empty();
             }
-            return Maybe.fromCallable(() -> {
-                try {
-                    return func.apply(connector);
-                } catch (final Throwable t) {
-                    Log.w("parallelCombineActive: swallowing error from connector " + connector, t);
-                    return null;
-                }
-            }).subscribeOn(AndroidRxUtils.networkScheduler);
+            return searchConnector(connector, func, false);
         }).reduce(initial == null ? new SearchResult() : initial, (searchResult, searchResult2) -> {
             searchResult.addSearchResult(searchResult2);
             return searchResult;
         }).blockingGet();
     }
 
+    /**
+     * execute the given connector request in parallel on all active connectors, emitting each connector's result as soon as it is available
+     *
+     * A connector failing or not answering within the given timeout is skipped, with a result carrying {@link StatusCode#COMMUNICATION_ERROR} emitted instead.
+     *
+     * @param connectors     connectors to be considered in request
+     * @param func           connector request
+     * @param timeoutSeconds maximum time to wait for each connector
+     */
+    @NonNull
+    public static <C extends IConnector> Observable<SearchResult> parallelStreamActive(
+            final Collection<C> connectors, final Function<C, SearchResult> func, final long timeoutSeconds) {
+        return Observable.fromIterable(connectors).flatMapMaybe((Function<C, Maybe<SearchResult>>) connector -> {
+            if (!connector.isActive()) {
+                return Maybe.empty();
+            }
+            return searchConnector(connector, func, true).timeout(timeoutSeconds, TimeUnit.SECONDS, Maybe.fromCallable(() -> {
+                Log.w("parallelStreamActive: no result from connector " + connector + " within " + timeoutSeconds + "s");
+                return new SearchResult(connector, StatusCode.COMMUNICATION_ERROR);
+            }));
+        });
+    }
+
+    /**
+     * @param reportError if true, a failing connector results in a {@link StatusCode#COMMUNICATION_ERROR} result, otherwise its error is swallowed
+     */
+    private static <C extends IConnector> Maybe<SearchResult> searchConnector(final C connector, final Function<C, SearchResult> func, final boolean reportError) {
+        return Maybe.fromCallable(() -> {
+            try {
+                return func.apply(connector);
+            } catch (final Throwable t) {
+                if (reportError) {
+                    Log.w("parallelStreamActive: error from connector " + connector, t);
+                    return new SearchResult(connector, StatusCode.COMMUNICATION_ERROR);
+                }
+                Log.w("parallelCombineActive: swallowing error from connector " + connector, t);
+                return null;
+            }
+        }).subscribeOn(AndroidRxUtils.networkScheduler);
+    }
+
 }
@@ -3,7 +3,6 @@ package cgeo.geocaching.command;
 import cgeo.geocaching.R;
 import cgeo.geocaching.SearchResult;
 import cgeo.geocaching.enumerations.LoadFlags;
-import cgeo.geocaching.list.StoredList;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.DataStore;
 
@@ -14,7 +13,6 @@ import androidx.annotation.Nullable;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,13 +43,7 @@ public abstract class MakeListUniqueCommand extends AbstractCommand {
             oldLists.put(geocode, backupOfLists);
         }
 
-        final List<StoredList> lists = DataStore.getLists();
-        for (final StoredList list : lists) {
-            if (list.id == listId) {
-                continue;
-            }
-            DataStore.removeFromList(caches, list.id);
-        }
+        DataStore.removeFromOtherLists(caches, listId);
     }
 
     @Override
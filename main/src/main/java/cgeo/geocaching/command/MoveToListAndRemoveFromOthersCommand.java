@@ -36,12 +36,7 @@ public abstract class MoveToListAndRemoveFromOthersCommand extends MoveToListCom
 
     @Override
     protected void undoCommand() {
-        for (final Geocache cache : getCaches()) {
-            final Set<Integer> listIds = oldLists.get(cache.getGeocode());
-            if (listIds != null) {
-                DataStore.saveLists(getCaches(), listIds);
-            }
-        }
+        DataStore.saveLists(getCaches(), oldLists);
     }
 
 }
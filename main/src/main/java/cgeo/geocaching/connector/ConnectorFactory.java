@@ -112,6 +112,9 @@ public final class ConnectorFactory {
     @NonNull
     private static final Collection<ISearchByViewPort> searchByViewPortConns = getMatchingConnectors(ISearchByViewPort.class);
 
+    /** maximum time to wait for a single connector's viewport search */
+    private static final long VIEWPORT_SEARCH_TIMEOUT_SECONDS = 20;
+
     @NonNull
     private static final Collection<ISearchByNextPage> searchByNextPageConns = getMatchingConnectors(ISearchByNextPage.class);
 
@@ -372,6 +375,22 @@ public final class ConnectorFactory {
         return result;
     }
 
+    /**
+     * Searches the viewport on all active connectors in parallel and emits each connector's (amended) result as soon as it arrives,
+     * so slow connectors do not delay the results of the others.
+     * Connectors not answering within {@link #VIEWPORT_SEARCH_TIMEOUT_SECONDS} emit an error result instead.
+     *
+     * @see ISearchByViewPort#searchByViewport
+     */
+    @NonNull
+    public static Observable<SearchResult> searchByViewportStream(@NonNull final Viewport viewport, @Nullable final GeocacheFilter filter) {
+        return SearchResult.parallelStreamActive(searchByViewPortConns, connector -> {
+            final SearchResult result = connector.searchByViewport(viewport);
+            AmendmentUtils.amendCachesForViewport(result, viewport, filter);
+            return result;
+        }, VIEWPORT_SEARCH_TIMEOUT_SECONDS);
+    }
+
     @Nullable
     public static String getGeocodeFromURL(@Nullable final String url) {
         if (url == null) {
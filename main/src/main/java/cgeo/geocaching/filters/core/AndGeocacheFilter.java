@@ -13,8 +13,9 @@ public class AndGeocacheFilter extends LogicalGeocacheFilter {
     @Override
     public Boolean filter(final Geocache cache) {
         boolean isInconclusive = false;
-        for (IGeocacheFilter child : getChildren()) {
-            final Boolean childResult = child.filter(cache);
+        final EvaluationPlan plan = getEvaluationPlan();
+        for (int i = 0; i < plan.size(); i++) {
+            final Boolean childResult = plan.filter(i, cache);
             if (childResult == null) {
                 isInconclusive = true;
             } else if (!childResult) {
@@ -24,6 +25,34 @@ public class AndGeocacheFilter extends LogicalGeocacheFilter {
         return isInconclusive ? null : true;
     }
 
+    @Override
+    protected float getEvaluationRank(final IGeocacheFilter child) {
+        //evaluation may stop after this child if it returns false
+        return child.getEvaluationCost() / Math.max(0.01f, 1f - child.getSelectivity());
+    }
+
+    @Override
+    public float getEvaluationCost() {
+        //later children are only evaluated if all earlier ones passed
+        final EvaluationPlan plan = getEvaluationPlan();
+        float cost = 0f;
+        float probabilityToEvaluate = 1f;
+        for (int i = 0; i < plan.size(); i++) {
+            cost += probabilityToEvaluate * plan.get(i).getEvaluationCost();
+            probabilityToEvaluate *= plan.get(i).getSelectivity();
+        }
+        return cost;
+    }
+
+    @Override
+    public float getSelectivity() {
+        float selectivity = 1f;
+        for (IGeocacheFilter child : getChildren()) {
+            selectivity *= child.getSelectivity();
+        }
+        return selectivity;
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         if (!getChildren().isEmpty()) {
@@ -190,10 +190,10 @@ public class DateFilter {
         if (valueExpression != null && (getMinDate() != null || getMaxDate() != null)) {
             sqlBuilder.openWhere(SqlBuilder.WhereType.AND);
             if (getMinDate() != null) {
-                sqlBuilder.addWhere("date(" + valueExpression + "/1000, 'unixepoch') >= '" + DAY_DATE_FORMAT_SQL.format(getMinDate()) + "'");
+                sqlBuilder.addWhere("date(" + valueExpression + "/1000, 'unixepoch') >= ?", DAY_DATE_FORMAT_SQL.format(getMinDate()));
             }
             if (getMaxDate() != null) {
-                sqlBuilder.addWhere("date(" + valueExpression + "/1000, 'unixepoch') <= '" + DAY_DATE_FORMAT_SQL.format(getMaxDate()) + "'");
+                sqlBuilder.addWhere("date(" + valueExpression + "/1000, 'unixepoch') <= ?", DAY_DATE_FORMAT_SQL.format(getMaxDate()));
             }
             sqlBuilder.closeWhere();
         } else {
@@ -13,4 +13,20 @@ public class DescriptionGeocacheFilter extends StringGeocacheFilter {
         return "description";
     }
 
+    @Override
+    protected boolean isSqlColumnCompressible() {
+        return true;
+    }
+
+    @Override
+    public float getEvaluationCost() {
+        //description is lazy-loaded from database
+        return COST_DATABASE;
+    }
+
+    @Override
+    public boolean isResultCacheable() {
+        return true;
+    }
+
 }
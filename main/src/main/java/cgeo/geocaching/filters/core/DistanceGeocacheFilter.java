@@ -1,5 +1,6 @@
 package cgeo.geocaching.filters.core;
 
+import cgeo.geocaching.location.CheapRuler;
 import cgeo.geocaching.location.Geopoint;
 import cgeo.geocaching.location.GeopointFormatter;
 import cgeo.geocaching.location.GeopointParser;
@@ -48,12 +49,31 @@ public class DistanceGeocacheFilter extends NumberRangeGeocacheFilter<Float> {
         this.useCurrentPosition = useCurrentPosition;
     }
 
+    @Override
+    public float getEvaluationCost() {
+        return COST_MEDIUM;
+    }
+
     @Override
     protected Float getValue(final Geocache cache) {
         final Geopoint gp = (useCurrentPosition || coordinate == null) ?
                 LocationDataProvider.getInstance().currentGeo().getCoords() : coordinate;
+        final Geopoint cacheCoords = cache.getCoords();
+        if (cacheCoords == null) {
+            return gp.distanceTo(null);
+        }
+
+        // approximated distance is sufficient unless it is too close to a range limit to decide
+        final float approximated = CheapRuler.distanceKm(gp, cacheCoords);
+        final float error = CheapRuler.maxErrorKm(approximated, gp.getLatitudeE6());
+        if (isNear(approximated, getMinRangeValue(), error) || isNear(approximated, getMaxRangeValue(), error)) {
+            return gp.distanceTo(cacheCoords);
+        }
+        return approximated;
+    }
 
-        return gp.distanceTo(cache.getCoords());
+    private static boolean isNear(final float value, @Nullable final Float limit, final float error) {
+        return limit != null && Math.abs(value - limit) <= error;
     }
 
     /**
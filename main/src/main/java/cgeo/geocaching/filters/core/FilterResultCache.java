@@ -0,0 +1,76 @@
+package cgeo.geocaching.filters.core;
+
+import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+/**
+ * Caches the results of an (expensive) filter per geocache.
+ * <br>
+ * A cached result is valid as long as it was calculated for the very same cache object and neither
+ * {@link Geocache#getUpdated()} nor {@link Geocache#getDataVersion()} changed since then.
+ * The number of cached results is limited, least recently used results are dropped first.
+ * Instances are thread-safe.
+ */
+class FilterResultCache {
+
+    private static final byte RESULT_FALSE = 0;
+    private static final byte RESULT_TRUE = 1;
+    private static final byte RESULT_INCONCLUSIVE = 2;
+
+    /** enough for the caches of a large list or a crowded map viewport */
+    private static final int MAX_ENTRIES = 10000;
+
+    private final IGeocacheFilter filter;
+    private final Map<String, Entry> results = new LeastRecentlyUsedMap.LruCache<>(MAX_ENTRIES);
+
+    private static final class Entry {
+        private final WeakReference<Geocache> cache;
+        private final long updated;
+        private final int dataVersion;
+        private final byte result;
+
+        Entry(final Geocache cache, final byte result) {
+            this.cache = new WeakReference<>(cache);
+            this.updated = cache.getUpdated();
+            this.dataVersion = cache.getDataVersion();
+            this.result = result;
+        }
+
+        boolean isValidFor(final Geocache cache) {
+            return this.cache.get() == cache && updated == cache.getUpdated() && dataVersion == cache.getDataVersion();
+        }
+    }
+
+    FilterResultCache(@NonNull final IGeocacheFilter filter) {
+        this.filter = filter;
+    }
+
+    /** returns cached filter result for given cache, evaluating the filter if no valid cached result is available */
+    @Nullable
+    Boolean filter(final Geocache cache) {
+        if (cache == null || cache.getGeocode() == null) {
+            return filter.filter(cache);
+        }
+        final Entry entry;
+        synchronized (results) {
+            entry = results.get(cache.getGeocode());
+        }
+        if (entry != null && entry.isValidFor(cache)) {
+            return entry.result == RESULT_INCONCLUSIVE ? null : entry.result == RESULT_TRUE;
+        }
+        final Boolean result = filter.filter(cache);
+        // note that evaluation may lazy-load data into cache (thus changing its data version). Stamp is taken afterwards on purpose
+        final Entry newEntry = new Entry(cache, result == null ? RESULT_INCONCLUSIVE : result ? RESULT_TRUE : RESULT_FALSE);
+        synchronized (results) {
+            results.put(cache.getGeocode(), newEntry);
+        }
+        return result;
+    }
+
+}
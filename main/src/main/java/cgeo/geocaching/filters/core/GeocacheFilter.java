@@ -3,8 +3,10 @@ package cgeo.geocaching.filters.core;
 import cgeo.geocaching.R;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.JsonUtils;
 import cgeo.geocaching.utils.LocalizationUtils;
+import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.TextUtils;
 import cgeo.geocaching.utils.config.JsonConfigurationUtils;
 import cgeo.geocaching.utils.config.LegacyFilterConfig;
@@ -22,6 +24,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import static java.lang.Boolean.TRUE;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -39,6 +44,10 @@ public class GeocacheFilter implements Cloneable {
     private static final String CONFIG_KEY_INCLUDE_INCLUSIVE = "inconclusive";
     private static final String CONFIG_KEY_TREE = "tree";
 
+    /** lists with at least this many caches are filtered in parallel */
+    private static final int PARALLEL_FILTER_THRESHOLD = 2000;
+    private static final int PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     private String name;
     private IGeocacheFilter tree;
 
@@ -175,12 +184,26 @@ public class GeocacheFilter implements Cloneable {
         return result == null ? this.includeInconclusive : result;
     }
 
+    /**
+     * Removes all caches from given collection not passing this filter.
+     * Large collections are filtered in parallel chunks, order of remaining caches is retained.
+     */
     public void filterList(final Collection<Geocache> list) {
+        if (tree == null) {
+            return;
+        }
+        final Geocache[] items = list.toArray(new Geocache[0]);
+        final boolean[] keep = new boolean[items.length];
+        if (items.length >= PARALLEL_FILTER_THRESHOLD && PARALLELISM > 1) {
+            filterParallel(items, keep);
+        } else {
+            filterRange(items, keep, 0, items.length);
+        }
 
         final List<Geocache> itemsToKeep = new ArrayList<>();
-        for (final Geocache item : list) {
-            if (filter(item)) {
-                itemsToKeep.add(item);
+        for (int i = 0; i < items.length; i++) {
+            if (keep[i]) {
+                itemsToKeep.add(items[i]);
             }
         }
 
@@ -189,6 +212,49 @@ public class GeocacheFilter implements Cloneable {
         list.addAll(itemsToKeep);
     }
 
+    private void filterRange(final Geocache[] items, final boolean[] keep, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            keep[i] = filter(items[i]);
+        }
+    }
+
+    /**
+     * Filters chunks of the list on the computation scheduler. The calling thread takes part in the work: it processes
+     * all chunks no other thread has started yet, so it never waits for work which is still queued
+     * (which is important if this method is called from a computation thread itself)
+     */
+    private void filterParallel(final Geocache[] items, final boolean[] keep) {
+        final int chunks = Math.min(PARALLELISM, items.length / (PARALLEL_FILTER_THRESHOLD / 2));
+        final AtomicInteger nextChunk = new AtomicInteger(0);
+        final CountDownLatch chunksDone = new CountDownLatch(chunks);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            for (int c = nextChunk.getAndIncrement(); c < chunks; c = nextChunk.getAndIncrement()) {
+                try {
+                    filterRange(items, keep, (int) ((long) items.length * c / chunks), (int) ((long) items.length * (c + 1) / chunks));
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    chunksDone.countDown();
+                }
+            }
+        };
+        for (int c = 1; c < chunks; c++) {
+            AndroidRxUtils.computationScheduler.scheduleDirect(worker);
+        }
+        worker.run();
+        try {
+            chunksDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        if (failure.get() != null) {
+            Log.w("GeocacheFilter: parallel filtering failed, falling back to sequential filtering", failure.get());
+            filterRange(items, keep, 0, items.length);
+        }
+    }
+
     @Override
     @NonNull
     public GeocacheFilter clone() {
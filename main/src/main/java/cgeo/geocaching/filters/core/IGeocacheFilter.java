@@ -11,6 +11,13 @@ import androidx.annotation.Nullable;
  */
 public interface IGeocacheFilter extends IJsonConfigurable<IGeocacheFilter> {
 
+    /** Evaluation cost of filters working on simple fields of a cache which are always in memory */
+    float COST_CHEAP = 1f;
+    /** Evaluation cost of filters doing some computation (e.g. string matching or distance calculation) */
+    float COST_MEDIUM = 5f;
+    /** Evaluation cost of filters which may need to load data from database (e.g. description or logs) */
+    float COST_DATABASE = 100f;
+
     /**
      * Decides whether a geocache passes this filter (returns true) or not (returns false).
      * If this filter is inconclusive whether cache passes filter or nor (e.g. because data is missing in cache)
@@ -32,6 +39,32 @@ public interface IGeocacheFilter extends IJsonConfigurable<IGeocacheFilter> {
      */
     boolean isFiltering();
 
+    /**
+     * Estimated relative cost of one call to {@link #filter(Geocache)}. Used by logical filters to decide about the
+     * evaluation order of their children (cheap filters first, so expensive ones can be short-circuited).
+     * See the COST_ constants for reference values.
+     */
+    default float getEvaluationCost() {
+        return COST_CHEAP;
+    }
+
+    /**
+     * Estimated fraction (0-1) of caches passing this filter. Used together with {@link #getEvaluationCost()}
+     * to decide about the evaluation order in logical filters.
+     */
+    default float getSelectivity() {
+        return 0.5f;
+    }
+
+    /**
+     * Returns true if result of {@link #filter(Geocache)} for a cache depends only on data covered by
+     * {@link Geocache#getUpdated()} and {@link Geocache#getDataVersion()}, thus may be cached per cache as long as those don't change.
+     * Only worth it for expensive filters.
+     */
+    default boolean isResultCacheable() {
+        return false;
+    }
+
     /**
      * For efficient selection of geocaches from DB passing this filter, filter classes shall implement this method
      */
@@ -16,6 +16,12 @@ public class LastFoundGeocacheFilter extends DateRangeGeocacheFilter {
         return cache.getLastFound();
     }
 
+    @Override
+    public float getEvaluationCost() {
+        //last found date is lazy-loaded from database
+        return COST_DATABASE;
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         if (!isFiltering()) {
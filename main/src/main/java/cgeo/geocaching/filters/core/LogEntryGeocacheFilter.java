@@ -51,6 +51,17 @@ public class LogEntryGeocacheFilter extends BaseGeocacheFilter {
         this.logTextFilter.setTextValue(logText);
     }
 
+    @Override
+    public float getEvaluationCost() {
+        //logs are loaded from database
+        return COST_DATABASE;
+    }
+
+    @Override
+    public float getSelectivity() {
+        return inverse ? 0.8f : 0.2f;
+    }
+
     @Nullable
     @Override
     public Boolean filter(final Geocache cache) {
@@ -99,10 +110,12 @@ public class LogEntryGeocacheFilter extends BaseGeocacheFilter {
         }
         sb.append("EXISTS( SELECT ").append(tid).append(".geocode FROM cg_logs ").append(tid).append(" WHERE ").append(sqlBuilder.getMainTableId()).append(".geocode = ").append(tid).append(".geocode");
         if (foundByFilter.isFilled()) {
-            sb.append(" AND ").append(foundByFilter.getRawLikeSqlExpression("author"));
+            // the (small) user dictionary is searched instead of the author names of all logs
+            sb.append(" AND ").append(tid).append(".author_id IN (SELECT u._id FROM cg_users u WHERE ").append(foundByFilter.getRawLikeSqlExpression("u.name")).append(")");
         }
         if (logTextFilter.isFilled()) {
-            sb.append(" AND ").append(logTextFilter.getRawLikeSqlExpression("log"));
+            // logs with compressed text must not exclude a cache here, they are checked on the loaded logs
+            sb.append(" AND ").append(logTextFilter.getRawLikeSqlExpressionForCompressibleColumn("log", inverse == sqlBuilder.isWhereInverted()));
         }
         sb.append(")");
         sqlBuilder.addWhere(sb.toString());
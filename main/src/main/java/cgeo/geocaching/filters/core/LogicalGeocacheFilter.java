@@ -1,10 +1,16 @@
 package cgeo.geocaching.filters.core;
 
 import cgeo.geocaching.R;
+import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.utils.LocalizationUtils;
 import cgeo.geocaching.utils.config.LegacyFilterConfig;
 
+import androidx.annotation.NonNull;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -13,6 +19,40 @@ public abstract class LogicalGeocacheFilter extends BaseGeocacheFilter {
 
     private final List<IGeocacheFilter> children = new ArrayList<>();
 
+    /** children in the order they are evaluated, with result caches for cacheable children. Lazily created */
+    private volatile EvaluationPlan evaluationPlan = null;
+
+    /**
+     * Order in which children of a logical filter are evaluated.
+     * Since AND/OR/NOT evaluation results don't depend on the order of their children, children are evaluated cheapest
+     * and most decisive first. This does not change the order in {@link #getChildren()} (which is what user sees and what is stored)
+     */
+    protected static final class EvaluationPlan {
+        private final IGeocacheFilter[] children;
+        private final FilterResultCache[] resultCaches;
+
+        EvaluationPlan(final IGeocacheFilter[] children) {
+            this.children = children;
+            this.resultCaches = new FilterResultCache[children.length];
+            for (int i = 0; i < children.length; i++) {
+                resultCaches[i] = children[i].isResultCacheable() ? new FilterResultCache(children[i]) : null;
+            }
+        }
+
+        public int size() {
+            return children.length;
+        }
+
+        public IGeocacheFilter get(final int idx) {
+            return children[idx];
+        }
+
+        /** evaluates child at given position of evaluation order, using cached result if available */
+        public Boolean filter(final int idx, final Geocache cache) {
+            return resultCaches[idx] == null ? children[idx].filter(cache) : resultCaches[idx].filter(cache);
+        }
+    }
+
     LogicalGeocacheFilter() {
         setType(GeocacheFilterType.LOGICAL_FILTER_GROUP);
     }
@@ -40,11 +80,13 @@ public abstract class LogicalGeocacheFilter extends BaseGeocacheFilter {
     @Override
     public void addChild(final IGeocacheFilter child) {
         children.add(child);
+        evaluationPlan = null;
     }
 
+    /** returns an unmodifiable view, children must be added with {@link #addChild(IGeocacheFilter)} so that the evaluation plan is updated */
     @Override
     public List<IGeocacheFilter> getChildren() {
-        return children;
+        return Collections.unmodifiableList(children);
     }
 
     @Override
@@ -83,6 +125,53 @@ public abstract class LogicalGeocacheFilter extends BaseGeocacheFilter {
 
     protected abstract String getUserDisplayableType();
 
+    /**
+     * Returns the rank of a child for evaluation order: children with lower rank are evaluated first.
+     * Should be the expected cost to come to a final result through this child.
+     */
+    protected abstract float getEvaluationRank(IGeocacheFilter child);
+
+    @NonNull
+    protected EvaluationPlan getEvaluationPlan() {
+        EvaluationPlan plan = evaluationPlan;
+        if (plan == null) {
+            final IGeocacheFilter[] ordered = children.toArray(new IGeocacheFilter[0]);
+            final float[] ranks = new float[ordered.length];
+            for (int i = 0; i < ordered.length; i++) {
+                ranks[i] = getEvaluationRank(ordered[i]);
+            }
+            final Integer[] idx = new Integer[ordered.length];
+            for (int i = 0; i < idx.length; i++) {
+                idx[i] = i;
+            }
+            //stable sort, so children with equal rank keep user order
+            Arrays.sort(idx, Comparator.comparingDouble(i -> ranks[i]));
+            final IGeocacheFilter[] sorted = new IGeocacheFilter[ordered.length];
+            for (int i = 0; i < idx.length; i++) {
+                sorted[i] = ordered[idx[i]];
+            }
+            plan = new EvaluationPlan(sorted);
+            evaluationPlan = plan;
+        }
+        return plan;
+    }
+
+    /** returns children in the order they are evaluated in {@link #filter(Geocache)} */
+    public List<IGeocacheFilter> getChildrenInEvaluationOrder() {
+        final EvaluationPlan plan = getEvaluationPlan();
+        return Arrays.asList(plan.children);
+    }
+
+    @Override
+    public boolean isResultCacheable() {
+        for (IGeocacheFilter child : children) {
+            if (!child.isResultCacheable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private int getFilteringChildrenCount() {
         int cnt = 0;
         for (IGeocacheFilter child : getChildren()) {
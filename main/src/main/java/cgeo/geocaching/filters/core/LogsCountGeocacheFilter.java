@@ -37,6 +37,17 @@ public class LogsCountGeocacheFilter extends NumberRangeGeocacheFilter<Integer>
         this.logType = logType;
     }
 
+    @Override
+    public float getEvaluationCost() {
+        //log counts are lazy-loaded from database
+        return COST_DATABASE;
+    }
+
+    @Override
+    public boolean isResultCacheable() {
+        return true;
+    }
+
     @Override
     public Integer getValue(final Geocache cache) {
         if (cache == null) {
@@ -65,6 +65,30 @@ public class NamedFilterGeocacheFilter extends BaseGeocacheFilter {
         }
     }
 
+    @Override
+    public float getEvaluationCost() {
+        try {
+            if (startNested() || !hasValidFilter()) {
+                return COST_CHEAP;
+            }
+            return getNamedFilter().getTree().getEvaluationCost();
+        } finally {
+            stopNested();
+        }
+    }
+
+    @Override
+    public float getSelectivity() {
+        try {
+            if (startNested() || !hasValidFilter()) {
+                return 1f;
+            }
+            return getNamedFilter().getTree().getSelectivity();
+        } finally {
+            stopNested();
+        }
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         if (!hasValidFilter()) {
@@ -18,6 +18,11 @@ public class NotGeocacheFilter extends AndGeocacheFilter {
         return superResult == null ? null : !superResult;
     }
 
+    @Override
+    public float getSelectivity() {
+        return 1f - super.getSelectivity();
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         sqlBuilder.openWhere(SqlBuilder.WhereType.NOT);
@@ -20,6 +20,11 @@ import org.apache.commons.lang3.StringUtils;
 
 public class NumberRangeFilter<T extends Number & Comparable<T>> {
 
+    /**
+     * bind parameter for a number. Arguments are bound as text, which is not converted when compared with an expression instead of a column
+     */
+    private static final String NUMBER_PARAMETER = "CAST(? AS NUMERIC)";
+
     private T minRangeValue;
     private T maxRangeValue;
 
@@ -157,17 +162,17 @@ public class NumberRangeFilter<T extends Number & Comparable<T>> {
                 sqlBuilder.openWhere(includeSpecialNumber ? SqlBuilder.WhereType.OR : SqlBuilder.WhereType.AND);
                 final T sn = valueConverter == null ? specialNumber : valueConverter.call(specialNumber);
                 if (includeSpecialNumber) {
-                    sqlBuilder.addWhere(valueExpression + " = " + sn);
+                    sqlBuilder.addWhere(valueExpression + " = " + NUMBER_PARAMETER, String.valueOf(sn));
                 } else {
-                    sqlBuilder.addWhere(valueExpression + " <> " + sn);
+                    sqlBuilder.addWhere(valueExpression + " <> " + NUMBER_PARAMETER, String.valueOf(sn));
                 }
             }
             sqlBuilder.openWhere(SqlBuilder.WhereType.AND);
             if (minRangeValue != null) {
-                sqlBuilder.addWhere(valueExpression + " >= " + (valueConverter == null ? minRangeValue : valueConverter.call(minRangeValue)));
+                sqlBuilder.addWhere(valueExpression + " >= " + NUMBER_PARAMETER, String.valueOf(valueConverter == null ? minRangeValue : valueConverter.call(minRangeValue)));
             }
             if (maxRangeValue != null) {
-                sqlBuilder.addWhere(valueExpression + " <= " + (valueConverter == null ? maxRangeValue : valueConverter.call(maxRangeValue)));
+                sqlBuilder.addWhere(valueExpression + " <= " + NUMBER_PARAMETER, String.valueOf(valueConverter == null ? maxRangeValue : valueConverter.call(maxRangeValue)));
             }
             if (minRangeValue == null && maxRangeValue == null) {
                 sqlBuilder.addWhereTrue();
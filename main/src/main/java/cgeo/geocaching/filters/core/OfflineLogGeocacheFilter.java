@@ -15,6 +15,12 @@ public class OfflineLogGeocacheFilter extends StringGeocacheFilter {
         return cache.hasLogOffline() ? cache.getOfflineLog().log : "";
     }
 
+    @Override
+    public float getEvaluationCost() {
+        //offline log is lazy-loaded from database
+        return COST_DATABASE;
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         final String logTableId = sqlBuilder.getNewTableId();
@@ -16,8 +16,9 @@ public class OrGeocacheFilter extends LogicalGeocacheFilter {
             return true;
         }
         boolean isInconclusive = false;
-        for (IGeocacheFilter child : getChildren()) {
-            final Boolean childResult = child.filter(cache);
+        final EvaluationPlan plan = getEvaluationPlan();
+        for (int i = 0; i < plan.size(); i++) {
+            final Boolean childResult = plan.filter(i, cache);
             if (childResult == null) {
                 isInconclusive = true;
             } else if (childResult) {
@@ -27,6 +28,37 @@ public class OrGeocacheFilter extends LogicalGeocacheFilter {
         return isInconclusive ? null : false;
     }
 
+    @Override
+    protected float getEvaluationRank(final IGeocacheFilter child) {
+        //evaluation may stop after this child if it returns true
+        return child.getEvaluationCost() / Math.max(0.01f, child.getSelectivity());
+    }
+
+    @Override
+    public float getEvaluationCost() {
+        //later children are only evaluated if all earlier ones failed
+        final EvaluationPlan plan = getEvaluationPlan();
+        float cost = 0f;
+        float probabilityToEvaluate = 1f;
+        for (int i = 0; i < plan.size(); i++) {
+            cost += probabilityToEvaluate * plan.get(i).getEvaluationCost();
+            probabilityToEvaluate *= 1f - plan.get(i).getSelectivity();
+        }
+        return cost;
+    }
+
+    @Override
+    public float getSelectivity() {
+        if (getChildren().isEmpty()) {
+            return 1f;
+        }
+        float failing = 1f;
+        for (IGeocacheFilter child : getChildren()) {
+            failing *= 1f - child.getSelectivity();
+        }
+        return 1f - failing;
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         if (!getChildren().isEmpty()) {
@@ -75,10 +75,10 @@ public class StoredListGeocacheFilter extends BaseGeocacheFilter {
         if (filterLists.isEmpty()) {
             sqlBuilder.addWhereTrue();
         } else {
-            final String idString = CollectionStream.of(filterListIds).toJoinedString(",");
+            final List<String> ids = CollectionStream.of(filterListIds).map(String::valueOf).toList();
             final String clId = sqlBuilder.getNewTableId();
             sqlBuilder.addWhere(sqlBuilder.getMainTableId() + ".geocode IN (SELECT " + clId + ".geocode FROM cg_caches_lists " + clId +
-                    " WHERE list_id IN (" + idString + "))");
+                    " WHERE " + SqlBuilder.createInExpression("list_id", ids.size()) + ")", ids);
         }
     }
 
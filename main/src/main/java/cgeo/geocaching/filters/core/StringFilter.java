@@ -144,6 +144,14 @@ public class StringFilter {
     }
 
     public void addToSql(final SqlBuilder sqlBuilder, final String columnExpression) {
+        addToSql(sqlBuilder, columnExpression, false);
+    }
+
+    /**
+     * @param compressible whether the column may contain compressed texts, which can't be matched in SQL.
+     *                     Rows with compressed texts are then always included, they have to be checked on the loaded caches.
+     */
+    public void addToSql(final SqlBuilder sqlBuilder, final String columnExpression, final boolean compressible) {
         if (!isFilled()) {
             sqlBuilder.addWhereTrue();
         } else {
@@ -155,7 +163,7 @@ public class StringFilter {
                     sqlBuilder.addWhere(columnExpression + " IS NOT NULL AND " + columnExpression + " <> ''");
                     break;
                 default:
-                    sqlBuilder.addWhere(getRawLikeSqlExpression(columnExpression));
+                    sqlBuilder.addWhere(compressible ? getRawLikeSqlExpressionForCompressibleColumn(columnExpression, !sqlBuilder.isWhereInverted()) : getRawLikeSqlExpression(columnExpression));
                     break;
             }
         }
@@ -181,6 +189,18 @@ public class StringFilter {
         }
     }
 
+    /**
+     * like {@link #getRawLikeSqlExpression(String)}, for a column which may contain compressed texts (stored as BLOB)
+     *
+     * @param compressedMatches result of the expression for compressed texts
+     */
+    public String getRawLikeSqlExpressionForCompressibleColumn(final String columnExpression, final boolean compressedMatches) {
+        if (compressedMatches) {
+            return "(typeof(" + columnExpression + ") = 'blob' OR " + getRawLikeSqlExpression(columnExpression) + ")";
+        }
+        return "(typeof(" + columnExpression + ") <> 'blob' AND " + getRawLikeSqlExpression(columnExpression) + ")";
+    }
+
     public String getRawLikeSqlExpression(final String columnExpression) {
         final StringBuilder sb = new StringBuilder();
 
@@ -20,6 +20,11 @@ public abstract class StringGeocacheFilter extends BaseGeocacheFilter {
         return null;
     }
 
+    /** whether the sql column may contain compressed texts, see {@link StringFilter#addToSql(SqlBuilder, String, boolean)} */
+    protected boolean isSqlColumnCompressible() {
+        return false;
+    }
+
     @NonNull
     public StringFilter getStringFilter() {
         return stringFilter;
@@ -37,6 +42,17 @@ public abstract class StringGeocacheFilter extends BaseGeocacheFilter {
         return stringFilter.matches(gcValue);
     }
 
+    @Override
+    public float getEvaluationCost() {
+        return COST_MEDIUM;
+    }
+
+    @Override
+    public float getSelectivity() {
+        //string searches typically match only few caches
+        return 0.2f;
+    }
+
     @Override
     public void setConfig(final LegacyFilterConfig config) {
         stringFilter.setConfig(config.get(null));
@@ -69,7 +85,7 @@ public abstract class StringGeocacheFilter extends BaseGeocacheFilter {
     public void addToSql(final SqlBuilder sqlBuilder) {
         final String colName = getSqlColumnName();
         if (colName != null) {
-            stringFilter.addToSql(sqlBuilder, sqlBuilder.getMainTableId() + "." + colName);
+            stringFilter.addToSql(sqlBuilder, sqlBuilder.getMainTableId() + "." + colName, isSqlColumnCompressible());
         } else {
             sqlBuilder.addWhereTrue();
         }
@@ -0,0 +1,198 @@
+package cgeo.geocaching.location;
+
+import cgeo.geocaching.utils.IndexSortUtils;
+
+/**
+ * Fast approximation of distances and bearings on the WGS84 ellipsoid, operating on microdegree (E6) coordinates.
+ * <br>
+ * This is a variant of Mapbox' cheap-ruler (see https://github.com/mapbox/cheap-ruler, ISC license, and
+ * {@link cgeo.geocaching.brouter.util.CheapRulerHelper}): the ellipsoid is locally approximated by a plane
+ * whose longitude/latitude-to-meter scales are taken at the mean latitude of the two points. Scales are
+ * precomputed in a table and linearly interpolated, so a distance calculation needs no trigonometric function at all.
+ * <br>
+ * Compared to {@link Geopoint#distanceTo(cgeo.geocaching.models.ICoordinates)} (an exact geodesic calculation)
+ * this is more than an order of magnitude faster. The error is bounded by {@link #maxErrorKm(float, int)}.
+ * Measured against exact geodesic distances, the relative error is about 0.0065% for short distances. It grows quadratically
+ * with distance and with 1/cos²(latitude): up to 200km it stays below 0.02% at latitudes up to 60° and below 0.11% up to 78°
+ * (see {@code CheapRulerTest} for the verification of the bounds).
+ * Use it for bulk operations like sorting and filtering, where an exact value is only needed in case of doubt.
+ */
+public final class CheapRuler {
+
+    /** Distance (in km) up to which error bounds are given by {@link #maxErrorKm(float, int)} */
+    public static final float MAX_ACCURATE_DISTANCE_KM = 200f;
+    /** Latitude (in degree, absolute) up to which error bounds are given by {@link #maxErrorKm(float, int)} */
+    public static final int MAX_ACCURATE_LATITUDE = 78;
+
+    // error model: relative error = BASE + GROWTH * distance² / cos²(latitude). Both constants include a safety margin of 1.5-2x to measured values
+    private static final double BASE_RELATIVE_ERROR = 1e-4;
+    private static final double GROWTH_RELATIVE_ERROR = 2e-9;
+    /** Absolute error (in km) always added to error bound to accommodate float rounding */
+    private static final float MIN_ERROR_KM = 0.0001f;
+
+    private static final int TABLE_STEP_E6 = 100_000; // 0.1 degree
+    private static final int TABLE_OFFSET_E6 = 90_000_000;
+    private static final int TABLE_SIZE = 2 * TABLE_OFFSET_E6 / TABLE_STEP_E6 + 2;
+
+    /** km per microdegree longitude, indexed by latitude table position */
+    private static final double[] KX = new double[TABLE_SIZE];
+    /** km per microdegree latitude, indexed by latitude table position */
+    private static final double[] KY = new double[TABLE_SIZE];
+
+    private static final int FULL_CIRCLE_E6 = 360_000_000;
+    private static final int HALF_CIRCLE_E6 = 180_000_000;
+
+    private static final double KX_EQUATOR;
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            final double lat = Math.toRadians(Math.min(90.0, (i * TABLE_STEP_E6 - TABLE_OFFSET_E6) / 1e6));
+            final double cos = Math.cos(lat);
+            final double cos2 = 2 * cos * cos - 1;
+            final double cos3 = 2 * cos * cos2 - cos;
+            final double cos4 = 2 * cos * cos3 - cos2;
+            final double cos5 = 2 * cos * cos4 - cos3;
+            // Multipliers for converting longitude and latitude degrees into distance (http://1.usa.gov/1Wb1bv7)
+            KX[i] = (111.41513 * cos - 0.09455 * cos3 + 0.00012 * cos5) * 1e-6;
+            KY[i] = (111.13209 - 0.56605 * cos2 + 0.0012 * cos4) * 1e-6;
+        }
+        KX_EQUATOR = kx(0);
+    }
+
+    private CheapRuler() {
+        // utility class
+    }
+
+    /** returns km per microdegree longitude at given latitude */
+    private static double kx(final double latE6) {
+        final double pos = (latE6 + TABLE_OFFSET_E6) / TABLE_STEP_E6;
+        final int idx = Math.max(0, Math.min(TABLE_SIZE - 2, (int) pos));
+        final double frac = pos - idx;
+        return KX[idx] + (KX[idx + 1] - KX[idx]) * frac;
+    }
+
+    /** returns km per microdegree latitude at given latitude */
+    private static double ky(final double latE6) {
+        final double pos = (latE6 + TABLE_OFFSET_E6) / TABLE_STEP_E6;
+        final int idx = Math.max(0, Math.min(TABLE_SIZE - 2, (int) pos));
+        final double frac = pos - idx;
+        return KY[idx] + (KY[idx + 1] - KY[idx]) * frac;
+    }
+
+    /** normalizes a longitude difference (in microdegrees) to the range [-180°, 180°] */
+    private static int wrapLonE6(final int dLonE6) {
+        if (dLonE6 > HALF_CIRCLE_E6) {
+            return dLonE6 - FULL_CIRCLE_E6;
+        }
+        if (dLonE6 < -HALF_CIRCLE_E6) {
+            return dLonE6 + FULL_CIRCLE_E6;
+        }
+        return dLonE6;
+    }
+
+    /** Approximate distance in km between two points */
+    public static float distanceKm(final int lat1E6, final int lon1E6, final int lat2E6, final int lon2E6) {
+        final double midLatE6 = (lat1E6 + (double) lat2E6) / 2;
+        final double dx = wrapLonE6(lon2E6 - lon1E6) * kx(midLatE6);
+        final double dy = (lat2E6 - lat1E6) * ky(midLatE6);
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /** Approximate distance in km between two points */
+    public static float distanceKm(final Geopoint from, final Geopoint to) {
+        return distanceKm(from.getLatitudeE6(), from.getLongitudeE6(), to.getLatitudeE6(), to.getLongitudeE6());
+    }
+
+    /**
+     * Calculates approximate distances (in km) from one point to many points in bulk.
+     * Target points are given as parallel E6 arrays; result is written to the first {@code count} entries of {@code result}.
+     */
+    public static void distancesKm(final int latE6, final int lonE6, final int[] latsE6, final int[] lonsE6, final int count, final float[] result) {
+        for (int i = 0; i < count; i++) {
+            final double midLatE6 = (latE6 + (double) latsE6[i]) / 2;
+            final double dx = wrapLonE6(lonsE6[i] - lonE6) * kx(midLatE6);
+            final double dy = (latsE6[i] - latE6) * ky(midLatE6);
+            result[i] = (float) Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /** Approximate bearing in degree (in the [0,360[ range) from first to second point */
+    public static float bearing(final int lat1E6, final int lon1E6, final int lat2E6, final int lon2E6) {
+        final double midLatE6 = (lat1E6 + (double) lat2E6) / 2;
+        final double dx = wrapLonE6(lon2E6 - lon1E6) * kx(midLatE6);
+        final double dy = (lat2E6 - lat1E6) * ky(midLatE6);
+        if (dx == 0 && dy == 0) {
+            return 0f;
+        }
+        final float b = (float) Math.toDegrees(Math.atan2(dx, dy));
+        return b < 0 ? b + 360 : b;
+    }
+
+    /**
+     * Returns the maximum absolute error (in km) of a distance approximated from a point at given latitude.
+     * For distances beyond {@link #MAX_ACCURATE_DISTANCE_KM} or latitudes beyond {@link #MAX_ACCURATE_LATITUDE}
+     * (where the plane approximation is no longer valid) the whole distance is considered uncertain (infinite error),
+     * leading callers to calculate the exact value in those cases, see {@link #hasErrorBound(float, int)}.
+     */
+    public static float maxErrorKm(final float approximateDistanceKm, final int latE6) {
+        if (!hasErrorBound(approximateDistanceKm, latE6)) {
+            return Float.POSITIVE_INFINITY;
+        }
+        // use the highest latitude the other point may have. Ratio of longitude scales approximates cos(latitude)
+        final double maxLatE6 = Math.min(89e6, Math.abs((double) latE6) + approximateDistanceKm / 111.0 * 1e6);
+        final double cos = kx(maxLatE6) / KX_EQUATOR;
+        final double relativeError = BASE_RELATIVE_ERROR + GROWTH_RELATIVE_ERROR * approximateDistanceKm * approximateDistanceKm / (cos * cos);
+        return (float) (approximateDistanceKm * relativeError) + MIN_ERROR_KM;
+    }
+
+    /** returns true if {@link #maxErrorKm(float, int)} gives a finite error bound for given approximated distance from a point at given latitude */
+    public static boolean hasErrorBound(final float approximateDistanceKm, final int latE6) {
+        return approximateDistanceKm <= MAX_ACCURATE_DISTANCE_KM && isAccurateForLatitude(latE6);
+    }
+
+    /**
+     * Given distances from a point at given latitude, returns for each approximated distance whether its order relative
+     * to the other distances is ambiguous (because its error interval overlaps the one of any other distance). Only for those
+     * the exact distance is needed to get a correct order, all others may be sorted by their approximated value.
+     * <br>
+     * Distances flagged in {@code exact} are already exact values (no error interval) and are never reported as ambiguous.
+     * Callers should calculate exact values beforehand for all distances without error bound (see {@link #hasErrorBound(float, int)}),
+     * otherwise such a distance overlaps all other distances.
+     */
+    public static boolean[] findOrderAmbiguities(final float[] distances, final boolean[] exact, final int count, final int latE6) {
+        final boolean[] result = new boolean[count];
+        if (count < 2) {
+            return result;
+        }
+        final int[] order = IndexSortUtils.sortIndexes(count, (i1, i2) -> Float.compare(distances[i1], distances[i2]), false);
+        final float[] errors = new float[count];
+        for (int i = 0; i < count; i++) {
+            errors[i] = exact[i] ? 0f : maxErrorKm(distances[i], latE6);
+        }
+        // highest upper interval bound of all lower distances, lowest lower interval bound of all higher distances
+        final float[] maxUpperBelow = new float[count];
+        final float[] minLowerAbove = new float[count];
+        maxUpperBelow[0] = Float.NEGATIVE_INFINITY;
+        for (int p = 1; p < count; p++) {
+            final int i = order[p - 1];
+            maxUpperBelow[p] = Math.max(maxUpperBelow[p - 1], distances[i] + errors[i]);
+        }
+        minLowerAbove[count - 1] = Float.POSITIVE_INFINITY;
+        for (int p = count - 2; p >= 0; p--) {
+            final int i = order[p + 1];
+            minLowerAbove[p] = Math.min(minLowerAbove[p + 1], distances[i] - errors[i]);
+        }
+        for (int p = 0; p < count; p++) {
+            final int i = order[p];
+            // note that an equal distance always overlaps
+            result[i] = !exact[i] && (maxUpperBelow[p] >= distances[i] - errors[i] || minLowerAbove[p] <= distances[i] + errors[i]);
+        }
+        return result;
+    }
+
+    /** returns true if approximation error bounds are guaranteed for calculations around given latitude */
+    public static boolean isAccurateForLatitude(final int latE6) {
+        return Math.abs(latE6) <= MAX_ACCURATE_LATITUDE * 1_000_000;
+    }
+
+}
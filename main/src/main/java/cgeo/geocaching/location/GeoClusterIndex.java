@@ -0,0 +1,182 @@
+package cgeo.geocaching.location;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical grid index for clustering map markers per zoom level.
+ * <br>
+ * Points are projected to Web Mercator (as used by all map providers). For every zoom level below {@link #MAX_CLUSTER_ZOOM}
+ * clusters are formed by merging the clusters of the next higher zoom level falling into the same grid cell, where the cell size
+ * corresponds to the given cluster radius in screen pixels on that zoom level. Thus clusters of a zoom level are always unions
+ * of clusters of the next higher level, and zooming in splits clusters up instead of regrouping them.
+ * <br>
+ * Building is O(points * levels) and meant to be done off the UI thread. An index is immutable once built,
+ * querying it for a viewport and zoom level is cheap and may be repeated on every map move.
+ */
+public final class GeoClusterIndex {
+
+    /** on this and higher zoom levels points are never clustered */
+    public static final int MAX_CLUSTER_ZOOM = 16;
+
+    /** per zoom level (index = zoom level, last one contains the unclustered points). Levels without any merges share their data */
+    private final Level[] levels = new Level[MAX_CLUSTER_ZOOM + 1];
+    private final int pointCount;
+
+    /** A cluster of points on a zoom level */
+    public static final class Cluster {
+        /**
+         * id of this cluster: the lowest point index in it. Together with {@link #count} this identifies the set of points in a cluster
+         * across zoom levels (a cluster with same id and count on another zoom level contains the very same points)
+         */
+        public final int id;
+        public final int count;
+        /** index of the point if this cluster consists of exactly one point, -1 otherwise */
+        public final int pointIndex;
+        /** weighted center of all points of this cluster */
+        public final Geopoint center;
+
+        Cluster(final int id, final int count, final int pointIndex, final Geopoint center) {
+            this.id = id;
+            this.count = count;
+            this.pointIndex = pointIndex;
+            this.center = center;
+        }
+    }
+
+    private static final class Level {
+        private final int size;
+        // Mercator coordinates (0-1). Float precision is below 3m
+        private final float[] x;
+        private final float[] y;
+        private final int[] counts;
+        private final int[] ids;
+
+        Level(final int size) {
+            this.size = size;
+            this.x = new float[size];
+            this.y = new float[size];
+            this.counts = new int[size];
+            this.ids = new int[size];
+        }
+    }
+
+    /**
+     * Builds a cluster index for the given points
+     *
+     * @param latitudesE6  latitudes of points (microdegrees)
+     * @param longitudesE6 longitudes of points (microdegrees)
+     * @param count        number of points to take from the arrays
+     * @param radiusPx     cluster radius in screen pixels (of a 256px tile)
+     */
+    public GeoClusterIndex(@NonNull final int[] latitudesE6, @NonNull final int[] longitudesE6, final int count, final int radiusPx) {
+        this.pointCount = count;
+        final Level points = new Level(count);
+        for (int i = 0; i < count; i++) {
+            points.x[i] = (float) WebMercator.lonToX(longitudesE6[i] / 1e6);
+            points.y[i] = (float) WebMercator.latToY(latitudesE6[i] / 1e6);
+            points.counts[i] = 1;
+            points.ids[i] = i;
+        }
+        levels[MAX_CLUSTER_ZOOM] = points;
+        for (int zoom = MAX_CLUSTER_ZOOM - 1; zoom >= 0; zoom--) {
+            levels[zoom] = cluster(levels[zoom + 1], zoom, Math.max(1, radiusPx));
+        }
+    }
+
+    private static Level cluster(final Level source, final int zoom, final int radiusPx) {
+        final double cellsPerUnit = 1.0 / (WebMercator.pixelSize(zoom) * radiusPx);
+        final long cellsPerAxis = (long) Math.ceil(cellsPerUnit);
+        final Map<Long, Integer> cellToCluster = new HashMap<>();
+        final int[] clusterOfSource = new int[source.size];
+        int clusterCount = 0;
+        for (int i = 0; i < source.size; i++) {
+            final long cellX = Math.min(cellsPerAxis - 1, (long) (source.x[i] * cellsPerUnit));
+            final long cellY = Math.min(cellsPerAxis - 1, (long) (source.y[i] * cellsPerUnit));
+            final long cell = cellX * cellsPerAxis + cellY;
+            Integer cluster = cellToCluster.get(cell);
+            if (cluster == null) {
+                cluster = clusterCount++;
+                cellToCluster.put(cell, cluster);
+            }
+            clusterOfSource[i] = cluster;
+        }
+        if (clusterCount == source.size) {
+            // nothing merged on this level: share data with next higher level
+            return source;
+        }
+
+        final Level level = new Level(clusterCount);
+        final double[] sumX = new double[clusterCount];
+        final double[] sumY = new double[clusterCount];
+        Arrays.fill(level.ids, Integer.MAX_VALUE);
+        for (int i = 0; i < source.size; i++) {
+            final int c = clusterOfSource[i];
+            final int count = source.counts[i];
+            sumX[c] += (double) source.x[i] * count;
+            sumY[c] += (double) source.y[i] * count;
+            level.counts[c] += count;
+            level.ids[c] = Math.min(level.ids[c], source.ids[i]);
+        }
+        for (int c = 0; c < clusterCount; c++) {
+            level.x[c] = (float) (sumX[c] / level.counts[c]);
+            level.y[c] = (float) (sumY[c] / level.counts[c]);
+        }
+        return level;
+    }
+
+    /** returns number of points in this index */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /** returns number of clusters (including single points) on given zoom level */
+    public int getClusterCount(final int zoom) {
+        return levels[clampZoom(zoom)].size;
+    }
+
+    /** returns all clusters (including single-point clusters) on given zoom level whose center is in given viewport */
+    @NonNull
+    public List<Cluster> getClusters(@NonNull final Viewport viewport, final int zoom) {
+        final int z = clampZoom(zoom);
+        final Level level = levels[z];
+        final double minX = WebMercator.lonToX(viewport.getLongitudeMin());
+        final double maxX = WebMercator.lonToX(viewport.getLongitudeMax());
+        final double minY = WebMercator.latToY(viewport.getLatitudeMax());
+        final double maxY = WebMercator.latToY(viewport.getLatitudeMin());
+        final List<Cluster> result = new ArrayList<>();
+        for (int c = 0; c < level.size; c++) {
+            final double x = level.x[c];
+            final double y = level.y[c];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                final int count = level.counts[c];
+                result.add(new Cluster(level.ids[c], count, count == 1 ? level.ids[c] : -1, new Geopoint(WebMercator.yToLat(y), WebMercator.xToLon(x))));
+            }
+        }
+        return result;
+    }
+
+    /** returns for each point whether it is part of a cluster with more than one point on given zoom level */
+    @NonNull
+    public boolean[] getClusteredPoints(final int zoom) {
+        final Level level = levels[clampZoom(zoom)];
+        final boolean[] result = new boolean[pointCount];
+        Arrays.fill(result, true);
+        for (int c = 0; c < level.size; c++) {
+            if (level.counts[c] == 1) {
+                result[level.ids[c]] = false;
+            }
+        }
+        return result;
+    }
+
+    private static int clampZoom(final int zoom) {
+        return Math.max(0, Math.min(MAX_CLUSTER_ZOOM, zoom));
+    }
+
+}
@@ -0,0 +1,229 @@
+package cgeo.geocaching.location;
+
+import cgeo.geocaching.utils.functions.Action1;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spatial index for items with a geographic bounding box, supporting insertion, removal and rectangle queries.
+ * <br>
+ * Implemented as hierarchical grid ("loose" quadtree levels over lat/lon degrees): an item is stored on the finest
+ * grid level whose cell size is still at least as large as the item's extent, in the cell containing the item's center.
+ * A rectangle query thus only has to visit the cells overlapping the (by half a cell size expanded) query rectangle
+ * on each occupied level. For small query rectangles (e.g. a map tap) this is a small constant number of cells
+ * per level, independent of the number of items. Items spanning the whole world (e.g. long tracks) end up
+ * on coarse levels and are checked against their exact bounding box.
+ * <br>
+ * Query rectangles crossing the antimeridian (given either with longitudes beyond ±180° or with minimum longitude
+ * greater than maximum longitude) are split into one query per side. Items crossing the antimeridian (minimum longitude
+ * greater than maximum longitude) are stored with a bounding box covering all longitudes.
+ * <br>
+ * Insertion and removal are O(1). Instances are not thread-safe.
+ *
+ * @param <K> type of item keys
+ */
+public final class GeoSpatialIndex<K> {
+
+    /** finest level, cell size is 360° / 2^20 (about 38m) */
+    private static final int MAX_LEVEL = 20;
+    private static final int CELL_BITS = 26;
+
+    private final Map<K, Entry> entries = new HashMap<>();
+    private final Map<Long, Set<K>> cells = new HashMap<>();
+    private final int[] levelCounts = new int[MAX_LEVEL + 1];
+
+    private static final class Entry {
+        private final long cell;
+        private final int level;
+        private final double minLat;
+        private final double minLon;
+        private final double maxLat;
+        private final double maxLon;
+
+        Entry(final long cell, final int level, final double minLat, final double minLon, final double maxLat, final double maxLon) {
+            this.cell = cell;
+            this.level = level;
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+        }
+
+        boolean intersects(final double qMinLat, final double qMinLon, final double qMaxLat, final double qMaxLon) {
+            return minLat <= qMaxLat && maxLat >= qMinLat && minLon <= qMaxLon && maxLon >= qMinLon;
+        }
+    }
+
+    /** adds or replaces item with given key and bounding box. If viewport is null, any existing item for key is removed */
+    public void put(@NonNull final K key, @Nullable final Viewport viewport) {
+        if (viewport == null) {
+            remove(key);
+        } else {
+            put(key, viewport.getLatitudeMin(), viewport.getLongitudeMin(), viewport.getLatitudeMax(), viewport.getLongitudeMax());
+        }
+    }
+
+    /** adds or replaces item with given key and bounding box */
+    public void put(@NonNull final K key, final double minLat, final double minLon, final double maxLat, final double maxLon) {
+        if (minLon > maxLon) {
+            put(key, minLat, -180, maxLat, 180);
+            return;
+        }
+        remove(key);
+        final double extent = Math.max(maxLat - minLat, maxLon - minLon);
+        final int level = getLevel(extent);
+        final double cellSize = getCellSize(level);
+        final long cell = getCellKey(level, getCellIndex((minLon + maxLon) / 2 + 180, cellSize), getCellIndex((minLat + maxLat) / 2 + 90, cellSize));
+
+        entries.put(key, new Entry(cell, level, minLat, minLon, maxLat, maxLon));
+        Set<K> cellItems = cells.get(cell);
+        if (cellItems == null) {
+            cellItems = new HashSet<>();
+            cells.put(cell, cellItems);
+        }
+        cellItems.add(key);
+        levelCounts[level]++;
+    }
+
+    /** removes item with given key. Returns true if item was contained */
+    public boolean remove(@Nullable final K key) {
+        final Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        final Set<K> cellItems = cells.get(entry.cell);
+        if (cellItems != null) {
+            cellItems.remove(key);
+            if (cellItems.isEmpty()) {
+                cells.remove(entry.cell);
+            }
+        }
+        levelCounts[entry.level]--;
+        return true;
+    }
+
+    public void clear() {
+        entries.clear();
+        cells.clear();
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            levelCounts[level] = 0;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** returns keys of all items whose bounding box intersects given viewport */
+    @NonNull
+    public Set<K> query(@NonNull final Viewport viewport) {
+        final Set<K> result = new HashSet<>();
+        query(viewport.getLatitudeMin(), viewport.getLongitudeMin(), viewport.getLatitudeMax(), viewport.getLongitudeMax(), result::add);
+        return result;
+    }
+
+    /**
+     * calls given action once for keys of all items whose bounding box intersects given rectangle.
+     * Rectangle may cross the antimeridian, see class description
+     */
+    public void query(final double minLat, final double minLon, final double maxLat, final double maxLon, @NonNull final Action1<K> action) {
+        if (maxLon - minLon >= 360) {
+            queryRange(minLat, -180, maxLat, 180, action);
+            return;
+        }
+        final double westMin;
+        final double eastMax;
+        if (minLon > maxLon) {
+            westMin = minLon;
+            eastMax = maxLon;
+        } else if (minLon < -180) {
+            westMin = minLon + 360;
+            eastMax = maxLon;
+        } else if (maxLon > 180) {
+            westMin = minLon;
+            eastMax = maxLon - 360;
+        } else {
+            queryRange(minLat, minLon, maxLat, maxLon, action);
+            return;
+        }
+        // query both sides of the antimeridian, items intersecting both are reported only once
+        final Set<K> found = new HashSet<>();
+        queryRange(minLat, westMin, maxLat, 180, found::add);
+        queryRange(minLat, -180, maxLat, eastMax, found::add);
+        for (K key : found) {
+            action.call(key);
+        }
+    }
+
+    private void queryRange(final double minLat, final double minLon, final double maxLat, final double maxLon, @NonNull final Action1<K> action) {
+        boolean[] scanLevels = null;
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            if (levelCounts[level] == 0) {
+                continue;
+            }
+            final double cellSize = getCellSize(level);
+            // item centers are at most half a cell size away from any point of the item
+            final long minX = getCellIndex(minLon + 180 - cellSize / 2, cellSize);
+            final long maxX = getCellIndex(maxLon + 180 + cellSize / 2, cellSize);
+            final long minY = getCellIndex(minLat + 90 - cellSize / 2, cellSize);
+            final long maxY = getCellIndex(maxLat + 90 + cellSize / 2, cellSize);
+            if ((maxX - minX + 1) * (maxY - minY + 1) > levelCounts[level]) {
+                // large query rectangle: cheaper to check all items on this level
+                if (scanLevels == null) {
+                    scanLevels = new boolean[MAX_LEVEL + 1];
+                }
+                scanLevels[level] = true;
+                continue;
+            }
+            for (long x = minX; x <= maxX; x++) {
+                for (long y = minY; y <= maxY; y++) {
+                    final Set<K> cellItems = cells.get(getCellKey(level, x, y));
+                    if (cellItems != null) {
+                        for (K key : cellItems) {
+                            if (entries.get(key).intersects(minLat, minLon, maxLat, maxLon)) {
+                                action.call(key);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (scanLevels != null) {
+            for (Map.Entry<K, Entry> entry : entries.entrySet()) {
+                final Entry e = entry.getValue();
+                if (scanLevels[e.level] && e.intersects(minLat, minLon, maxLat, maxLon)) {
+                    action.call(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private static int getLevel(final double extent) {
+        if (!(extent > 0)) {
+            return MAX_LEVEL;
+        }
+        final int level = (int) Math.floor(Math.log(360 / extent) / Math.log(2));
+        return Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    private static double getCellSize(final int level) {
+        return 360.0 / (1 << level);
+    }
+
+    private static long getCellIndex(final double value, final double cellSize) {
+        return (long) Math.floor(value / cellSize);
+    }
+
+    private static long getCellKey(final int level, final long x, final long y) {
+        // indexes may be slightly out of range for query rectangles crossing world borders, mask them into their bit range
+        final long mask = (1L << CELL_BITS) - 1;
+        return ((long) level << (2 * CELL_BITS)) | ((x & mask) << CELL_BITS) | (y & mask);
+    }
+
+}
@@ -160,7 +160,10 @@ public class ProximityNotification implements Parcelable {
     }
 
     public void checkDistance(final Geopoint position, final Geopoint target, final float direction) {
-        final int tone = checkDistanceInternal((int) (1000f * position.distanceTo(target)));
+        // skip exact distance calculation if target is clearly out of notification range
+        final float approximated = CheapRuler.distanceKm(position, target);
+        final boolean outOfRange = 1000f * (approximated - CheapRuler.maxErrorKm(approximated, position.getLatitudeE6())) > PROXIMITY_NOTIFICATION_MAX_DISTANCE;
+        final int tone = checkDistanceInternal(outOfRange ? (int) (1000f * approximated) : (int) (1000f * position.distanceTo(target)));
         if (useTextNotifications && tone != TONE_NONE) {
             showNotification(tone == TONE_NEAR, TextFactory.getText(position, target, direction));
         }
@@ -0,0 +1,41 @@
+package cgeo.geocaching.location;
+
+/**
+ * Conversions between WGS84 coordinates and normalized Web Mercator coordinates (as used by all map providers),
+ * where x and y range from 0 to 1 (x growing eastwards, y growing southwards).
+ */
+public final class WebMercator {
+
+    /** maximum latitude which can be displayed in Web Mercator */
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    /** size of a map tile in pixels */
+    public static final int TILE_SIZE = 256;
+
+    private WebMercator() {
+        // utility class
+    }
+
+    public static double lonToX(final double lon) {
+        return (lon + 180) / 360;
+    }
+
+    public static double latToY(final double lat) {
+        final double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    public static double xToLon(final double x) {
+        return x * 360 - 180;
+    }
+
+    public static double yToLat(final double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /** returns the size of one screen pixel in normalized Mercator units on given zoom level */
+    public static double pixelSize(final int zoom) {
+        return 1.0 / ((double) TILE_SIZE * (1L << zoom));
+    }
+
+}
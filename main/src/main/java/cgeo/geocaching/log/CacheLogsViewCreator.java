@@ -18,6 +18,7 @@ import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.widget.TooltipCompat;
 
 import java.util.ArrayList;
@@ -34,6 +35,8 @@ public class CacheLogsViewCreator extends LogsViewCreator {
     private final Resources res = CgeoApplication.getInstance().getResources();
     private LinearLayout countview1 = null;
     private TextView countview2 = null;
+    private PagedLogs pagedLogs = null;
+    private boolean hasLogs = false;
 
     public static TabbedViewPagerFragment<LogsPageBinding> newInstance(final boolean allLogs) {
         final CacheLogsViewCreator fragment = new CacheLogsViewCreator();
@@ -54,13 +57,30 @@ public class CacheLogsViewCreator extends LogsViewCreator {
         return activity.getCache();
     }
 
+    /**
+     * first page of the logs, further pages are loaded while scrolling (see {@link #loadMoreLogs()})
+     */
     @Override
     protected List<LogEntry> getLogs() {
         final Geocache cache = getCache();
         final Bundle arguments = getArguments();
         final boolean allLogs = arguments == null || arguments.getBoolean(BUNDLE_ALLLOGS);
-        final List<LogEntry> logs = allLogs ? cache.getLogs() : cache.getFriendsLogs();
-        return addOwnOfflineLog(cache, logs);
+        pagedLogs = new PagedLogs(cache.getGeocode(), !allLogs);
+        final List<LogEntry> logs = addOwnOfflineLog(cache, pagedLogs.loadNextPage());
+        hasLogs = !logs.isEmpty();
+        return logs;
+    }
+
+    @Override
+    protected boolean hasMoreLogs() {
+        return pagedLogs != null && !pagedLogs.isComplete();
+    }
+
+    @NonNull
+    @Override
+    protected List<LogEntry> loadMoreLogs() {
+        final PagedLogs logs = pagedLogs;
+        return logs == null ? Collections.emptyList() : logs.loadNextPage();
     }
 
     private List<LogEntry> addOwnOfflineLog(final Geocache cache, final List<LogEntry> logsIn) {
@@ -130,7 +150,7 @@ public class CacheLogsViewCreator extends LogsViewCreator {
             countview2 = null;
         }
 
-        if (getLogs().isEmpty()) {
+        if (!hasLogs) {
             countview2 = new TextView(getActivity());
             countview2.setText(res.getString(R.string.log_empty_logbook));
             binding.getRoot().addHeaderView(countview2, null, false);
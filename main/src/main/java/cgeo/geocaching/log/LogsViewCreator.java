@@ -10,6 +10,7 @@ import cgeo.geocaching.ui.AnchorAwareLinkMovementMethod;
 import cgeo.geocaching.ui.DecryptTextClickListener;
 import cgeo.geocaching.ui.FastScrollListener;
 import cgeo.geocaching.ui.dialog.ContextMenuDialog;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.ClipboardUtils;
 import cgeo.geocaching.utils.Formatter;
 import cgeo.geocaching.utils.HtmlUtils;
@@ -29,14 +30,21 @@ import androidx.annotation.NonNull;
 import androidx.core.text.HtmlCompat;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 
 public abstract class LogsViewCreator extends TabbedViewPagerFragment<LogsPageBinding> {
 
+    /** more logs are requested when an item this close to the end of the list is shown */
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
+    private boolean loadingMoreLogs = false;
+
     @Override
     public LogsPageBinding createView(@NonNull final LayoutInflater inflater, final ViewGroup container, final Bundle savedInstanceState) {
         return LogsPageBinding.inflate(inflater, container, false);
@@ -49,7 +57,8 @@ public abstract class LogsViewCreator extends TabbedViewPagerFragment<LogsPageBi
         }
         binding.getRoot().setVisibility(View.VISIBLE);
 
-        final List<LogEntry> logs = getLogs();
+        final List<LogEntry> logs = new ArrayList<>(getLogs());
+        loadingMoreLogs = false;
 
         addHeaderView();
         binding.getRoot().setAdapter(new ArrayAdapter<LogEntry>(getActivity(), R.layout.logs_item, logs) {
@@ -71,12 +80,28 @@ public abstract class LogsViewCreator extends TabbedViewPagerFragment<LogsPageBi
                 if (log != null) {
                     fillViewHolder(convertView, holder, log);
                 }
+                if (position >= getCount() - LOAD_MORE_THRESHOLD) {
+                    requestMoreLogs(this);
+                }
                 return rowView;
             }
         });
         binding.getRoot().setOnScrollListener(new FastScrollListener(binding.getRoot()));
     }
 
+    private void requestMoreLogs(final ArrayAdapter<LogEntry> adapter) {
+        if (loadingMoreLogs || !hasMoreLogs()) {
+            return;
+        }
+        loadingMoreLogs = true;
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), this::loadMoreLogs, more -> {
+            if (binding != null && binding.getRoot().getAdapter() == adapter) {
+                adapter.addAll(more);
+                loadingMoreLogs = false;
+            }
+        });
+    }
+
     protected void fillViewHolder(@SuppressWarnings("unused") final View convertView, final LogViewHolder holder, final LogEntry log) {
         if (log.date > 0) {
             holder.binding.added.setText(Formatter.formatShortDateVerbally(log.date));
@@ -180,6 +205,21 @@ public abstract class LogsViewCreator extends TabbedViewPagerFragment<LogsPageBi
 
     protected abstract List<LogEntry> getLogs();
 
+    /**
+     * for subclasses which load their logs page by page: whether there may be more logs than returned by {@link #getLogs()} so far
+     */
+    protected boolean hasMoreLogs() {
+        return false;
+    }
+
+    /**
+     * for subclasses which load their logs page by page: loads the logs following the ones returned so far (called on a background thread)
+     */
+    @NonNull
+    protected List<LogEntry> loadMoreLogs() {
+        return Collections.emptyList();
+    }
+
     protected abstract void addHeaderView();
 
     protected abstract void fillCountOrLocation(LogViewHolder holder, LogEntry log);
@@ -0,0 +1,74 @@
+package cgeo.geocaching.log;
+
+import cgeo.geocaching.storage.DataStore;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Source for the stored logs of a cache which loads them page by page from the database, newest first.
+ * Each page continues after the last log of the previous one, so opening the logs only costs one small page.
+ */
+public class PagedLogs {
+
+    public static final int PAGE_SIZE = 25;
+
+    private final String geocode;
+    private final boolean friendsOnly;
+    @Nullable private final Collection<LogType> logTypes;
+    @Nullable private final String author;
+
+    private final List<LogEntry> loaded = new ArrayList<>();
+    private boolean complete = false;
+
+    public PagedLogs(@NonNull final String geocode, final boolean friendsOnly) {
+        this(geocode, friendsOnly, null, null);
+    }
+
+    /**
+     * @param logTypes if not empty, only logs of these types are loaded
+     * @param author   if not blank, only logs of this author are loaded
+     */
+    public PagedLogs(@NonNull final String geocode, final boolean friendsOnly, @Nullable final Collection<LogType> logTypes, @Nullable final String author) {
+        this.geocode = geocode;
+        this.friendsOnly = friendsOnly;
+        this.logTypes = logTypes == null || logTypes.isEmpty() ? null : EnumSet.copyOf(logTypes);
+        this.author = author;
+    }
+
+    /**
+     * loads the next page of logs
+     *
+     * @return logs of the next page, empty if all logs were loaded already
+     */
+    @NonNull
+    @WorkerThread
+    public synchronized List<LogEntry> loadNextPage() {
+        if (complete) {
+            return Collections.emptyList();
+        }
+        final LogEntry last = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+        final List<LogEntry> page = DataStore.loadLogsPage(geocode, logTypes, author, friendsOnly, last, PAGE_SIZE);
+        loaded.addAll(page);
+        complete = page.size() < PAGE_SIZE;
+        return page;
+    }
+
+    /** all logs loaded so far */
+    @NonNull
+    public synchronized List<LogEntry> getLoaded() {
+        return Collections.unmodifiableList(new ArrayList<>(loaded));
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+}
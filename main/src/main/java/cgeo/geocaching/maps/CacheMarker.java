@@ -6,12 +6,17 @@ import android.graphics.drawable.Drawable;
 
 public class CacheMarker {
 
-    private final int hashCode;
+    /** marker state key (see Hash64), 0 if unknown */
+    private final long key;
     protected final Drawable drawable;
     protected final Bitmap bitmap;
 
     public CacheMarker(final int hashCode, final Drawable drawable) {
-        this.hashCode = hashCode;
+        this((long) hashCode, drawable);
+    }
+
+    public CacheMarker(final long key, final Drawable drawable) {
+        this.key = key;
         this.drawable = drawable;
 
         // prepare bitmap from drawable (used as map markers)
@@ -49,16 +54,21 @@ public class CacheMarker {
 
         final CacheMarker that = (CacheMarker) o;
 
-        if (hashCode == 0) {
+        if (key == 0) {
             return this.drawable.equals(that.drawable);
         } else {
-            return hashCode == that.hashCode;
+            return key == that.key;
         }
     }
 
     @Override
     public int hashCode() {
-        return hashCode == 0 ? drawable.hashCode() : hashCode;
+        return key == 0 ? drawable.hashCode() : (int) (key ^ (key >>> 32));
+    }
+
+    /** returns the marker state key, two markers with the same (non-zero) key look identical */
+    public long getKey() {
+        return key;
     }
 }
 
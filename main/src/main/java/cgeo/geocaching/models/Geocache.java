@@ -110,6 +110,8 @@ import org.apache.commons.lang3.StringUtils;
 public class Geocache implements IWaypoint {
 
     private long updated = 0;
+    /** in-memory version stamp of this cache's (text and log) data, see {@link #getDataVersion()} */
+    private int dataVersion = 0;
     private long detailedUpdate = 0;
     private long visitedDate = 0;
     @NonNull
@@ -249,6 +251,7 @@ public class Geocache implements IWaypoint {
         }
 
         updated = System.currentTimeMillis();
+        dataVersion++;
         //storageLocation.addAll(other.getStorageLocation()); // seems correct but has side effects / failing tests
 
         // if parsed cache is not yet detailed and stored is, the information of
@@ -400,7 +403,7 @@ public class Geocache implements IWaypoint {
             setCoords(other.getCoords());
         } else {
             if (coords == null) {
-                coords = other.coords;
+                setCoords(other.coords);
             }
         }
         // if cache has ORIGINAL type waypoint ... it is considered that it has modified coordinates, otherwise not
@@ -937,6 +940,7 @@ public class Geocache implements IWaypoint {
     public void setDescription(final String description) {
         this.description = description;
         this.eventTimesInMin.reset(); // will be recalculated if/when necessary
+        dataVersion++;
     }
 
     public boolean isFound() {
@@ -1071,8 +1075,18 @@ public class Geocache implements IWaypoint {
         return updated;
     }
 
+    /**
+     * Returns a stamp which changes whenever text or log related data of this cache object is changed in memory
+     * (description, hint, personal note, log counts, last found, search data, update time).
+     * Together with {@link #getUpdated()} this can be used to detect whether values derived from a cache are still valid.
+     */
+    public int getDataVersion() {
+        return dataVersion;
+    }
+
     public void setUpdated(final long updated) {
         this.updated = updated;
+        dataVersion++;
     }
 
     public long getDetailedUpdate() {
@@ -1117,6 +1131,7 @@ public class Geocache implements IWaypoint {
 
     public void setLastFound(@Nullable final Date lastFound) {
         this.lastFound = lastFound != null ? new Date(lastFound.getTime()) : null;
+        dataVersion++;
     }
 
     @Nullable
@@ -1147,11 +1162,16 @@ public class Geocache implements IWaypoint {
      */
     public void setCoords(final Geopoint coords) {
         this.coords = coords;
+        if (storageLocation.contains(StorageLocation.CACHE)) {
+            // keep viewport scans of CacheCache in sync
+            DataStore.refreshCacheInCache(this);
+        }
     }
 
     public void setShortDescription(final String shortdesc) {
         this.shortdesc = shortdesc;
         this.eventTimesInMin.reset(); // will be recalculated if/when necessary
+        dataVersion++;
     }
 
     public void setFavoritePoints(final int favoriteCnt) {
@@ -1450,6 +1470,7 @@ public class Geocache implements IWaypoint {
 
     public void setHint(final String hint) {
         this.hint = hint;
+        dataVersion++;
     }
 
     public void setSize(@NonNull final CacheSize size) {
@@ -1475,6 +1496,7 @@ public class Geocache implements IWaypoint {
     public void setPersonalNote(final String personalNote, final boolean isFromProvider) {
         this.personalNote.setNote(personalNote);
         this.personalNote.setFromProvider(isFromProvider);
+        dataVersion++;
     }
 
     public void setDisabled(final boolean disabled) {
@@ -1517,6 +1539,7 @@ public class Geocache implements IWaypoint {
 
     public void setLogCounts(@NonNull final Map<LogType, Integer> logCounts) {
         this.logCounts = logCounts;
+        dataVersion++;
     }
 
     /*
@@ -2481,6 +2504,7 @@ public class Geocache implements IWaypoint {
      */
     public void setSearchData(@Nullable final SearchCacheData searchCacheData) {
         this.searchCacheData = searchCacheData;
+        dataVersion++;
     }
 
     private class EventTimesInMin {
@@ -192,6 +192,12 @@ public class GeoIcon implements Parcelable {
         return GeoItemUtils.touchesPixelArea(tap, iconBase, bmWidth, bmHeight, xAnchor, yAnchor, toScreenCoordFunc);
     }
 
+    /** returns the larger one of (rotated) icon width and height in pixels. An icon can't touch a point further away from its base */
+    public int getMaxPixelExtent() {
+        ensureBmSizes();
+        return Math.max(bmWidth, bmHeight);
+    }
+
     private void ensureBmSizes() {
         if (bmHeight >= 0) {
             return;
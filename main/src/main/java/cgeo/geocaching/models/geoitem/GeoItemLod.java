@@ -0,0 +1,422 @@
+package cgeo.geocaching.models.geoitem;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.location.WebMercator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Level-of-detail representation of a GeoItem for display on a map.
+ * <br>
+ * For each zoom band, lines and polygon rings are simplified (Douglas-Peucker in Web Mercator space) with a tolerance
+ * below one screen pixel on the band's highest zoom level. Simplifications are calculated once per band on first use.
+ * For display, the simplified lines are additionally clipped to the current viewport plus a margin of one viewport size
+ * in each direction, so that points far outside the visible area are neither projected nor drawn.
+ * The displayed item is cached and only recalculated when the zoom band changes or the viewport leaves the clipped area.
+ * <br>
+ * Lines are simplified in chunks (each one keeping its first and last point). A LOD created for an updated version of an item
+ * (see {@link #GeoItemLod(GeoItem, GeoItemLod)}) reuses all chunks of the previous LOD whose points didn't change. Thus for a line
+ * which is only extended at its end (and possibly shortened at its start), as e.g. the position history, only the changed parts are simplified again.
+ * <br>
+ * The original item is left untouched and should be used for everything except display (e.g. export, elevation).
+ * Instances are thread-safe.
+ */
+public class GeoItemLod {
+
+    /** highest zoom level of each zoom band. Above the last band, the original geometry is used (clipped only) */
+    private static final int[] BAND_MAX_ZOOM = {5, 8, 11, 14, 17};
+    /** maximum deviation of simplified lines in pixels */
+    private static final double TOLERANCE_PX = 0.7;
+    /** number of segments of the chunks in which changed parts of updated lines are simplified */
+    private static final int CHUNK_SEGMENTS = 512;
+
+    private final GeoItem original;
+    private final GeoItem[] simplified = new GeoItem[BAND_MAX_ZOOM.length];
+    /** chunks of all polylines of the original item, in the order they are contained in it */
+    private final List<List<LineChunk>> lines = new ArrayList<>();
+
+    private int lastBand = Integer.MIN_VALUE;
+    private Viewport lastClipArea = null;
+    private GeoItem lastItem = null;
+
+    /** consecutive points of a line with their simplifications per zoom band. Adjacent chunks share their boundary point */
+    private static final class LineChunk {
+        private final List<Geopoint> points;
+        private final List<List<Geopoint>> simplified = new ArrayList<>();
+
+        LineChunk(final List<Geopoint> points) {
+            this.points = points;
+            for (int band = 0; band < BAND_MAX_ZOOM.length; band++) {
+                simplified.add(null);
+            }
+        }
+
+        int getSegmentCount() {
+            return points.size() - 1;
+        }
+
+        /** chunks may be shared between LODs of different versions of an item, thus synchronized */
+        synchronized List<Geopoint> getSimplified(final int band) {
+            List<Geopoint> result = simplified.get(band);
+            if (result == null) {
+                result = simplify(points, getTolerance(band), 2);
+                simplified.set(band, result);
+            }
+            return result;
+        }
+    }
+
+    public GeoItemLod(@NonNull final GeoItem original) {
+        this(original, null);
+    }
+
+    /**
+     * Creates the LOD for an updated version of an item, reusing the simplifications of the previous version's LOD where possible
+     *
+     * @param previous LOD of the previous version of the item, or null
+     */
+    public GeoItemLod(@NonNull final GeoItem original, @Nullable final GeoItemLod previous) {
+        this.original = original;
+        collectLines(original, previous);
+    }
+
+    private void collectLines(final GeoItem item, @Nullable final GeoItemLod previous) {
+        if (item instanceof GeoGroup) {
+            for (GeoItem child : ((GeoGroup) item).getItems()) {
+                collectLines(child, previous);
+            }
+        } else if (item instanceof GeoPrimitive && ((GeoPrimitive) item).getType() == GeoItem.GeoType.POLYLINE) {
+            final List<Geopoint> points = ((GeoPrimitive) item).getPoints();
+            lines.add(previous == null ? Collections.singletonList(new LineChunk(points)) : previous.createChunks(points));
+        }
+    }
+
+    /** splits given line into chunks. Chunks of this LOD's lines are reused if they are contained unchanged in the line */
+    private List<LineChunk> createChunks(final List<Geopoint> points) {
+        final List<LineChunk> result = new ArrayList<>();
+        if (points.size() < 2) {
+            result.add(new LineChunk(points));
+            return result;
+        }
+        for (List<LineChunk> line : lines) {
+            // find start of given line in old line, then the reusable chunks
+            int oldIndex = 0;
+            int chunkIndex = 0;
+            while (chunkIndex < line.size() && !line.get(chunkIndex).points.contains(points.get(0))) {
+                oldIndex += line.get(chunkIndex).getSegmentCount();
+                chunkIndex++;
+            }
+            if (chunkIndex == line.size()) {
+                continue;
+            }
+            final int offset = oldIndex + line.get(chunkIndex).points.indexOf(points.get(0));
+            int reusedFrom = -1;
+            int reusedTo = -1;
+            for (; chunkIndex < line.size(); chunkIndex++) {
+                final LineChunk chunk = line.get(chunkIndex);
+                final boolean isOpenEnd = chunkIndex == line.size() - 1 && chunk.getSegmentCount() < CHUNK_SEGMENTS;
+                if (oldIndex >= offset && !isOpenEnd && matches(points, oldIndex - offset, chunk.points)) {
+                    if (reusedFrom < 0) {
+                        reusedFrom = oldIndex - offset;
+                        addChunks(points, 0, reusedFrom, result);
+                    }
+                    result.add(chunk);
+                    reusedTo = oldIndex - offset + chunk.getSegmentCount();
+                } else if (reusedFrom >= 0) {
+                    break;
+                }
+                oldIndex += chunk.getSegmentCount();
+            }
+            if (reusedFrom >= 0) {
+                addChunks(points, reusedTo, points.size() - 1, result);
+                return result;
+            }
+        }
+        addChunks(points, 0, points.size() - 1, result);
+        return result;
+    }
+
+    /** checks whether given line contains the given points starting at given index */
+    private static boolean matches(final List<Geopoint> line, final int start, final List<Geopoint> points) {
+        if (start + points.size() > line.size()) {
+            return false;
+        }
+        for (int i = 0; i < points.size(); i++) {
+            if (!points.get(i).equals(line.get(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** adds new chunks for the points from first to last (inclusive) of given line */
+    private static void addChunks(final List<Geopoint> points, final int first, final int last, final List<LineChunk> result) {
+        for (int start = first; start < last; start += CHUNK_SEGMENTS) {
+            result.add(new LineChunk(new ArrayList<>(points.subList(start, Math.min(start + CHUNK_SEGMENTS, last) + 1))));
+        }
+    }
+
+    @NonNull
+    public GeoItem getOriginal() {
+        return original;
+    }
+
+    /**
+     * Returns the item to display for given viewport and zoom level. If viewport is null, the original item is returned.
+     * The same instance is returned as long as it is suitable for the given viewport and zoom level.
+     */
+    @NonNull
+    public synchronized GeoItem getForDisplay(@Nullable final Viewport viewport, final int zoom) {
+        if (viewport == null || zoom < 0) {
+            lastBand = Integer.MIN_VALUE;
+            lastClipArea = null;
+            lastItem = original;
+            return original;
+        }
+        final int band = getBand(zoom);
+        if (band == lastBand && lastItem != null && (lastClipArea == null || lastClipArea.includes(viewport))) {
+            return lastItem;
+        }
+
+        final GeoItem source = band < 0 ? original : getSimplified(band);
+        final Viewport clipArea = viewport.resize(3);
+        final Viewport bounds = original.getViewport();
+        if (bounds == null || clipArea.includes(bounds)) {
+            // everything is in clip area anyway
+            lastClipArea = null;
+            lastItem = source;
+        } else {
+            lastClipArea = clipArea;
+            lastItem = clip(source, clipArea);
+        }
+        lastBand = band;
+        return lastItem;
+    }
+
+    private static int getBand(final int zoom) {
+        for (int band = 0; band < BAND_MAX_ZOOM.length; band++) {
+            if (zoom <= BAND_MAX_ZOOM[band]) {
+                return band;
+            }
+        }
+        return -1;
+    }
+
+    private GeoItem getSimplified(final int band) {
+        if (simplified[band] == null) {
+            simplified[band] = simplify(original, band, new int[]{0});
+        }
+        return simplified[band];
+    }
+
+    private static double getTolerance(final int band) {
+        return TOLERANCE_PX * WebMercator.pixelSize(BAND_MAX_ZOOM[band]);
+    }
+
+    /** simplifies given item for given band, using the chunks of the lines (counted by lineIndex) */
+    private GeoItem simplify(final GeoItem item, final int band, final int[] lineIndex) {
+        if (item instanceof GeoGroup) {
+            final GeoGroup.Builder builder = GeoGroup.builder();
+            for (GeoItem child : ((GeoGroup) item).getItems()) {
+                builder.addItems(simplify(child, band, lineIndex));
+            }
+            return builder.build();
+        }
+        final GeoPrimitive p = (GeoPrimitive) item;
+        if (p.getType() != GeoItem.GeoType.POLYLINE) {
+            return simplify(p, getTolerance(band));
+        }
+        final List<LineChunk> chunks = lines.get(lineIndex[0]++);
+        if (chunks.size() == 1) {
+            return copyWithPoints(p, chunks.get(0).getSimplified(band), null);
+        }
+        final List<Geopoint> points = new ArrayList<>();
+        for (LineChunk chunk : chunks) {
+            final List<Geopoint> chunkPoints = chunk.getSimplified(band);
+            // first point of a chunk is the last one of the previous chunk
+            points.addAll(points.isEmpty() ? chunkPoints : chunkPoints.subList(1, chunkPoints.size()));
+        }
+        return copyWithPoints(p, points, null);
+    }
+
+    /** returns a copy of given item with all lines and polygon rings simplified with given tolerance (in normalized Mercator units) */
+    @NonNull
+    public static GeoItem simplify(@NonNull final GeoItem item, final double tolerance) {
+        if (item instanceof GeoGroup) {
+            final GeoGroup.Builder builder = GeoGroup.builder();
+            for (GeoItem child : ((GeoGroup) item).getItems()) {
+                builder.addItems(simplify(child, tolerance));
+            }
+            return builder.build();
+        }
+        final GeoPrimitive p = (GeoPrimitive) item;
+        if (p.getType() == GeoItem.GeoType.POLYLINE) {
+            return copyWithPoints(p, simplify(p.getPoints(), tolerance, 2), null);
+        }
+        if (p.getType() == GeoItem.GeoType.POLYGON) {
+            List<List<Geopoint>> holes = null;
+            if (p.getHoles() != null) {
+                holes = new ArrayList<>();
+                for (List<Geopoint> hole : p.getHoles()) {
+                    holes.add(simplify(hole, tolerance, 4));
+                }
+            }
+            return copyWithPoints(p, simplify(p.getPoints(), tolerance, 4), holes);
+        }
+        return p;
+    }
+
+    /**
+     * Simplifies a line using the Douglas-Peucker algorithm in Web Mercator space.
+     * If less than minPoints would remain, the line is returned unchanged.
+     */
+    @NonNull
+    public static List<Geopoint> simplify(@NonNull final List<Geopoint> points, final double tolerance, final int minPoints) {
+        final int n = points.size();
+        if (n <= 2) {
+            return points;
+        }
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = WebMercator.lonToX(points.get(i).getLongitude());
+            y[i] = WebMercator.latToY(points.get(i).getLatitude());
+        }
+        final boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        final double toleranceSquared = tolerance * tolerance;
+
+        // iterative instead of recursive to avoid stack overflows on long tracks
+        final int[] stack = new int[2 * n];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = n - 1;
+        while (stackSize > 0) {
+            final int last = stack[--stackSize];
+            final int first = stack[--stackSize];
+            double maxDistance = -1;
+            int maxIndex = -1;
+            for (int i = first + 1; i < last; i++) {
+                final double distance = segmentDistanceSquared(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    maxIndex = i;
+                }
+            }
+            if (maxIndex >= 0 && maxDistance > toleranceSquared) {
+                keep[maxIndex] = true;
+                stack[stackSize++] = first;
+                stack[stackSize++] = maxIndex;
+                stack[stackSize++] = maxIndex;
+                stack[stackSize++] = last;
+            }
+        }
+
+        final List<Geopoint> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result.add(points.get(i));
+            }
+        }
+        return result.size() < minPoints ? points : result;
+    }
+
+    private static double segmentDistanceSquared(final double px, final double py, final double ax, final double ay, final double bx, final double by) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        final double ex = ax + t * dx - px;
+        final double ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Returns a copy of given item restricted to the given area: lines are split into the parts whose segments intersect the area,
+     * polygons outside the area are dropped. Other items are kept unchanged.
+     */
+    @NonNull
+    public static GeoItem clip(@NonNull final GeoItem item, @NonNull final Viewport area) {
+        final GeoGroup.Builder builder = GeoGroup.builder();
+        clip(item, area, builder);
+        return builder.build();
+    }
+
+    private static void clip(final GeoItem item, final Viewport area, final GeoGroup.Builder result) {
+        if (item instanceof GeoGroup) {
+            for (GeoItem child : ((GeoGroup) item).getItems()) {
+                clip(child, area, result);
+            }
+            return;
+        }
+        final GeoPrimitive p = (GeoPrimitive) item;
+        final Viewport bounds = p.getViewport();
+        if (p.getType() == GeoItem.GeoType.POLYGON) {
+            if (bounds != null && intersects(area, bounds)) {
+                result.addItems(p);
+            }
+            return;
+        }
+        if (p.getType() != GeoItem.GeoType.POLYLINE || bounds == null || area.includes(bounds)) {
+            result.addItems(p);
+            return;
+        }
+        if (!intersects(area, bounds)) {
+            return;
+        }
+
+        final List<Geopoint> points = p.getPoints();
+        List<Geopoint> part = null;
+        for (int i = 1; i < points.size(); i++) {
+            final Geopoint from = points.get(i - 1);
+            final Geopoint to = points.get(i);
+            if (segmentIntersects(from, to, area)) {
+                if (part == null) {
+                    part = new ArrayList<>();
+                    part.add(from);
+                }
+                part.add(to);
+            } else if (part != null) {
+                result.addItems(copyWithPoints(p, part, null));
+                part = null;
+            }
+        }
+        if (part != null) {
+            result.addItems(copyWithPoints(p, part, null));
+        }
+    }
+
+    /** checks whether rectangles overlap (unlike Viewport.intersects(), this also detects b enclosing a) */
+    private static boolean intersects(final Viewport a, final Viewport b) {
+        return a.getLatitudeMin() <= b.getLatitudeMax() && a.getLatitudeMax() >= b.getLatitudeMin()
+                && a.getLongitudeMin() <= b.getLongitudeMax() && a.getLongitudeMax() >= b.getLongitudeMin();
+    }
+
+    /** checks whether bounding box of segment intersects area (conservative: segment may still pass beside a corner) */
+    private static boolean segmentIntersects(final Geopoint from, final Geopoint to, final Viewport area) {
+        return Math.max(from.getLatitude(), to.getLatitude()) >= area.getLatitudeMin()
+                && Math.min(from.getLatitude(), to.getLatitude()) <= area.getLatitudeMax()
+                && Math.max(from.getLongitude(), to.getLongitude()) >= area.getLongitudeMin()
+                && Math.min(from.getLongitude(), to.getLongitude()) <= area.getLongitudeMax();
+    }
+
+    private static GeoPrimitive copyWithPoints(final GeoPrimitive p, final List<Geopoint> points, @Nullable final List<List<Geopoint>> holes) {
+        final GeoPrimitive.Builder builder = GeoPrimitive.builder().setType(p.getType()).addPoints(points)
+                .setIcon(p.getIcon()).setRadius(p.getRadius()).setStyle(p.getStyle()).setZLevel(p.getZLevel());
+        if (holes != null) {
+            for (List<Geopoint> hole : holes) {
+                builder.addHole(hole);
+            }
+        }
+        return builder.build();
+    }
+
+}
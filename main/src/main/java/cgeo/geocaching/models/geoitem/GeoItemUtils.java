@@ -1,6 +1,7 @@
 package cgeo.geocaching.models.geoitem;
 
 import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
 import cgeo.geocaching.ui.ViewUtils;
 
 import androidx.annotation.Nullable;
@@ -21,6 +22,37 @@ public final class GeoItemUtils {
         return ViewUtils.dpToPixel(MIN_DP_TOUCH_WIDTH);
     }
 
+    /**
+     * Returns how many screen pixels outside of its geographic bounding box (see {@link #getTouchBounds(GeoItem)}) the given item
+     * may still be touched, considering icon sizes and line widths.
+     */
+    public static int getTouchMarginPx(@Nullable final GeoItem item) {
+        final int[] margin = new int[]{0};
+        GeoGroup.forAllPrimitives(item, p -> {
+            margin[0] = Math.max(margin[0], getHalfLineWithPx(GeoStyle.getStrokeWidth(p.getStyle())));
+            if (p.getIcon() != null) {
+                margin[0] = Math.max(margin[0], p.getIcon().getMaxPixelExtent());
+            }
+        });
+        return margin[0];
+    }
+
+    /** Returns the geographic bounding box of given item including the area covered by circles, or null for empty items */
+    @Nullable
+    public static Viewport getTouchBounds(@Nullable final GeoItem item) {
+        final Viewport.ContainingViewportBuilder builder = new Viewport.ContainingViewportBuilder();
+        GeoGroup.forAllPrimitives(item, p -> {
+            final Viewport vp = p.getViewport();
+            if (vp != null) {
+                builder.add(vp);
+            }
+            if (p.getType() == GeoItem.GeoType.CIRCLE && p.getCenter() != null && p.getRadius() > 0) {
+                builder.add(new Viewport(p.getCenter(), p.getRadius()));
+            }
+        });
+        return builder.getViewport();
+    }
+
     public static boolean touchesPixelArea(final Geopoint tapped, final Geopoint base, final int bmWidth, final int bmHeight, final float xAnchor, final float yAnchor, @Nullable final ToScreenProjector projector) {
         if (tapped == null || base == null || projector == null) {
             return false;
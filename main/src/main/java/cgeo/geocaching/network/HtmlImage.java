@@ -6,6 +6,7 @@ import cgeo.geocaching.connector.ConnectorFactory;
 import cgeo.geocaching.storage.ContentStorage;
 import cgeo.geocaching.storage.LocalStorage;
 import cgeo.geocaching.utils.AndroidRxUtils;
+import cgeo.geocaching.utils.BitmapMemoryCache;
 import cgeo.geocaching.utils.DisplayUtils;
 import cgeo.geocaching.utils.DisposableHandler;
 import cgeo.geocaching.utils.FileUtils;
@@ -19,6 +20,7 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.net.Uri;
 import android.text.Html;
@@ -28,8 +30,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
@@ -82,6 +86,10 @@ public class HtmlImage implements Html.ImageGetter {
 
     public static final ImmutablePair<BitmapDrawable, Metadata> IMAGE_ERROR_DATA = new ImmutablePair<>(null, null);
 
+    /** thumbnails are only stored on disk for images at least this factor larger than the thumbnail */
+    private static final int THUMBNAIL_MIN_REDUCTION = 2;
+    private static final int THUMBNAIL_QUALITY = 85;
+
     @NonNull private final String geocode;
     /**
      * on error: return large error image, if {@code true}, otherwise empty 1x1 image
@@ -89,8 +97,10 @@ public class HtmlImage implements Html.ImageGetter {
     private final boolean returnErrorImage;
     private final boolean onlySave;
     private final boolean userInitiatedRefresh;
-    private final int maxWidth;
-    private final int maxHeight;
+    private int maxWidth;
+    private int maxHeight;
+    /** if > 0: images are loaded as thumbnails of this maximum size, which are stored on disk next to the original images */
+    private int thumbnailSize = 0;
     private final Resources resources;
     final WeakReference<TextView> viewRef;
     private boolean loadMetadata = false;
@@ -219,12 +229,28 @@ public class HtmlImage implements Html.ImageGetter {
             return Observable.just(ImmutablePair.of(ImageUtils.getTransparent1x1Drawable(resources), null));
         }
 
+        // images decoded before in the same size are taken from the process-wide memory cache.
+        // It only contains images whose copy on disk was fresh enough, so the freshness check is skipped for them.
+        // A refresh requested by the user drops them, so that the image is checked for changes again.
+        final String memoryCacheKey = BitmapMemoryCache.getKey(url, maxWidth, maxHeight, loadMetadata);
+        if (userInitiatedRefresh) {
+            BitmapMemoryCache.getInstance().remove(url);
+        } else if (!onlySave) {
+            final ImmutablePair<BitmapDrawable, Metadata> cached = BitmapMemoryCache.getInstance().get(memoryCacheKey);
+            if (cached != null) {
+                // drawables must not be shared between views, but their bitmaps may
+                final BitmapDrawable drawable = new BitmapDrawable(resources, cached.left.getBitmap());
+                drawable.setBounds(new Rect(cached.left.getBounds()));
+                return Observable.just(ImmutablePair.of(drawable, cached.right));
+            }
+        }
+
         // Explicit local file URLs are loaded from the filesystem regardless of their age. The IO part is short
         // enough to make the whole operation on the computation scheduler.
         if (FileUtils.isFileUrl(url)) {
             return Observable.defer(() -> {
                 final ImmutableTriple<Bitmap, Metadata, Boolean> data = loadCachedImage(FileUtils.urlToFile(url), true);
-                return data != null && data.left != null ? Observable.just(ImmutablePair.of(ImageUtils.scaleBitmapToDisplay(data.left), data.middle)) :
+                return data != null && data.left != null ? Observable.just(remember(memoryCacheKey, ImmutablePair.of(scaleBitmap(data.left), data.middle))) :
                         Observable.just(IMAGE_ERROR_DATA);
             }).subscribeOn(AndroidRxUtils.computationScheduler);
         }
@@ -235,7 +261,7 @@ public class HtmlImage implements Html.ImageGetter {
                 delayForTest();
 
                 final ImmutableTriple<Bitmap, Metadata, Boolean> data = loadCachedImage(uri, true, -1);
-                return data != null && data.left != null ? Observable.just(ImmutablePair.of(ImageUtils.scaleBitmapToDisplay(data.left), data.middle)) :
+                return data != null && data.left != null ? Observable.just(remember(memoryCacheKey, ImmutablePair.of(scaleBitmap(data.left), data.middle))) :
                         Observable.just(IMAGE_ERROR_DATA);
             }).subscribeOn(AndroidRxUtils.computationScheduler);
         }
@@ -270,7 +296,12 @@ public class HtmlImage implements Html.ImageGetter {
 
             private ImmutableTriple<BitmapDrawable, Metadata, Boolean> loadFromDisk() {
                 final ImmutableTriple<Bitmap, Metadata, Boolean> loadResult = loadImageFromStorage(url, pseudoGeocode, shared);
-                return scaleImage(loadResult);
+                final ImmutableTriple<BitmapDrawable, Metadata, Boolean> scaled = scaleImage(loadResult);
+                // stale copies are shown until the download finishes, but must not bypass the freshness check next time
+                if (scaled.left != null && scaled.right) {
+                    remember(memoryCacheKey, ImmutablePair.of(scaled.left, scaled.middle));
+                }
+                return scaled;
             }
 
             private void downloadAndSave(final ObservableEmitter<ImmutablePair<BitmapDrawable, Metadata>> emitter, final Disposable disposable) {
@@ -283,11 +314,28 @@ public class HtmlImage implements Html.ImageGetter {
                         emitter.onComplete();
                         return;
                     }
+                } else if (onlySave && !disposable.isDisposed()) {
+                    // storing only: download through the shared queue, which limits and de-duplicates downloads across caches
+                    final String absoluteURL = makeAbsoluteURL(url);
+                    if (absoluteURL == null) {
+                        emitter.onComplete();
+                        return;
+                    }
+                    emitter.setDisposable(ImageDownloadQueue.getInstance().download(absoluteURL, file, userInitiatedRefresh)
+                            .subscribe(result -> {
+                                if (result == ImageDownloadQueue.Result.DOWNLOADED || result == ImageDownloadQueue.Result.COPIED) {
+                                    BitmapMemoryCache.getInstance().remove(url);
+                                }
+                                emitter.onComplete();
+                            }, throwable -> emitter.onComplete()));
+                    return;
                 } else if (disposable.isDisposed() || downloadOrRefreshCopy(url, file)) {
                     // The existing copy was fresh enough or we were unsubscribed earlier.
                     emitter.onComplete();
                     return;
                 }
+                // the image has changed on disk, so decoded copies in other sizes are outdated
+                BitmapMemoryCache.getInstance().remove(url);
                 if (onlySave) {
                     emitter.onComplete();
                     return;
@@ -319,7 +367,24 @@ public class HtmlImage implements Html.ImageGetter {
 
     protected ImmutableTriple<BitmapDrawable, Metadata, Boolean> scaleImage(final ImmutableTriple<Bitmap, Metadata, Boolean> loadResult) {
         final Bitmap bitmap = loadResult.left;
-        return ImmutableTriple.of(bitmap != null ? ImageUtils.scaleBitmapToDisplay(bitmap) : null, loadResult.middle, loadResult.right);
+        return ImmutableTriple.of(bitmap != null ? scaleBitmap(bitmap) : null, loadResult.middle, loadResult.right);
+    }
+
+    @NonNull
+    private BitmapDrawable scaleBitmap(@NonNull final Bitmap bitmap) {
+        if (thumbnailSize > 0) {
+            final ImmutableTriple<Integer, Integer, Boolean> size = ImageUtils.calculateScaledImageSizes(bitmap.getWidth(), bitmap.getHeight(), thumbnailSize, thumbnailSize);
+            final BitmapDrawable drawable = new BitmapDrawable(resources, size.right ? Bitmap.createScaledBitmap(bitmap, size.left, size.middle, true) : bitmap);
+            drawable.setBounds(new Rect(0, 0, size.left, size.middle));
+            return drawable;
+        }
+        return ImageUtils.scaleBitmapToDisplay(bitmap);
+    }
+
+    @NonNull
+    private static ImmutablePair<BitmapDrawable, Metadata> remember(@NonNull final String memoryCacheKey, @NonNull final ImmutablePair<BitmapDrawable, Metadata> image) {
+        BitmapMemoryCache.getInstance().put(memoryCacheKey, image);
+        return image;
     }
 
     public Completable waitForEndCompletable(@Nullable final DisposableHandler handler) {
@@ -334,6 +399,18 @@ public class HtmlImage implements Html.ImageGetter {
         this.loadMetadata = loadMetadata;
     }
 
+    /**
+     * Load images as thumbnails with given maximum width and height (instead of display size).
+     * Downscaled thumbnails are stored on disk next to the original images, so they are decoded from the original only once.
+     */
+    public void setThumbnailSize(final int thumbnailSize) {
+        this.thumbnailSize = thumbnailSize;
+        if (thumbnailSize > 0) {
+            this.maxWidth = thumbnailSize;
+            this.maxHeight = thumbnailSize;
+        }
+    }
+
     /**
      * Download or refresh the copy of {@code url} in {@code file}.
      *
@@ -343,42 +420,7 @@ public class HtmlImage implements Html.ImageGetter {
      */
     private boolean downloadOrRefreshCopy(@NonNull final String url, final File file) {
         final String absoluteURL = makeAbsoluteURL(url);
-
-        if (absoluteURL != null) {
-            try {
-                final Response httpResponse = Network.getRequest(absoluteURL, null, file).blockingGet();
-                if (httpResponse.isSuccessful()) {
-                    FileUtils.saveEntityToFile(httpResponse, file);
-                } else if (httpResponse.code() == 304) {
-                    if (!file.setLastModified(System.currentTimeMillis())) {
-                        makeFreshCopy(file);
-                    }
-                    return true;
-                }
-            } catch (final Exception e) {
-                Log.w("Exception in HtmlImage.downloadOrRefreshCopy: " + e);
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Make a fresh copy of the file to reset its timestamp. On some storage, it is impossible
-     * to modify the modified time after the fact, in which case a brand new file must be
-     * created if we want to be able to use the time as validity hint.
-     *
-     * See Android issue 1699.
-     *
-     * @param file the file to refresh
-     */
-    private static void makeFreshCopy(final File file) {
-        final File tempFile = new File(file.getParentFile(), file.getName() + "-temp");
-        if (file.renameTo(tempFile)) {
-            FileUtils.copy(tempFile, file);
-            FileUtils.deleteIgnoringFailure(tempFile);
-        } else {
-            Log.e("Could not reset timestamp of file " + file.getAbsolutePath());
-        }
+        return absoluteURL != null && ImageDownloadQueue.downloadToFile(absoluteURL, file) == ImageDownloadQueue.Result.UNCHANGED;
     }
 
     /**
@@ -463,11 +505,7 @@ public class HtmlImage implements Html.ImageGetter {
         if (freshEnough && onlySave) {
             return ImmutableTriple.of((Bitmap) null, null, true);
         }
-        final BitmapFactory.Options bfOptions = new BitmapFactory.Options();
-        bfOptions.inTempStorage = new byte[16 * 1024];
-        bfOptions.inPreferredConfig = Bitmap.Config.RGB_565;
-        setSampleSize(uri, bfOptions);
-        final Bitmap image = ImageUtils.readImageFromStream(() -> ContentStorage.get().openForRead(uri), bfOptions, uri);
+        final Bitmap image = thumbnailSize > 0 ? loadThumbnail(uri, lastModified) : decodeImage(uri);
         if (image == null) {
             return ImmutableTriple.of((Bitmap) null, null, false);
         }
@@ -489,6 +527,46 @@ public class HtmlImage implements Html.ImageGetter {
         return ImmutableTriple.of(image, metadata, freshEnough);
     }
 
+    @Nullable
+    private Bitmap decodeImage(final Uri uri) {
+        final BitmapFactory.Options bfOptions = new BitmapFactory.Options();
+        bfOptions.inTempStorage = new byte[16 * 1024];
+        bfOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+        setSampleSize(uri, bfOptions);
+        return ImageUtils.readImageFromStream(() -> ContentStorage.get().openForRead(uri), bfOptions, uri);
+    }
+
+    /**
+     * Load the thumbnail of an image. The thumbnail is read from its file next to the original image if it is not older
+     * than the original, otherwise it is decoded from the original image and stored (if it is considerably smaller).
+     */
+    @Nullable
+    private Bitmap loadThumbnail(final Uri uri, final long lastModified) {
+        final File thumbnailFile = LocalStorage.getGeocacheDataFile(geocode, uri + "#thumbnail" + thumbnailSize, true, true);
+        if (thumbnailFile.isFile() && (lastModified <= 0 || thumbnailFile.lastModified() >= lastModified)) {
+            final Bitmap thumbnail = BitmapFactory.decodeFile(thumbnailFile.getAbsolutePath());
+            if (thumbnail != null) {
+                return thumbnail;
+            }
+        }
+        final Bitmap image = decodeImage(uri);
+        if (image == null || Math.max(image.getWidth(), image.getHeight()) < THUMBNAIL_MIN_REDUCTION * thumbnailSize) {
+            return image;
+        }
+        final Bitmap thumbnail = scaleBitmap(image).getBitmap();
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(thumbnailFile);
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+        } catch (final IOException e) {
+            Log.w("HtmlImage.loadThumbnail: could not store thumbnail for " + uri, e);
+            FileUtils.deleteIgnoringFailure(thumbnailFile);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        return thumbnail;
+    }
+
     private void setSampleSize(final Uri uri, final BitmapFactory.Options bfOptions) {
         //Decode image size only
         final BitmapFactory.Options options = new BitmapFactory.Options();
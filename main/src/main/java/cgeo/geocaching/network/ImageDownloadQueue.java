@@ -0,0 +1,342 @@
+package cgeo.geocaching.network;
+
+import cgeo.geocaching.utils.AndroidRxUtils;
+import cgeo.geocaching.utils.FileUtils;
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
+import cgeo.geocaching.utils.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleEmitter;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Process-wide queue for downloading images to be stored offline (e.g. when storing many caches at once).
+ * <br>
+ * <ul>
+ * <li>At most {@link #MAX_DOWNLOADS} images are downloaded at once, and at most {@link #MAX_DOWNLOADS_PER_HOST} from the same host.
+ * Hosts are served round-robin, so one image server can't block the others.</li>
+ * <li>Requests for an URL already being downloaded wait for that download instead of starting another one.
+ * URLs downloaded before (e.g. shared images, smileys or banners in the listings of several caches) are copied locally
+ * instead of being downloaded again, unless a refresh is forced.</li>
+ * <li>Existing files are only transferred again if they changed on server side (conditional request using the stored ETag or modification date).</li>
+ * </ul>
+ * Images stored already are not queued again by {@link HtmlImage} while they are fresh, so an interrupted bulk download resumes where it stopped.
+ * Throughput (images and bytes per second) is available via {@link #getStatistics()}.
+ */
+public final class ImageDownloadQueue {
+
+    private static final int MAX_DOWNLOADS = 6;
+    private static final int MAX_DOWNLOADS_PER_HOST = 2;
+    /** number of downloaded URLs remembered for local copies */
+    private static final int MAX_REMEMBERED_DOWNLOADS = 2000;
+
+    public enum Result {
+        /** image was (re-)downloaded */
+        DOWNLOADED,
+        /** image on disk is unchanged on server side */
+        UNCHANGED,
+        /** image was copied from a previous download of the same URL */
+        COPIED,
+        FAILED
+    }
+
+    /** transfers an image to a file */
+    interface Downloader {
+        @NonNull
+        @WorkerThread
+        Result download(@NonNull String url, @NonNull File file);
+    }
+
+    private static final class Holder {
+        // initialization on demand holder, the network scheduler is not available in unit tests
+        private static final ImageDownloadQueue INSTANCE = new ImageDownloadQueue(ImageDownloadQueue::downloadToFile, AndroidRxUtils.networkScheduler);
+    }
+
+    private final Downloader downloader;
+    /** runs the downloads, the number of downloads running at once is limited by this queue */
+    private final Scheduler scheduler;
+
+    // all guarded by "this"
+    /** queued downloads per host, in order of first use of the host */
+    private final Map<String, ArrayDeque<Download>> pending = new LinkedHashMap<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private final Map<String, Download> downloadsByUrl = new HashMap<>();
+    private final Map<String, File> downloadedFiles = new LeastRecentlyUsedMap.LruCache<>(MAX_REMEMBERED_DOWNLOADS);
+    private int running = 0;
+
+    private final AtomicLong statisticsStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong imagesDownloaded = new AtomicLong();
+    private final AtomicLong imagesUnchanged = new AtomicLong();
+    private final AtomicLong imagesCopied = new AtomicLong();
+    private final AtomicLong imagesFailed = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    private static final class Download {
+        private final String url;
+        private final String host;
+        private final File file;
+        /** requests waiting for this download, with the files they want the image in */
+        private final List<SingleEmitter<Result>> emitters = new ArrayList<>();
+        private final List<File> targets = new ArrayList<>();
+
+        Download(final String url, final File file) {
+            this.url = url;
+            this.host = getHost(url);
+            this.file = file;
+        }
+    }
+
+    @VisibleForTesting
+    ImageDownloadQueue(@NonNull final Downloader downloader, @NonNull final Scheduler scheduler) {
+        this.downloader = downloader;
+        this.scheduler = scheduler;
+    }
+
+    @NonNull
+    public static ImageDownloadQueue getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Queue the download of an image to a file.
+     *
+     * @param url          absolute URL of the image
+     * @param file         file to store the image in
+     * @param forceRefresh if {@code true}, the image is not copied from a previous download of the same URL
+     * @return result of the download, emitted when it has finished
+     */
+    @NonNull
+    public Single<Result> download(@NonNull final String url, @NonNull final File file, final boolean forceRefresh) {
+        return Single.create(emitter -> {
+            final File downloaded = enqueue(url, file, forceRefresh, emitter);
+            if (downloaded != null) {
+                // copying is cheap compared to a download, do it in the caller's thread
+                emitter.onSuccess(copy(downloaded, file));
+            }
+        });
+    }
+
+    /** queues a download, or returns the file of a previous download of this URL to copy the image from */
+    @Nullable
+    private synchronized File enqueue(final String url, final File file, final boolean forceRefresh, final SingleEmitter<Result> emitter) {
+        final Download inProgress = downloadsByUrl.get(url);
+        if (inProgress != null) {
+            inProgress.emitters.add(emitter);
+            inProgress.targets.add(file);
+            return null;
+        }
+        final File downloaded = forceRefresh ? null : downloadedFiles.get(url);
+        if (downloaded != null && downloaded.isFile()) {
+            return downloaded;
+        }
+        final Download download = new Download(url, file);
+        download.emitters.add(emitter);
+        download.targets.add(file);
+        downloadsByUrl.put(url, download);
+        ArrayDeque<Download> queue = pending.get(download.host);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            pending.put(download.host, queue);
+        }
+        queue.add(download);
+        startDownloads();
+        return null;
+    }
+
+    /** starts queued downloads as far as the limits allow, taking one download per host in turn */
+    private synchronized void startDownloads() {
+        boolean started = true;
+        while (running < MAX_DOWNLOADS && started) {
+            started = false;
+            final Iterator<Map.Entry<String, ArrayDeque<Download>>> it = pending.entrySet().iterator();
+            while (it.hasNext() && running < MAX_DOWNLOADS) {
+                final Map.Entry<String, ArrayDeque<Download>> entry = it.next();
+                final int runningForHost = getRunning(entry.getKey());
+                if (runningForHost >= MAX_DOWNLOADS_PER_HOST) {
+                    continue;
+                }
+                final Download download = entry.getValue().poll();
+                if (entry.getValue().isEmpty()) {
+                    it.remove();
+                }
+                runningPerHost.put(entry.getKey(), runningForHost + 1);
+                running++;
+                started = true;
+                scheduler.scheduleDirect(() -> execute(download));
+            }
+        }
+    }
+
+    private void execute(final Download download) {
+        Result result;
+        try {
+            result = downloader.download(download.url, download.file);
+        } catch (final RuntimeException e) {
+            Log.w("ImageDownloadQueue: download of " + download.url + " failed", e);
+            result = Result.FAILED;
+        }
+        count(result, download.file);
+
+        final List<SingleEmitter<Result>> emitters;
+        final List<File> targets;
+        synchronized (this) {
+            downloadsByUrl.remove(download.url);
+            if (result != Result.FAILED) {
+                downloadedFiles.put(download.url, download.file);
+            }
+            emitters = new ArrayList<>(download.emitters);
+            targets = new ArrayList<>(download.targets);
+            running--;
+            final int runningForHost = getRunning(download.host) - 1;
+            if (runningForHost > 0) {
+                runningPerHost.put(download.host, runningForHost);
+            } else {
+                runningPerHost.remove(download.host);
+            }
+            startDownloads();
+        }
+
+        for (int i = 0; i < emitters.size(); i++) {
+            final File target = targets.get(i);
+            emitters.get(i).onSuccess(result == Result.FAILED || target.equals(download.file) ? result : copy(download.file, target));
+        }
+    }
+
+    private int getRunning(final String host) {
+        final Integer count = runningPerHost.get(host);
+        return count == null ? 0 : count;
+    }
+
+    @NonNull
+    private Result copy(@NonNull final File source, @NonNull final File target) {
+        final Result result = source.equals(target) || FileUtils.copy(source, target) ? Result.COPIED : Result.FAILED;
+        count(result, target);
+        return result;
+    }
+
+    private void count(final Result result, final File file) {
+        switch (result) {
+            case DOWNLOADED:
+                imagesDownloaded.incrementAndGet();
+                bytesDownloaded.addAndGet(file.length());
+                break;
+            case UNCHANGED:
+                imagesUnchanged.incrementAndGet();
+                break;
+            case COPIED:
+                imagesCopied.incrementAndGet();
+                break;
+            default:
+                imagesFailed.incrementAndGet();
+                break;
+        }
+    }
+
+    /** drops all downloads not started yet, their requests fail with a {@link CancellationException} */
+    public void cancelPending() {
+        final List<SingleEmitter<Result>> cancelled = new ArrayList<>();
+        synchronized (this) {
+            for (ArrayDeque<Download> queue : pending.values()) {
+                for (Download download : queue) {
+                    cancelled.addAll(download.emitters);
+                    downloadsByUrl.remove(download.url);
+                }
+            }
+            pending.clear();
+        }
+        for (SingleEmitter<Result> emitter : cancelled) {
+            emitter.tryOnError(new CancellationException("image download cancelled"));
+        }
+    }
+
+    /** number of downloads queued or running */
+    public synchronized int getPendingCount() {
+        return downloadsByUrl.size();
+    }
+
+    public void resetStatistics() {
+        statisticsStart.set(System.currentTimeMillis());
+        imagesDownloaded.set(0);
+        imagesUnchanged.set(0);
+        imagesCopied.set(0);
+        imagesFailed.set(0);
+        bytesDownloaded.set(0);
+    }
+
+    @NonNull
+    public String getStatistics() {
+        final double seconds = Math.max(1, System.currentTimeMillis() - statisticsStart.get()) / 1000.0;
+        final long images = imagesDownloaded.get() + imagesUnchanged.get() + imagesCopied.get();
+        return String.format(Locale.US, "ImageDownloadQueue: %d images in %.1fs (%.1f/s, %.1fKB/s), downloaded %d (%.1fMB), unchanged %d, copied %d, failed %d",
+                images, seconds, images / seconds, bytesDownloaded.get() / 1024.0 / seconds, imagesDownloaded.get(), bytesDownloaded.get() / 1048576.0,
+                imagesUnchanged.get(), imagesCopied.get(), imagesFailed.get());
+    }
+
+    @NonNull
+    static String getHost(@NonNull final String url) {
+        return StringUtils.substringBefore(StringUtils.substringBefore(StringUtils.substringAfter(url, "://"), "/"), "?").toLowerCase(Locale.US);
+    }
+
+    /**
+     * Download or refresh the copy of {@code url} in {@code file}.
+     * If the file exists, it is only transferred again if it changed on server side (using ETag or modification date stored with it).
+     */
+    @NonNull
+    @WorkerThread
+    static Result downloadToFile(@NonNull final String url, @NonNull final File file) {
+        try {
+            final Response httpResponse = Network.getRequest(url, null, file).blockingGet();
+            if (httpResponse.isSuccessful()) {
+                return FileUtils.saveEntityToFile(httpResponse, file) ? Result.DOWNLOADED : Result.FAILED;
+            }
+            if (httpResponse.code() == 304) {
+                if (!file.setLastModified(System.currentTimeMillis())) {
+                    makeFreshCopy(file);
+                }
+                return Result.UNCHANGED;
+            }
+        } catch (final Exception e) {
+            Log.w("Exception in ImageDownloadQueue.downloadToFile: " + e);
+        }
+        return Result.FAILED;
+    }
+
+    /**
+     * Make a fresh copy of the file to reset its timestamp. On some storage, it is impossible
+     * to modify the modified time after the fact, in which case a brand new file must be
+     * created if we want to be able to use the time as validity hint.
+     *
+     * See Android issue 1699.
+     *
+     * @param file the file to refresh
+     */
+    private static void makeFreshCopy(final File file) {
+        final File tempFile = new File(file.getParentFile(), file.getName() + "-temp");
+        if (file.renameTo(tempFile)) {
+            FileUtils.copy(tempFile, file);
+            FileUtils.deleteIgnoringFailure(tempFile);
+        } else {
+            Log.e("Could not reset timestamp of file " + file.getAbsolutePath());
+        }
+    }
+
+}
@@ -726,12 +726,26 @@ public final class Network {
      * @return {@code true} if the device is connected to the network.
      */
     public static boolean isConnected() {
+        final NetworkInfo activeNetworkInfo = getConnectivityManager().getActiveNetworkInfo();
+        return activeNetworkInfo != null && activeNetworkInfo.isConnected();
+    }
+
+    /**
+     * Checks if the active network is metered (e.g. mobile data), so that optional traffic should be avoided.
+     *
+     * @return {@code true} if the active network is metered or the metering state is unknown
+     */
+    public static boolean isMetered() {
+        return getConnectivityManager().isActiveNetworkMetered();
+    }
+
+    @NonNull
+    private static ConnectivityManager getConnectivityManager() {
         if (connectivityManager == null) {
             // Concurrent assignment would not hurt as this request is idempotent
             connectivityManager = (ConnectivityManager) CgeoApplication.getInstance().getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
         }
-        final NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-        return activeNetworkInfo != null && activeNetworkInfo.isConnected();
+        return connectivityManager;
     }
 
 }
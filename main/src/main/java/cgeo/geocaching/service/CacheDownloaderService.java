@@ -5,6 +5,7 @@ import cgeo.geocaching.activity.ActivityMixin;
 import cgeo.geocaching.enumerations.LoadFlags;
 import cgeo.geocaching.list.StoredList;
 import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.network.ImageDownloadQueue;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.storage.DataStore;
 import cgeo.geocaching.ui.dialog.Dialogs;
@@ -146,6 +147,7 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
 
     public static void requestStopService() {
         shouldStop = true;
+        ImageDownloadQueue.getInstance().cancelPending();
     }
 
     @Override
@@ -174,6 +176,7 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
         // schedule download on multiple threads...
 
         Log.d("Download task started");
+        ImageDownloadQueue.getInstance().resetStatistics();
 
         final Observable<String> geocodes = Observable.fromIterable(intent.getStringArrayListExtra(EXTRA_GEOCODES));
         geocodes.flatMap((Function<String, Observable<String>>) geocode -> Observable.create((ObservableOnSubscribe<String>) emitter -> {
@@ -182,6 +185,7 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
         }).subscribeOn(AndroidRxUtils.refreshScheduler)).blockingSubscribe();
 
         Log.d("Download task completed");
+        Log.i(ImageDownloadQueue.getInstance().getStatistics());
     }
 
     private void handleDownload(final String geocode) {
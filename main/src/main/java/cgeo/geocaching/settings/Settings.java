@@ -1027,6 +1027,16 @@ public class Settings {
         return hasOSMMultiThreading() ? Math.max(1, getInt(R.string.pref_map_osm_threads, Math.min(Runtime.getRuntime().availableProcessors() + 1, 4))) : 1;
     }
 
+    /** size of the shared on-disk store for online map tiles, in MB */
+    public static int getTileCacheSizeMB() {
+        return Math.max(10, getInt(R.string.pref_tileCacheSize, getKeyInt(R.integer.tilecache_size_default)));
+    }
+
+    /** whether online map tiles around the viewport and along the route may be loaded before they are displayed */
+    public static boolean isMapTilePrefetch() {
+        return getBoolean(R.string.pref_mapTilePrefetch, false);
+    }
+
     public static int getCompactIconMode() {
         final String prefValue = getString(R.string.pref_compactIconMode, "");
         if (prefValue.equals(getKey(R.string.pref_compacticon_on))) {
@@ -2035,6 +2045,15 @@ public class Settings {
         return getBoolean(R.string.pref_backup_logins, false);
     }
 
+    public static boolean getBackupCompressDatabase() {
+        return getBoolean(R.string.pref_backup_compress_db, false);
+    }
+
+    /** whether large texts (descriptions, hints, logs) are stored compressed in the database */
+    public static boolean getDbTextCompression() {
+        return getBoolean(R.string.pref_dbtextcompression, false);
+    }
+
     public static int allowedBackupsNumber() {
         return getInt(R.string.pref_backup_backup_history_length, getKeyInt(R.integer.backup_history_length_default));
     }
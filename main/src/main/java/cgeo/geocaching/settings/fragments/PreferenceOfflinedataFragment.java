@@ -5,15 +5,19 @@ import cgeo.geocaching.activity.ActivityMixin;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.settings.SettingsActivity;
 import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.storage.DatabaseMaintenance;
 import cgeo.geocaching.storage.LocalStorage;
+import cgeo.geocaching.ui.dialog.SimpleDialog;
 import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.FileUtils;
+import cgeo.geocaching.utils.Formatter;
 import cgeo.geocaching.utils.SettingsUtils;
 
 import android.app.Activity;
 import android.app.ProgressDialog;
 import android.os.Bundle;
 
+import androidx.core.util.Consumer;
 import androidx.preference.Preference;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -45,6 +49,11 @@ public class PreferenceOfflinedataFragment extends BasePreferenceFragment {
             return true;
         });
 
+        findPreference(getString(R.string.pref_fakekey_preference_maintenance_database)).setOnPreferenceClickListener(preference -> {
+            compactDatabase(preference);
+            return true;
+        });
+
         final Preference isDbOnSdCard = findPreference(getString(R.string.pref_dbonsdcard));
         isDbOnSdCard.setPersistent(false);
         isDbOnSdCard.setOnPreferenceClickListener(preference -> {
@@ -53,6 +62,11 @@ public class PreferenceOfflinedataFragment extends BasePreferenceFragment {
             return oldValue != Settings.isDbOnSDCard();
         });
 
+        findPreference(getString(R.string.pref_dbtextcompression)).setOnPreferenceChangeListener((preference, newValue) -> {
+            recodeDatabaseTexts((Boolean) newValue);
+            return true;
+        });
+
         final Preference dataDirPreference = findPreference(getString(R.string.pref_fakekey_dataDir));
         dataDirPreference.setSummary(Settings.getExternalPrivateCgeoDirectory());
         if (LocalStorage.getAvailableExternalPrivateCgeoDirectories().size() < 2) {
@@ -73,6 +87,40 @@ public class PreferenceOfflinedataFragment extends BasePreferenceFragment {
         }
     }
 
+    /** converts the stored texts in background, new texts are already stored in the new format meanwhile */
+    private void recodeDatabaseTexts(final boolean compress) {
+        final ProgressDialog waitDialog = ProgressDialog.show(getActivity(), getString(R.string.init_dbtextcompression), getString(R.string.init_dbtextcompression_running), true, false);
+        final String message = getString(R.string.init_dbtextcompression_running);
+        final Consumer<Integer> progress = percent -> AndroidRxUtils.runOnUi(() -> waitDialog.setMessage(message + " " + percent + "%"));
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> DataStore.recodeCompressibleTexts(compress, progress), sizes -> {
+            waitDialog.dismiss();
+            final Activity activity = getActivity();
+            if (activity != null) {
+                SimpleDialog.of(activity).setTitle(R.string.init_dbtextcompression)
+                        .setMessage(R.string.init_dbtextcompression_finished, Formatter.formatBytes(sizes.left), Formatter.formatBytes(sizes.right)).show();
+            }
+        });
+    }
+
+    /** compacts the database in background, which blocks all database access meanwhile */
+    private void compactDatabase(final Preference preference) {
+        preference.setEnabled(false);
+        final ProgressDialog waitDialog = ProgressDialog.show(getActivity(), getString(R.string.init_maintenance_database), getString(R.string.init_maintenance_database_running), true, false);
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), DatabaseMaintenance::compact, result -> {
+            waitDialog.dismiss();
+            preference.setEnabled(true);
+            final Activity activity = getActivity();
+            if (activity != null) {
+                if (result.completed) {
+                    SimpleDialog.of(activity).setTitle(R.string.init_maintenance_database)
+                            .setMessage(R.string.init_maintenance_database_finished, Formatter.formatBytes(result.bytesReclaimed)).show();
+                } else {
+                    SimpleDialog.of(activity).setTitle(R.string.init_maintenance_database).setMessage(R.string.init_maintenance_database_failed).show();
+                }
+            }
+        });
+    }
+
     @Override
     public void onResume() {
         super.onResume();
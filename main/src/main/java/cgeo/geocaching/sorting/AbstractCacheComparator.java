@@ -2,8 +2,10 @@ package cgeo.geocaching.sorting;
 
 import cgeo.geocaching.connector.gc.GCUtils;
 import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.utils.IndexSortUtils;
+
+import androidx.annotation.Nullable;
 
-import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -13,6 +15,8 @@ import org.apache.commons.lang3.StringUtils;
  */
 abstract class AbstractCacheComparator implements CacheComparator {
 
+    /** average number of positions a cache may move in {@link #resort(List)} before falling back to a full sort */
+    private static final int RESORT_MAX_SHIFTS_PER_CACHE = 8;
 
     @Override
     public final int compare(final Geocache cache1, final Geocache cache2) {
@@ -60,6 +64,53 @@ abstract class AbstractCacheComparator implements CacheComparator {
      */
     protected abstract int compareCaches(Geocache cache1, Geocache cache2);
 
+    /** numeric sort key of a cache, caches with lower keys are sorted first */
+    interface NumericSortKey {
+        double get(Geocache cache);
+    }
+
+    /** non-numeric sort key of a cache, see {@link #getObjectSortKey()} */
+    interface ObjectSortKey {
+        Comparable<?> get(Geocache cache);
+    }
+
+    /**
+     * Can optionally be overridden to provide a numeric sort key. It is only called for caches fulfilling {@link #canCompare(Geocache)}.
+     * <p/>
+     * If a comparator provides such a key, then {@link #sort(List)} extracts it only once per cache and compares the keys
+     * instead of calling {@link #compareCaches(Geocache, Geocache)} on every comparison. This also allows sorting large lists in parallel.
+     * Ordering by key must be consistent with {@link #compareCaches(Geocache, Geocache)}.
+     *
+     * @return the key, or {@code null} if this comparator has no numeric sort key
+     */
+    @Nullable
+    protected NumericSortKey getNumericSortKey() {
+        return null;
+    }
+
+    /**
+     * Can optionally be overridden to compute the numeric sort keys of all caches of a list at once, e.g. in bulk.
+     * Takes precedence over {@link #getNumericSortKey()}.
+     *
+     * @return the keys in list order (entries of caches not fulfilling {@link #canCompare(Geocache)} are ignored),
+     * or {@code null} if this comparator has no bulk numeric sort keys
+     */
+    @Nullable
+    protected double[] getNumericSortKeys(final List<Geocache> list) {
+        return null;
+    }
+
+    /**
+     * Like {@link #getNumericSortKey()}, for a non-numeric key. Only used if there is no numeric sort key.
+     * Returned keys must be mutually comparable and thread-safe, their natural ordering must be consistent with {@link #compareCaches(Geocache, Geocache)}.
+     *
+     * @return the key, or {@code null} if this comparator has no object sort key
+     */
+    @Nullable
+    protected ObjectSortKey getObjectSortKey() {
+        return null;
+    }
+
     /**
      * Can optinally be overridden to perform preparation (e.g. caching of values) before sort of a list via {@link #sort(List)}
      */
@@ -78,9 +129,47 @@ abstract class AbstractCacheComparator implements CacheComparator {
      * Sorts the given list of caches using this comparator. Respects implementations of {@link #beforeSort(List)} and{@link #afterSort(List)}
      */
     public void sort(final List<Geocache> list) {
+        sort(list, false);
+    }
+
+    /**
+     * Sorts the given list of caches using this comparator, optionally in inverse order.
+     * <p/>
+     * Sort keys are precomputed once per cache (see {@link CacheSortKeys}), then an index permutation is sorted and applied to the list.
+     */
+    void sort(final List<Geocache> list, final boolean inverse) {
         beforeSort(list);
-        Collections.sort(list, this);
+        final CacheSortKeys keys = new CacheSortKeys(this, list);
+        final IndexSortUtils.IndexComparator cmp = inverse ? (i1, i2) -> keys.compare(i2, i1) : keys;
+        IndexSortUtils.applyPermutation(list, IndexSortUtils.sortIndexes(list.size(), cmp, keys.isThreadSafe()));
+        afterSort(list);
+    }
+
+    @Override
+    public boolean resort(final List<Geocache> list) {
+        return resort(list, false);
+    }
+
+    /**
+     * Re-sorts a nearly sorted list, optionally in inverse order. See {@link CacheComparator#resort(List)}.
+     * <p/>
+     * Uses insertion sort on precomputed keys, which is near-linear for nearly sorted lists. If it turns out that
+     * too many caches are out of place, then the sort falls back to the (n*log(n)) full sort.
+     */
+    boolean resort(final List<Geocache> list, final boolean inverse) {
+        beforeSort(list);
+        final CacheSortKeys keys = new CacheSortKeys(this, list);
+        final IndexSortUtils.IndexComparator cmp = inverse ? (i1, i2) -> keys.compare(i2, i1) : keys;
+        final int[] order = IndexSortUtils.identity(list.size());
+        if (!IndexSortUtils.insertionSort(order, 0, order.length, cmp, (long) order.length * RESORT_MAX_SHIFTS_PER_CACHE)) {
+            IndexSortUtils.sort(order, cmp, keys.isThreadSafe());
+        }
+        final boolean changed = !IndexSortUtils.isIdentity(order);
+        if (changed) {
+            IndexSortUtils.applyPermutation(list, order);
+        }
         afterSort(list);
+        return changed;
     }
 
 }
@@ -36,16 +36,56 @@ abstract class AbstractDateCacheComparator extends AbstractCacheComparator {
         return 0;
     }
 
-    protected int sortSameDate(final Geocache cache1, final Geocache cache2) {
+    private int sortSameDate(final Geocache cache1, final Geocache cache2) {
+        final NumericSortKey sameDateKey = getSameDateSortKey();
+        return Double.compare(sameDateKey.get(cache1), sameDateKey.get(cache2));
+    }
+
+    /**
+     * Sort key for caches with the same date, lower keys are sorted first.
+     * Called once per sort run (or comparison), so the returned key may capture state like the current position.
+     */
+    @NonNull
+    protected NumericSortKey getSameDateSortKey() {
         //by default, sort by distance for same-date-caches
         final Geopoint gps = LocationDataProvider.getInstance().currentGeo().getCoords();
-        final Float d1 = gps.distanceTo(cache1.getCoords());
-        final Float d2 = gps.distanceTo(cache2.getCoords());
-        return d1.compareTo(d2);
+        return cache -> gps.distanceTo(cache.getCoords());
+    }
+
+    @Override
+    protected ObjectSortKey getObjectSortKey() {
+        final NumericSortKey sameDateKey = getSameDateSortKey();
+        return cache -> {
+            final Date date = getCacheDate(cache);
+            return date == null ? DateSortKey.NO_DATE : new DateSortKey(date.getTime(), sameDateKey.get(cache));
+        };
     }
 
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return CalendarUtils.yearMonth(getCacheDate(cache));
     }
+
+    /** date and tie-breaker of a cache, precomputed for sorting. Caches without date are sorted last */
+    private static final class DateSortKey implements Comparable<DateSortKey> {
+
+        private static final DateSortKey NO_DATE = new DateSortKey(0, 0);
+
+        private final long time;
+        private final double sameDateKey;
+
+        DateSortKey(final long time, final double sameDateKey) {
+            this.time = time;
+            this.sameDateKey = sameDateKey;
+        }
+
+        @Override
+        public int compareTo(final DateSortKey other) {
+            if (this == NO_DATE || other == NO_DATE) {
+                return this == other ? 0 : this == NO_DATE ? 1 : -1;
+            }
+            final int dateDifference = Long.compare(time, other.time);
+            return dateDifference != 0 ? dateDifference : Double.compare(sameDateKey, other.sameDateKey);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package cgeo.geocaching.sorting;
 
+import cgeo.geocaching.location.CheapRuler;
 import cgeo.geocaching.location.Geopoint;
 import cgeo.geocaching.location.Units;
 import cgeo.geocaching.models.Geocache;
@@ -7,7 +8,9 @@ import cgeo.geocaching.storage.DataStore;
 import cgeo.geocaching.storage.SqlBuilder;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,35 +20,72 @@ public abstract class AbstractDistanceComparator extends AbstractCacheComparator
 
     protected Geopoint coords = Geopoint.ZERO; // will be overwritten
 
+    /**
+     * Distances are approximated in bulk, the exact (expensive) geodesic distance is only calculated where order would be ambiguous otherwise.
+     * Caches farther away than {@link CheapRuler#MAX_ACCURATE_DISTANCE_KM} (or all caches, if the position is beyond {@link CheapRuler#MAX_ACCURATE_LATITUDE})
+     * have no error bound, their exact distance is calculated upfront.
+     * <br>
+     * The keys are only kept in the returned array, approximations must not end up in {@link Geocache#setDistance(Float)}: that value is displayed and stored.
+     */
     @Override
-    protected void beforeSort(final List<Geocache> list) {
-        super.beforeSort(list);
-        // calculate all distances only once to avoid costly re-calculation of the same distance during sorting
-        for (final Geocache cache : list) {
-            if (cache.getCoords() != null) {
-                cache.setDistance(coords.distanceTo(cache.getCoords()));
+    protected double[] getNumericSortKeys(final List<Geocache> list) {
+        final int size = list.size();
+        final double[] keys = new double[size];
+        final int[] positions = new int[size];
+        final int[] latsE6 = new int[size];
+        final int[] lonsE6 = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final Geopoint cacheCoords = list.get(i).getCoords();
+            if (cacheCoords == null) {
+                keys[i] = Double.POSITIVE_INFINITY;
+            } else {
+                positions[count] = i;
+                latsE6[count] = cacheCoords.getLatitudeE6();
+                lonsE6[count] = cacheCoords.getLongitudeE6();
+                count++;
             }
         }
+        final float[] distances = new float[count];
+        CheapRuler.distancesKm(coords.getLatitudeE6(), coords.getLongitudeE6(), latsE6, lonsE6, count, distances);
+        final boolean[] exact = new boolean[count];
+        for (int k = 0; k < count; k++) {
+            if (!CheapRuler.hasErrorBound(distances[k], coords.getLatitudeE6())) {
+                distances[k] = coords.distanceTo(list.get(positions[k]).getCoords());
+                exact[k] = true;
+            }
+        }
+        final boolean[] ambiguous = CheapRuler.findOrderAmbiguities(distances, exact, count, coords.getLatitudeE6());
+        for (int k = 0; k < count; k++) {
+            keys[positions[k]] = ambiguous[k] ? coords.distanceTo(list.get(positions[k]).getCoords()) : distances[k];
+        }
+        return keys;
     }
 
     @Override
     protected int compareCaches(final Geocache cache1, final Geocache cache2) {
-        final Float distance1 = cache1.getDistance();
-        final Float distance2 = cache2.getDistance();
+        final Float distance1 = getDistance(cache1);
+        final Float distance2 = getDistance(cache2);
         if (distance1 == null) {
             return distance2 == null ? 0 : 1;
         }
         return distance2 == null ? -1 : Float.compare(distance1, distance2);
     }
 
+    @Nullable
+    private Float getDistance(final Geocache cache) {
+        return cache.getCoords() == null ? null : coords.distanceTo(cache.getCoords());
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
-        return Units.getDistanceFromKilometers(cache.getDistance());
+        return Units.getDistanceFromKilometers(getDistance(cache));
     }
 
     @Override
     public void addSortToSql(final SqlBuilder sql, final boolean sortDesc) {
-        sql.addOrder(DataStore.getSqlDistanceSquare(sql.getMainTableId(), coords), sortDesc);
+        final List<String> args = new ArrayList<>();
+        sql.addOrder(DataStore.getSqlDistanceSquare(sql.getMainTableId(), coords, args), sortDesc, args);
     }
 
 }
@@ -17,6 +17,18 @@ public interface CacheComparator extends Comparator<Geocache> {
      */
     void sort(List<Geocache> list);
 
+    /**
+     * Re-sorts a list of caches which is expected to be nearly sorted by this comparator already
+     * (e.g. a distance-sorted list after a small position change). Implementations may use an incremental sort
+     * algorithm which is considerably faster than {@link #sort(List)} in this case.
+     *
+     * @return true if the order of the list was changed
+     */
+    default boolean resort(final List<Geocache> list) {
+        sort(list);
+        return true;
+    }
+
     default void addSortToSql(final SqlBuilder sql, final boolean sortDesc) {
         //do nothing by default
     }
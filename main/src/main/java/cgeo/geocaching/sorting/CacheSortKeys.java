@@ -0,0 +1,108 @@
+package cgeo.geocaching.sorting;
+
+import cgeo.geocaching.connector.gc.GCUtils;
+import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.utils.IndexSortUtils;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Sort keys of a list of caches, precomputed once per sort run into parallel arrays.
+ * <br>
+ * Comparing two list positions only accesses these arrays (instead of calling getters, substring- or parse-methods on every
+ * comparison as {@link AbstractCacheComparator#compare(Geocache, Geocache)} does).
+ * Comparison result is identical to {@link AbstractCacheComparator#compare(Geocache, Geocache)}.
+ */
+final class CacheSortKeys implements IndexSortUtils.IndexComparator {
+
+    private final AbstractCacheComparator comparator;
+    private final List<Geocache> list;
+
+    private final boolean[] canCompare;
+    private final String[] geocodePrefixes;
+    private final long[] geocodeIds;
+    private final double[] numericKeys;
+    private final Comparable<Object>[] objectKeys;
+    private final boolean threadSafe;
+
+    @SuppressWarnings("unchecked")
+    CacheSortKeys(final AbstractCacheComparator comparator, final List<Geocache> list) {
+        this.comparator = comparator;
+        this.list = list;
+        final int size = list.size();
+
+        this.canCompare = new boolean[size];
+        this.geocodePrefixes = new String[size];
+        this.geocodeIds = new long[size];
+        final double[] bulkKeys = comparator.getNumericSortKeys(list);
+        final AbstractCacheComparator.NumericSortKey numericKey = bulkKeys == null ? comparator.getNumericSortKey() : null;
+        final AbstractCacheComparator.ObjectSortKey objectKey = bulkKeys == null && numericKey == null ? comparator.getObjectSortKey() : null;
+        this.numericKeys = bulkKeys != null ? bulkKeys : numericKey != null ? new double[size] : null;
+        this.objectKeys = objectKey != null ? new Comparable[size] : null;
+
+        int comparableCount = 0;
+        for (int i = 0; i < size; i++) {
+            final Geocache cache = list.get(i);
+            canCompare[i] = comparator.canCompare(cache);
+            if (canCompare[i]) {
+                comparableCount++;
+                if (numericKey != null) {
+                    numericKeys[i] = numericKey.get(cache);
+                } else if (objectKey != null) {
+                    objectKeys[i] = (Comparable<Object>) objectKey.get(cache);
+                }
+            } else {
+                // fallback sort keys are only needed for caches which can't be compared
+                final String geocode = cache.getGeocode();
+                geocodePrefixes[i] = StringUtils.substring(geocode, 0, 2);
+                geocodeIds[i] = GCUtils.gcLikeCodeToGcLikeId(geocode);
+            }
+        }
+        //comparisons are thread-safe as long as they don't need to fall back to the comparator itself
+        this.threadSafe = numericKeys != null || objectKey != null || comparableCount == 0;
+    }
+
+    /** returns true if {@link #compare(int, int)} may be called concurrently (e.g. for parallel sorting) */
+    boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    @Override
+    public int compare(final int index1, final int index2) {
+        if (!canCompare[index1]) {
+            return canCompare[index2] ? 1 : fallbackToGeocode(index1, index2);
+        }
+        if (!canCompare[index2]) {
+            return -1;
+        }
+        if (numericKeys != null) {
+            return Double.compare(numericKeys[index1], numericKeys[index2]);
+        }
+        if (objectKeys != null) {
+            return compareObjectKeys(objectKeys[index1], objectKeys[index2]);
+        }
+        return comparator.compareCaches(list.get(index1), list.get(index2));
+    }
+
+    private int fallbackToGeocode(final int index1, final int index2) {
+        final int comparePrefix = StringUtils.compareIgnoreCase(geocodePrefixes[index1], geocodePrefixes[index2]);
+        if (comparePrefix == 0) {
+            final long l1 = geocodeIds[index1];
+            final long l2 = geocodeIds[index2];
+            if (l1 != l2) {
+                return l1 > l2 ? 1 : -1;
+            }
+        }
+        return comparePrefix;
+    }
+
+    private static int compareObjectKeys(final Comparable<Object> key1, final Comparable<Object> key2) {
+        if (key1 == null) {
+            return key2 == null ? 0 : 1;
+        }
+        return key2 == null ? -1 : key1.compareTo(key2);
+    }
+
+}
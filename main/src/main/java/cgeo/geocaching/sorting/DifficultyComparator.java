@@ -22,6 +22,11 @@ class DifficultyComparator extends AbstractCacheComparator {
         return Float.compare(cache1.getDifficulty(), cache2.getDifficulty());
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> cache.getDifficulty();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%.1f", cache.getDifficulty());
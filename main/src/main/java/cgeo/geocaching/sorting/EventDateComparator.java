@@ -1,6 +1,6 @@
 package cgeo.geocaching.sorting;
 
-import cgeo.geocaching.models.Geocache;
+import androidx.annotation.NonNull;
 
 /**
  * Compares caches by date. Used only for event caches, if the cache list detects that a list contains only events.
@@ -9,16 +9,10 @@ public class EventDateComparator extends HiddenDateComparator {
 
     public static final EventDateComparator INSTANCE = new EventDateComparator();
 
+    @NonNull
     @Override
-    protected int sortSameDate(final Geocache left, final Geocache right) {
-        return compare(left.getEventStartTimeInMinutes(), right.getEventStartTimeInMinutes());
-    }
-
-    /**
-     * copy of {@link Integer#compare(int, int)}, as that is not available on lower API levels
-     */
-    private static int compare(final int left, final int right) {
-        return Integer.compare(left, right);
+    protected NumericSortKey getSameDateSortKey() {
+        return cache -> cache.getEventStartTimeInMinutes();
     }
 
 }
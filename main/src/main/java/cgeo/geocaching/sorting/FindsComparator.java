@@ -20,6 +20,11 @@ class FindsComparator extends AbstractCacheComparator {
         return finds2 - finds1;
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -cache.getFindsCount();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%d", cache.getFindsCount());
@@ -17,6 +17,11 @@ class InventoryComparator extends AbstractCacheComparator {
         return cache2.getInventoryItems() - cache1.getInventoryItems();
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -cache.getInventoryItems();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%d", cache.getInventoryItems());
@@ -31,7 +31,31 @@ public class InverseComparator implements CacheComparator {
 
     @Override
     public void sort(final List<Geocache> list) {
-        Collections.sort(list, this);
+        sort(originalComparator, list, true, false);
+    }
+
+    @Override
+    public boolean resort(final List<Geocache> list) {
+        return sort(originalComparator, list, true, true);
+    }
+
+    /** unwraps (possibly nested) inverse comparators so that keyed sorting of {@link AbstractCacheComparator} can be used */
+    private static boolean sort(final CacheComparator comparator, final List<Geocache> list, final boolean inverse, final boolean incremental) {
+        if (comparator instanceof InverseComparator) {
+            return sort(((InverseComparator) comparator).originalComparator, list, !inverse, incremental);
+        }
+        if (comparator instanceof AbstractCacheComparator) {
+            final AbstractCacheComparator cacheComparator = (AbstractCacheComparator) comparator;
+            if (incremental) {
+                return cacheComparator.resort(list, inverse);
+            }
+            cacheComparator.sort(list, inverse);
+        } else if (inverse) {
+            Collections.sort(list, new InverseComparator(comparator));
+        } else {
+            comparator.sort(list);
+        }
+        return true;
     }
 
     @Override
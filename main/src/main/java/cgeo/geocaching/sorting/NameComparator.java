@@ -25,6 +25,12 @@ public class NameComparator extends AbstractCacheComparator {
         return TextUtils.COLLATOR.compare(cache1.getNameForSorting(), cache2.getNameForSorting());
     }
 
+    @Override
+    protected ObjectSortKey getObjectSortKey() {
+        // collation keys are compared bitwise, which is much cheaper than repeated collator comparisons
+        return cache -> TextUtils.COLLATOR.getCollationKey(cache.getNameForSorting());
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return StringUtils.upperCase(StringUtils.substring(cache.getNameForSorting(), 0, 2));
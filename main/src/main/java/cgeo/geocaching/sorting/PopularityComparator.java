@@ -17,6 +17,11 @@ class PopularityComparator extends AbstractCacheComparator {
         return cache2.getFavoritePoints() - cache1.getFavoritePoints();
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -cache.getFavoritePoints();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%d", cache.getFavoritePoints());
@@ -24,6 +24,11 @@ class RatingComparator extends AbstractCacheComparator {
         return Float.compare(getWeightedArithmeticMean(cache2), getWeightedArithmeticMean(cache1));
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -getWeightedArithmeticMean(cache);
+    }
+
     /**
      * Add some artificial average ratings to weight caches with few ratings towards the average rating.
      */
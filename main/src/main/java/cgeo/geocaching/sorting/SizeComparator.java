@@ -15,6 +15,11 @@ class SizeComparator extends AbstractCacheComparator {
         return cache2.getSize().comparable - cache1.getSize().comparable;
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -cache.getSize().comparable;
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return cache.getSize().toString();
@@ -19,6 +19,11 @@ class StateComparator extends AbstractCacheComparator {
         return getState(cache1) - getState(cache2);
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> getState(cache);
+    }
+
     private static int getState(final Geocache cache) {
         if (cache.isDisabled()) {
             return 1;
@@ -15,6 +15,11 @@ class StorageTimeComparator extends AbstractCacheComparator {
         return Long.compare(cache1.getUpdated(), cache2.getUpdated());
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> cache.getUpdated();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return CalendarUtils.yearMonth(cache.getUpdated());
@@ -22,6 +22,11 @@ class TerrainComparator extends AbstractCacheComparator {
         return Float.compare(cache1.getTerrain(), cache2.getTerrain());
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> cache.getTerrain();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%.1f", cache.getTerrain());
@@ -18,6 +18,11 @@ public class VisitComparator extends AbstractCacheComparator {
         return compare(cache2.getVisitedDate(), cache1.getVisitedDate());
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -cache.getVisitedDate();
+    }
+
     /**
      * copy of Long#compare to avoid boxing
      */
@@ -18,6 +18,11 @@ class VoteComparator extends AbstractCacheComparator {
         return Float.compare(cache2.getMyVote(), cache1.getMyVote());
     }
 
+    @Override
+    protected NumericSortKey getNumericSortKey() {
+        return cache -> -cache.getMyVote();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%.2f", cache.getMyVote());
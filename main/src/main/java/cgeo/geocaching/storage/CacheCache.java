@@ -4,11 +4,10 @@ import cgeo.geocaching.location.Viewport;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.DataStore.StorageLocation;
 import cgeo.geocaching.utils.LeastRecentlyUsedMap;
-import cgeo.geocaching.utils.Log;
 
 import androidx.annotation.NonNull;
 
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -21,13 +20,27 @@ public class CacheCache {
 
     private static final int MAX_CACHED_CACHES = 1000;
     private final LeastRecentlyUsedMap<String, Geocache> cachesCache;
+    /** columnar summaries of all cached caches, used for fast viewport scans */
+    private final CacheSummaryTable summaries = new CacheSummaryTable();
 
     public CacheCache() {
-        cachesCache = new LeastRecentlyUsedMap.LruCache<>(MAX_CACHED_CACHES);
+        cachesCache = new LeastRecentlyUsedMap.LruCache<String, Geocache>(MAX_CACHED_CACHES) {
+            private static final long serialVersionUID = -2745103264370325613L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Geocache> eldest) {
+                final boolean remove = super.removeEldestEntry(eldest);
+                if (remove) {
+                    summaries.remove(eldest.getKey());
+                }
+                return remove;
+            }
+        };
     }
 
     public synchronized void removeAllFromCache() {
         cachesCache.clear();
+        summaries.clear();
     }
 
     /**
@@ -39,6 +52,7 @@ public class CacheCache {
         }
         synchronized (this) {
             cachesCache.remove(geocode);
+            summaries.remove(geocode);
         }
     }
 
@@ -57,6 +71,18 @@ public class CacheCache {
         synchronized (this) {
             cache.addStorageLocation(StorageLocation.CACHE);
             cachesCache.put(cache.getGeocode(), cache);
+            summaries.put(cache);
+        }
+    }
+
+    /**
+     * Refreshes the summary of given cache (e.g. after its coordinates changed), if exactly this cache instance is in the CacheCache.
+     *
+     * @param cache Cache
+     */
+    public synchronized void refreshCacheInCache(@NonNull final Geocache cache) {
+        if (cache.getGeocode() != null && cachesCache.get(cache.getGeocode()) == cache) {
+            summaries.put(cache);
         }
     }
 
@@ -73,20 +99,13 @@ public class CacheCache {
         }
     }
 
+    /**
+     * Returns geocodes of all cached caches within given viewport.
+     * Scans the coordinate columns of the cache summaries instead of the cache objects. Summaries are refreshed on every
+     * {@link #putCacheInCache(Geocache)} and by {@link #refreshCacheInCache(Geocache)}, which cached caches call on each change of their coordinates.
+     */
     public synchronized Set<String> getInViewport(final Viewport viewport) {
-        final Set<String> geocodes = new HashSet<>();
-        for (final Geocache cache : cachesCache.values()) {
-            if (cache.getCoords() == null) {
-                // FIXME: this kludge must be removed, it is only present to help us debug the cases where
-                // caches contain null coordinates.
-                Log.w("CacheCache.getInViewport: got cache with null coordinates: " + cache.getGeocode());
-                continue;
-            }
-            if (viewport.contains(cache)) {
-                geocodes.add(cache.getGeocode());
-            }
-        }
-        return geocodes;
+        return summaries.getGeocodesInViewport(viewport);
     }
 
     @Override
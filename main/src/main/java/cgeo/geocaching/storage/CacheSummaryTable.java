@@ -0,0 +1,291 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.enumerations.CacheSize;
+import cgeo.geocaching.enumerations.CacheType;
+import cgeo.geocaching.list.StoredList;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Columnar in-memory table of cache summaries: only the data needed to place and classify caches on a map or in a list
+ * (geocode, coordinates, type, size, D/T, status flags and emoji), stored in primitive arrays with one row per cache.
+ * <br>
+ * Compared to full {@link Geocache} objects (with their lazy lists, log count maps, event times and many more fields)
+ * a row needs only a small fraction of heap (see {@link #estimateHeapBytes()}), and scanning e.g. coordinates
+ * touches a few contiguous arrays instead of thousands of scattered objects.
+ * Tables are filled from cache objects (see {@link CacheCache}) or directly from the database via {@link DataStore#loadCacheSummaries(boolean)}.
+ * Full caches are still to be loaded (e.g. via {@link DataStore#loadCache(String, java.util.EnumSet)}) when details are needed.
+ * <br>
+ * Rows are identified by geocode. Removing a row moves the last row into its place, so row indexes are only stable
+ * as long as the table is not modified. Instances are not thread-safe.
+ */
+public final class CacheSummaryTable {
+
+    public static final int FLAG_FOUND = 1;
+    public static final int FLAG_DNF = 1 << 1;
+    public static final int FLAG_DISABLED = 1 << 2;
+    public static final int FLAG_ARCHIVED = 1 << 3;
+    public static final int FLAG_PREMIUM = 1 << 4;
+    public static final int FLAG_FAVORITE = 1 << 5;
+    public static final int FLAG_WATCHLIST = 1 << 6;
+    public static final int FLAG_USER_MODIFIED_COORDS = 1 << 7;
+    public static final int FLAG_FINAL_DEFINED = 1 << 8;
+    /** cache is stored on at least one (standard) list */
+    public static final int FLAG_STORED = 1 << 9;
+
+    /** latitude/longitude value of rows without coordinates */
+    public static final int NO_COORD = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final CacheType[] CACHE_TYPES = CacheType.values();
+    private static final CacheSize[] CACHE_SIZES = CacheSize.values();
+
+    private int size = 0;
+    private String[] geocodes;
+    private int[] latitudesE6;
+    private int[] longitudesE6;
+    private byte[] types;
+    private byte[] sizes;
+    /** difficulty and terrain are stored in half-star steps (value * 2), 0 meaning unknown */
+    private byte[] difficulties;
+    private byte[] terrains;
+    private int[] flags;
+    private int[] emojis;
+
+    private final Map<String, Integer> rowsByGeocode = new HashMap<>();
+
+    public CacheSummaryTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public CacheSummaryTable(final int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    private void allocate(final int capacity) {
+        geocodes = geocodes == null ? new String[capacity] : Arrays.copyOf(geocodes, capacity);
+        latitudesE6 = latitudesE6 == null ? new int[capacity] : Arrays.copyOf(latitudesE6, capacity);
+        longitudesE6 = longitudesE6 == null ? new int[capacity] : Arrays.copyOf(longitudesE6, capacity);
+        types = types == null ? new byte[capacity] : Arrays.copyOf(types, capacity);
+        sizes = sizes == null ? new byte[capacity] : Arrays.copyOf(sizes, capacity);
+        difficulties = difficulties == null ? new byte[capacity] : Arrays.copyOf(difficulties, capacity);
+        terrains = terrains == null ? new byte[capacity] : Arrays.copyOf(terrains, capacity);
+        flags = flags == null ? new int[capacity] : Arrays.copyOf(flags, capacity);
+        emojis = emojis == null ? new int[capacity] : Arrays.copyOf(emojis, capacity);
+    }
+
+    /** returns flags of given cache as combination of the FLAG_ constants */
+    public static int getFlags(@NonNull final Geocache cache) {
+        int result = 0;
+        result |= cache.isFound() ? FLAG_FOUND : 0;
+        result |= cache.isDNF() ? FLAG_DNF : 0;
+        result |= cache.isDisabled() ? FLAG_DISABLED : 0;
+        result |= cache.isArchived() ? FLAG_ARCHIVED : 0;
+        result |= cache.isPremiumMembersOnly() ? FLAG_PREMIUM : 0;
+        result |= cache.isFavorite() ? FLAG_FAVORITE : 0;
+        result |= cache.isOnWatchlist() ? FLAG_WATCHLIST : 0;
+        result |= cache.hasUserModifiedCoords() ? FLAG_USER_MODIFIED_COORDS : 0;
+        result |= cache.hasFinalDefined() ? FLAG_FINAL_DEFINED : 0;
+        for (Integer listId : cache.getLists()) {
+            if (listId >= StoredList.STANDARD_LIST_ID) {
+                result |= FLAG_STORED;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /** adds or replaces the summary row for given cache */
+    public void put(@NonNull final Geocache cache) {
+        final Geopoint coords = cache.getCoords();
+        put(cache.getGeocode(), coords == null ? NO_COORD : coords.getLatitudeE6(), coords == null ? NO_COORD : coords.getLongitudeE6(),
+                cache.getType(), cache.getSize(), cache.getDifficulty(), cache.getTerrain(), getFlags(cache), cache.getAssignedEmoji());
+    }
+
+    /** adds or replaces the summary row for given geocode. Returns the row index */
+    public int put(@NonNull final String geocode, final int latE6, final int lonE6, @Nullable final CacheType type, @Nullable final CacheSize cacheSize,
+                   final float difficulty, final float terrain, final int cacheFlags, final int emoji) {
+        final Integer existing = rowsByGeocode.get(geocode);
+        final int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            if (size == geocodes.length) {
+                allocate(geocodes.length * 2);
+            }
+            row = size++;
+            rowsByGeocode.put(geocode, row);
+        }
+        geocodes[row] = geocode;
+        latitudesE6[row] = latE6;
+        longitudesE6[row] = lonE6;
+        types[row] = (byte) (type == null ? CacheType.UNKNOWN : type).ordinal();
+        sizes[row] = (byte) (cacheSize == null ? CacheSize.UNKNOWN : cacheSize).ordinal();
+        difficulties[row] = toHalfStars(difficulty);
+        terrains[row] = toHalfStars(terrain);
+        flags[row] = cacheFlags;
+        emojis[row] = emoji;
+        return row;
+    }
+
+    /** removes the row of given geocode (if existing). The last row is moved into the freed row */
+    public boolean remove(@Nullable final String geocode) {
+        final Integer row = rowsByGeocode.remove(geocode);
+        if (row == null) {
+            return false;
+        }
+        final int last = --size;
+        if (row != last) {
+            geocodes[row] = geocodes[last];
+            latitudesE6[row] = latitudesE6[last];
+            longitudesE6[row] = longitudesE6[last];
+            types[row] = types[last];
+            sizes[row] = sizes[last];
+            difficulties[row] = difficulties[last];
+            terrains[row] = terrains[last];
+            flags[row] = flags[last];
+            emojis[row] = emojis[last];
+            rowsByGeocode.put(geocodes[row], row);
+        }
+        geocodes[last] = null;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(geocodes, 0, size, null);
+        size = 0;
+        rowsByGeocode.clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** returns row index of given geocode or -1 if there is no row for it */
+    public int indexOf(@Nullable final String geocode) {
+        final Integer row = rowsByGeocode.get(geocode);
+        return row == null ? -1 : row;
+    }
+
+    @NonNull
+    public String getGeocode(final int row) {
+        return geocodes[row];
+    }
+
+    public boolean hasCoords(final int row) {
+        return latitudesE6[row] != NO_COORD;
+    }
+
+    public int getLatitudeE6(final int row) {
+        return latitudesE6[row];
+    }
+
+    public int getLongitudeE6(final int row) {
+        return longitudesE6[row];
+    }
+
+    @Nullable
+    public Geopoint getCoords(final int row) {
+        return hasCoords(row) ? new Geopoint(latitudesE6[row] / 1e6, longitudesE6[row] / 1e6) : null;
+    }
+
+    @NonNull
+    public CacheType getType(final int row) {
+        return CACHE_TYPES[types[row]];
+    }
+
+    @NonNull
+    public CacheSize getSize(final int row) {
+        return CACHE_SIZES[sizes[row]];
+    }
+
+    public float getDifficulty(final int row) {
+        return difficulties[row] / 2f;
+    }
+
+    public float getTerrain(final int row) {
+        return terrains[row] / 2f;
+    }
+
+    public int getFlags(final int row) {
+        return flags[row];
+    }
+
+    public boolean hasFlag(final int row, final int flag) {
+        return (flags[row] & flag) != 0;
+    }
+
+    public int getAssignedEmoji(final int row) {
+        return emojis[row];
+    }
+
+    /** returns the indexes of all rows with coordinates inside given viewport */
+    @NonNull
+    public int[] getInViewport(@NonNull final Viewport viewport) {
+        final int minLat = viewport.bottomLeft.getLatitudeE6();
+        final int maxLat = viewport.topRight.getLatitudeE6();
+        final int minLon = viewport.bottomLeft.getLongitudeE6();
+        final int maxLon = viewport.topRight.getLongitudeE6();
+        int[] result = new int[Math.min(size, 64)];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            final int lat = latitudesE6[row];
+            if (lat < minLat || lat > maxLat) {
+                continue;
+            }
+            final int lon = longitudesE6[row];
+            if (lon >= minLon && lon <= maxLon) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.max(16, count * 2));
+                }
+                result[count++] = row;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /** returns the geocodes of all rows with coordinates inside given viewport */
+    @NonNull
+    public Set<String> getGeocodesInViewport(@NonNull final Viewport viewport) {
+        final int[] rows = getInViewport(viewport);
+        final Set<String> result = new HashSet<>(rows.length * 2);
+        for (int row : rows) {
+            result.add(geocodes[row]);
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the heap used by this table (arrays, geocode strings and geocode index), assuming a 64bit VM
+     * with compressed references. Meant for diagnostics and memory comparisons.
+     */
+    public long estimateHeapBytes() {
+        final long capacity = geocodes.length;
+        // object headers of table and arrays
+        long bytes = 16 + 9 * 16;
+        // per-row array content: geocode reference (4), lat/lon/flags/emoji (4 * 4), type/size/D/T (4 * 1)
+        bytes += capacity * (4 + 4 * 4 + 4);
+        for (int row = 0; row < size; row++) {
+            // String object (24) + char/byte array (16 + length)
+            bytes += 40 + geocodes[row].length();
+        }
+        // HashMap: table slot (4), node (32), boxed Integer (16)
+        bytes += (long) size * (4 + 32 + 16);
+        return bytes;
+    }
+
+    private static byte toHalfStars(final float value) {
+        return (byte) Math.max(0, Math.min(Byte.MAX_VALUE, Math.round(value * 2)));
+    }
+
+}
@@ -1,5 +1,6 @@
 package cgeo.geocaching.storage;
 
+import cgeo.geocaching.BuildConfig;
 import cgeo.geocaching.CgeoApplication;
 import cgeo.geocaching.Intents;
 import cgeo.geocaching.R;
@@ -50,12 +51,15 @@ import cgeo.geocaching.utils.ContextLogger;
 import cgeo.geocaching.utils.EmojiUtils;
 import cgeo.geocaching.utils.FileNameCreator;
 import cgeo.geocaching.utils.FileUtils;
+import cgeo.geocaching.utils.Hash64;
 import cgeo.geocaching.utils.ImageUtils;
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
 import cgeo.geocaching.utils.LifecycleAwareBroadcastReceiver;
 import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.TextUtils;
 import cgeo.geocaching.utils.Version;
 import cgeo.geocaching.utils.formulas.VariableList;
+import cgeo.geocaching.utils.functions.Action1;
 import cgeo.geocaching.utils.functions.Func1;
 import static cgeo.geocaching.Intents.ACTION_INDIVIDUALROUTE_CHANGED;
 import static cgeo.geocaching.settings.Settings.getMaximumMapTrailLength;
@@ -76,6 +80,7 @@ import android.database.sqlite.SQLiteDatabase.CursorFactory;
 import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
 import android.location.Location;
 import android.net.Uri;
@@ -83,10 +88,21 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.core.util.Consumer;
 import androidx.core.util.Supplier;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -105,9 +121,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
@@ -115,15 +135,18 @@ import io.reactivex.rxjava3.core.SingleOnSubscribe;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
 public class DataStore {
 
     public static final String DB_FILE_NAME = "data";
     public static final String DB_FILE_NAME_BACKUP = "cgeo.sqlite";
+    public static final String DB_FILE_NAME_BACKUP_ZIP = DB_FILE_NAME_BACKUP + ".zip";
     public static final String DB_FILE_CORRUPTED_EXTENSION = ".corrupted";
 
     // some fields names which are referenced multiple times
@@ -158,7 +181,9 @@ public class DataStore {
         DBEXTENSION_EMOJILRU(5),
         DBEXTENSION_POCKETQUERY_HISTORY(6),
         DBEXTENSION_TRACKFILES(7),
-        DBEXTENSION_LAST_TRACKABLE_ACTION(8);
+        DBEXTENSION_LAST_TRACKABLE_ACTION(8),
+        DBEXTENSION_MAINTENANCE_HISTORY(9),
+        DBEXTENSION_MAINTENANCE_PROGRESS(10);
 
         public final int id;
 
@@ -237,9 +262,21 @@ public class DataStore {
      * holds the column indexes of the cache table to avoid lookups
      */
     private static final CacheCache cacheCache = new CacheCache();
+    /** number of caches stored in one transaction by {@link #saveCaches(Collection, Set)} */
+    private static final int STORE_BATCH_SIZE = 100;
+    /** maximum number of logs loaded by {@link #loadLogs(String)} */
+    private static final int MAX_LOADED_LOGS = 100;
+    /**
+     * hashes of the content last written to child tables of caches (key: table|geocode), used to skip rewriting unchanged content.
+     * Entries are only added after the transaction writing them succeeded. The hashes are not persisted: the first store
+     * of a cache after start of the app always rewrites its child tables.
+     */
+    private static final Map<String, Long> contentHashes = Collections.synchronizedMap(new LeastRecentlyUsedMap.LruCache<>(10000));
     private static volatile SQLiteDatabase database = null;
     private static final ReentrantReadWriteLock databaseLock = new ReentrantReadWriteLock();
-    private static final int dbVersion = 101;
+    /** query and lock timings, the plans of slow queries are only recorded in debug builds */
+    private static final DataStoreMetrics metrics = new DataStoreMetrics(BuildConfig.DEBUG);
+    private static final int dbVersion = 102;
     public static final int customListIdOffset = 10;
 
     /**
@@ -276,7 +313,8 @@ public class DataStore {
             98, // add table cg_variables to store cache variables
             99,  // add alcMode to differentiate Linear vs Random
             100, // add column "tier" and table for cache categories. Initially used for bettercacher.org data
-            101  //add service_image_id to saved log images
+            101, //add service_image_id to saved log images
+            102  // add user dictionary cg_users, referenced by cg_logs, cg_trackables and cg_caches (names are still stored as before)
     ));
 
     @NonNull private static final String dbTableCaches = "cg_caches";
@@ -299,7 +337,45 @@ public class DataStore {
     @NonNull private static final String dbTableRoute = "cg_route";
     @NonNull private static final String dbTableExtension = "cg_extension";
     @NonNull private static final String dbTableFilters = "cg_filters";
+    @NonNull private static final String dbTableUsers = "cg_users";
     @NonNull private static final String dbTableSequences = "sqlite_sequence";
+    /** temporary table holding the geocodes of bulk operations, see {@link #fillTempGeocodes(Collection)} */
+    @NonNull private static final String dbTableTempGeocodes = "temp_geocodes";
+    private static final String IN_TEMP_GEOCODES = "geocode IN (SELECT geocode FROM " + dbTableTempGeocodes + ")";
+    /** authors and owners referenced by cg_logs, cg_trackables and cg_caches */
+    private static final UserDictionary users = new UserDictionary(dbTableUsers, 10000);
+    /** statements built at runtime, kept below the size of the statement cache of the connection (MAX_SQL_CACHE_SIZE) */
+    private static final StatementCache dynamicStatements = new StatementCache(32);
+    /** tables (first entry) and their large text columns which may be stored compressed, see {@link TextCompression} */
+    private static final String[][] COMPRESSIBLE_TEXT_COLUMNS = {
+            {dbTableCaches, "description", "shortdesc", "hint"},
+            {dbTableLogs, "log"}
+    };
+    /** number of rows recoded in one transaction by {@link #recodeCompressibleTexts(boolean, Consumer)} */
+    private static final int RECODE_CHUNK_SIZE = 100;
+    /** tables (first entry) and the condition selecting their rows which belong to no existing cache, list, log or other referencing row */
+    private static final String[][] ORPHAN_CONDITIONS = {
+            {dbTableCachesLists, "list_id <> " + StoredList.STANDARD_LIST_ID + " AND list_id NOT IN (SELECT _id + " + customListIdOffset + " FROM " + dbTableLists + ")"},
+            {dbTableAttributes, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableSpoilers, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableCachesLists, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableWaypoints, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableVariables, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableCategories, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableTrackables, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableLogCount, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            {dbTableLogs, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")"},
+            // must be after logs
+            {dbTableLogImages, "log_id NOT IN (SELECT _id FROM " + dbTableLogs + ")"},
+            // must be after logs and trackables
+            {dbTableUsers, "NOT EXISTS (SELECT 1 FROM " + dbTableLogs + " WHERE author_id = " + dbTableUsers + "._id)"
+                    + " AND NOT EXISTS (SELECT 1 FROM " + dbTableCaches + " WHERE owner_id = " + dbTableUsers + "._id)"
+                    + " AND NOT EXISTS (SELECT 1 FROM " + dbTableTrackables + " WHERE owner_id = " + dbTableUsers + "._id)"}
+    };
+    /** number of steps of {@link #deleteOrphanedRecordsChunk(int, long, int)} */
+    static final int ORPHAN_CLEANUP_STEPS = ORPHAN_CONDITIONS.length;
+    /** value of PRAGMA auto_vacuum for incremental auto vacuum */
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
     @NonNull private static final String dbCreateCaches = ""
             + "CREATE TABLE IF NOT EXISTS " + dbTableCaches + " ("
             + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
@@ -350,7 +426,8 @@ public class DataStore {
             + "owner_guid TEXT NOT NULL DEFAULT '',"
             + "emoji INTEGER DEFAULT 0,"
             + "alcMode INTEGER DEFAULT 0,"
-            + "tier TEXT"
+            + "tier TEXT,"
+            + "owner_id INTEGER" // user of owner_real and owner_guid in cg_users, added with db version 102
             + "); ";
     private static final String dbCreateLists = ""
             + "CREATE TABLE IF NOT EXISTS " + dbTableLists + " ("
@@ -431,7 +508,8 @@ public class DataStore {
             + "log TEXT, "
             + "date LONG, "
             + "found INTEGER NOT NULL DEFAULT 0, "
-            + "friend INTEGER "
+            + "friend INTEGER, "
+            + "author_id INTEGER " // user of author and author_guid in cg_users, added with db version 102
             + "); ";
 
     private static final String dbCreateLogCount = ""
@@ -500,7 +578,8 @@ public class DataStore {
             + "geocode TEXT, "
             + "log_date LONG, "
             + "log_type INTEGER, "
-            + "log_guid TEXT "
+            + "log_guid TEXT, "
+            + "owner_id INTEGER " // user of owner in cg_users, added with db version 102
             + "); ";
 
     private static final String dbCreateSearchDestinationHistory = ""
@@ -551,6 +630,13 @@ public class DataStore {
             + "name TEXT NOT NULL UNIQUE, "
             + "treeconfig TEXT"
             + "); ";
+    private static final String dbCreateUsers = ""
+            + "CREATE TABLE IF NOT EXISTS " + dbTableUsers + " ("
+            + "_id INTEGER PRIMARY KEY AUTOINCREMENT, " // ids must not be reused, see UserDictionary
+            + "name TEXT NOT NULL, "
+            + "guid TEXT NOT NULL DEFAULT '', "
+            + "UNIQUE (name, guid)"
+            + "); ";
 
     // reminder to myself: when adding a new CREATE TABLE statement:
     // make sure to add it to both onUpgrade() and onCreate()
@@ -937,13 +1023,18 @@ public class DataStore {
         }
 
         cacheCache.removeAllFromCache();
+        invalidateContentHashes(null);
+        users.clear();
+        dynamicStatements.clear();
         PreparedStatement.clearPreparedStatements();
         database.close();
         database = null;
     }
 
     private static  <T> T withAccessLock(final Supplier<T> action) {
+        final long start = System.nanoTime();
         databaseLock.readLock().lock();
+        metrics.recordLockWait(false, System.nanoTime() - start);
         try {
             return action.get();
         } finally {
@@ -952,7 +1043,9 @@ public class DataStore {
     }
 
     private static  void withAccessLock(final Runnable action) {
+        final long start = System.nanoTime();
         databaseLock.readLock().lock();
+        metrics.recordLockWait(false, System.nanoTime() - start);
         try {
             action.run();
         } finally {
@@ -961,7 +1054,9 @@ public class DataStore {
     }
 
     private static <T> T withChangeLock(final Supplier<T> action) {
+        final long start = System.nanoTime();
         databaseLock.writeLock().lock();
+        metrics.recordLockWait(true, System.nanoTime() - start);
         try {
             return action.get();
         } finally {
@@ -969,21 +1064,339 @@ public class DataStore {
         }
     }
 
-    public static Uri backupDatabaseInternal(final Folder backupDir) {
-        return withChangeLock(() -> {
-            closeDb();
-            final Uri uri = ContentStorage.get().copy(Uri.fromFile(databasePath()), backupDir, FileNameCreator.forName(DB_FILE_NAME_BACKUP), false);
+    /**
+     * Runs a query and records its duration and row count in the {@link DataStoreMetrics}.
+     * In debug builds, the plan of a slow query is recorded as well.
+     * Must be called with access lock on an initialized database.
+     */
+    @NonNull
+    private static Cursor measuredQuery(@NonNull final String sql, @Nullable final String[] args) {
+        final long start = System.nanoTime();
+        final Cursor cursor = database.rawQuery(sql, args);
+        // queries are executed lazily when the first row is accessed, so force this here to measure it
+        final int rows;
+        try {
+            rows = cursor.getCount();
+        } catch (final RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+        final long duration = System.nanoTime() - start;
+        metrics.recordQuery(sql, args, duration, rows);
+        if (metrics.shouldExplain(duration)) {
+            final String shape = DataStoreMetrics.toQueryShape(sql);
+            final List<String> plan = explainQueryPlan(sql, args);
+            metrics.recordSlowQuery(shape, duration, plan);
+            final List<String> fullScans = DataStoreMetrics.findFullTableScans(plan);
+            if (!fullScans.isEmpty()) {
+                Log.w("DataStore: slow query (" + TimeUnit.NANOSECONDS.toMillis(duration) + "ms) scans full table(s) " + fullScans + ": " + shape);
+            }
+        }
+        return cursor;
+    }
+
+    @NonNull
+    private static Cursor measuredQuery(@NonNull final String table, final String[] columns, final String selection, final String[] selectionArgs,
+                                        final String groupBy, final String having, final String orderBy, final String limit) {
+        return measuredQuery(SQLiteQueryBuilder.buildQueryString(false, table, columns, selection, groupBy, having, orderBy, limit), selectionArgs);
+    }
+
+    /**
+     * @return the detail column of EXPLAIN QUERY PLAN for the given query, one entry per plan step
+     */
+    @NonNull
+    static List<String> explainQueryPlan(@NonNull final String sql, @Nullable final String[] args) {
+        return withAccessLock(() -> {
+            init();
+            final List<String> plan = new ArrayList<>();
+            try (Cursor cursor = database.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+                final int detailIndex = cursor.getColumnIndexOrThrow("detail");
+                while (cursor.moveToNext()) {
+                    plan.add(cursor.getString(detailIndex));
+                }
+            } catch (final SQLiteException e) {
+                Log.w("DataStore.explainQueryPlan: failed for " + sql, e);
+            }
+            return plan;
+        });
+    }
+
+    /**
+     * @return the query plans of the last executed query of each recorded query shape
+     */
+    @NonNull
+    static Map<String, List<String>> explainRecordedQueries() {
+        final Map<String, List<String>> plans = new TreeMap<>();
+        for (final String shape : metrics.getQueryShapes()) {
+            final DataStoreMetrics.RecordedQuery query = metrics.getLastQuery(shape);
+            if (query != null) {
+                plans.put(shape, explainQueryPlan(query.sql, query.args));
+            }
+        }
+        return plans;
+    }
+
+    @NonNull
+    public static DataStoreMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** switches write-ahead logging on or off for the open database, for benchmarking */
+    @VisibleForTesting
+    static void setWriteAheadLoggingEnabled(final boolean enabled) {
+        withChangeLock(() -> {
+            init();
+            if (enabled) {
+                database.enableWriteAheadLogging();
+            } else {
+                database.disableWriteAheadLogging();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * runs the given action while a write transaction (which has already changed data) is open on the database,
+     * the transaction is rolled back afterwards
+     */
+    @VisibleForTesting
+    static void runInWriteTransaction(@NonNull final Runnable whileOpen) {
+        withAccessLock(() -> {
             init();
+            database.beginTransaction();
+            try {
+                database.execSQL("UPDATE " + dbTableCaches + " SET visiteddate = visiteddate");
+                whileOpen.run();
+            } finally {
+                database.endTransaction();
+            }
+        });
+    }
+
+    /** deletes leftover journal files (e.g. write-ahead log) of a closed database file, before it is replaced or removed */
+    private static void deleteJournalFiles(@NonNull final File dbFile) {
+        for (String suffix : new String[]{"-wal", "-shm", "-journal"}) {
+            final File journal = new File(dbFile.getPath() + suffix);
+            if (journal.exists() && !FileUtils.delete(journal)) {
+                Log.w("Could not delete database journal file " + journal);
+            }
+        }
+    }
 
+    /**
+     * Backup the database to the given folder while it stays in use.
+     * A consistent snapshot of the database is written to a temporary file first, which is then copied
+     * (optionally zipped) to the backup folder. Readers are not blocked by the backup at any time.
+     *
+     * @param compress if {@code true}, the backup is stored as {@link #DB_FILE_NAME_BACKUP_ZIP}
+     * @param progress if given, called with the progress in percent (from the calling thread)
+     * @return Uri of the backup file, or {@code null} if the backup failed
+     */
+    @Nullable
+    @WorkerThread
+    public static Uri backupDatabaseInternal(final Folder backupDir, final boolean compress, @Nullable final Consumer<Integer> progress) {
+        final File snapshot = ContentStorage.get().createTempFile();
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            if (!createSnapshot(snapshot, progress)) {
+                Log.e("Database snapshot could not be created");
+                return null;
+            }
+            reportProgress(progress, 50);
+            final Uri uri = writeBackupFile(snapshot, backupDir, compress, progress);
             if (uri == null) {
                 Log.e("Database could not be copied to " + backupDir.toUserDisplayableString());
                 return null;
             }
+            reportProgress(progress, 100);
             Log.i("Database was copied to " + backupDir.toUserDisplayableString());
             return uri;
+        } finally {
+            FileUtils.deleteIgnoringFailure(snapshot);
+        }
+    }
+
+    /**
+     * Writes a consistent snapshot of the database to the given (empty) file.
+     * <br>
+     * With VACUUM INTO (SQLite 3.27, Android 11), the snapshot is a read transaction on a separate connection,
+     * so neither readers nor writers using {@link #database} have to wait for it.
+     * Otherwise tables are copied one by one in a single transaction on {@link #database}, during which only writers have to wait.
+     */
+    private static boolean createSnapshot(final File target, @Nullable final Consumer<Integer> progress) {
+        return withAccessLock(() -> {
+            init();
+            try {
+                if (isSqliteVersionAtLeast(DatabaseUtils.stringForQuery(database, "SELECT sqlite_version()", null), 3, 27)) {
+                    final int flags = SQLiteDatabase.OPEN_READWRITE | (database.isWriteAheadLoggingEnabled() ? SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING : 0);
+                    final SQLiteDatabase source = SQLiteDatabase.openDatabase(databasePath().getPath(), null, flags);
+                    try {
+                        source.execSQL("VACUUM INTO ?", new Object[]{target.getPath()});
+                    } finally {
+                        source.close();
+                    }
+                } else {
+                    copyDatabase(database, target, progress);
+                }
+                return true;
+            } catch (final SQLException e) {
+                Log.e("DataStore.createSnapshot", e);
+                return false;
+            }
         });
     }
 
+    private static boolean isSqliteVersionAtLeast(final String version, final int major, final int minor) {
+        final String[] parts = StringUtils.split(version, '.');
+        if (parts.length < 2) {
+            return false;
+        }
+        final int actualMajor = NumberUtils.toInt(parts[0]);
+        return actualMajor > major || (actualMajor == major && NumberUtils.toInt(parts[1]) >= minor);
+    }
+
+    /** copies schema and content of all tables to a new database, reading everything within one transaction */
+    private static void copyDatabase(final SQLiteDatabase source, final File target, @Nullable final Consumer<Integer> progress) {
+        final SQLiteDatabase copy = SQLiteDatabase.openOrCreateDatabase(target, null);
+        source.beginTransactionNonExclusive();
+        copy.beginTransaction();
+        try {
+            copy.setVersion(source.getVersion());
+            final List<String> tables = new ArrayList<>();
+            final List<String> otherSchema = new ArrayList<>();
+            // android_metadata is created by Android itself when opening a database
+            try (Cursor cursor = source.rawQuery("SELECT type, name, sql FROM sqlite_master WHERE sql NOT NULL AND name NOT LIKE 'sqlite_%' AND name <> 'android_metadata'", null)) {
+                while (cursor.moveToNext()) {
+                    if ("table".equals(cursor.getString(0))) {
+                        copy.execSQL(cursor.getString(2));
+                        tables.add(cursor.getString(1));
+                    } else {
+                        otherSchema.add(cursor.getString(2));
+                    }
+                }
+            }
+            for (int i = 0; i < tables.size(); i++) {
+                copyTable(source, copy, tables.get(i));
+                reportProgress(progress, 50 * (i + 1) / tables.size());
+            }
+            if (DatabaseUtils.longForQuery(source, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_sequence'", null) > 0) {
+                copyTable(source, copy, "sqlite_sequence");
+            }
+            // indexes and triggers are created after copying the content
+            for (final String sql : otherSchema) {
+                copy.execSQL(sql);
+            }
+            copy.setTransactionSuccessful();
+        } finally {
+            copy.endTransaction();
+            source.endTransaction();
+            copy.close();
+        }
+    }
+
+    private static void copyTable(final SQLiteDatabase source, final SQLiteDatabase copy, final String table) {
+        try (Cursor cursor = source.rawQuery("SELECT * FROM \"" + table + "\"", null)) {
+            final String[] columns = cursor.getColumnNames();
+            final SQLiteStatement insert = copy.compileStatement("INSERT INTO \"" + table + "\" (\"" + StringUtils.join(columns, "\", \"")
+                    + "\") VALUES (" + StringUtils.repeat("?", ", ", columns.length) + ")");
+            try {
+                while (cursor.moveToNext()) {
+                    for (int i = 0; i < columns.length; i++) {
+                        switch (cursor.getType(i)) {
+                            case Cursor.FIELD_TYPE_NULL:
+                                insert.bindNull(i + 1);
+                                break;
+                            case Cursor.FIELD_TYPE_INTEGER:
+                                insert.bindLong(i + 1, cursor.getLong(i));
+                                break;
+                            case Cursor.FIELD_TYPE_FLOAT:
+                                insert.bindDouble(i + 1, cursor.getDouble(i));
+                                break;
+                            case Cursor.FIELD_TYPE_BLOB:
+                                insert.bindBlob(i + 1, cursor.getBlob(i));
+                                break;
+                            default:
+                                insert.bindString(i + 1, cursor.getString(i));
+                                break;
+                        }
+                    }
+                    insert.executeInsert();
+                }
+            } finally {
+                insert.close();
+            }
+        }
+    }
+
+    /** copies the snapshot to the backup folder (as plain database file or zipped), reporting progress from 50 to 100 percent */
+    @Nullable
+    private static Uri writeBackupFile(final File snapshot, final Folder backupDir, final boolean compress, @Nullable final Consumer<Integer> progress) {
+        final Uri uri = ContentStorage.get().create(backupDir, compress ? DB_FILE_NAME_BACKUP_ZIP : DB_FILE_NAME_BACKUP);
+        if (uri == null) {
+            return null;
+        }
+        final long total = Math.max(1, snapshot.length());
+        try (InputStream in = new FileInputStream(snapshot); OutputStream os = ContentStorage.get().openForWrite(uri)) {
+            if (os == null) {
+                throw new IOException("Could not open backup file uri for writing: " + uri);
+            }
+            final ZipOutputStream zip = compress ? new ZipOutputStream(new BufferedOutputStream(os)) : null;
+            if (zip != null) {
+                zip.putNextEntry(new ZipEntry(DB_FILE_NAME_BACKUP));
+            }
+            final OutputStream out = zip != null ? zip : os;
+            final byte[] buffer = new byte[64 * 1024];
+            long copied = 0;
+            int lastPercent = 50;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                copied += read;
+                final int percent = 50 + (int) (50 * copied / total);
+                if (percent > lastPercent) {
+                    lastPercent = percent;
+                    reportProgress(progress, percent);
+                }
+            }
+            if (zip != null) {
+                zip.finish();
+            }
+            out.flush();
+            return uri;
+        } catch (final IOException e) {
+            Log.e("DataStore.writeBackupFile", e);
+            ContentStorage.get().delete(uri);
+            return null;
+        }
+    }
+
+    /** replaces a zipped backup (see {@link #DB_FILE_NAME_BACKUP_ZIP}) by the database file contained in it, plain database files are left untouched */
+    private static void unzipBackup(final File file) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final ZipEntry entry = zip.getNextEntry();
+            if (entry == null) {
+                // not a zip file
+                return;
+            }
+            final File unzipped = new File(file.getPath() + ".unzipped");
+            try (OutputStream out = new FileOutputStream(unzipped)) {
+                IOUtils.copy(zip, out);
+            }
+            if (!file.delete() || !unzipped.renameTo(file)) {
+                FileUtils.deleteIgnoringFailure(unzipped);
+                throw new IOException("Could not replace " + file + " by unzipped database");
+            }
+        }
+    }
+
+    private static void reportProgress(@Nullable final Consumer<Integer> progress, final int percent) {
+        if (progress != null) {
+            progress.accept(percent);
+        }
+    }
+
     /**
      * Move the database to/from external cgdata in a new thread,
      * showing a progress window
@@ -1001,6 +1414,7 @@ public class DataStore {
 
                 final File source = databasePath();
                 final File target = databaseAlternatePath();
+                deleteJournalFiles(target);
                 if (!FileUtils.copy(source, target)) {
                     Log.e("Database could not be moved to " + target);
                     init();
@@ -1009,6 +1423,7 @@ public class DataStore {
                 if (!FileUtils.delete(source)) {
                     Log.e("Original database could not be deleted during move");
                 }
+                deleteJournalFiles(source);
                 Settings.setDbOnSDCard(!Settings.isDbOnSDCard());
                 Log.i("Database was moved to " + target);
 
@@ -1042,6 +1457,7 @@ public class DataStore {
             final File tmpFile = ContentStorage.get().writeUriToTempFile(databaseUri, "backup_db.tmp");
             DBRestoreResult result = DBRestoreResult.RESTORE_FAILED_GENERAL;
             try {
+                unzipBackup(tmpFile);
                 final SQLiteDatabase backup = SQLiteDatabase.openDatabase(tmpFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
                 final int backupDbVersion = backup.getVersion();
                 final int expectedDbVersion = DataStore.getExpectedDBVersion();
@@ -1049,6 +1465,7 @@ public class DataStore {
                     return String.format(context.getString(R.string.init_restore_version_error), expectedDbVersion, backupDbVersion);
                 }
                 closeDb();
+                deleteJournalFiles(databasePath());
                 result = FileUtils.copy(tmpFile, databasePath()) ? DBRestoreResult.RESTORE_SUCCESSFUL : DBRestoreResult.RESTORE_FAILED_GENERAL;
                 init();
                 if (newlyCreatedDatabase) {
@@ -1060,7 +1477,7 @@ public class DataStore {
                 } else {
                     Log.e("Could not restore database from " + tmpFile.getPath());
                 }
-            } catch (SQLiteException e) {
+            } catch (SQLiteException | IOException e) {
                 Log.e("error while restoring database: ", e);
             } finally {
                 tmpFile.delete();
@@ -1069,6 +1486,49 @@ public class DataStore {
         });
     }
 
+    /** number of rows written to each table by a bulk store, and number of times a table was skipped because its content was unchanged */
+    @VisibleForTesting
+    static final class StoreStatistics {
+        private final Map<String, Integer> rows = new TreeMap<>();
+        private final Map<String, Integer> skipped = new TreeMap<>();
+
+        void add(final String table, final int count) {
+            final Integer old = rows.get(table);
+            rows.put(table, old == null ? count : old + count);
+        }
+
+        void skip(final String table) {
+            final Integer old = skipped.get(table);
+            skipped.put(table, old == null ? 1 : old + 1);
+        }
+
+        int getRows(final String table) {
+            final Integer count = rows.get(table);
+            return count == null ? 0 : count;
+        }
+
+        int getSkipped(final String table) {
+            final Integer count = skipped.get(table);
+            return count == null ? 0 : count;
+        }
+
+        void add(final StoreStatistics other) {
+            for (final Entry<String, Integer> entry : other.rows.entrySet()) {
+                add(entry.getKey(), entry.getValue());
+            }
+            for (final Entry<String, Integer> entry : other.skipped.entrySet()) {
+                final Integer old = skipped.get(entry.getKey());
+                skipped.put(entry.getKey(), old == null ? entry.getValue() : old + entry.getValue());
+            }
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "written " + rows + ", skipped unchanged " + skipped;
+        }
+    }
+
     private static class DBContext extends ContextWrapper {
 
         DBContext(final Context base) {
@@ -1098,6 +1558,23 @@ public class DataStore {
             super(context, databasePath().getPath(), null, dbVersion);
         }
 
+        /**
+         * Enables write-ahead logging: writes are serialized on the primary connection, while read-only queries
+         * from other threads run concurrently on the platform's pool of reader connections (instead of waiting for
+         * e.g. a long running bulk store to finish). Each connection caches its compiled statements, the cache size
+         * is raised so that all {@link PreparedStatement}s and frequent queries fit.
+         */
+        @Override
+        public void onConfigure(final SQLiteDatabase db) {
+            super.onConfigure(db);
+            // takes effect for new databases only (must be set before the first table is created), existing ones are converted by DatabaseMaintenance
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            if (!db.enableWriteAheadLogging()) {
+                Log.w("[DB] unable to enable write-ahead logging");
+            }
+            db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+        }
+
         @Override
         public void onCreate(final SQLiteDatabase db) {
             newlyCreatedDatabase = true;
@@ -1121,6 +1598,7 @@ public class DataStore {
             db.execSQL(dbCreateRoute);
             db.execSQL(dbCreateExtension);
             db.execSQL(dbCreateFilters);
+            db.execSQL(dbCreateUsers);
 
             createIndices(db, dbVersion);
         }
@@ -1159,6 +1637,11 @@ public class DataStore {
             if (currentVersion >= 100) {
                 db.execSQL("CREATE INDEX IF NOT EXISTS in_cats_geo ON " + dbTableCategories + " (geocode)");
             }
+            if (currentVersion >= 102) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS in_logs_author ON " + dbTableLogs + " (author_id)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS in_caches_owner ON " + dbTableCaches + " (owner_id)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS in_trackables_owner ON " + dbTableTrackables + " (owner_id)");
+            }
         }
 
         @Override
@@ -1800,6 +2283,20 @@ public class DataStore {
                         }
                     }
 
+                    // add user dictionary
+                    if (oldVersion < 102) {
+                        try {
+                            db.execSQL(dbCreateUsers);
+                            createColumnIfNotExists(db, dbTableLogs, "author_id INTEGER");
+                            createColumnIfNotExists(db, dbTableTrackables, "owner_id INTEGER");
+                            createColumnIfNotExists(db, dbTableCaches, "owner_id INTEGER");
+                            fillUserIds(db);
+                            createIndices(db, 102);
+                        } catch (final SQLException e) {
+                            onUpgradeError(e, 102);
+                        }
+                    }
+
                 }
 
                 //at the very end of onUpgrade: rewrite downgradeable versions in database
@@ -1907,11 +2404,26 @@ public class DataStore {
             db.execSQL("DROP TABLE IF EXISTS " + dbTableRoute);
             db.execSQL("DROP TABLE IF EXISTS " + dbTableExtension);
             db.execSQL("DROP TABLE IF EXISTS " + dbTableFilters);
+            db.execSQL("DROP TABLE IF EXISTS " + dbTableUsers);
             // also delete tables which have old table names
             db.execSQL("DROP TABLE IF EXISTS cg_table_route");
             db.execSQL("DROP TABLE IF EXISTS cg_table_extension");
         }
 
+        /**
+         * Adds all users referenced by name to cg_users and sets the user ids referencing them.
+         * Only rows without user id are changed (which were written by versions before 102, e.g. after a downgrade),
+         * except for caches, which older versions update in place.
+         */
+        private static void fillUserIds(final SQLiteDatabase db) {
+            db.execSQL("INSERT OR IGNORE INTO " + dbTableUsers + " (name, guid) SELECT DISTINCT author, author_guid FROM " + dbTableLogs + " WHERE author_id IS NULL AND TRIM(author) <> ''");
+            db.execSQL("UPDATE " + dbTableLogs + " SET author_id = (SELECT _id FROM " + dbTableUsers + " u WHERE u.name = author AND u.guid = author_guid) WHERE author_id IS NULL AND TRIM(author) <> ''");
+            db.execSQL("INSERT OR IGNORE INTO " + dbTableUsers + " (name, guid) SELECT DISTINCT owner, '' FROM " + dbTableTrackables + " WHERE owner_id IS NULL AND TRIM(owner) <> ''");
+            db.execSQL("UPDATE " + dbTableTrackables + " SET owner_id = (SELECT _id FROM " + dbTableUsers + " u WHERE u.name = owner AND u.guid = '') WHERE owner_id IS NULL AND TRIM(owner) <> ''");
+            db.execSQL("INSERT OR IGNORE INTO " + dbTableUsers + " (name, guid) SELECT DISTINCT owner_real, owner_guid FROM " + dbTableCaches + " WHERE TRIM(owner_real) <> ''");
+            db.execSQL("UPDATE " + dbTableCaches + " SET owner_id = (SELECT _id FROM " + dbTableUsers + " u WHERE u.name = owner_real AND u.guid = owner_guid)");
+        }
+
         /**
          * Helper for columns creation. This method ignores duplicate column errors
          * and is useful for migration situations
@@ -2315,9 +2827,9 @@ public class DataStore {
                     }
                 }
 
-                for (final Geocache geocache : toBeStored) {
-                    storeIntoDatabase(geocache);
-                }
+                final StoreStatistics statistics = new StoreStatistics();
+                storeIntoDatabase(toBeStored, statistics);
+                cLog.add("stored:%d, rows:%s", toBeStored.size(), statistics);
 
                 for (final Geocache geocache : toBeUpdated) {
                     updateDisabledStatus(geocache);
@@ -2353,101 +2865,251 @@ public class DataStore {
     }
 
     public static boolean storeIntoDatabase(final Geocache cache) {
+        return storeIntoDatabase(Collections.singletonList(cache), null) == 1;
+    }
+
+    /**
+     * Stores the given caches into the database, using one transaction per batch of {@link #STORE_BATCH_SIZE} caches.
+     * If storing a batch fails, its caches are stored one by one, so a single broken cache does not prevent storing the others.
+     *
+     * @param statistics if given, the rows written per table are added to it
+     * @return number of caches stored
+     */
+    @VisibleForTesting
+    static int storeIntoDatabase(final List<Geocache> caches, @Nullable final StoreStatistics statistics) {
         return withAccessLock(() -> {
-            cache.addStorageLocation(StorageLocation.DATABASE);
-            cacheCache.putCacheInCache(cache);
-            Log.d("Saving " + cache + " (" + cache.getLists() + ") to DB");
+            init();
+            int stored = 0;
+            for (int start = 0; start < caches.size(); start += STORE_BATCH_SIZE) {
+                final List<Geocache> batch = caches.subList(start, Math.min(caches.size(), start + STORE_BATCH_SIZE));
+                if (storeBatchIntoDatabase(batch, statistics)) {
+                    stored += batch.size();
+                } else if (batch.size() > 1) {
+                    for (final Geocache cache : batch) {
+                        if (storeBatchIntoDatabase(Collections.singletonList(cache), statistics)) {
+                            stored++;
+                        }
+                    }
+                }
+            }
+            return stored;
+        });
+    }
 
-            final ContentValues values = new ContentValues();
+    private static boolean storeBatchIntoDatabase(final List<Geocache> batch, @Nullable final StoreStatistics statistics) {
+        final StoreStatistics batchStatistics = new StoreStatistics();
+        final Map<String, Long> newContentHashes = new HashMap<>();
+        final Map<String, Long> newUserIds = new HashMap<>();
+        // waypoints get their id on insert, which must be undone if the transaction is rolled back
+        final List<Waypoint> newWaypoints = new ArrayList<>();
+        for (final Geocache cache : batch) {
+            for (final Waypoint waypoint : cache.getWaypoints()) {
+                if (waypoint.isNewWaypoint()) {
+                    newWaypoints.add(waypoint);
+                }
+            }
+        }
+        boolean success = false;
+        database.beginTransaction();
+        try {
+            for (final Geocache cache : batch) {
+                storeIntoDatabaseWithoutTransaction(cache, newContentHashes, newUserIds, batchStatistics);
+            }
+            database.setTransactionSuccessful();
+            success = true;
+        } catch (final Exception e) {
+            Log.e("SaveCache", e);
+        } finally {
+            database.endTransaction();
+        }
+        if (success) {
+            contentHashes.putAll(newContentHashes);
+            users.putIds(newUserIds);
+            if (statistics != null) {
+                statistics.add(batchStatistics);
+            }
+        } else {
+            for (final Waypoint waypoint : newWaypoints) {
+                waypoint.setId(Waypoint.NEW_ID);
+            }
+        }
+        return success;
+    }
 
-            if (cache.getUpdated() == 0) {
-                values.put("updated", System.currentTimeMillis());
-            } else {
-                values.put("updated", cache.getUpdated());
-            }
-            values.put("reason", StoredList.STANDARD_LIST_ID);
-            values.put("detailed", cache.isDetailed() ? 1 : 0);
-            values.put("detailedupdate", cache.getDetailedUpdate());
-            values.put("visiteddate", cache.getVisitedDate());
-            values.put("geocode", cache.getGeocode());
-            values.put("cacheid", cache.getCacheId());
-            values.put("guid", cache.getGuid());
-            values.put("type", cache.getType().id);
-            values.put("name", cache.getName());
-            values.put("owner", cache.getOwnerDisplayName());
-            values.put("owner_real", cache.getOwnerUserId());
-            final Date hiddenDate = cache.getHiddenDate();
-            if (hiddenDate == null) {
-                values.put("hidden", 0);
-            } else {
-                values.put("hidden", hiddenDate.getTime());
-            }
-            values.put("hint", cache.getHint());
-            values.put("size", cache.getSize().id);
-            values.put("difficulty", cache.getDifficulty());
-            values.put("terrain", cache.getTerrain());
-            values.put("location", cache.getLocation());
-            values.put("distance", cache.getDistance());
-            values.put("direction", cache.getDirection());
-            putCoords(values, cache.getCoords());
-            values.put("reliable_latlon", 0);          // Todo: refactor - remove column
-            values.put("shortdesc", cache.getShortDescription());
-            values.put("personal_note", cache.getPersonalNote());
-            values.put("description", cache.getDescription());
-            values.put("favourite_cnt", cache.getFavoritePoints());
-            values.put("rating", cache.getRating());
-            values.put("votes", cache.getVotes());
-            values.put("myvote", cache.getMyVote());
-            values.put("disabled", cache.isDisabled() ? 1 : 0);
-            values.put("archived", cache.isArchived() ? 1 : 0);
-            values.put("members", cache.isPremiumMembersOnly() ? 1 : 0);
-            values.put("found", cache.isFound() ? 1 : cache.isDNF() ? -1 : 0);
-            values.put("favourite", cache.isFavorite() ? 1 : 0);
-            values.put("inventoryunknown", cache.getInventoryItems());
-            values.put("onWatchlist", cache.isOnWatchlist() ? 1 : 0);
-            values.put("coordsChanged", cache.hasUserModifiedCoords() ? 1 : 0);
-            values.put("finalDefined", cache.hasFinalDefined() ? 1 : 0);
-            values.put("logPasswordRequired", cache.isLogPasswordRequired() ? 1 : 0);
-            values.put("watchlistCount", cache.getWatchlistCount());
-            values.put("preventWaypointsFromNote", cache.isPreventWaypointsFromNote() ? 1 : 0);
-            values.put("owner_guid", cache.getOwnerGuid());
-            values.put("emoji", cache.getAssignedEmoji());
-            values.put("alcMode", cache.getAlcMode());
-            values.put("tier", cache.getTier() == null ? null : cache.getTier().getRaw());
+    private static void storeIntoDatabaseWithoutTransaction(final Geocache cache, final Map<String, Long> newContentHashes, final Map<String, Long> newUserIds, final StoreStatistics statistics) {
+        cache.addStorageLocation(StorageLocation.DATABASE);
+        cacheCache.putCacheInCache(cache);
+        Log.d("Saving " + cache + " (" + cache.getLists() + ") to DB");
 
-            init();
+        final ContentValues values = new ContentValues();
 
-            // try to update record else insert fresh..
-            database.beginTransaction();
+        if (cache.getUpdated() == 0) {
+            values.put("updated", System.currentTimeMillis());
+        } else {
+            values.put("updated", cache.getUpdated());
+        }
+        values.put("reason", StoredList.STANDARD_LIST_ID);
+        values.put("detailed", cache.isDetailed() ? 1 : 0);
+        values.put("detailedupdate", cache.getDetailedUpdate());
+        values.put("visiteddate", cache.getVisitedDate());
+        values.put("geocode", cache.getGeocode());
+        values.put("cacheid", cache.getCacheId());
+        values.put("guid", cache.getGuid());
+        values.put("type", cache.getType().id);
+        values.put("name", cache.getName());
+        values.put("owner", cache.getOwnerDisplayName());
+        values.put("owner_real", cache.getOwnerUserId());
+        final Date hiddenDate = cache.getHiddenDate();
+        if (hiddenDate == null) {
+            values.put("hidden", 0);
+        } else {
+            values.put("hidden", hiddenDate.getTime());
+        }
+        putText(values, "hint", cache.getHint());
+        values.put("size", cache.getSize().id);
+        values.put("difficulty", cache.getDifficulty());
+        values.put("terrain", cache.getTerrain());
+        values.put("location", cache.getLocation());
+        values.put("distance", cache.getDistance());
+        values.put("direction", cache.getDirection());
+        putCoords(values, cache.getCoords());
+        values.put("reliable_latlon", 0);          // Todo: refactor - remove column
+        putText(values, "shortdesc", cache.getShortDescription());
+        values.put("personal_note", cache.getPersonalNote());
+        putText(values, "description", cache.getDescription());
+        values.put("favourite_cnt", cache.getFavoritePoints());
+        values.put("rating", cache.getRating());
+        values.put("votes", cache.getVotes());
+        values.put("myvote", cache.getMyVote());
+        values.put("disabled", cache.isDisabled() ? 1 : 0);
+        values.put("archived", cache.isArchived() ? 1 : 0);
+        values.put("members", cache.isPremiumMembersOnly() ? 1 : 0);
+        values.put("found", cache.isFound() ? 1 : cache.isDNF() ? -1 : 0);
+        values.put("favourite", cache.isFavorite() ? 1 : 0);
+        values.put("inventoryunknown", cache.getInventoryItems());
+        values.put("onWatchlist", cache.isOnWatchlist() ? 1 : 0);
+        values.put("coordsChanged", cache.hasUserModifiedCoords() ? 1 : 0);
+        values.put("finalDefined", cache.hasFinalDefined() ? 1 : 0);
+        values.put("logPasswordRequired", cache.isLogPasswordRequired() ? 1 : 0);
+        values.put("watchlistCount", cache.getWatchlistCount());
+        values.put("preventWaypointsFromNote", cache.isPreventWaypointsFromNote() ? 1 : 0);
+        values.put("owner_guid", cache.getOwnerGuid());
+        values.put("owner_id", users.getId(database, cache.getOwnerUserId(), cache.getOwnerGuid(), newUserIds));
+        values.put("emoji", cache.getAssignedEmoji());
+        values.put("alcMode", cache.getAlcMode());
+        values.put("tier", cache.getTier() == null ? null : cache.getTier().getRaw());
+
+        // child tables which are rewritten completely are skipped if their content did not change since it was last written
+        final String geocode = cache.getGeocode();
+        if (isContentChanged(geocode, dbTableAttributes, hashAttributes(cache), newContentHashes)) {
+            statistics.add(dbTableAttributes, saveAttributesWithoutTransaction(cache));
+        } else {
+            statistics.skip(dbTableAttributes);
+        }
+        if (isContentChanged(geocode, dbTableCategories, hashCategories(cache), newContentHashes)) {
+            statistics.add(dbTableCategories, saveCategoriesWithoutTransaction(cache));
+        } else {
+            statistics.skip(dbTableCategories);
+        }
+        statistics.add(dbTableWaypoints, saveWaypointsWithoutTransaction(cache));
+        if (!cache.hasSpoilersSet()) {
+            statistics.skip(dbTableSpoilers);
+        } else if (isContentChanged(geocode, dbTableSpoilers, hashSpoilers(cache), newContentHashes)) {
+            statistics.add(dbTableSpoilers, saveSpoilersWithoutTransaction(cache));
+        } else {
+            statistics.skip(dbTableSpoilers);
+        }
+        if (isContentChanged(geocode, dbTableLogCount, hashLogCounts(cache), newContentHashes)) {
+            statistics.add(dbTableLogCount, saveLogCountsWithoutTransaction(cache));
+        } else {
+            statistics.skip(dbTableLogCount);
+        }
+        statistics.add(dbTableTrackables, saveInventoryWithoutTransaction(geocode, cache.getInventory(), newUserIds));
+        statistics.add(dbTableCachesLists, saveListsWithoutTransaction(cache));
 
-            try {
-                saveAttributesWithoutTransaction(cache);
-                saveCategoriesWithoutTransaction(cache);
-                saveWaypointsWithoutTransaction(cache);
-                saveSpoilersWithoutTransaction(cache);
-                saveLogCountsWithoutTransaction(cache);
-                saveInventoryWithoutTransaction(cache.getGeocode(), cache.getInventory());
-                saveListsWithoutTransaction(cache);
-
-                final int rows = database.update(dbTableCaches, values, "geocode = ?", new String[]{cache.getGeocode()});
-                if (rows == 0) {
-                    // cache is not in the DB, insert it
-                    /* long id = */
-                    database.insert(dbTableCaches, null, values);
+        // try to update record else insert fresh..
+        final int rows = database.update(dbTableCaches, values, "geocode = ?", new String[]{geocode});
+        if (rows == 0) {
+            // cache is not in the DB, insert it
+            database.insert(dbTableCaches, null, values);
+        }
+        statistics.add(dbTableCaches, 1);
+    }
+
+    /**
+     * checks whether the content of a child table for a cache differs from the content last written to the database (or is unknown).
+     * The new hash is remembered in newContentHashes.
+     */
+    private static boolean isContentChanged(final String geocode, final String table, final long hash, final Map<String, Long> newContentHashes) {
+        final String key = table + "|" + geocode;
+        newContentHashes.put(key, hash);
+        final Long oldHash = contentHashes.get(key);
+        return oldHash == null || oldHash != hash;
+    }
+
+    /** forgets the content hashes of the given caches (null: of all caches), after their child tables were changed elsewhere */
+    private static void invalidateContentHashes(@Nullable final Collection<String> geocodes) {
+        if (geocodes == null) {
+            contentHashes.clear();
+            return;
+        }
+        synchronized (contentHashes) {
+            final Set<String> codes = new HashSet<>(geocodes);
+            final Iterator<String> it = contentHashes.keySet().iterator();
+            while (it.hasNext()) {
+                if (codes.contains(StringUtils.substringAfter(it.next(), "|"))) {
+                    it.remove();
                 }
-                database.setTransactionSuccessful();
-                return true;
-            } catch (final Exception e) {
-                Log.e("SaveCache", e);
-            } finally {
-                database.endTransaction();
             }
+        }
+    }
 
-            return false;
-        });
+    private static long hashAttributes(final Geocache cache) {
+        final Hash64 hash = new Hash64();
+        for (final String attribute : cache.getAttributes()) {
+            hash.append(attribute);
+        }
+        return hash.build();
+    }
+
+    private static long hashCategories(final Geocache cache) {
+        final List<String> categories = new ArrayList<>();
+        for (final Category category : cache.getCategories()) {
+            if (category != null) {
+                categories.add(category.getRaw());
+            }
+        }
+        Collections.sort(categories);
+        final Hash64 hash = new Hash64();
+        for (final String category : categories) {
+            hash.append(category);
+        }
+        return hash.build();
+    }
+
+    private static long hashSpoilers(final Geocache cache) {
+        final Hash64 hash = new Hash64();
+        for (final Image spoiler : cache.getSpoilers()) {
+            hash.append(spoiler.getUrl()).append(StringUtils.defaultIfBlank(spoiler.title, "")).append(StringUtils.trimToNull(spoiler.getDescription()));
+        }
+        return hash.build();
+    }
+
+    private static long hashLogCounts(final Geocache cache) {
+        final Hash64 hash = new Hash64();
+        final Map<LogType, Integer> logCounts = cache.getLogCounts();
+        if (MapUtils.isNotEmpty(logCounts)) {
+            final List<LogType> types = new ArrayList<>(logCounts.keySet());
+            Collections.sort(types, (t1, t2) -> Integer.compare(t1.id, t2.id));
+            for (final LogType type : types) {
+                hash.append(type.id).append(logCounts.get(type));
+            }
+        }
+        return hash.build();
     }
 
-    private static void saveAttributesWithoutTransaction(final Geocache cache) {
+    /** @return number of rows written */
+    private static int saveAttributesWithoutTransaction(final Geocache cache) {
         final String geocode = cache.getGeocode();
 
         // The attributes must be fetched first because lazy loading may load
@@ -2456,7 +3118,7 @@ public class DataStore {
         database.delete(dbTableAttributes, "geocode = ?", new String[]{geocode});
 
         if (attributes.isEmpty()) {
-            return;
+            return 0;
         }
         final SQLiteStatement statement = PreparedStatement.INSERT_ATTRIBUTE.getStatement();
         final long timestamp = System.currentTimeMillis();
@@ -2467,9 +3129,11 @@ public class DataStore {
 
             statement.executeInsert();
         }
+        return attributes.size();
     }
 
-    private static void saveCategoriesWithoutTransaction(final Geocache cache) {
+    /** @return number of rows written */
+    private static int saveCategoriesWithoutTransaction(final Geocache cache) {
         final String geocode = cache.getGeocode();
 
         // The attributes must be fetched first because lazy loading may load
@@ -2478,9 +3142,10 @@ public class DataStore {
         database.delete(dbTableCategories, "geocode = ?", new String[]{geocode});
 
         if (categories.isEmpty()) {
-            return;
+            return 0;
         }
         final SQLiteStatement statement = PreparedStatement.INSERT_CATEGORY.getStatement();
+        int rows = 0;
         for (final Category category : categories) {
             if (category == null) {
                 continue;
@@ -2489,11 +3154,14 @@ public class DataStore {
             statement.bindString(2, category.getRaw());
 
             statement.executeInsert();
+            rows++;
         }
+        return rows;
     }
 
 
-    private static void saveListsWithoutTransaction(final Geocache cache) {
+    /** @return number of rows written */
+    private static int saveListsWithoutTransaction(final Geocache cache) {
         final String geocode = cache.getGeocode();
 
         // The lists must be fetched first because lazy loading may load
@@ -2501,7 +3169,7 @@ public class DataStore {
         final Set<Integer> lists = cache.getLists();
 
         if (lists.isEmpty()) {
-            return;
+            return 0;
         }
         final SQLiteStatement statement = PreparedStatement.ADD_TO_LIST.getStatement();
         for (final Integer listId : lists) {
@@ -2509,6 +3177,7 @@ public class DataStore {
             statement.bindString(2, geocode);
             statement.executeInsert();
         }
+        return lists.size();
     }
 
     /**
@@ -2556,26 +3225,29 @@ public class DataStore {
         });
     }
 
-    private static void saveWaypointsWithoutTransaction(final Geocache cache) {
+    /** @return number of rows written */
+    private static int saveWaypointsWithoutTransaction(final Geocache cache) {
         final String geocode = cache.getGeocode();
 
         final List<Waypoint> waypoints = cache.getWaypoints();
-        if (CollectionUtils.isNotEmpty(waypoints)) {
-            final List<String> currentWaypointIds = new ArrayList<>();
-            for (final Waypoint waypoint : waypoints) {
-                final ContentValues values = createWaypointValues(geocode, waypoint);
+        if (CollectionUtils.isEmpty(waypoints)) {
+            return 0;
+        }
+        final List<String> currentWaypointIds = new ArrayList<>();
+        for (final Waypoint waypoint : waypoints) {
+            final ContentValues values = createWaypointValues(geocode, waypoint);
 
-                if (waypoint.isNewWaypoint()) {
-                    final long rowId = database.insert(dbTableWaypoints, null, values);
-                    waypoint.setId((int) rowId);
-                } else {
-                    database.update(dbTableWaypoints, values, "_id = ?", new String[]{Integer.toString(waypoint.getId(), 10)});
-                }
-                currentWaypointIds.add(Integer.toString(waypoint.getId()));
+            if (waypoint.isNewWaypoint()) {
+                final long rowId = database.insert(dbTableWaypoints, null, values);
+                waypoint.setId((int) rowId);
+            } else {
+                database.update(dbTableWaypoints, values, "_id = ?", new String[]{Integer.toString(waypoint.getId(), 10)});
             }
-
-            removeOutdatedWaypointsOfCache(cache, currentWaypointIds);
+            currentWaypointIds.add(Integer.toString(waypoint.getId()));
         }
+
+        removeOutdatedWaypointsOfCache(cache, currentWaypointIds);
+        return waypoints.size();
     }
 
     /**
@@ -2599,6 +3271,58 @@ public class DataStore {
         values.put("longitude", coords == null ? null : coords.getLongitude());
     }
 
+    /**
+     * Put a large text into a ContentValues, compressed if enabled in settings and worth it
+     *
+     * @see TextCompression
+     */
+    private static void putText(final ContentValues values, final String column, @Nullable final String text) {
+        final byte[] compressed = Settings.getDbTextCompression() ? TextCompression.compress(text) : null;
+        if (compressed != null) {
+            values.put(column, compressed);
+        } else {
+            values.put(column, text);
+        }
+    }
+
+    /**
+     * Bind a large text to a statement, compressed if enabled in settings and worth it
+     *
+     * @see TextCompression
+     */
+    private static void bindText(final SQLiteStatement statement, final int index, @Nullable final String text) {
+        final byte[] compressed = Settings.getDbTextCompression() ? TextCompression.compress(text) : null;
+        if (compressed != null) {
+            statement.bindBlob(index, compressed);
+        } else if (text == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, text);
+        }
+    }
+
+    /**
+     * Retrieve a large text from a Cursor, which may be stored compressed
+     *
+     * @return the text, or null if the column is null or its content can't be decompressed
+     */
+    @Nullable
+    private static String getText(final Cursor cursor, final int index) {
+        if (cursor.getType(index) != Cursor.FIELD_TYPE_BLOB) {
+            return cursor.getString(index);
+        }
+        final byte[] value = cursor.getBlob(index);
+        if (!TextCompression.isCompressed(value)) {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+        try {
+            return TextCompression.decompress(value);
+        } catch (final IllegalArgumentException e) {
+            Log.e("DataStore.getText: can't decompress text", e);
+            return null;
+        }
+    }
+
     /**
      * Retrieve coordinates from a Cursor
      *
@@ -2676,7 +3400,8 @@ public class DataStore {
         });
     }
 
-    private static void saveSpoilersWithoutTransaction(final Geocache cache) {
+    /** @return number of rows written */
+    private static int saveSpoilersWithoutTransaction(final Geocache cache) {
         if (cache.hasSpoilersSet()) {
             final String geocode = cache.getGeocode();
             final SQLiteStatement remove = PreparedStatement.REMOVE_SPOILERS.getStatement();
@@ -2698,23 +3423,27 @@ public class DataStore {
                 }
                 insertSpoiler.executeInsert();
             }
+            return cache.getSpoilers().size();
         }
+        return 0;
     }
 
     public static void saveLogs(final String geocode, final Iterable<LogEntry> logs, final boolean removeAllExistingLogs) {
         withAccessLock(() -> {
 
+            final Map<String, Long> newUserIds = new HashMap<>();
             database.beginTransaction();
             try {
-                saveLogsWithoutTransaction(geocode, logs, removeAllExistingLogs);
+                saveLogsWithoutTransaction(geocode, logs, removeAllExistingLogs, newUserIds);
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            users.putIds(newUserIds);
         });
     }
 
-    private static void saveLogsWithoutTransaction(final String geocode, final Iterable<LogEntry> logs, final boolean removeAllExistingLogs) {
+    private static void saveLogsWithoutTransaction(final String geocode, final Iterable<LogEntry> logs, final boolean removeAllExistingLogs, final Map<String, Long> newUserIds) {
         try (ContextLogger cLog = new ContextLogger("DataStore.saveLogsWithoutTransaction(%s)", geocode)) {
             if (!logs.iterator().hasNext()) {
                 return;
@@ -2754,10 +3483,16 @@ public class DataStore {
                 insertLog.bindLong(4, log.logType.id);
                 insertLog.bindString(5, log.author);
                 insertLog.bindString(6, log.authorGuid);
-                insertLog.bindString(7, log.log);
+                bindText(insertLog, 7, log.log);
                 insertLog.bindLong(8, log.date);
                 insertLog.bindLong(9, log.found);
                 insertLog.bindLong(10, log.friend ? 1 : 0);
+                final Long authorId = users.getId(database, log.author, log.authorGuid, newUserIds);
+                if (authorId == null) {
+                    insertLog.bindNull(11);
+                } else {
+                    insertLog.bindLong(11, authorId);
+                }
                 final long logId = insertLog.executeInsert();
                 if (log.hasLogImages()) {
                     final SQLiteStatement insertImage = PreparedStatement.INSERT_LOG_IMAGE.getStatement();
@@ -2780,24 +3515,27 @@ public class DataStore {
         }
     }
 
-    private static void saveLogCountsWithoutTransaction(final Geocache cache) {
+    /** @return number of rows written */
+    private static int saveLogCountsWithoutTransaction(final Geocache cache) {
         final String geocode = cache.getGeocode();
         database.delete(dbTableLogCount, "geocode = ?", new String[]{geocode});
 
         final Map<LogType, Integer> logCounts = cache.getLogCounts();
-        if (MapUtils.isNotEmpty(logCounts)) {
-            final Set<Entry<LogType, Integer>> logCountsItems = logCounts.entrySet();
-            final SQLiteStatement insertLogCounts = PreparedStatement.INSERT_LOG_COUNTS.getStatement();
-            final long timestamp = System.currentTimeMillis();
-            for (final Entry<LogType, Integer> pair : logCountsItems) {
-                insertLogCounts.bindString(1, geocode);
-                insertLogCounts.bindLong(2, timestamp);
-                insertLogCounts.bindLong(3, pair.getKey().id);
-                insertLogCounts.bindLong(4, pair.getValue());
+        if (MapUtils.isEmpty(logCounts)) {
+            return 0;
+        }
+        final Set<Entry<LogType, Integer>> logCountsItems = logCounts.entrySet();
+        final SQLiteStatement insertLogCounts = PreparedStatement.INSERT_LOG_COUNTS.getStatement();
+        final long timestamp = System.currentTimeMillis();
+        for (final Entry<LogType, Integer> pair : logCountsItems) {
+            insertLogCounts.bindString(1, geocode);
+            insertLogCounts.bindLong(2, timestamp);
+            insertLogCounts.bindLong(3, pair.getKey().id);
+            insertLogCounts.bindLong(4, pair.getValue());
 
-                insertLogCounts.executeInsert();
-            }
+            insertLogCounts.executeInsert();
         }
+        return logCounts.size();
     }
 
     public static void saveTrackable(final Trackable trackable) {
@@ -2805,17 +3543,20 @@ public class DataStore {
 
             init();
 
+            final Map<String, Long> newUserIds = new HashMap<>();
             database.beginTransaction();
             try {
-                saveInventoryWithoutTransaction(null, Collections.singletonList(trackable));
+                saveInventoryWithoutTransaction(null, Collections.singletonList(trackable), newUserIds);
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            users.putIds(newUserIds);
         });
     }
 
-    private static void saveInventoryWithoutTransaction(final String geocode, final List<Trackable> trackables) {
+    /** @return number of rows written */
+    private static int saveInventoryWithoutTransaction(final String geocode, final List<Trackable> trackables, final Map<String, Long> newUserIds) {
         if (geocode != null) {
             database.delete(dbTableTrackables, "geocode = ?", new String[]{geocode});
         }
@@ -2837,6 +3578,7 @@ public class DataStore {
                 values.put("guid", trackable.getGuid());
                 values.put("title", trackable.getName());
                 values.put("owner", trackable.getOwner());
+                values.put("owner_id", users.getId(database, trackable.getOwner(), null, newUserIds));
                 final Date releasedDate = trackable.getReleased();
                 if (releasedDate != null) {
                     values.put("released", releasedDate.getTime());
@@ -2862,9 +3604,11 @@ public class DataStore {
 
                 database.insert(dbTableTrackables, null, values);
 
-                saveLogsWithoutTransaction(tbCode, trackable.getLogs(), true);
+                saveLogsWithoutTransaction(tbCode, trackable.getLogs(), true, newUserIds);
             }
+            return trackables.size();
         }
+        return 0;
     }
 
     @Nullable
@@ -3020,78 +3764,79 @@ public class DataStore {
                 query.append(" LEFT OUTER JOIN ").append(dbTableLogsOffline).append(" ON ( ").append(dbTableCaches).append(".geocode == ").append(dbTableLogsOffline).append(".geocode) ");
             }
 
-            query.append(" WHERE ").append(dbTableCaches).append('.');
-            query.append(whereGeocodeIn(geocodes));
+            query.append(" WHERE ");
 
-            try (Cursor cursor = database.rawQuery(query.toString(), null)) {
-                final Set<Geocache> caches = new HashSet<>();
-                int logIndex = -1;
+            final Set<Geocache> caches = new HashSet<>();
+            for (final String[] args : geocodeInArgs(geocodes)) {
+                try (Cursor cursor = measuredQuery(query + SqlBuilder.createInExpression(dbTableCaches + ".geocode", args.length), args)) {
+                    int logIndex = -1;
 
-                while (cursor.moveToNext()) {
-                    final Geocache cache = createCacheFromDatabaseContent(cursor);
-
-                    if (loadFlags.contains(LoadFlag.ATTRIBUTES)) {
-                        cache.setAttributes(loadAttributes(cache.getGeocode()));
-                    }
+                    while (cursor.moveToNext()) {
+                        final Geocache cache = createCacheFromDatabaseContent(cursor);
 
-                    if (loadFlags.contains(LoadFlag.WAYPOINTS)) {
-                        final List<Waypoint> waypoints = loadWaypoints(cache.getGeocode());
-                        if (CollectionUtils.isNotEmpty(waypoints)) {
-                            cache.setWaypoints(waypoints, false);
+                        if (loadFlags.contains(LoadFlag.ATTRIBUTES)) {
+                            cache.setAttributes(loadAttributes(cache.getGeocode()));
                         }
-                    }
 
-                    if (loadFlags.contains(LoadFlag.SPOILERS)) {
-                        final List<Image> spoilers = loadSpoilers(cache.getGeocode());
-                        cache.setSpoilers(spoilers);
-                    }
+                        if (loadFlags.contains(LoadFlag.WAYPOINTS)) {
+                            final List<Waypoint> waypoints = loadWaypoints(cache.getGeocode());
+                            if (CollectionUtils.isNotEmpty(waypoints)) {
+                                cache.setWaypoints(waypoints, false);
+                            }
+                        }
 
-                    if (loadFlags.contains(LoadFlag.LOGS)) {
-                        final Map<LogType, Integer> logCounts = loadLogCounts(cache.getGeocode());
-                        if (MapUtils.isNotEmpty(logCounts)) {
-                            cache.getLogCounts().clear();
-                            cache.getLogCounts().putAll(logCounts);
+                        if (loadFlags.contains(LoadFlag.SPOILERS)) {
+                            final List<Image> spoilers = loadSpoilers(cache.getGeocode());
+                            cache.setSpoilers(spoilers);
                         }
-                    }
 
-                    if (loadFlags.contains(LoadFlag.INVENTORY)) {
-                        final List<Trackable> inventory = loadInventory(cache.getGeocode());
-                        if (CollectionUtils.isNotEmpty(inventory)) {
-                            cache.setInventory(inventory);
+                        if (loadFlags.contains(LoadFlag.LOGS)) {
+                            final Map<LogType, Integer> logCounts = loadLogCounts(cache.getGeocode());
+                            if (MapUtils.isNotEmpty(logCounts)) {
+                                cache.getLogCounts().clear();
+                                cache.getLogCounts().putAll(logCounts);
+                            }
                         }
-                    }
 
-                    if (loadFlags.contains(LoadFlag.CATEGORIES)) {
-                        final List<Category> categories = loadCategories(cache.getGeocode());
-                        if (CollectionUtils.isNotEmpty(categories)) {
-                            cache.setCategories(categories);
+                        if (loadFlags.contains(LoadFlag.INVENTORY)) {
+                            final List<Trackable> inventory = loadInventory(cache.getGeocode());
+                            if (CollectionUtils.isNotEmpty(inventory)) {
+                                cache.setInventory(inventory);
+                            }
                         }
-                    }
 
-                    if (loadFlags.contains(LoadFlag.OFFLINE_LOG)) {
-                        if (logIndex < 0) {
-                            logIndex = cursor.getColumnIndex("log");
+                        if (loadFlags.contains(LoadFlag.CATEGORIES)) {
+                            final List<Category> categories = loadCategories(cache.getGeocode());
+                            if (CollectionUtils.isNotEmpty(categories)) {
+                                cache.setCategories(categories);
+                            }
                         }
-                        if (logIndex >= 0) {
-                            cache.setHasLogOffline(!cursor.isNull(logIndex));
+
+                        if (loadFlags.contains(LoadFlag.OFFLINE_LOG)) {
+                            if (logIndex < 0) {
+                                logIndex = cursor.getColumnIndex("log");
+                            }
+                            if (logIndex >= 0) {
+                                cache.setHasLogOffline(!cursor.isNull(logIndex));
+                            }
                         }
-                    }
-                    cache.addStorageLocation(StorageLocation.DATABASE);
-                    cacheCache.putCacheInCache(cache);
+                        cache.addStorageLocation(StorageLocation.DATABASE);
+                        cacheCache.putCacheInCache(cache);
 
-                    caches.add(cache);
+                        caches.add(cache);
+                    }
                 }
+            }
 
-                final Map<String, Set<Integer>> cacheLists = loadLists(geocodes);
-                for (final Geocache geocache : caches) {
-                    final Set<Integer> listIds = cacheLists.get(geocache.getGeocode());
-                    if (listIds != null) {
-                        geocache.setLists(listIds);
-                    }
+            final Map<String, Set<Integer>> cacheLists = loadLists(geocodes);
+            for (final Geocache geocache : caches) {
+                final Set<Integer> listIds = cacheLists.get(geocache.getGeocode());
+                if (listIds != null) {
+                    geocache.setLists(listIds);
                 }
-                cLog.addReturnValue("#" + caches.size());
-                return caches;
             }
+            cLog.addReturnValue("#" + caches.size());
+            return caches;
         }
     }
 
@@ -3238,22 +3983,24 @@ public class DataStore {
 
             final Map<String, Set<Integer>> cacheLists = new HashMap<>();
 
-            final String query = "SELECT list_id, geocode FROM " + dbTableCachesLists +
-                    " WHERE " +
-                    whereGeocodeIn(geocodes);
+            for (final String[] args : geocodeInArgs(geocodes)) {
+                final String query = "SELECT list_id, geocode FROM " + dbTableCachesLists +
+                        " WHERE " +
+                        SqlBuilder.createInExpression("geocode", args.length);
 
-            try (Cursor cursor = database.rawQuery(query, null)) {
-                while (cursor.moveToNext()) {
-                    final Integer listId = cursor.getInt(0);
-                    final String geocode = cursor.getString(1);
+                try (Cursor cursor = measuredQuery(query, args)) {
+                    while (cursor.moveToNext()) {
+                        final Integer listId = cursor.getInt(0);
+                        final String geocode = cursor.getString(1);
 
-                    Set<Integer> listIds = cacheLists.get(geocode);
-                    if (listIds != null) {
-                        listIds.add(listId);
-                    } else {
-                        listIds = new HashSet<>();
-                        listIds.add(listId);
-                        cacheLists.put(geocode, listIds);
+                        Set<Integer> listIds = cacheLists.get(geocode);
+                        if (listIds != null) {
+                            listIds.add(listId);
+                        } else {
+                            listIds = new HashSet<>();
+                            listIds.add(listId);
+                            cacheLists.put(geocode, listIds);
+                        }
                     }
                 }
             }
@@ -3650,43 +4397,93 @@ public class DataStore {
 
 
     /**
+     * Loads the newest logs of a cache (or trackable), at most {@link #MAX_LOADED_LOGS}.
+     * Use {@link #loadLogsPage(String, Collection, String, boolean, LogEntry, int)} to access all logs.
+     *
      * @return an immutable, non null list of logs
      */
     @NonNull
     public static List<LogEntry> loadLogs(final String geocode) {
+        return loadLogsPage(geocode, null, null, false, null, MAX_LOADED_LOGS);
+    }
+
+    /**
+     * Loads one page of logs of a cache (or trackable), ordered by date descending, then by id.
+     * Filtering and paging are done in SQL, using the position of the last log of the previous page as key (keyset pagination),
+     * so the cost of loading a page does not depend on the number of logs before it.
+     *
+     * @param logTypes    if not empty, only logs of these types are loaded
+     * @param author      if not blank, only logs of this author are loaded
+     * @param friendsOnly if {@code true}, only logs of friends are loaded
+     * @param after       last log of the previous page, {@code null} for the first page
+     * @param limit       maximum number of logs to load
+     * @return an immutable, non null list of logs
+     */
+    @NonNull
+    public static List<LogEntry> loadLogsPage(final String geocode, @Nullable final Collection<LogType> logTypes, @Nullable final String author,
+                                              final boolean friendsOnly, @Nullable final LogEntry after, final int limit) {
         return withAccessLock(() -> {
 
-            try (ContextLogger cLog = new ContextLogger("DataStore.loadLogs(%s)", geocode)) {
+            try (ContextLogger cLog = new ContextLogger("DataStore.loadLogsPage(%s)", geocode)) {
                 final List<LogEntry> logs = new ArrayList<>();
 
-                if (StringUtils.isBlank(geocode)) {
+                if (StringUtils.isBlank(geocode) || limit <= 0) {
                     return logs;
                 }
 
                 init();
 
-                final Cursor cursor = database.rawQuery(
-                        //                     0           1               2     3       4            5    6     7      8                                       9                10      11     12   13           14
-                        "SELECT cg_logs._id AS cg_logs_id, service_log_id, type, author, author_guid, log, date, found, friend, " + dbTableLogImages + "._id as cg_logImages_id, log_id, title, url, description, service_image_id"
-                                + " FROM " + dbTableLogs + " LEFT OUTER JOIN " + dbTableLogImages
-                                + " ON ( cg_logs._id = log_id ) WHERE geocode = ?  ORDER BY date DESC, cg_logs._id ASC", new String[]{geocode});
+                final StringBuilder where = new StringBuilder("geocode = ?");
+                final List<String> args = new ArrayList<>();
+                args.add(geocode);
+                if (after != null) {
+                    where.append(" AND (date < ? OR (date = ? AND _id > ?))");
+                    args.add(String.valueOf(after.date));
+                    args.add(String.valueOf(after.date));
+                    args.add(String.valueOf(after.id));
+                }
+                if (CollectionUtils.isNotEmpty(logTypes)) {
+                    final List<Integer> typeIds = new ArrayList<>();
+                    for (final LogType logType : logTypes) {
+                        typeIds.add(logType.id);
+                    }
+                    where.append(" AND type IN (").append(StringUtils.join(typeIds, ',')).append(")");
+                }
+                if (StringUtils.isNotBlank(author)) {
+                    where.append(" AND author_id IN (SELECT _id FROM " + dbTableUsers + " WHERE name = ?)");
+                    args.add(author);
+                }
+                if (friendsOnly) {
+                    where.append(" AND friend = 1");
+                }
+
+                // the page is selected first (using index in_logs_geo), only then the authors and images of its logs are joined
+                final Cursor cursor = measuredQuery(
+                        //                     0           1               2     3          4        5    6     7      8                                       9                10      11     12   13           14                15
+                        "SELECT cg_logs._id AS cg_logs_id, service_log_id, type, author_id, u.name, log, date, found, friend, " + dbTableLogImages + "._id as cg_logImages_id, log_id, title, url, description, service_image_id, u.guid"
+                                + " FROM (SELECT _id, service_log_id, type, author_id, log, date, found, friend FROM " + dbTableLogs
+                                + " WHERE " + where + " ORDER BY date DESC, _id ASC LIMIT " + limit + ") AS cg_logs LEFT OUTER JOIN " + dbTableUsers + " u ON (u._id = author_id)"
+                                + " LEFT OUTER JOIN " + dbTableLogImages
+                                + " ON ( cg_logs._id = log_id ) ORDER BY date DESC, cg_logs._id ASC", args.toArray(new String[0]));
 
                 LogEntry.Builder log = null;
                 int cnt = 0;
-                while (cursor.moveToNext() && logs.size() < 100) {
+                while (cursor.moveToNext()) {
                     cnt++;
                     if (log == null || log.getId() != cursor.getInt(0)) {
                         // Start of a new log entry group (we may have several entries if the log has several images).
                         if (log != null) {
                             logs.add(log.build());
                         }
+                        // the same author instances are used for all logs of a user
+                        final UserDictionary.User logAuthor = users.get(cursor, 3, 4, 15);
                         log = new LogEntry.Builder()
                                 .setId(cursor.getInt(0))
                                 .setServiceLogId(cursor.getString(1))
                                 .setLogType(LogType.getById(cursor.getInt(2)))
-                                .setAuthor(cursor.getString(3))
-                                .setAuthorGuid(cursor.getString(4))
-                                .setLog(cursor.getString(5))
+                                .setAuthor(logAuthor == null ? "" : logAuthor.name)
+                                .setAuthorGuid(logAuthor == null ? "" : logAuthor.guid)
+                                .setLog(getText(cursor, 5))
                                 .setDate(cursor.getLong(6))
                                 .setFound(cursor.getInt(7))
                                 .setFriend(cursor.getInt(8) == 1);
@@ -3756,7 +4553,7 @@ public class DataStore {
 
         final Cursor cursor = database.query(
                 dbTableTrackables,
-                new String[]{"_id", "updated", "tbcode", "guid", "title", "owner", "released", "goal", "description", "log_date", "log_type", "log_guid"},
+                new String[]{"_id", "updated", "tbcode", "guid", "title", "owner", "owner_id", "released", "goal", "description", "log_date", "log_type", "log_guid"},
                 "geocode = ?",
                 new String[]{geocode},
                 null,
@@ -3786,7 +4583,7 @@ public class DataStore {
 
             final Cursor cursor = database.query(
                     dbTableTrackables,
-                    new String[]{"updated", "tbcode", "guid", "title", "owner", "released", "goal", "description"},
+                    new String[]{"updated", "tbcode", "guid", "title", "owner", "owner_id", "released", "goal", "description"},
                     "tbcode = ?",
                     new String[]{geocode},
                     null,
@@ -3809,7 +4606,9 @@ public class DataStore {
             trackable.setGeocode(cursor.getString(cursor.getColumnIndexOrThrow("tbcode")));
             trackable.setGuid(cursor.getString(cursor.getColumnIndexOrThrow("guid")));
             trackable.setName(cursor.getString(cursor.getColumnIndexOrThrow("title")));
-            trackable.setOwner(cursor.getString(cursor.getColumnIndexOrThrow("owner")));
+            final int ownerIdIndex = cursor.getColumnIndexOrThrow("owner_id");
+            final UserDictionary.User owner = cursor.isNull(ownerIdIndex) ? null : users.get(database, cursor.getLong(ownerIdIndex));
+            trackable.setOwner(owner == null ? cursor.getString(cursor.getColumnIndexOrThrow("owner")) : owner.name);
             trackable.setReleased(getDate(cursor, "released"));
             trackable.setGoal(cursor.getString(cursor.getColumnIndexOrThrow("goal")));
             trackable.setDetails(cursor.getString(cursor.getColumnIndexOrThrow("description")));
@@ -3913,7 +4712,7 @@ public class DataStore {
                                                                       final Func1<? super Cursor, ? extends T> func) {
         return withAccessLock(() -> {
             init();
-            final Cursor cursor = database.query(table, columns, selection, selectionArgs, null, null, orderBy, limit);
+            final Cursor cursor = measuredQuery(table, columns, selection, selectionArgs, null, null, orderBy, limit);
             return cursorToColl(cursor, result, func);
         });
     }
@@ -3949,8 +4748,12 @@ public class DataStore {
                 sqlBuilder.addWhere(" ( visiteddate > 0 OR geocode IN (SELECT geocode FROM " + dbTableLogsOffline + ") )");
             } else if (listId > 0) {
                 final String clId = sqlBuilder.getNewTableId();
-                sqlBuilder.addWhere(sqlBuilder.getMainTableId() + ".geocode IN (SELECT " + clId + ".geocode FROM " + dbTableCachesLists + " " + clId + " WHERE list_id " +
-                        (listId != PseudoList.ALL_LIST.id ? "=" + Math.max(listId, 1) : ">= " + StoredList.STANDARD_LIST_ID) + ")");
+                final String listQuery = sqlBuilder.getMainTableId() + ".geocode IN (SELECT " + clId + ".geocode FROM " + dbTableCachesLists + " " + clId + " WHERE list_id ";
+                if (listId != PseudoList.ALL_LIST.id) {
+                    sqlBuilder.addWhere(listQuery + "= ?)", String.valueOf(Math.max(listId, 1)));
+                } else {
+                    sqlBuilder.addWhere(listQuery + ">= " + StoredList.STANDARD_LIST_ID + ")");
+                }
             }
             if (filter != null && filter.getTree() != null) {
                 filter.getTree().addToSql(sqlBuilder);
@@ -3963,7 +4766,8 @@ public class DataStore {
                 sort.addSortToSql(sqlBuilder, sortInverse);
             }
             if (coords != null) {
-                sqlBuilder.addOrder(getCoordDiffExpression(coords, null));
+                final List<String> coordArgs = new ArrayList<>();
+                sqlBuilder.addOrder(getCoordDiffExpression(coords, null, coordArgs), coordArgs);
             }
             if (limit > 0) {
                 sqlBuilder.setLimit(limit);
@@ -3972,17 +4776,22 @@ public class DataStore {
             Log.d("SQL: [" + sqlBuilder.getSql() + "]");
             cLog.add("Sel:" + sqlBuilder.getSql());
 
-            return cursorToColl(database.rawQuery(sqlBuilder.getSql(), sqlBuilder.getSqlWhereArgsArray()), new HashSet<>(), GET_STRING_0);
+            return cursorToColl(measuredQuery(sqlBuilder.getSql(), sqlBuilder.getSqlArgsArray()), new HashSet<>(), GET_STRING_0);
         } catch (final Exception e) {
             Log.e("DataStore.loadBatchOfStoredGeocodes", e);
             return Collections.emptySet();
         }
     }
 
-    public static String getCoordDiffExpression(@NonNull final Geopoint coords, @Nullable final String tableId) {
+    /**
+     * Returns an SQL expression for the (rough) difference of the coordinates of a cache to the given coordinates.
+     * The coordinates are bind parameters, their values are added to args.
+     */
+    public static String getCoordDiffExpression(@NonNull final Geopoint coords, @Nullable final String tableId, @NonNull final List<String> args) {
         final String tableExp = tableId == null ? "" : tableId + ".";
-        return "(ABS(" + tableExp + "latitude - " + String.format((Locale) null, "%.6f", coords.getLatitude()) +
-                ") + ABS(" + tableExp + "longitude - " + String.format((Locale) null, "%.6f", coords.getLongitude()) + "))";
+        args.add(String.format((Locale) null, "%.6f", coords.getLatitude()));
+        args.add(String.format((Locale) null, "%.6f", coords.getLongitude()));
+        return "(ABS(" + tableExp + "latitude - ?) + ABS(" + tableExp + "longitude - ?))";
     }
 
     public static String getSqlDistanceSquare(@Nullable final String tableId, final Geopoint latlon2) {
@@ -3990,12 +4799,44 @@ public class DataStore {
         return getSqlDistanceSquare(tableExp + "latitude", tableExp + "longitude", latlon2);
     }
 
+    /**
+     * like {@link #getSqlDistanceSquare(String, Geopoint)}, but with the values depending on latlon2 as bind parameters, their values are added to args.
+     * So the expression does not change with the position, e.g. when sorting by distance while moving.
+     */
+    public static String getSqlDistanceSquare(@Nullable final String tableId, final Geopoint latlon2, @NonNull final List<String> args) {
+        final String tableExp = tableId == null ? "" : tableId + ".";
+        final String[] values = getSqlDistanceSquareValues(latlon2);
+        args.add(values[0]);
+        args.add(values[1]);
+        args.add(values[1]);
+        args.add(values[2]);
+        args.add(values[2]);
+        return getSqlDistanceSquare(tableExp + "latitude", tableExp + "longitude", "?", "?", "?");
+    }
+
     /**
      * Returns an SQL expression calculation the SQUARE (!) distance between two coordinates in meters.
      * Note that given (String) values for lat1/lon1 can be either numbers or e.g. SQL column names/expressions.
      * lat/lon2, however, must be numbers for our calculation tricks to work.... (hey, this is SQL we're talking about!)
      */
     public static String getSqlDistanceSquare(final String lat1, final String lon1, final Geopoint latlon2) {
+        final String[] values = getSqlDistanceSquareValues(latlon2);
+        return getSqlDistanceSquare(lat1, lon1, values[0], values[1], values[2]);
+    }
+
+    /**
+     * @return the values of {@link #getSqlDistanceSquare(String, String, String, String, String)} depending on latlon2: dx factor, lon2, lat2
+     */
+    private static String[] getSqlDistanceSquareValues(final Geopoint latlon2) {
+        final double lat2 = latlon2.getLatitude();
+        final double lon2 = latlon2.getLongitude();
+
+        //Unfortunately, SQLite in our version does not know functions like COS, SQRT or PI. So we have to perform some tricks...
+        final String dxExceptLon1Lon2Square = String.valueOf(Math.pow(Math.cos(lat2 * Math.PI / 180 * 0.01745) * 111.3, 2));
+        return new String[]{dxExceptLon1Lon2Square, String.valueOf(lon2), String.valueOf(lat2)};
+    }
+
+    private static String getSqlDistanceSquare(final String lat1, final String lon1, final String dxExceptLon1Lon2Square, final String lon2, final String lat2) {
         //This is SQL after all! So we have to use a simplified distance calculation here, according to: https://www.mkompf.com/gps/distcalc.html
         //distance = sqrt(dx * dx + dy * dy)
         //with distance: Distance in km
@@ -4004,11 +4845,6 @@ public class DataStore {
         //dy = 111.3 * (lat1 - lat2)
         //lat1, lat2, lon1, lon2: Latitude, Longitude in degrees (not radians!)
 
-        final double lat2 = latlon2.getLatitude();
-        final double lon2 = latlon2.getLongitude();
-
-        //Unfortunately, SQLite in our version does not know functions like COS, SQRT or PI. So we have to perform some tricks...
-        final String dxExceptLon1Lon2Square = String.valueOf(Math.pow(Math.cos(lat2 * Math.PI / 180 * 0.01745) * 111.3, 2));
         final String dyExceptLat1Lat2Square = String.valueOf(Math.pow(111.3, 2));
 
         final String dxSquare = "(" + dxExceptLon1Lon2Square + " * (" + lon1 + " - " + lon2 + ") * (" + lon1 + " - " + lon2 + "))";
@@ -4088,6 +4924,50 @@ public class DataStore {
         }
     }
 
+    /**
+     * Loads summaries (geocode, coordinates, type, size, D/T, status flags, emoji) of caches directly from the caches table,
+     * without creating {@link Geocache} objects.
+     *
+     * @param storedOnly {@code true} to load only caches stored on a list, {@code false} to load all caches in database
+     */
+    @NonNull
+    public static CacheSummaryTable loadCacheSummaries(final boolean storedOnly) {
+        return withAccessLock(() -> {
+            try (ContextLogger cLog = new ContextLogger("DataStore.loadCacheSummaries()")) {
+                init();
+                final String storedExpression = "EXISTS (SELECT 1 FROM " + dbTableCachesLists + " l WHERE l.geocode = c.geocode AND l.list_id >= " + StoredList.STANDARD_LIST_ID + ")";
+                final String query = "SELECT c.geocode, c.latitude, c.longitude, c.type, c.size, c.difficulty, c.terrain, c.found, c.disabled, c.archived,"
+                        + " c.members, c.favourite, c.onWatchlist, c.coordsChanged, c.finalDefined, c.emoji, " + storedExpression
+                        + " FROM " + dbTableCaches + " c"
+                        + (storedOnly ? " WHERE " + storedExpression : "");
+                try (Cursor cursor = measuredQuery(query, null)) {
+                    final CacheSummaryTable summaries = new CacheSummaryTable(cursor.getCount());
+                    while (cursor.moveToNext()) {
+                        final boolean hasCoords = !cursor.isNull(1) && !cursor.isNull(2);
+                        int flags = 0;
+                        flags |= cursor.getInt(7) == 1 ? CacheSummaryTable.FLAG_FOUND : 0;
+                        flags |= cursor.getInt(7) == -1 ? CacheSummaryTable.FLAG_DNF : 0;
+                        flags |= cursor.getInt(8) == 1 ? CacheSummaryTable.FLAG_DISABLED : 0;
+                        flags |= cursor.getInt(9) == 1 ? CacheSummaryTable.FLAG_ARCHIVED : 0;
+                        flags |= cursor.getInt(10) == 1 ? CacheSummaryTable.FLAG_PREMIUM : 0;
+                        flags |= cursor.getInt(11) == 1 ? CacheSummaryTable.FLAG_FAVORITE : 0;
+                        flags |= cursor.getInt(12) == 1 ? CacheSummaryTable.FLAG_WATCHLIST : 0;
+                        flags |= cursor.getInt(13) > 0 ? CacheSummaryTable.FLAG_USER_MODIFIED_COORDS : 0;
+                        flags |= cursor.getInt(14) > 0 ? CacheSummaryTable.FLAG_FINAL_DEFINED : 0;
+                        flags |= cursor.getInt(16) > 0 ? CacheSummaryTable.FLAG_STORED : 0;
+                        summaries.put(cursor.getString(0),
+                                hasCoords ? (int) Math.round(cursor.getDouble(1) * 1e6) : CacheSummaryTable.NO_COORD,
+                                hasCoords ? (int) Math.round(cursor.getDouble(2) * 1e6) : CacheSummaryTable.NO_COORD,
+                                CacheType.getById(cursor.getString(3)), CacheSize.getById(cursor.getString(4)),
+                                cursor.getFloat(5), cursor.getFloat(6), flags, cursor.getInt(15));
+                    }
+                    cLog.addReturnValue(summaries.size());
+                    return summaries;
+                }
+            }
+        });
+    }
+
     /**
      * Remove caches which are not on any list in the background. Once it has been executed once it will not do anything.
      * This must be called from the UI thread to ensure synchronization of an internal variable.
@@ -4100,6 +4980,9 @@ public class DataStore {
             }
             databaseCleaned = true;
 
+            // statistics, vacuum and cleanup of orphans left by interrupted deletes are done while the device is idle
+            DatabaseMaintenance.schedule(context);
+
             try (ContextLogger ignore = new ContextLogger(true, "DataStore.cleanIfNeeded: cleans DB")) {
                 Schedulers.io().scheduleDirect(() -> {
                     // check for UDC cleanup every time this method is called
@@ -4153,40 +5036,14 @@ public class DataStore {
     }
 
     private static void deleteOrphanedRecords() {
-        Log.d("Database clean: removing non-existing lists");
-        database.delete(dbTableCachesLists, "list_id <> " + StoredList.STANDARD_LIST_ID + " AND list_id NOT IN (SELECT _id + " + customListIdOffset + " FROM " + dbTableLists + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from attributes");
-        database.delete(dbTableAttributes, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from spoilers");
-        database.delete(dbTableSpoilers, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from lists");
-        database.delete(dbTableCachesLists, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from waypoints");
-        database.delete(dbTableWaypoints, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from variables");
-        database.delete(dbTableVariables, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from categories");
-        database.delete(dbTableCategories, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from trackables");
-        database.delete(dbTableTrackables, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing caches from logcount");
-        database.delete(dbTableLogCount, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
+        for (final String[] orphanCondition : ORPHAN_CONDITIONS) {
+            Log.d("Database clean: removing orphaned records from " + orphanCondition[0]);
+            database.delete(orphanCondition[0], orphanCondition[1], null);
+        }
 
         DBLogOfflineUtils.cleanOrphanedRecords(database);
-
-        Log.d("Database clean: removing non-existing caches from logs");
-        database.delete(dbTableLogs, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
-
-        Log.d("Database clean: removing non-existing logs from logimages");
-        database.delete(dbTableLogImages, "log_id NOT IN (SELECT _id FROM " + dbTableLogs + ")", null);
+        invalidateContentHashes(null);
+        users.clear();
 
         Log.d("Database clean: remove non-existing extension values");
         final DBExtensionType[] extensionValues = DBExtensionType.values();
@@ -4200,6 +5057,158 @@ public class DataStore {
         database.delete(dbTableExtension, "_type=" + DBEXTENSION_INVALID.id, null);
     }
 
+    /**
+     * Deletes the orphaned records among the next records (in rowid order) of one table in an own transaction, for {@link DatabaseMaintenance}.
+     * The records are addressed by a rowid range, so each call only reads its own window of the table.
+     *
+     * @param step       index of the table, from 0 to {@link #ORPHAN_CLEANUP_STEPS} - 1
+     * @param afterRowId only records with a larger rowid are checked, 0 to start with the first record
+     * @param windowSize number of records checked
+     * @return number of deleted records and the last checked rowid (to continue with), which is -1 if the end of the table was reached
+     */
+    @NonNull
+    static long[] deleteOrphanedRecordsChunk(final int step, final long afterRowId, final int windowSize) {
+        final String table = ORPHAN_CONDITIONS[step][0];
+        return withAccessLock(() -> {
+            init();
+            database.beginTransaction();
+            try {
+                final long count;
+                final long lastRowId;
+                try (Cursor cursor = database.rawQuery("SELECT COUNT(*), MAX(rowid) FROM (SELECT rowid FROM " + table + " WHERE rowid > ? ORDER BY rowid LIMIT " + windowSize + ")",
+                        new String[]{String.valueOf(afterRowId)})) {
+                    cursor.moveToFirst();
+                    count = cursor.getLong(0);
+                    lastRowId = count == 0 ? afterRowId : cursor.getLong(1);
+                }
+                final int deleted = count == 0 ? 0 : database.delete(table, "rowid > ? AND rowid <= ? AND (" + ORPHAN_CONDITIONS[step][1] + ")",
+                        new String[]{String.valueOf(afterRowId), String.valueOf(lastRowId)});
+                database.setTransactionSuccessful();
+                if (deleted > 0) {
+                    invalidateContentHashes(null);
+                    // deleted users must not be referenced by their remembered ids
+                    users.clear();
+                }
+                return new long[]{deleted, count < windowSize ? -1 : lastRowId};
+            } finally {
+                database.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * statements updating the statistics of the query planner, each group of them running only shortly, for {@link DatabaseMaintenance}
+     */
+    @NonNull
+    static List<String[]> getStatisticsStatements() {
+        return withAccessLock(() -> {
+            init();
+            final String version = DatabaseUtils.stringForQuery(database, "SELECT sqlite_version()", null);
+            final List<String[]> statements = new ArrayList<>();
+            if (isSqliteVersionAtLeast(version, 3, 32)) {
+                // only analyzes tables whose statistics are outdated, the limit is a setting of the connection running the optimize
+                statements.add(new String[]{"PRAGMA analysis_limit = 1000", "PRAGMA optimize"});
+            } else if (isSqliteVersionAtLeast(version, 3, 18)) {
+                statements.add(new String[]{"PRAGMA optimize"});
+            } else {
+                try (Cursor cursor = database.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%' AND name <> 'android_metadata'", null)) {
+                    while (cursor.moveToNext()) {
+                        statements.add(new String[]{"ANALYZE \"" + cursor.getString(0) + "\""});
+                    }
+                }
+            }
+            return statements;
+        });
+    }
+
+    /**
+     * executes a group of statements of {@link #getStatisticsStatements()} in one transaction,
+     * so that they run on the same connection of the pool
+     */
+    static void executeMaintenanceStatements(@NonNull final String[] statements) {
+        withAccessLock(() -> {
+            init();
+            database.beginTransaction();
+            try {
+                for (final String statement : statements) {
+                    // PRAGMAs may return rows, which execSQL does not allow
+                    try (Cursor cursor = database.rawQuery(statement, null)) {
+                        cursor.getCount();
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        });
+    }
+
+    /** @return page size, number of pages and number of free pages of the database */
+    @NonNull
+    static long[] getPageStatistics() {
+        return withAccessLock(() -> {
+            init();
+            return new long[]{
+                    DatabaseUtils.longForQuery(database, "PRAGMA page_size", null),
+                    DatabaseUtils.longForQuery(database, "PRAGMA page_count", null),
+                    DatabaseUtils.longForQuery(database, "PRAGMA freelist_count", null)
+            };
+        });
+    }
+
+    /** whether free pages can be given back to the file system by {@link #incrementalVacuumChunk(int)} */
+    static boolean isIncrementalAutoVacuum() {
+        return withAccessLock(() -> {
+            init();
+            return DatabaseUtils.longForQuery(database, "PRAGMA auto_vacuum", null) == AUTO_VACUUM_INCREMENTAL;
+        });
+    }
+
+    /**
+     * Switches an existing database to incremental auto vacuum, which requires rebuilding it by VACUUM once.
+     * This blocks all other database access meanwhile and needs free space of the size of the database.
+     * It can't be interrupted, so it is only used for small databases in the background, larger ones are converted on request of the user.
+     *
+     * @return true if the database was rebuilt
+     */
+    static boolean convertToIncrementalAutoVacuum() {
+        return withChangeLock(() -> {
+            init();
+            if (DatabaseUtils.longForQuery(database, "PRAGMA auto_vacuum", null) == AUTO_VACUUM_INCREMENTAL) {
+                return false;
+            }
+            final File dbFile = databasePath();
+            if (dbFile.getParentFile() == null || dbFile.getParentFile().getUsableSpace() < 2 * dbFile.length()) {
+                Log.w("DataStore.convertToIncrementalAutoVacuum: not enough free space");
+                return false;
+            }
+            try (ContextLogger ignore = new ContextLogger(true, "DataStore.convertToIncrementalAutoVacuum")) {
+                database.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+                database.execSQL("VACUUM");
+                return true;
+            } catch (final SQLiteException e) {
+                Log.e("DataStore.convertToIncrementalAutoVacuum", e);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * gives some free pages back to the file system
+     *
+     * @return number of pages freed
+     */
+    static long incrementalVacuumChunk(final int pages) {
+        return withAccessLock(() -> {
+            init();
+            final long before = DatabaseUtils.longForQuery(database, "PRAGMA freelist_count", null);
+            try (Cursor cursor = database.rawQuery("PRAGMA incremental_vacuum(" + pages + ")", null)) {
+                cursor.getCount();
+            }
+            return before - DatabaseUtils.longForQuery(database, "PRAGMA freelist_count", null);
+        });
+    }
+
     private static void deleteOrphanedUDC() {
         final Set<String> orphanedUDC = new HashSet<>();
         queryToColl(dbTableCaches,
@@ -4298,6 +5307,14 @@ public class DataStore {
         });
     }
 
+    /**
+     * Refreshes what CacheCache keeps about given cache (e.g. its coordinates for viewport scans), if this cache instance is cached.
+     * Doesn't take the database lock, as it is called from setters of cache objects
+     */
+    public static void refreshCacheInCache(@NonNull final Geocache cache) {
+        cacheCache.refreshCacheInCache(cache);
+    }
+
     public static void removeCache(final String geocode, final EnumSet<LoadFlags.RemoveFlag> removeFlags) {
         removeCaches(Collections.singleton(geocode), removeFlags);
     }
@@ -4352,6 +5369,7 @@ public class DataStore {
                 } finally {
                     database.endTransaction();
                 }
+                invalidateContentHashes(geocodes);
 
                 // Delete cache directories
                 for (final String geocode : geocodes) {
@@ -4674,49 +5692,73 @@ public class DataStore {
 
             init();
 
-            final SQLiteStatement remove = PreparedStatement.REMOVE_FROM_LIST.getStatement();
-            final SQLiteStatement add = PreparedStatement.ADD_TO_LIST.getStatement();
-
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    remove.bindLong(1, oldListId);
-                    remove.bindString(2, cache.getGeocode());
-                    remove.execute();
-
-                    add.bindLong(1, newListId);
-                    add.bindString(2, cache.getGeocode());
-                    add.execute();
-
-                    cache.getLists().remove(oldListId);
-                    cache.getLists().add(newListId);
-                }
+                fillTempGeocodes(caches);
+                dynamicStatements.executeUpdateDelete(database, "DELETE FROM " + dbTableCachesLists + " WHERE list_id = ? AND " + IN_TEMP_GEOCODES, oldListId);
+                dynamicStatements.executeUpdateDelete(database, "INSERT OR REPLACE INTO " + dbTableCachesLists + " (list_id, geocode) SELECT ?, geocode FROM " + dbTableTempGeocodes, newListId);
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> {
+                cache.getLists().remove(oldListId);
+                cache.getLists().add(newListId);
+            });
         });
     }
 
     public static void removeFromList(final Collection<Geocache> caches, final int oldListId) {
+        if (caches.isEmpty()) {
+            return;
+        }
         withAccessLock(() -> {
 
             init();
 
-            final SQLiteStatement remove = PreparedStatement.REMOVE_FROM_LIST.getStatement();
+            database.beginTransaction();
+            try {
+                fillTempGeocodes(caches);
+                dynamicStatements.executeUpdateDelete(database, "DELETE FROM " + dbTableCachesLists + " WHERE list_id = ? AND " + IN_TEMP_GEOCODES, oldListId);
+                clearTempGeocodes();
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            updateCachesInMemory(caches, cache -> cache.getLists().remove(oldListId));
+        });
+    }
+
+    /**
+     * removes the caches from all stored lists except the given one
+     */
+    public static void removeFromOtherLists(final Collection<Geocache> caches, final int keptListId) {
+        if (caches.isEmpty()) {
+            return;
+        }
+        withAccessLock(() -> {
+
+            init();
 
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    remove.bindLong(1, oldListId);
-                    remove.bindString(2, cache.getGeocode());
-                    remove.execute();
-                    cache.getLists().remove(oldListId);
-                }
+                fillTempGeocodes(caches);
+                dynamicStatements.executeUpdateDelete(database, "DELETE FROM " + dbTableCachesLists + " WHERE list_id >= " + StoredList.STANDARD_LIST_ID + " AND list_id <> ? AND " + IN_TEMP_GEOCODES, keptListId);
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> {
+                final Iterator<Integer> lists = cache.getLists().iterator();
+                while (lists.hasNext()) {
+                    final int listId = lists.next();
+                    if (listId >= StoredList.STANDARD_LIST_ID && listId != keptListId) {
+                        lists.remove();
+                    }
+                }
+            });
         });
     }
 
@@ -4736,93 +5778,116 @@ public class DataStore {
 
             init();
 
-            final SQLiteStatement add = PreparedStatement.ADD_TO_LIST.getStatement();
-
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    add.bindLong(1, listId);
-                    add.bindString(2, cache.getGeocode());
-                    add.execute();
-
-                    cache.getLists().add(listId);
-                }
+                fillTempGeocodes(caches);
+                dynamicStatements.executeUpdateDelete(database, "INSERT OR REPLACE INTO " + dbTableCachesLists + " (list_id, geocode) SELECT ?, geocode FROM " + dbTableTempGeocodes, listId);
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> cache.getLists().add(listId));
         });
     }
 
+    /**
+     * replaces the lists of all given caches by the given lists
+     */
     public static void saveLists(final Collection<Geocache> caches, final Set<Integer> listIds) {
         if (caches.isEmpty()) {
             return;
         }
+        for (final Integer listId : listIds) {
+            final AbstractList list = AbstractList.getListById(listId);
+            if (list == null) {
+                return;
+            }
+            if (!list.isConcrete()) {
+                return;
+            }
+        }
         withAccessLock(() -> {
 
             init();
 
-            final SQLiteStatement add = PreparedStatement.ADD_TO_LIST.getStatement();
-            final SQLiteStatement remove = PreparedStatement.REMOVE_FROM_ALL_LISTS.getStatement();
-
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    remove.bindString(1, cache.getGeocode());
-                    remove.execute();
-                    cache.getLists().clear();
-
-                    for (final Integer listId : listIds) {
-                        final AbstractList list = AbstractList.getListById(listId);
-                        if (list == null) {
-                            return;
-                        }
-                        if (!list.isConcrete()) {
-                            return;
-                        }
-                        add.bindLong(1, listId);
-                        add.bindString(2, cache.getGeocode());
-                        add.execute();
-
-                        cache.getLists().add(listId);
-                    }
+                fillTempGeocodes(caches);
+                database.execSQL("DELETE FROM " + dbTableCachesLists + " WHERE " + IN_TEMP_GEOCODES);
+                for (final Integer listId : listIds) {
+                    dynamicStatements.executeUpdateDelete(database, "INSERT OR REPLACE INTO " + dbTableCachesLists + " (list_id, geocode) SELECT ?, geocode FROM " + dbTableTempGeocodes, listId);
                 }
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> {
+                cache.getLists().clear();
+                cache.getLists().addAll(listIds);
+            });
         });
     }
 
-    public static void addToLists(final Collection<Geocache> caches, final Map<String, Set<Integer>> cachesLists) {
-        if (caches.isEmpty() || cachesLists.isEmpty()) {
+    /**
+     * Replaces the lists of each of the given caches by its lists given by Map<Geocode, listIds>, e.g. to undo a change of lists.
+     * Caches without entry are removed from all lists.
+     */
+    public static void saveLists(final Collection<Geocache> caches, final Map<String, Set<Integer>> cachesLists) {
+        if (caches.isEmpty()) {
             return;
         }
         withAccessLock(() -> {
 
             init();
 
-            final SQLiteStatement add = PreparedStatement.ADD_TO_LIST.getStatement();
-
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    final Set<Integer> lists = cachesLists.get(cache.getGeocode());
-                    if (lists.isEmpty()) {
-                        continue;
-                    }
+                fillTempGeocodes(caches, cachesLists);
+                database.execSQL("DELETE FROM " + dbTableCachesLists + " WHERE " + IN_TEMP_GEOCODES);
+                database.execSQL("INSERT OR REPLACE INTO " + dbTableCachesLists + " (list_id, geocode) SELECT value, geocode FROM " + dbTableTempGeocodes + " WHERE value IS NOT NULL");
+                clearTempGeocodes();
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            updateCachesInMemory(caches, cache -> {
+                cache.getLists().clear();
+                final Set<Integer> lists = cachesLists.get(cache.getGeocode());
+                if (lists != null) {
+                    cache.getLists().addAll(lists);
+                }
+            });
+        });
+    }
 
-                    for (final Integer listId : lists) {
-                        add.bindLong(1, listId);
-                        add.bindString(2, cache.getGeocode());
-                        add.execute();
-                    }
+    /**
+     * adds each of the given caches to its lists given by Map<Geocode, listIds>
+     */
+    public static void addToLists(final Collection<Geocache> caches, final Map<String, Set<Integer>> cachesLists) {
+        if (caches.isEmpty() || cachesLists.isEmpty()) {
+            return;
+        }
+        withAccessLock(() -> {
 
-                }
+            init();
+
+            database.beginTransaction();
+            try {
+                fillTempGeocodes(caches, cachesLists);
+                database.execSQL("INSERT OR REPLACE INTO " + dbTableCachesLists + " (list_id, geocode) SELECT value, geocode FROM " + dbTableTempGeocodes + " WHERE value IS NOT NULL");
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> {
+                final Set<Integer> lists = cachesLists.get(cache.getGeocode());
+                if (lists != null) {
+                    cache.getLists().addAll(lists);
+                }
+            });
         });
     }
 
@@ -4832,21 +5897,18 @@ public class DataStore {
         }
         withAccessLock(() -> {
 
-            final SQLiteStatement add = PreparedStatement.SET_CACHE_ICON.getStatement();
+            init();
 
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    add.bindLong(1, newCacheIcon);
-                    add.bindString(2, cache.getGeocode());
-                    add.execute();
-
-                    cache.setAssignedEmoji(newCacheIcon);
-                }
+                fillTempGeocodes(caches);
+                dynamicStatements.executeUpdateDelete(database, "UPDATE " + dbTableCaches + " SET emoji = ? WHERE " + IN_TEMP_GEOCODES, newCacheIcon);
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> cache.setAssignedEmoji(newCacheIcon));
         });
     }
 
@@ -4860,26 +5922,90 @@ public class DataStore {
         }
         withAccessLock(() -> {
 
-            final SQLiteStatement add = PreparedStatement.SET_CACHE_ICON.getStatement();
+            init();
 
             database.beginTransaction();
             try {
-                for (final Geocache cache : caches) {
-                    final String geocode = cache.getGeocode();
-                    final Integer newCacheIcon = undo.get(geocode);
-                    add.bindLong(1, newCacheIcon == null ? 0 : newCacheIcon);
-                    add.bindString(2, geocode);
-                    add.execute();
-
-                    cache.setAssignedEmoji(newCacheIcon == null ? 0 : newCacheIcon);
+                final Map<String, Set<Integer>> icons = new HashMap<>();
+                for (final Map.Entry<String, Integer> icon : undo.entrySet()) {
+                    if (icon.getValue() != null) {
+                        icons.put(icon.getKey(), Collections.singleton(icon.getValue()));
+                    }
                 }
+                fillTempGeocodes(caches, icons);
+                database.execSQL("UPDATE " + dbTableCaches + " SET emoji = IFNULL((SELECT t.value FROM " + dbTableTempGeocodes + " t WHERE t.geocode = " + dbTableCaches + ".geocode AND t.value IS NOT NULL), 0)"
+                        + " WHERE " + IN_TEMP_GEOCODES);
+                clearTempGeocodes();
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> {
+                final Integer newCacheIcon = undo.get(cache.getGeocode());
+                cache.setAssignedEmoji(newCacheIcon == null ? 0 : newCacheIcon);
+            });
         });
     }
 
+    /**
+     * Fills the temporary table {@link #dbTableTempGeocodes} with the geocodes of the caches of a bulk operation,
+     * so that the operation can be done by one set based statement instead of one statement per cache.
+     * <br>
+     * Must be called inside a transaction, as temporary tables only exist for one database connection.
+     */
+    private static void fillTempGeocodes(final Collection<Geocache> caches) {
+        fillTempGeocodes(caches, Collections.emptyMap());
+    }
+
+    /**
+     * like {@link #fillTempGeocodes(Collection)}, with values per geocode (e.g. list ids) stored in column "value".
+     * A geocode has one row per value, caches without value get one row with value NULL.
+     */
+    private static void fillTempGeocodes(final Collection<Geocache> caches, final Map<String, ? extends Collection<Integer>> values) {
+        database.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + dbTableTempGeocodes + " (geocode TEXT NOT NULL, value INTEGER)");
+        database.execSQL("CREATE INDEX IF NOT EXISTS temp.in_temp_geocodes_geo ON " + dbTableTempGeocodes + " (geocode)");
+        clearTempGeocodes();
+        // not a prepared statement, as the table might not exist on the connection when those are compiled
+        final SQLiteStatement insert = dynamicStatements.get(database, "INSERT INTO " + dbTableTempGeocodes + " (geocode, value) VALUES (?, ?)");
+        for (final Geocache cache : caches) {
+            final String geocode = cache.getGeocode();
+            if (StringUtils.isBlank(geocode)) {
+                continue;
+            }
+            final Collection<Integer> cacheValues = values.get(geocode);
+            if (CollectionUtils.isEmpty(cacheValues)) {
+                insert.bindString(1, geocode);
+                insert.bindNull(2);
+                insert.executeInsert();
+                continue;
+            }
+            for (final Integer value : cacheValues) {
+                insert.bindString(1, geocode);
+                insert.bindLong(2, value);
+                insert.executeInsert();
+            }
+        }
+    }
+
+    private static void clearTempGeocodes() {
+        database.execSQL("DELETE FROM " + dbTableTempGeocodes);
+    }
+
+    /**
+     * applies the change of a bulk operation to the given caches and to the instances of these caches in {@link #cacheCache}, if different
+     */
+    private static void updateCachesInMemory(final Collection<Geocache> caches, final Action1<Geocache> update) {
+        for (final Geocache cache : caches) {
+            update.call(cache);
+            if (StringUtils.isNotBlank(cache.getGeocode())) {
+                final Geocache cached = cacheCache.getCacheFromCache(cache.getGeocode());
+                if (cached != null && cached != cache) {
+                    update.call(cached);
+                }
+            }
+        }
+    }
+
     private static @NonNull
     String fetchLocation(final Cursor cursor) {
         String location = null;
@@ -4970,7 +6096,7 @@ public class DataStore {
             init();
 
             try {
-                final Cursor cursor = database.query(
+                final Cursor cursor = measuredQuery(
                         dbTableCaches,
                         new String[]{"description", "shortdesc", "hint", "location"},
                         "geocode = ?",
@@ -4981,9 +6107,9 @@ public class DataStore {
                         "1");
 
                 if (cursor.moveToFirst()) {
-                    partial.setDescription(StringUtils.defaultString(cursor.getString(0)));
-                    partial.setShortDescription(StringUtils.defaultString(cursor.getString(1)));
-                    partial.setHint(StringUtils.defaultString(cursor.getString(2)));
+                    partial.setDescription(StringUtils.defaultString(getText(cursor, 0)));
+                    partial.setShortDescription(StringUtils.defaultString(getText(cursor, 1)));
+                    partial.setHint(StringUtils.defaultString(getText(cursor, 2)));
                     partial.setLocation(StringUtils.defaultString(cursor.getString(3)));
                 }
 
@@ -4998,6 +6124,108 @@ public class DataStore {
         });
     }
 
+    /**
+     * Rewrite all large text columns (see {@link TextCompression}) in the format selected by the parameter,
+     * in small chunks so the database stays usable meanwhile.
+     *
+     * @param compress true to compress all texts worth it, false to decompress all texts
+     * @param progress receives the progress in percent
+     * @return size of all large texts in bytes before and after
+     */
+    @NonNull
+    @WorkerThread
+    public static ImmutablePair<Long, Long> recodeCompressibleTexts(final boolean compress, @Nullable final Consumer<Integer> progress) {
+        try (ContextLogger cLog = new ContextLogger(true, "DataStore.recodeCompressibleTexts(%s)", compress)) {
+            final long sizeBefore = getCompressibleTextSize();
+            final long rowCount = withAccessLock(() -> {
+                init();
+                long count = 0;
+                for (final String[] tableColumns : COMPRESSIBLE_TEXT_COLUMNS) {
+                    count += DatabaseUtils.queryNumEntries(database, tableColumns[0]);
+                }
+                return count;
+            });
+            long rowsDone = 0;
+            int rowsChanged = 0;
+            for (final String[] tableColumns : COMPRESSIBLE_TEXT_COLUMNS) {
+                long lastId = 0;
+                while (true) {
+                    final long[] chunk = recodeCompressibleTextChunk(tableColumns, lastId, compress);
+                    if (chunk[1] == 0) {
+                        break;
+                    }
+                    lastId = chunk[0];
+                    rowsDone += chunk[1];
+                    rowsChanged += chunk[2];
+                    if (progress != null) {
+                        progress.accept((int) (Math.min(rowsDone, rowCount) * 100 / Math.max(rowCount, 1)));
+                    }
+                }
+            }
+            final long sizeAfter = getCompressibleTextSize();
+            cLog.add("rows:%d, changed:%d, size:%d->%d", rowsDone, rowsChanged, sizeBefore, sizeAfter);
+            return new ImmutablePair<>(sizeBefore, sizeAfter);
+        }
+    }
+
+    /**
+     * recodes the texts of the rows following the given id in an own transaction
+     *
+     * @return last id, number of rows read and number of rows changed
+     */
+    private static long[] recodeCompressibleTextChunk(final String[] tableColumns, final long afterId, final boolean compress) {
+        final String table = tableColumns[0];
+        final String[] columns = Arrays.copyOf(tableColumns, tableColumns.length);
+        columns[0] = "_id";
+        return withAccessLock(() -> {
+            init();
+            final long[] result = {afterId, 0, 0};
+            database.beginTransaction();
+            try (Cursor cursor = database.query(table, columns, "_id > ?", new String[]{String.valueOf(afterId)}, null, null, "_id", String.valueOf(RECODE_CHUNK_SIZE))) {
+                while (cursor.moveToNext()) {
+                    result[0] = cursor.getLong(0);
+                    result[1]++;
+                    final ContentValues values = new ContentValues();
+                    for (int i = 1; i < columns.length; i++) {
+                        final boolean isCompressed = cursor.getType(i) == Cursor.FIELD_TYPE_BLOB;
+                        if (compress && !isCompressed) {
+                            final byte[] compressed = TextCompression.compress(cursor.getString(i));
+                            if (compressed != null) {
+                                values.put(columns[i], compressed);
+                            }
+                        } else if (!compress && isCompressed) {
+                            values.put(columns[i], getText(cursor, i));
+                        }
+                    }
+                    if (values.size() > 0) {
+                        database.update(table, values, "_id = ?", new String[]{String.valueOf(result[0])});
+                        result[2]++;
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            return result;
+        });
+    }
+
+    /** size of all large texts (see {@link TextCompression}) as stored, in bytes */
+    private static long getCompressibleTextSize() {
+        return withAccessLock(() -> {
+            init();
+            long size = 0;
+            for (final String[] tableColumns : COMPRESSIBLE_TEXT_COLUMNS) {
+                final StringBuilder sql = new StringBuilder("SELECT 0");
+                for (int i = 1; i < tableColumns.length; i++) {
+                    sql.append(" + TOTAL(LENGTH(CAST(").append(tableColumns[i]).append(" AS BLOB)))");
+                }
+                size += DatabaseUtils.longForQuery(database, sql.append(" FROM ").append(tableColumns[0]).toString(), null);
+            }
+            return size;
+        });
+    }
+
     /**
      * checks if this is a newly created database
      */
@@ -5013,21 +6241,17 @@ public class DataStore {
     }
 
     /**
-     * Creates the WHERE clause for matching multiple geocodes. This automatically converts all given codes to
-     * UPPERCASE.
+     * Creates the arguments for matching multiple geocodes with {@link SqlBuilder#createInExpression(String, int)}, one array per query.
+     * This automatically converts all given codes to UPPERCASE.
+     * The geocodes are bound instead of being part of the SQL, so SQLite can reuse the compiled query for other caches.
      */
     @NonNull
-    private static StringBuilder whereGeocodeIn(final Collection<String> geocodes) {
-        final StringBuilder whereExpr = new StringBuilder("geocode IN (");
-        final Iterator<String> iterator = geocodes.iterator();
-        while (true) {
-            DatabaseUtils.appendEscapedSQLString(whereExpr, StringUtils.upperCase(iterator.next()));
-            if (!iterator.hasNext()) {
-                break;
-            }
-            whereExpr.append(',');
+    private static List<String[]> geocodeInArgs(final Collection<String> geocodes) {
+        final Set<String> upperCaseGeocodes = new LinkedHashSet<>();
+        for (final String geocode : geocodes) {
+            upperCaseGeocodes.add(StringUtils.upperCase(geocode));
         }
-        return whereExpr.append(')');
+        return SqlBuilder.toInArgs(upperCaseGeocodes);
     }
 
     /**
@@ -5048,7 +6272,7 @@ public class DataStore {
                     .append(".geocode == ").append(dbTableCaches).append(".geocode AND ").append(where)
                     .append(" LIMIT ").append(Math.max(10, Settings.getKeyInt(R.integer.waypoint_threshold_max)) * 2);  // Hardcoded limit to avoid memory overflow
 
-            return cursorToColl(database.rawQuery(query.toString(), null), new HashSet<>(), DataStore::createWaypointFromDatabaseContent);
+            return cursorToColl(measuredQuery(query.toString(), null), new HashSet<>(), DataStore::createWaypointFromDatabaseContent);
         });
     }
 
@@ -5060,8 +6284,6 @@ public class DataStore {
 
         HISTORY_COUNT("SELECT COUNT(*) FROM " + dbTableCaches + " WHERE visiteddate > 0 OR geocode IN (SELECT geocode FROM " + dbTableLogsOffline + ")"),
         MOVE_TO_STANDARD_LIST("UPDATE " + dbTableCachesLists + " SET list_id = " + StoredList.STANDARD_LIST_ID + " WHERE list_id = ? AND geocode NOT IN (SELECT DISTINCT (geocode) FROM " + dbTableCachesLists + " WHERE list_id = " + StoredList.STANDARD_LIST_ID + ")"),
-        REMOVE_FROM_LIST("DELETE FROM " + dbTableCachesLists + " WHERE list_id = ? AND geocode = ?"),
-        REMOVE_FROM_ALL_LISTS("DELETE FROM " + dbTableCachesLists + " WHERE geocode = ?"),
         REMOVE_ALL_FROM_LIST("DELETE FROM " + dbTableCachesLists + " WHERE list_id = ?"),
         UPDATE_VISIT_DATE("UPDATE " + dbTableCaches + " SET visiteddate = ? WHERE geocode = ?"),
         INSERT_LOG_IMAGE("INSERT INTO " + dbTableLogImages + " (log_id, title, url, description, service_image_id) VALUES (?, ?, ?, ?, ?)"),
@@ -5071,7 +6293,7 @@ public class DataStore {
         OFFLINE_LOG_ID_OF_GEOCODE("SELECT _id FROM " + dbTableLogsOffline + " WHERE geocode = ?"),
         COUNT_CACHES_ON_STANDARD_LIST("SELECT COUNT(geocode) FROM " + dbTableCachesLists + " WHERE list_id = " + StoredList.STANDARD_LIST_ID),
         COUNT_ALL_CACHES("SELECT COUNT(DISTINCT(geocode)) FROM " + dbTableCachesLists + " WHERE list_id >= " + StoredList.STANDARD_LIST_ID),
-        INSERT_LOG("INSERT INTO " + dbTableLogs + " (geocode, updated, service_log_id, type, author, author_guid, log, date, found, friend) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"),
+        INSERT_LOG("INSERT INTO " + dbTableLogs + " (geocode, updated, service_log_id, type, author, author_guid, log, date, found, friend, author_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"),
         CLEAN_LOG("DELETE FROM " + dbTableLogs + " WHERE geocode = ? AND date >= ? AND date <= ? AND type = ? AND author = ?"),
         INSERT_ATTRIBUTE("INSERT INTO " + dbTableAttributes + " (geocode, updated, attribute) VALUES (?, ?, ?)"),
         INSERT_CATEGORY("INSERT INTO " + dbTableCategories + " (geocode, category) VALUES (?, ?)"),
@@ -5091,8 +6313,7 @@ public class DataStore {
         SEQUENCE_SELECT("SELECT seq FROM " + dbTableSequences + " WHERE name = ?"),
         SEQUENCE_UPDATE("UPDATE " + dbTableSequences + " SET seq = ? WHERE name = ?"),
         SEQUENCE_INSERT("INSERT INTO " + dbTableSequences + " (name, seq) VALUES (?, ?)"),
-        GET_ALL_STORED_LOCATIONS("SELECT DISTINCT c.location FROM " + dbTableCaches + " c WHERE c.location IS NOT NULL"),
-        SET_CACHE_ICON("UPDATE " + dbTableCaches + " SET emoji = ? WHERE geocode = ?");
+        GET_ALL_STORED_LOCATIONS("SELECT DISTINCT c.location FROM " + dbTableCaches + " c WHERE c.location IS NOT NULL");
 
         private static final List<PreparedStatement> statements = new ArrayList<>();
 
@@ -5141,28 +6362,34 @@ public class DataStore {
     public static Map<String, Set<Integer>> markDropped(final Collection<Geocache> caches) {
         return withAccessLock(() -> {
 
-            final SQLiteStatement remove = PreparedStatement.REMOVE_FROM_ALL_LISTS.getStatement();
+            init();
+
             final Map<String, Set<Integer>> oldLists = new HashMap<>();
+            for (final Geocache cache : caches) {
+                oldLists.put(cache.getGeocode(), new HashSet<>());
+            }
 
             database.beginTransaction();
             try {
-                final Set<String> geocodes = new HashSet<>(caches.size());
-                for (final Geocache cache : caches) {
-                    oldLists.put(cache.getGeocode(), loadLists(cache.getGeocode()));
-
-                    remove.bindString(1, cache.getGeocode());
-                    remove.execute();
-                    geocodes.add(cache.getGeocode());
-
-                    cache.getLists().clear();
+                fillTempGeocodes(caches);
+                try (Cursor cursor = database.rawQuery("SELECT geocode, list_id FROM " + dbTableCachesLists + " WHERE " + IN_TEMP_GEOCODES, null)) {
+                    while (cursor.moveToNext()) {
+                        final Set<Integer> lists = oldLists.get(cursor.getString(0));
+                        if (lists != null) {
+                            lists.add(cursor.getInt(1));
+                        }
+                    }
                 }
-                clearVisitDate(geocodes);
+                database.execSQL("DELETE FROM " + dbTableCachesLists + " WHERE " + IN_TEMP_GEOCODES);
+                database.execSQL("UPDATE " + dbTableCaches + " SET visiteddate = 0 WHERE " + IN_TEMP_GEOCODES);
+                clearTempGeocodes();
                 clearLogsOffline(caches);
 
                 database.setTransactionSuccessful();
             } finally {
                 database.endTransaction();
             }
+            updateCachesInMemory(caches, cache -> cache.getLists().clear());
 
             return oldLists;
         });
@@ -5321,12 +6548,32 @@ public class DataStore {
 
     @NonNull
     public static String[] getSuggestionsOwnerName(final String input) {
-        return getSuggestions(dbTableCaches, "owner_real", input);
+        return getUserSuggestions(dbTableCaches, "owner_id", input);
     }
 
     @NonNull
     public static String[] getSuggestionsFinderName(final String input) {
-        return getSuggestions(dbTableLogs, "author", input);
+        return getUserSuggestions(dbTableLogs, "author_id", input);
+    }
+
+    /**
+     * names of the users matching the input which are referenced by the given table, searched in the (small) user dictionary
+     */
+    @NonNull
+    private static String[] getUserSuggestions(final String table, final String userIdColumn, final String input) {
+        return withAccessLock(() -> {
+
+            try {
+                final Cursor cursor = database.rawQuery("SELECT DISTINCT u.name FROM " + dbTableUsers + " u"
+                        + " WHERE u.name LIKE ? AND EXISTS (SELECT 1 FROM " + table + " WHERE " + userIdColumn + " = u._id)"
+                        + " ORDER BY u.name COLLATE NOCASE ASC;", new String[]{getSuggestionArgument(input)});
+                final Collection<String> names = cursorToColl(cursor, new LinkedList<>(), GET_STRING_0);
+                return names.toArray(new String[0]);
+            } catch (final RuntimeException e) {
+                Log.e("cannot get user suggestions from " + table + "->" + userIdColumn + " for input '" + input + "'", e);
+                return ArrayUtils.EMPTY_STRING_ARRAY;
+            }
+        });
     }
 
     @NonNull
@@ -5638,8 +6885,11 @@ public class DataStore {
 
                 init();
 
-                final String geocodes = whereGeocodeIn(Geocache.getGeocodes(caches)).toString();
-                return DBLogOfflineUtils.remove(database, geocodes, null);
+                int removed = 0;
+                for (final String[] args : geocodeInArgs(Geocache.getGeocodes(caches))) {
+                    removed += DBLogOfflineUtils.remove(database, SqlBuilder.createInExpression("geocode", args.length), args);
+                }
+                return removed;
             });
         }
 
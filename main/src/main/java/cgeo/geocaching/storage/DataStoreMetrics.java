@@ -0,0 +1,403 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.utils.JsonUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Collects timing information of {@link DataStore}: latency histograms and row counts per query shape,
+ * wait times for the database lock and (if enabled) the query plans of slow queries.
+ * <br>
+ * The query shape is the SQL with all literals replaced by placeholders, so e.g. queries for different viewports are counted together.
+ * <br>
+ * Recording is lock-free and cheap, as it happens for every query: queries are counted per SQL text,
+ * the shapes are only computed when statistics are requested (or for slow queries to be explained).
+ * Only if there are too many different SQL texts (e.g. SQL containing values), the shape is computed for each further query.
+ * All methods are thread-safe.
+ */
+public final class DataStoreMetrics {
+
+    /** upper bounds (exclusive, in milliseconds) of the histogram buckets, the last bucket is open-ended */
+    static final long[] BUCKET_LIMITS_MS = {1, 4, 16, 64, 256, 1024};
+    /** queries taking at least this long are considered slow */
+    static final long SLOW_QUERY_MS = 50;
+    /** queries of further shapes are counted together, to limit memory usage */
+    static final int MAX_SHAPES = 200;
+    /** number of different SQL texts counted separately, further queries are counted by their shape */
+    static final int MAX_SQL_TEXTS = 1000;
+    static final String OTHER_SHAPE = "(other)";
+    private static final int MAX_SHAPE_LENGTH = 300;
+    private static final int MAX_SLOW_QUERIES = 50;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?(?![\\w.])");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** latency histogram of one kind of operation, can be updated concurrently */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LIMITS_MS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+
+        private void add(final long nanos, final long rowCount) {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_MS.length && millis >= BUCKET_LIMITS_MS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            rows.addAndGet(rowCount);
+        }
+
+        private void addAll(final Histogram other) {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.addAndGet(i, other.buckets.get(i));
+            }
+            count.addAndGet(other.count.get());
+            totalNanos.addAndGet(other.totalNanos.get());
+            maxNanos.accumulateAndGet(other.maxNanos.get(), Math::max);
+            rows.addAndGet(other.rows.get());
+        }
+
+        private void clear() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+            rows.set(0);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        /** number of operations per bucket, see {@link #BUCKET_LIMITS_MS} */
+        public long[] getBuckets() {
+            final long[] result = new long[buckets.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+
+        private ObjectNode toJson(final boolean withRows) {
+            final ObjectNode node = JsonUtils.createObjectNode();
+            final long total = totalNanos.get();
+            final long n = count.get();
+            node.put("count", n);
+            node.put("totalMs", TimeUnit.NANOSECONDS.toMillis(total));
+            node.put("avgMs", n == 0 ? 0 : (double) total / n / 1000000d);
+            node.put("maxMs", getMaxMillis());
+            if (withRows) {
+                node.put("rows", rows.get());
+            }
+            final ObjectNode histogram = node.putObject("histogram");
+            final long[] counts = getBuckets();
+            for (int i = 0; i < counts.length; i++) {
+                histogram.put(i < BUCKET_LIMITS_MS.length ? "<" + BUCKET_LIMITS_MS[i] + "ms" : ">=" + BUCKET_LIMITS_MS[i - 1] + "ms", counts[i]);
+            }
+            return node;
+        }
+    }
+
+    /** a slow query with its plan */
+    private static final class SlowQuery {
+        private final long timestamp = System.currentTimeMillis();
+        private final String shape;
+        private final long millis;
+        private final List<String> plan;
+
+        SlowQuery(final String shape, final long millis, final List<String> plan) {
+            this.shape = shape;
+            this.millis = millis;
+            this.plan = plan;
+        }
+    }
+
+    /** an executed query with its arguments */
+    static final class RecordedQuery {
+        final String sql;
+        @Nullable final String[] args;
+        /** order of execution */
+        private final long sequence;
+
+        RecordedQuery(final String sql, @Nullable final String[] args, final long sequence) {
+            this.sql = sql;
+            this.args = args;
+            this.sequence = sequence;
+        }
+    }
+
+    /** statistics of one SQL text (or of one shape, if there are too many SQL texts) */
+    private static final class QueryStatistics {
+        private final String key;
+        private final Histogram histogram = new Histogram();
+        /** last executed query, to explain it later */
+        private volatile RecordedQuery lastQuery;
+        /** computed on first use */
+        private volatile String shape;
+
+        QueryStatistics(final String key) {
+            this.key = key;
+        }
+
+        private String getShape() {
+            if (shape == null) {
+                shape = OTHER_SHAPE.equals(key) ? OTHER_SHAPE : toQueryShape(key);
+            }
+            return shape;
+        }
+    }
+
+    /** keyed by SQL text, or by shape if there are too many SQL texts */
+    private final ConcurrentHashMap<String, QueryStatistics> queries = new ConcurrentHashMap<>();
+    private final AtomicLong querySequence = new AtomicLong();
+    private final Histogram accessLockWaits = new Histogram();
+    private final Histogram changeLockWaits = new Histogram();
+    // guarded by "this"
+    private final LinkedList<SlowQuery> slowQueries = new LinkedList<>();
+    private final boolean explainSlowQueries;
+    private volatile long since = System.currentTimeMillis();
+
+    /**
+     * @param explainSlowQueries whether the plans of slow queries should be recorded (expensive, meant for debug builds)
+     */
+    public DataStoreMetrics(final boolean explainSlowQueries) {
+        this.explainSlowQueries = explainSlowQueries;
+    }
+
+    /** whether the plan of a query with the given duration should be recorded by {@link #recordSlowQuery(String, long, List)} */
+    public boolean shouldExplain(final long nanos) {
+        return explainSlowQueries && TimeUnit.NANOSECONDS.toMillis(nanos) >= SLOW_QUERY_MS;
+    }
+
+    /** records an executed query */
+    public void recordQuery(@NonNull final String sql, @Nullable final String[] args, final long nanos, final long rows) {
+        QueryStatistics statistics = queries.get(sql);
+        if (statistics == null) {
+            String key = sql;
+            if (queries.size() >= MAX_SQL_TEXTS) {
+                key = toQueryShape(sql);
+                if (!queries.containsKey(key) && queries.size() >= MAX_SQL_TEXTS + MAX_SHAPES) {
+                    key = OTHER_SHAPE;
+                }
+            }
+            statistics = queries.get(key);
+            if (statistics == null) {
+                final QueryStatistics created = new QueryStatistics(key);
+                final QueryStatistics existing = queries.putIfAbsent(key, created);
+                statistics = existing == null ? created : existing;
+            }
+        }
+        statistics.histogram.add(nanos, rows);
+        statistics.lastQuery = new RecordedQuery(sql, args == null ? null : args.clone(), querySequence.incrementAndGet());
+    }
+
+    public synchronized void recordSlowQuery(@NonNull final String shape, final long nanos, @NonNull final List<String> plan) {
+        slowQueries.addLast(new SlowQuery(shape, TimeUnit.NANOSECONDS.toMillis(nanos), new ArrayList<>(plan)));
+        while (slowQueries.size() > MAX_SLOW_QUERIES) {
+            slowQueries.removeFirst();
+        }
+    }
+
+    /**
+     * records the time spent waiting for the database lock
+     *
+     * @param exclusive true for the exclusive lock (used for e.g. closing the database), false for the shared one
+     */
+    public void recordLockWait(final boolean exclusive, final long nanos) {
+        (exclusive ? changeLockWaits : accessLockWaits).add(nanos, 0);
+    }
+
+    /** statistics of the given query shape, or null if no such query was recorded */
+    @Nullable
+    public Histogram getQueryStatistics(@NonNull final String shape) {
+        return getStatisticsByShape().get(shape);
+    }
+
+    @NonNull
+    public Set<String> getQueryShapes() {
+        return Collections.unmodifiableSet(new HashSet<>(getStatisticsByShape().keySet()));
+    }
+
+    /**
+     * the different SQL texts of the recorded queries, e.g. to check that statements are reused.
+     * Once there are more than {@link #MAX_SQL_TEXTS}, further queries are only listed by their shape.
+     */
+    @NonNull
+    public Set<String> getQueryTexts() {
+        return Collections.unmodifiableSet(new HashSet<>(queries.keySet()));
+    }
+
+    /** the last executed query of the given shape, or null if no such query was recorded */
+    @Nullable
+    RecordedQuery getLastQuery(@NonNull final String shape) {
+        RecordedQuery last = null;
+        for (final QueryStatistics statistics : queries.values()) {
+            final RecordedQuery query = statistics.lastQuery;
+            if (query != null && (last == null || query.sequence > last.sequence) && shape.equals(statistics.getShape())) {
+                last = query;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * statistics of all recorded queries grouped by shape.
+     * Only the {@link #MAX_SHAPES} most frequent shapes are listed separately, all others are counted as {@link #OTHER_SHAPE}.
+     */
+    @NonNull
+    private Map<String, Histogram> getStatisticsByShape() {
+        final Map<String, Histogram> byShape = new TreeMap<>();
+        for (final QueryStatistics statistics : queries.values()) {
+            final String shape = statistics.getShape();
+            Histogram histogram = byShape.get(shape);
+            if (histogram == null) {
+                histogram = new Histogram();
+                byShape.put(shape, histogram);
+            }
+            histogram.addAll(statistics.histogram);
+        }
+        if (byShape.size() <= MAX_SHAPES) {
+            return byShape;
+        }
+        final List<Map.Entry<String, Histogram>> entries = new ArrayList<>(byShape.entrySet());
+        Collections.sort(entries, (e1, e2) -> Long.compare(e2.getValue().getCount(), e1.getValue().getCount()));
+        final Map<String, Histogram> limited = new TreeMap<>();
+        final Histogram other = new Histogram();
+        for (int i = 0; i < entries.size(); i++) {
+            final Map.Entry<String, Histogram> entry = entries.get(i);
+            if (i < MAX_SHAPES && !OTHER_SHAPE.equals(entry.getKey())) {
+                limited.put(entry.getKey(), entry.getValue());
+            } else {
+                other.addAll(entry.getValue());
+            }
+        }
+        limited.put(OTHER_SHAPE, other);
+        return limited;
+    }
+
+    public void reset() {
+        queries.clear();
+        synchronized (this) {
+            slowQueries.clear();
+        }
+        accessLockWaits.clear();
+        changeLockWaits.clear();
+        since = System.currentTimeMillis();
+    }
+
+    /** report of all collected data, e.g. for export */
+    @NonNull
+    public ObjectNode toJson() {
+        final ObjectNode report = JsonUtils.createObjectNode();
+        report.put("since", since);
+        report.put("until", System.currentTimeMillis());
+        final ObjectNode locks = report.putObject("locks");
+        locks.set("access", accessLockWaits.toJson(false));
+        locks.set("change", changeLockWaits.toJson(false));
+        final ObjectNode queryNodes = report.putObject("queries");
+        for (final Map.Entry<String, Histogram> entry : getStatisticsByShape().entrySet()) {
+            queryNodes.set(entry.getKey(), entry.getValue().toJson(true));
+        }
+        final ArrayNode slowQueryNodes = report.putArray("slowQueries");
+        final List<SlowQuery> slowQueriesCopy;
+        synchronized (this) {
+            slowQueriesCopy = new ArrayList<>(slowQueries);
+        }
+        for (final SlowQuery slowQuery : slowQueriesCopy) {
+            final ObjectNode node = slowQueryNodes.addObject();
+            node.put("timestamp", slowQuery.timestamp);
+            node.put("shape", slowQuery.shape);
+            node.put("ms", slowQuery.millis);
+            final ArrayNode plan = node.putArray("plan");
+            for (final String step : slowQuery.plan) {
+                plan.add(step);
+            }
+            final ArrayNode fullScans = node.putArray("fullTableScans");
+            for (final String table : findFullTableScans(slowQuery.plan)) {
+                fullScans.add(table);
+            }
+        }
+        return report;
+    }
+
+    /** SQL with literals replaced by placeholders and lists of placeholders collapsed, see class description */
+    @NonNull
+    static String toQueryShape(@NonNull final String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("?,…");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        return StringUtils.abbreviate(shape, MAX_SHAPE_LENGTH);
+    }
+
+    /**
+     * Finds the tables which are read completely (without using an index) in a query plan.
+     * Scans of subqueries, views materialized by the plan and constant rows are not counted.
+     *
+     * @param plan the detail column of EXPLAIN QUERY PLAN, one entry per step
+     * @return names (or aliases) of the scanned tables
+     */
+    @NonNull
+    public static List<String> findFullTableScans(@NonNull final List<String> plan) {
+        final Set<String> subqueries = new HashSet<>();
+        for (final String step : plan) {
+            final String detail = step.trim();
+            if (detail.startsWith("MATERIALIZE ") || detail.startsWith("CO-ROUTINE ")) {
+                subqueries.add(StringUtils.substringAfter(detail, " ").trim());
+            }
+        }
+        final List<String> tables = new ArrayList<>();
+        for (final String step : plan) {
+            final String detail = step.trim();
+            if (!detail.startsWith("SCAN ") || detail.contains(" USING ") || detail.contains("VIRTUAL TABLE")) {
+                continue;
+            }
+            // "SCAN TABLE x" (before SQLite 3.36) or "SCAN x", optionally followed by "AS alias"
+            final String target = StringUtils.removeStart(detail.substring(5), "TABLE ");
+            final String table = StringUtils.substringBefore(target, " ");
+            if (target.startsWith("SUBQUERY") || target.startsWith("(") || target.startsWith("CONSTANT ROW") || subqueries.contains(table)) {
+                continue;
+            }
+            tables.add(table);
+        }
+        return tables;
+    }
+
+}
@@ -0,0 +1,222 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.storage.extension.MaintenanceHistory;
+import cgeo.geocaching.storage.extension.MaintenanceProgress;
+import cgeo.geocaching.utils.Formatter;
+import cgeo.geocaching.utils.Log;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database maintenance running in the background while the device is idle:
+ * removal of orphaned records, update of the query planner statistics and incremental vacuum.
+ * <br>
+ * All work is done in small chunks with an own transaction each, so the app stays responsive if it is used meanwhile,
+ * and a run can be stopped between any two chunks. Unfinished work is continued by the next run
+ * (the position of the orphan cleanup is stored in {@link MaintenanceProgress}).
+ * The result of each run is stored in {@link MaintenanceHistory}.
+ * <br>
+ * The only exception is the conversion of a database created before incremental auto vacuum was used:
+ * it needs one full VACUUM, which blocks all database access and can't be interrupted, so {@link #MAX_RUN_MILLIS} does not apply to it.
+ * This is only done in the background for databases up to {@link #MAX_FULL_VACUUM_BYTES}. Larger ones keep their free pages
+ * until the user starts the conversion ({@link #compact()}).
+ */
+public final class DatabaseMaintenance {
+
+    private static final String WORK_NAME = "cgeo-database-maintenance";
+    /** maximum time spent in one run */
+    static final long MAX_RUN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    /** records checked for being orphaned per transaction */
+    static final int ORPHAN_CHUNK_SIZE = 500;
+    /** maximum size of a database to be converted to incremental auto vacuum by a full VACUUM (a few seconds on current devices) */
+    static final long MAX_FULL_VACUUM_BYTES = 64L * 1024 * 1024;
+    /** pages given back to the file system per transaction */
+    static final int VACUUM_CHUNK_PAGES = 256;
+    /** pause between two chunks, to let other database users in */
+    private static final long PAUSE_MILLIS = 20;
+
+    /** tells whether a run should stop as early as possible */
+    public interface StopCondition {
+        boolean isStopped();
+    }
+
+    /** result of a maintenance run */
+    public static final class Result {
+        public final long durationMillis;
+        public final long bytesReclaimed;
+        public final long orphansDeleted;
+        public final boolean statisticsUpdated;
+        public final boolean completed;
+
+        Result(final long durationMillis, final long bytesReclaimed, final long orphansDeleted, final boolean statisticsUpdated, final boolean completed) {
+            this.durationMillis = durationMillis;
+            this.bytesReclaimed = bytesReclaimed;
+            this.orphansDeleted = orphansDeleted;
+            this.statisticsUpdated = statisticsUpdated;
+            this.completed = completed;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s after %d ms: %d orphaned records deleted, statistics %s, %s reclaimed",
+                    completed ? "completed" : "interrupted", durationMillis, orphansDeleted, statisticsUpdated ? "updated" : "not updated", Formatter.formatBytes(bytesReclaimed));
+        }
+    }
+
+    private DatabaseMaintenance() {
+        // utility class
+    }
+
+    /**
+     * schedules the maintenance to run once a day while the device is idle, keeping an already scheduled run
+     */
+    public static void schedule(@NonNull final Context context) {
+        final Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+        final PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(DatabaseMaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints.build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * runs the maintenance and stores its result
+     *
+     * @param stopCondition checked between two chunks of work, in addition to the maximum run time
+     */
+    @NonNull
+    @WorkerThread
+    public static Result run(@NonNull final StopCondition stopCondition) {
+        final long start = System.currentTimeMillis();
+        final StopCondition stop = () -> stopCondition.isStopped() || System.currentTimeMillis() - start > MAX_RUN_MILLIS;
+        final long sizeBefore = getDatabaseSize();
+
+        final long orphansDeleted = deleteOrphanedRecords(stop);
+        final boolean statisticsUpdated = !stop.isStopped() && updateStatistics(stop);
+        final boolean vacuumed = !stop.isStopped() && vacuum(stop);
+
+        final Result result = new Result(System.currentTimeMillis() - start, Math.max(0, sizeBefore - getDatabaseSize()), orphansDeleted, statisticsUpdated, statisticsUpdated && vacuumed);
+        Log.i("DatabaseMaintenance: " + result);
+        MaintenanceHistory.add(start, result.durationMillis, result.bytesReclaimed, result.orphansDeleted, result.completed, result.toString());
+        return result;
+    }
+
+    /**
+     * Compacts the database on request of the user: converts it to incremental auto vacuum if needed, regardless of its size,
+     * and gives all free pages back to the file system. This blocks all database access meanwhile and can't be interrupted.
+     * The result is stored like the result of a background run.
+     */
+    @NonNull
+    @WorkerThread
+    public static Result compact() {
+        final long start = System.currentTimeMillis();
+        final long sizeBefore = getDatabaseSize();
+
+        final boolean converted = DataStore.isIncrementalAutoVacuum() || DataStore.convertToIncrementalAutoVacuum();
+        final boolean completed = converted && vacuumFreePages(() -> false);
+
+        final Result result = new Result(System.currentTimeMillis() - start, Math.max(0, sizeBefore - getDatabaseSize()), 0, false, completed);
+        final String summary = String.format(Locale.US, "compaction %s after %d ms: %s reclaimed",
+                completed ? "completed" : "failed", result.durationMillis, Formatter.formatBytes(result.bytesReclaimed));
+        Log.i("DatabaseMaintenance: " + summary);
+        MaintenanceHistory.add(start, result.durationMillis, result.bytesReclaimed, result.orphansDeleted, result.completed, summary);
+        return result;
+    }
+
+    /** continues the orphan cleanup of the previous run, or starts a new one if the previous run finished it */
+    private static long deleteOrphanedRecords(@NonNull final StopCondition stop) {
+        final long[] progress = MaintenanceProgress.getOrphanCleanup();
+        int step = (int) progress[0];
+        long lastRowId = progress[1];
+        if (step < 0 || step >= DataStore.ORPHAN_CLEANUP_STEPS) {
+            step = 0;
+            lastRowId = 0;
+        }
+        long deleted = 0;
+        while (step < DataStore.ORPHAN_CLEANUP_STEPS) {
+            if (stop.isStopped()) {
+                MaintenanceProgress.setOrphanCleanup(step, lastRowId);
+                return deleted;
+            }
+            final long[] chunk = DataStore.deleteOrphanedRecordsChunk(step, lastRowId, ORPHAN_CHUNK_SIZE);
+            deleted += chunk[0];
+            if (chunk[1] < 0) {
+                step++;
+                lastRowId = 0;
+            } else {
+                lastRowId = chunk[1];
+            }
+            pause();
+        }
+        MaintenanceProgress.setOrphanCleanup(0, 0);
+        return deleted;
+    }
+
+    /** @return true if all statements were executed */
+    private static boolean updateStatistics(@NonNull final StopCondition stop) {
+        final List<String[]> statements = DataStore.getStatisticsStatements();
+        for (final String[] group : statements) {
+            if (stop.isStopped()) {
+                return false;
+            }
+            DataStore.executeMaintenanceStatements(group);
+            pause();
+        }
+        return true;
+    }
+
+    /** @return true if all free pages were given back to the file system (or can't be given back, see {@link #MAX_FULL_VACUUM_BYTES}) */
+    private static boolean vacuum(@NonNull final StopCondition stop) {
+        if (!DataStore.isIncrementalAutoVacuum()) {
+            if (getDatabaseSize() > MAX_FULL_VACUUM_BYTES) {
+                Log.i("DatabaseMaintenance: database too large to be converted to incremental auto vacuum in the background, it can be compacted in the settings");
+                return true;
+            }
+            if (!DataStore.convertToIncrementalAutoVacuum()) {
+                return false;
+            }
+        }
+        return vacuumFreePages(stop);
+    }
+
+    /** @return true if all free pages were given back to the file system, requires incremental auto vacuum */
+    private static boolean vacuumFreePages(@NonNull final StopCondition stop) {
+        while (DataStore.getPageStatistics()[2] > 0) {
+            if (stop.isStopped() || DataStore.incrementalVacuumChunk(VACUUM_CHUNK_PAGES) == 0) {
+                return false;
+            }
+            pause();
+        }
+        return true;
+    }
+
+    private static long getDatabaseSize() {
+        final long[] pageStatistics = DataStore.getPageStatistics();
+        return pageStatistics[0] * pageStatistics[1];
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(PAUSE_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
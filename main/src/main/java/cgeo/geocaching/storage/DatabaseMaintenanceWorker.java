@@ -0,0 +1,33 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.utils.Log;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Runs {@link DatabaseMaintenance} when scheduled by WorkManager.
+ */
+public class DatabaseMaintenanceWorker extends Worker {
+
+    public DatabaseMaintenanceWorker(@NonNull final Context context, @NonNull final WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            DatabaseMaintenance.run(this::isStopped);
+            // unfinished work is continued by the next periodic run, no retry needed
+            return Result.success();
+        } catch (final Exception e) {
+            Log.e("DatabaseMaintenanceWorker.doWork", e);
+            return Result.failure();
+        }
+    }
+
+}
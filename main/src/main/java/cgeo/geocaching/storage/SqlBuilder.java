@@ -6,7 +6,9 @@ import androidx.annotation.NonNull;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
 
@@ -17,6 +19,11 @@ public class SqlBuilder {
 
     public enum WhereType { AND, OR, NOT }
 
+    /**
+     * maximum number of values bound to one IN list, stays below the limit of 999 bind parameters of SQLite before 3.32
+     */
+    public static final int MAX_IN_VALUES = 256;
+
     private int tableIdCnt = 1;
 
     private final String mainTable;
@@ -26,6 +33,7 @@ public class SqlBuilder {
     private final List<String> tables = new ArrayList<>();
     private final List<String> joins = new ArrayList<>();
     private final List<String> orders = new ArrayList<>();
+    private final List<String> orderArgs = new ArrayList<>();
 
     private final Stack<ImmutableTriple<WhereType, StringBuilder, List<String>>> whereStack = new Stack<>();
     private boolean whereInvertTrue = false;
@@ -104,6 +112,11 @@ public class SqlBuilder {
         return whereInvertTrue ? addWhere("1=0") : addWhere("1=1");
     }
 
+    /** whether conditions added now are negated in the resulting where clause (e.g. inside a NOT) */
+    public boolean isWhereInverted() {
+        return whereInvertTrue;
+    }
+
     public SqlBuilder closeWhere() {
         if (whereStack.size() > 1) {
             final ImmutableTriple<WhereType, StringBuilder, List<String>> current = whereStack.pop();
@@ -120,8 +133,23 @@ public class SqlBuilder {
     }
 
     public SqlBuilder addOrder(final String order) {
+        return addOrder(order, (List<String>) null);
+    }
+
+    /**
+     * adds an order expression containing bind parameters, e.g. for the distance to the current position.
+     * Binding the values keeps the SQL unchanged for other values, so SQLite can reuse the compiled statement.
+     */
+    public SqlBuilder addOrder(final String order, final boolean sortDesc, final List<String> args) {
+        return addOrder("(" + order + ") " + (sortDesc ? "DESC" : "ASC"), args);
+    }
+
+    public SqlBuilder addOrder(final String order, final List<String> args) {
         if (!StringUtils.isBlank(order)) {
             orders.add(order);
+            if (args != null) {
+                orderArgs.addAll(args);
+            }
         }
         return this;
     }
@@ -152,6 +180,19 @@ public class SqlBuilder {
         return constructSqlInternal(CollectionStream.of(columns).map(c -> getMainTableId() + "." + c).toJoinedString(", "), true, true);
     }
 
+    /**
+     * Returns the values to bind to the parameters of {@link #getSql()}
+     */
+    @NonNull
+    public String[] getSqlArgsArray() {
+        final List<String> args = new ArrayList<>(getSqlWhereArgs());
+        args.addAll(orderArgs);
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the values to bind to the parameters of the where clause, e.g. for {@link #getSqlForUnlimitedCount()}
+     */
     @NonNull
     public List<String> getSqlWhereArgs() {
         return !whereStack.isEmpty() ? whereStack.get(0).right : Collections.emptyList();
@@ -200,6 +241,44 @@ public class SqlBuilder {
 
     }
 
+    /**
+     * creates an IN expression with the given number of bind parameters, e.g. "geocode IN (?,?,?)"
+     */
+    @NonNull
+    public static String createInExpression(final String columnExpression, final int parameterCount) {
+        final StringBuilder sb = new StringBuilder(columnExpression).append(" IN (");
+        for (int i = 0; i < parameterCount; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Splits values into the arguments of queries using an IN expression created by {@link #createInExpression(String, int)}.
+     * <br>
+     * Each chunk contains at most {@link #MAX_IN_VALUES} values and is padded to the next power of two by repeating its last value.
+     * So lists of any length lead to a few different statements only, which SQLite can keep compiled, instead of a new statement per list.
+     *
+     * @return one array of arguments per query to execute, empty for no values
+     */
+    @NonNull
+    public static List<String[]> toInArgs(final Collection<String> values) {
+        final List<String[]> chunks = new ArrayList<>();
+        final Iterator<String> iterator = values.iterator();
+        int remaining = values.size();
+        while (remaining > 0) {
+            final int size = Math.min(remaining, MAX_IN_VALUES);
+            final String[] chunk = new String[Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1];
+            for (int i = 0; i < size; i++) {
+                chunk[i] = iterator.next();
+            }
+            Arrays.fill(chunk, size, chunk.length, chunk[size - 1]);
+            chunks.add(chunk);
+            remaining -= size;
+        }
+        return chunks;
+    }
+
     /**
      * Helper method for escaping text when building SQL
      */
@@ -0,0 +1,81 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compiled statements for SQL which is built at runtime, keyed by the SQL text (the query shape).
+ * <br>
+ * This is the counterpart of the statements prepared at compile time in DataStore.PreparedStatement.
+ * Values must be bound as arguments instead of being part of the SQL, otherwise every value leads to a new statement.
+ * If the cache is full, the least recently used statement is closed.
+ * <br>
+ * The bindings of a statement are not thread safe, so a statement must only be used inside a transaction
+ * (which has the database connection for itself) or while holding the change lock of the {@link DataStore}.
+ * <br>
+ * The native statements are kept by the connection (keyed by the same SQL text, see SQLiteDatabase.setMaxSqlCacheSize),
+ * this cache avoids compiling and validating the statement again for each execution.
+ */
+final class StatementCache {
+
+    private final int maxEntries;
+    private final Map<String, SQLiteStatement> statements;
+
+    StatementCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.statements = new LeastRecentlyUsedMap.LruCache<>(maxEntries);
+    }
+
+    /**
+     * @return the compiled statement for the given SQL, with all bindings cleared
+     */
+    @NonNull
+    synchronized SQLiteStatement get(@NonNull final SQLiteDatabase db, @NonNull final String sql) {
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            if (statements.size() >= maxEntries) {
+                // the iteration order of the LRU map starts with the least recently used entry
+                final Iterator<SQLiteStatement> eldest = statements.values().iterator();
+                eldest.next().close();
+                eldest.remove();
+            }
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearBindings();
+        }
+        return statement;
+    }
+
+    /**
+     * compiles (or reuses) the statement for the given SQL and executes it with the given arguments
+     *
+     * @return number of rows affected
+     */
+    int executeUpdateDelete(@NonNull final SQLiteDatabase db, @NonNull final String sql, @NonNull final Object... args) {
+        final SQLiteStatement statement = get(db, sql);
+        for (int i = 0; i < args.length; i++) {
+            DatabaseUtils.bindObjectToProgram(statement, i + 1, args[i]);
+        }
+        return statement.executeUpdateDelete();
+    }
+
+    /**
+     * closes all statements, must be called before the database is closed
+     */
+    synchronized void clear() {
+        for (final SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+    }
+
+}
@@ -0,0 +1,113 @@
+package cgeo.geocaching.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed storage format for large text columns (cache descriptions, hints, log texts).
+ * <br>
+ * A compressed text is stored as BLOB: a marker byte, a format byte and the raw deflate data of the UTF-8 text.
+ * Format 1 uses a preset dictionary of fragments which are frequent in listings and logs, which helps for short texts.
+ * The dictionary of a format must never change once released, add a new format instead.
+ * Uncompressed texts stay stored as TEXT, so both can be mixed in one column.
+ */
+final class TextCompression {
+
+    private static final byte MARKER = (byte) 0xC6;
+    private static final byte FORMAT_DEFLATE_DICTIONARY_1 = 1;
+
+    /** shorter texts are not compressed, the saving would be negligible */
+    static final int MIN_LENGTH = 200;
+
+    /** fragments frequent in listings and logs, most frequent last (deflate prefers near matches) */
+    private static final byte[] DICTIONARY_1 = (""
+            + "Geocache geocaching.com https://www. http://coord.info/ N 4 E 0 Stage Final Parking Cache Logbook "
+            + "Thanks for the cache! Thank you for the fun cache. Nice hide, TFTC! TFTC TNLNSL DNF found it "
+            + "<table border=\"0\"><tr><td></td></tr></table><h2></h2><h3></h3><li></li><ul></ul><ol></ol><em></em><i></i><u></u>"
+            + "<font face=\"Arial\" size=\"</font><b></b><strong></strong><div style=\"text-align:center;\"></div>"
+            + "<span style=\"font-family:</span><span style=\"font-size:</span><span style=\"color:#</span>"
+            + "<a href=\"https://</a><img src=\"https://img.geocaching.com/cache/large/\" alt=\"\" />"
+            + "&quot;&amp;&nbsp;<br /><br><br />\n<p></p>\n<p>the and to of a in you is for that on this with are the cache ")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private TextCompression() {
+        // utility class
+    }
+
+    /**
+     * @return compressed representation of the text, or {@code null} if the text should be stored uncompressed
+     * (too short, or compression would not save space)
+     */
+    @Nullable
+    static byte[] compress(@Nullable final String text) {
+        if (text == null || text.length() < MIN_LENGTH) {
+            return null;
+        }
+        final byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY_1);
+            deflater.setInput(input);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 3 + 16);
+            out.write(MARKER);
+            out.write(FORMAT_DEFLATE_DICTIONARY_1);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                final int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+                if (out.size() >= input.length) {
+                    // not worth it
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** whether the value is a text compressed by {@link #compress(String)} */
+    static boolean isCompressed(@Nullable final byte[] value) {
+        return value != null && value.length >= 2 && value[0] == MARKER;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a compressed text of a known format, or is corrupt
+     */
+    @NonNull
+    static String decompress(@NonNull final byte[] value) {
+        if (!isCompressed(value) || value[1] != FORMAT_DEFLATE_DICTIONARY_1) {
+            throw new IllegalArgumentException("unknown compressed text format");
+        }
+        // raw deflate streams need an extra dummy byte at the end to be inflated completely
+        final byte[] input = new byte[value.length - 1];
+        System.arraycopy(value, 2, input, 0, value.length - 2);
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(DICTIONARY_1);
+            inflater.setInput(input);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(value.length * 4);
+            final byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                final int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("truncated compressed text");
+                }
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (final DataFormatException e) {
+            throw new IllegalArgumentException("corrupt compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Dictionary of the users (log authors, cache and trackable owners) referenced by id from other tables.
+ * <br>
+ * Users once loaded are kept in memory, so loading many logs of the same finders
+ * returns the same name instances instead of allocating a new string per row.
+ * Ids are never reused (AUTOINCREMENT), so the users by id only need to be {@link #clear() cleared} if the database is replaced.
+ * <br>
+ * The ids of users written are kept in memory as well (key: guid|name), so storing logs and owners does not need a query per row.
+ * Ids looked up or added within a transaction are collected by the caller and only {@link #putIds(Map) remembered}
+ * after the transaction succeeded, as a user added in a transaction which is rolled back later must not be remembered.
+ * As unused users are deleted by the orphan cleanup, the remembered ids must be {@link #clear() cleared} then.
+ */
+final class UserDictionary {
+
+    /** a user of the dictionary */
+    static final class User {
+        final long id;
+        @NonNull final String name;
+        @NonNull final String guid;
+
+        User(final long id, @NonNull final String name, @NonNull final String guid) {
+            this.id = id;
+            this.name = name;
+            this.guid = guid;
+        }
+    }
+
+    private final String table;
+    private final Map<Long, User> byId;
+    private final Map<String, Long> idsByKey;
+
+    UserDictionary(@NonNull final String table, final int maxEntries) {
+        this.table = table;
+        this.byId = new LeastRecentlyUsedMap.LruCache<>(maxEntries);
+        this.idsByKey = new LeastRecentlyUsedMap.LruCache<>(maxEntries);
+    }
+
+    /**
+     * id of the user with the given name and guid, the user is added to the dictionary if not contained yet
+     *
+     * @param newIds ids looked up or added in the current transaction, the id is added to them.
+     *               They must be passed to {@link #putIds(Map)} after the transaction succeeded.
+     * @return id, or {@code null} for a blank name
+     */
+    @Nullable
+    Long getId(@NonNull final SQLiteDatabase db, @Nullable final String name, @Nullable final String guid, @NonNull final Map<String, Long> newIds) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        final String guidValue = StringUtils.defaultString(guid);
+        // guids never contain the separator, so the key is unique
+        final String key = guidValue + "|" + name;
+        Long id = newIds.get(key);
+        if (id == null) {
+            id = getKnownId(key);
+        }
+        if (id == null) {
+            id = queryOrInsert(db, name, guidValue);
+        }
+        newIds.put(key, id);
+        return id;
+    }
+
+    /** remembers the ids collected by {@link #getId(SQLiteDatabase, String, String, Map)}, after the transaction succeeded */
+    synchronized void putIds(@NonNull final Map<String, Long> newIds) {
+        idsByKey.putAll(newIds);
+    }
+
+    @Nullable
+    private synchronized Long getKnownId(@NonNull final String key) {
+        return idsByKey.get(key);
+    }
+
+    private long queryOrInsert(@NonNull final SQLiteDatabase db, @NonNull final String name, @NonNull final String guid) {
+        try (Cursor cursor = db.query(table, new String[]{"_id"}, "name = ? AND guid = ?", new String[]{name, guid}, null, null, null, "1")) {
+            if (cursor.moveToFirst()) {
+                return cursor.getLong(0);
+            }
+        }
+        final ContentValues values = new ContentValues();
+        values.put("name", name);
+        values.put("guid", guid);
+        return db.insertOrThrow(table, null, values);
+    }
+
+    /**
+     * @return the user with the given id, or {@code null} if there is no such user
+     */
+    @Nullable
+    synchronized User get(@NonNull final SQLiteDatabase db, final long id) {
+        final User cached = byId.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        try (Cursor cursor = db.query(table, new String[]{"name", "guid"}, "_id = ?", new String[]{String.valueOf(id)}, null, null, null, "1")) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return put(new User(id, cursor.getString(0), StringUtils.defaultString(cursor.getString(1))));
+        }
+    }
+
+    /**
+     * user of a row of a query joining the dictionary, the name columns are only read if the user is not in memory yet
+     *
+     * @return the user, or {@code null} if the id column is null
+     */
+    @Nullable
+    synchronized User get(@NonNull final Cursor cursor, final int idIndex, final int nameIndex, final int guidIndex) {
+        if (cursor.isNull(idIndex)) {
+            return null;
+        }
+        final long id = cursor.getLong(idIndex);
+        final User cached = byId.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        return put(new User(id, StringUtils.defaultString(cursor.getString(nameIndex)), StringUtils.defaultString(cursor.getString(guidIndex))));
+    }
+
+    synchronized void clear() {
+        byId.clear();
+        idsByKey.clear();
+    }
+
+    @NonNull
+    private User put(@NonNull final User user) {
+        byId.put(user.id, user);
+        return user;
+    }
+
+}
@@ -0,0 +1,68 @@
+package cgeo.geocaching.storage.extension;
+
+import cgeo.geocaching.storage.DataStore;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of the last runs of the background database maintenance, newest last.
+ */
+public class MaintenanceHistory extends DataStore.DBExtension {
+
+    private static final DataStore.DBExtensionType type = DataStore.DBExtensionType.DBEXTENSION_MAINTENANCE_HISTORY;
+    public static final int MAX_ENTRIES = 20;
+
+    private MaintenanceHistory(final DataStore.DBExtension copyFrom) {
+        super(copyFrom);
+    }
+
+    public long getTimestamp() {
+        return Long.parseLong(key);
+    }
+
+    public long getDurationMillis() {
+        return long1;
+    }
+
+    public long getBytesReclaimed() {
+        return long2;
+    }
+
+    public long getOrphansDeleted() {
+        return long3;
+    }
+
+    public boolean isCompleted() {
+        return long4 != 0;
+    }
+
+    @NonNull
+    public String getSummary() {
+        return string1 == null ? "" : string1;
+    }
+
+    /**
+     * stores the result of a maintenance run, older entries exceeding MAX_ENTRIES are removed
+     */
+    public static void add(final long timestamp, final long durationMillis, final long bytesReclaimed, final long orphansDeleted, final boolean completed, @NonNull final String summary) {
+        add(type, String.valueOf(timestamp), durationMillis, bytesReclaimed, orphansDeleted, completed ? 1 : 0, summary, "", "", "");
+        final ArrayList<DataStore.DBExtension> storedValues = getAll(type, null);
+        for (int i = 0; i < storedValues.size() - MAX_ENTRIES; i++) {
+            removeAll(type, storedValues.get(i).getKey());
+        }
+    }
+
+    /** @return stored maintenance runs, oldest first */
+    @NonNull
+    public static List<MaintenanceHistory> getAll() {
+        final List<MaintenanceHistory> result = new ArrayList<>();
+        for (final DataStore.DBExtension element : getAll(type, null)) {
+            result.add(new MaintenanceHistory(element));
+        }
+        return result;
+    }
+
+}
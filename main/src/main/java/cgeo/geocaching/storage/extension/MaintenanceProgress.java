@@ -0,0 +1,31 @@
+package cgeo.geocaching.storage.extension;
+
+import cgeo.geocaching.storage.DataStore;
+
+/**
+ * Position of the background database maintenance in the removal of orphaned records,
+ * so that an interrupted run is continued where it stopped.
+ */
+public class MaintenanceProgress extends DataStore.DBExtension {
+
+    /**
+     * key = "orphans"
+     * long1 = step of the orphan cleanup (index of the table)
+     * long2 = last rowid checked in this table
+     */
+
+    private static final DataStore.DBExtensionType type = DataStore.DBExtensionType.DBEXTENSION_MAINTENANCE_PROGRESS;
+    private static final String KEY_ORPHANS = "orphans";
+
+    /** @return step and last checked rowid of the orphan cleanup, both 0 if it is to be started from the beginning */
+    public static long[] getOrphanCleanup() {
+        final DataStore.DBExtension stored = load(type, KEY_ORPHANS);
+        return stored == null ? new long[]{0, 0} : new long[]{stored.getLong1(), stored.getLong2()};
+    }
+
+    public static void setOrphanCleanup(final int step, final long lastRowId) {
+        removeAll(type, KEY_ORPHANS);
+        add(type, KEY_ORPHANS, step, lastRowId, 0, 0, "", "", "", "");
+    }
+
+}
@@ -354,7 +354,22 @@ public class CacheListAdapter extends ArrayAdapter<Geocache> implements SectionI
             compass.updateCurrentCoords(coords);
         }
         if (isSortedByDistance()) {
-            forceSort();
+            resortByDistance();
+        }
+    }
+
+    /**
+     * Re-sorts the list after a position update. As the order changes only slightly between two updates,
+     * an incremental sort is used and the list is only notified if the order actually changed
+     * (visible distances and compasses are updated separately).
+     */
+    private void resortByDistance() {
+        if (CollectionUtils.isEmpty(list) || coords == null) {
+            return;
+        }
+        GlobalGPSDistanceComparator.updateGlobalGps(coords);
+        if (sortContext.getSort().getComparator().resort(list)) {
+            notifyDataSetChanged();
         }
     }
 
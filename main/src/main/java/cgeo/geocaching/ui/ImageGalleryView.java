@@ -71,7 +71,7 @@ public class ImageGalleryView extends LinearLayout {
     private boolean activityReenterCalled = false;
 
     private ImageActivityHelper imageHelper = null;
-    private final ImageDataMemoryCache imageDataMemoryCache = new ImageDataMemoryCache(2);
+    private final ImageDataMemoryCache imageDataMemoryCache = new ImageDataMemoryCache(2, ViewUtils.dpToPixel(IMAGE_TARGET_WIDTH_DP));
 
     private String geocode;
     private int imageCount = 0;
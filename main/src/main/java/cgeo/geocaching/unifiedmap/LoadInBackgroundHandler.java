@@ -3,29 +3,44 @@ package cgeo.geocaching.unifiedmap;
 import cgeo.geocaching.SearchResult;
 import cgeo.geocaching.connector.ConnectorFactory;
 import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.enumerations.StatusCode;
+import cgeo.geocaching.filters.core.GeocacheFilter;
 import cgeo.geocaching.location.Viewport;
 import cgeo.geocaching.maps.MapUtils;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.Log;
 import static cgeo.geocaching.location.Viewport.containingGCliveCaches;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModelProvider;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
 class LoadInBackgroundHandler {
+    /** loaded map cells are reused for this time (stored caches rarely change while the map is open, live caches change rarely at all) */
+    private static final long STORED_CELLS_MAX_AGE = TimeUnit.MINUTES.toMillis(2);
+    private static final long LIVE_CELLS_MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_CELLS = 256;
+    /** live searches with more results might be truncated */
+    private static final int LIVE_COMPLETE_RESULT_LIMIT = 400;
+
     private final Disposable timer;
     private final WeakReference<UnifiedMapActivity> activityRef;
 
@@ -40,7 +55,9 @@ class LoadInBackgroundHandler {
         private final WeakReference<LoadInBackgroundHandler> handlerRef;
         private int previousZoom = -100;
         private Viewport previousViewport;
-        private SearchResult lastSearchResult = null;
+        // only accessed on timer thread
+        private final ViewportCellCache storedCells = new ViewportCellCache(STORED_CELLS_MAX_AGE, MAX_CELLS);
+        private final ViewportCellCache liveCells = new ViewportCellCache(LIVE_CELLS_MAX_AGE, MAX_CELLS);
 
         LoadTimerAction(final LoadInBackgroundHandler handler) {
             handlerRef = new WeakReference<>(handler);
@@ -68,6 +85,7 @@ class LoadInBackgroundHandler {
                 // check if map moved or zoomed
                 final boolean moved = previousViewport == null || currentZoom != previousZoom || mapMoved(previousViewport, currentViewport);
                 if (moved) {
+                    new ViewModelProvider(activity).get(UnifiedMapViewModel.class).viewportAndZoom.postValue(new Pair<>(currentViewport, currentZoom));
                     load(currentViewport);
                     previousZoom = currentZoom;
                     previousViewport = currentViewport;
@@ -87,38 +105,78 @@ class LoadInBackgroundHandler {
             final UnifiedMapViewModel viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
             try {
                 new Handler(Looper.getMainLooper()).post(activity::showProgressSpinner);
+                final long start = System.currentTimeMillis();
+                final int level = ViewportCellCache.getLevel(viewport);
+                int loadedAreas = 0;
 
                 // caches
 
-                // always retriever stored caches
-                {
-                    final SearchResult searchResult = new SearchResult(DataStore.loadCachedInViewport(viewport.resize(1.2)));
-                    Log.e("load.searchResult: " + searchResult.getGeocodes());
+                // always retrieve stored caches, but only for cells not loaded yet
+                final Viewport storedArea = viewport.resize(1.2);
+                for (Viewport area : storedCells.getMissingAreas(storedArea, level)) {
+                    final SearchResult searchResult = new SearchResult(DataStore.loadCachedInViewport(area));
                     final Set<Geocache> cachesFromSearchResult = searchResult.getCachesFromSearchResult(LoadFlags.LOAD_WAYPOINTS);
-                    Log.e("load.cachesFromSearchResult: " + cachesFromSearchResult.size());
+                    // cells remember all caches, the current filter is applied whenever they are shown
+                    storedCells.setLoaded(area, level, cachesFromSearchResult, null);
                     MapUtils.filter(cachesFromSearchResult, activity.getFilterContext());
                     activity.addSearchResultByGeocaches(cachesFromSearchResult);
+                    loadedAreas++;
                 }
+                final Set<String> knownGeocodes = storedCells.getGeocodes(storedArea, level);
 
                 if (Settings.isLiveMap()) {
-                    // retrieving live caches (if enabled)
-                    final boolean useLastSearchResult = null != lastSearchResult && null != previousViewport && previousViewport.includes(viewport);
-                    final Viewport newViewport = viewport.resize(3.0);
-                    final SearchResult searchResult = useLastSearchResult ? lastSearchResult : ConnectorFactory.searchByViewport(newViewport, activity.getFilterContext().get());
-
-                    final Set<Geocache> result = searchResult.getCachesFromSearchResult(LoadFlags.LOAD_CACHE_OR_DB);
-                    MapUtils.filter(result, activity.getFilterContext());
-                    final Set<String> filteredCodes = searchResult.getFilteredGeocodes();
-                    Log.d("Filtering out " + filteredCodes.size() + " caches: " + filteredCodes);
-                    DataStore.removeCaches(filteredCodes, EnumSet.of(LoadFlags.RemoveFlag.CACHE));
-                    activity.addSearchResultByGeocaches(result);
-
-                    lastSearchResult = searchResult;
-                    if (null == previousViewport || !useLastSearchResult || (!result.isEmpty() && lastSearchResult.getCount() > 400)) {
-                        previousViewport = containingGCliveCaches(result);
+                    // retrieving live caches (if enabled), again only for cells not loaded yet
+                    final Viewport liveArea = viewport.resize(3.0);
+                    final List<AreaSearch> searches = new ArrayList<>();
+                    for (Viewport area : liveCells.getMissingAreas(liveArea, level)) {
+                        searches.add(new AreaSearch(area));
+                    }
+                    // search all areas in parallel, render each connector's caches as soon as they arrive
+                    final GeocacheFilter filter = activity.getFilterContext().get();
+                    Observable.fromIterable(searches)
+                            .flatMap(search -> ConnectorFactory.searchByViewportStream(search.area, filter)
+                                    .subscribeOn(AndroidRxUtils.networkScheduler)
+                                    .map(connectorResult -> new Pair<>(search, connectorResult)))
+                            .blockingForEach(searchAndResult -> {
+                                final SearchResult connectorResult = searchAndResult.second;
+                                final Set<Geocache> caches = connectorResult.getCachesFromSearchResult(LoadFlags.LOAD_CACHE_OR_DB);
+                                searchAndResult.first.result.addAll(caches);
+                                searchAndResult.first.searchResult.addSearchResult(connectorResult);
+                                MapUtils.filter(caches, activity.getFilterContext());
+                                final Set<String> filteredCodes = connectorResult.getFilteredGeocodes();
+                                Log.d("Filtering out " + filteredCodes.size() + " caches: " + filteredCodes);
+                                DataStore.removeCaches(filteredCodes, EnumSet.of(LoadFlags.RemoveFlag.CACHE));
+                                activity.addSearchResultByGeocaches(caches);
+                            });
+                    loadedAreas += searches.size();
+
+                    for (AreaSearch search : searches) {
+                        if (search.searchResult.getError() == StatusCode.NO_ERROR) {
+                            // large results may be incomplete: then only the area actually covered by the returned caches counts as loaded
+                            if (search.searchResult.getCount() <= LIVE_COMPLETE_RESULT_LIMIT) {
+                                liveCells.setLoaded(search.area, level, search.result, null);
+                            } else {
+                                final Viewport covered = containingGCliveCaches(search.result);
+                                if (covered != null) {
+                                    liveCells.setLoaded(search.area, level, search.result, covered);
+                                }
+                            }
+                        }
                     }
-                    Log.d("searchByViewport: cached=" + useLastSearchResult + ", results=" + lastSearchResult.getCount() + ", viewport=" + previousViewport);
+                    knownGeocodes.addAll(liveCells.getGeocodes(liveArea, level));
+                }
+
+                // caches of already loaded cells which got dropped from the map meanwhile, filtered again as they might have changed
+                for (Geocache cache : viewModel.caches.getValue().getAsList()) {
+                    knownGeocodes.remove(cache.getGeocode());
+                }
+                if (!knownGeocodes.isEmpty()) {
+                    final Set<Geocache> restored = DataStore.loadCaches(knownGeocodes, LoadFlags.LOAD_CACHE_OR_DB);
+                    MapUtils.filter(restored, activity.getFilterContext());
+                    activity.addSearchResultByGeocaches(restored);
                 }
+                Log.d("load: " + loadedAreas + " areas loaded, " + knownGeocodes.size() + " caches restored, cells: stored=" + storedCells.size()
+                        + ", live=" + liveCells.size() + ", " + (System.currentTimeMillis() - start) + "ms");
 
                 UnifiedMapActivity.loadWaypoints(activity, viewModel, viewport);
 
@@ -131,6 +189,18 @@ class LoadInBackgroundHandler {
 
     }
 
+    /** live search of one missing area, results are collected on the timer thread */
+    private static final class AreaSearch {
+        @NonNull
+        private final Viewport area;
+        private final SearchResult searchResult = new SearchResult();
+        private final Set<Geocache> result = new HashSet<>();
+
+        AreaSearch(@NonNull final Viewport area) {
+            this.area = area;
+        }
+    }
+
     static boolean mapMoved(final Viewport referenceViewport, final Viewport newViewport) {
         return Math.abs(newViewport.getLatitudeSpan() - referenceViewport.getLatitudeSpan()) > 50e-6 || Math.abs(newViewport.getLongitudeSpan() - referenceViewport.getLongitudeSpan()) > 50e-6 || Math.abs(newViewport.center.getLatitude() - referenceViewport.center.getLatitude()) > referenceViewport.getLatitudeSpan() / 4 || Math.abs(newViewport.center.getLongitude() - referenceViewport.center.getLongitude()) > referenceViewport.getLongitudeSpan() / 4;
     }
@@ -29,7 +29,9 @@ import cgeo.geocaching.models.IWaypoint;
 import cgeo.geocaching.models.Route;
 import cgeo.geocaching.models.RouteItem;
 import cgeo.geocaching.models.RouteOrRouteItem;
+import cgeo.geocaching.models.RouteSegment;
 import cgeo.geocaching.models.Waypoint;
+import cgeo.geocaching.network.Network;
 import cgeo.geocaching.sensors.GeoDirHandler;
 import cgeo.geocaching.sensors.LocationDataProvider;
 import cgeo.geocaching.service.CacheDownloaderService;
@@ -55,15 +57,19 @@ import cgeo.geocaching.unifiedmap.layers.PositionLayer;
 import cgeo.geocaching.unifiedmap.layers.TracksLayer;
 import cgeo.geocaching.unifiedmap.mapsforgevtm.legend.RenderThemeLegend;
 import cgeo.geocaching.unifiedmap.tileproviders.AbstractTileProvider;
+import cgeo.geocaching.unifiedmap.tileproviders.TilePrefetcher;
 import cgeo.geocaching.unifiedmap.tileproviders.TileProviderFactory;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.CommonUtils;
 import cgeo.geocaching.utils.CompactIconModeUtils;
 import cgeo.geocaching.utils.FilterUtils;
 import cgeo.geocaching.utils.Formatter;
+import cgeo.geocaching.utils.FrameTimeMonitor;
 import cgeo.geocaching.utils.HideActionBarUtils;
 import cgeo.geocaching.utils.HistoryTrackUtils;
 import cgeo.geocaching.utils.LifecycleAwareBroadcastReceiver;
 import cgeo.geocaching.utils.Log;
+import cgeo.geocaching.utils.MapMarkerUtils;
 import cgeo.geocaching.utils.functions.Func1;
 import static cgeo.geocaching.Intents.ACTION_INDIVIDUALROUTE_CHANGED;
 import static cgeo.geocaching.filters.core.GeocacheFilterContext.FilterType.LIVE;
@@ -130,6 +136,7 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
 
     private LocUpdater geoDirUpdate;
     private final CompositeDisposable resumeDisposables = new CompositeDisposable();
+    private final FrameTimeMonitor frameTimeMonitor = new FrameTimeMonitor("UnifiedMap");
     private MenuItem followMyLocationItem = null;
 
     private RouteTrackUtils routeTrackUtils = null;
@@ -195,6 +202,8 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
 
         clickableItemsLayer = new GeoItemLayer<>("clickableItems");
         nonClickableItemsLayer = new GeoItemLayer<>("nonClickableItems"); // default layer for all map items not worth an own layer
+        // cache markers are updated while panning, apply their changes in batches of one frame (at 60fps) to keep panning smooth
+        clickableItemsLayer.setMapChangeTimeSliceMillis(16);
 
         layers.add(clickableItemsLayer);
         layers.add(nonClickableItemsLayer);
@@ -223,6 +232,7 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
 
         CompactIconModeUtils.setCompactIconModeThreshold(getResources());
 
+        viewModel.viewportAndZoom.observe(this, viewportAndZoom -> prefetchTiles(viewportAndZoom.first, viewportAndZoom.second));
         viewModel.mapCenter.observe(this, center -> updateCacheCountSubtitle());
         viewModel.caches.observe(this, caches -> updateCacheCountSubtitle());
 
@@ -789,6 +799,13 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
 
         for (String key : clickableItemsLayer.getTouched(Geopoint.forE6(latitudeE6, longitudeE6))) {
 
+            if (key.startsWith(UnifiedMapViewModel.CLUSTER_KEY_PREFIX) && !isLongTap) {
+                // tapping a cluster zooms into it
+                mapFragment.setCenter(Geopoint.forE6(latitudeE6, longitudeE6));
+                mapFragment.setZoom(mapFragment.getCurrentZoom() + 2);
+                return;
+            }
+
             if (key.startsWith(UnifiedMapViewModel.CACHE_KEY_PREFIX)) {
                 final String geocode = key.substring(UnifiedMapViewModel.CACHE_KEY_PREFIX.length());
 
@@ -994,6 +1011,31 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
         resumeDisposables.add(geoDirUpdate.start(GeoDirHandler.UPDATE_GEODIR));
     }
 
+    /** prefetches tiles of online map sources around the viewport, ahead in moving direction and along the individual route */
+    private void prefetchTiles(final Viewport viewport, final int zoom) {
+        if (!Settings.isMapTilePrefetch() || Network.isMetered()) {
+            return;
+        }
+        final TilePrefetcher prefetcher = tileProvider == null ? null : tileProvider.getTilePrefetcher();
+        if (prefetcher == null || viewport == null) {
+            return;
+        }
+        final LocUpdater.LocationWrapper locationWrapper = viewModel.location.getValue();
+        final Location location = locationWrapper == null ? null : locationWrapper.location;
+        final boolean isMoving = location != null && location.hasBearing() && location.getSpeed() > 1f;
+        final Geopoint position = isMoving ? new Geopoint(location) : null;
+        final float bearing = isMoving ? location.getBearing() : Float.NaN;
+
+        final Route route = viewModel.individualRoute.getValue();
+        final List<Geopoint> routePoints = new ArrayList<>();
+        if (route != null && !route.isHidden() && route.getSegments() != null) {
+            for (RouteSegment segment : route.getSegments()) {
+                routePoints.addAll(segment.getPoints());
+            }
+        }
+        AndroidRxUtils.computationScheduler.scheduleDirect(() -> prefetcher.prefetchAround(viewport, zoom, position, bearing, routePoints));
+    }
+
     @Override
     protected void onStop() {
         this.resumeDisposables.clear();
@@ -1002,6 +1044,8 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
 
     @Override
     public void onPause() {
+        frameTimeMonitor.stop();
+        Log.d(MapMarkerUtils.getMarkerCacheStatistics());
         Settings.setMapZoom(compatibilityMapMode, mapFragment.getCurrentZoom());
         Settings.setMapCenter(mapFragment.getCenter());
         super.onPause();
@@ -1014,6 +1058,7 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
         }
         super.onResume();
         MapUtils.updateFilterBar(this, mapType.filterContext);
+        frameTimeMonitor.start(getWindowManager().getDefaultDisplay());
     }
 
     @Override
@@ -2,6 +2,7 @@ package cgeo.geocaching.unifiedmap;
 
 import cgeo.geocaching.location.Geopoint;
 import cgeo.geocaching.location.ProximityNotification;
+import cgeo.geocaching.location.Viewport;
 import cgeo.geocaching.maps.PositionHistory;
 import cgeo.geocaching.maps.RouteTrackUtils;
 import cgeo.geocaching.maps.Tracks;
@@ -17,6 +18,7 @@ import cgeo.geocaching.utils.livedata.ConstantLiveData;
 import cgeo.geocaching.utils.livedata.Event;
 
 import android.content.Context;
+import android.util.Pair;
 
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
@@ -30,6 +32,7 @@ public class UnifiedMapViewModel extends ViewModel implements IndividualRoute.Up
     public static final String CACHE_STAR_KEY_PREFIX = "CACHE_STAR_";
     public static final String WAYPOINT_KEY_PREFIX = "WP_";
     public static final String COORDSPOINT_KEY_PREFIX = "COORDS_";
+    public static final String CLUSTER_KEY_PREFIX = "CLUSTER_";
 
     // ViewModels will survive config changes, no savedInstanceState is needed
     // Don't hold an activity references inside the ViewModel!
@@ -62,6 +65,8 @@ public class UnifiedMapViewModel extends ViewModel implements IndividualRoute.Up
     public final MutableLiveData<PositionHistory> positionHistory = new MutableLiveData<>(Settings.isMapTrail() ? new PositionHistory() : null);
     public final MutableLiveData<Boolean> followMyLocation = new MutableLiveData<>(Settings.getFollowMyLocation());
     public final MutableLiveData<Geopoint> mapCenter = new MutableLiveData<>();
+    /** viewport and zoom level of the map, updated (from background) whenever map was moved or zoomed noticeably */
+    public final MutableLiveData<Pair<Viewport, Integer>> viewportAndZoom = new MutableLiveData<>();
 
     public void setTrack(final String key, final IGeoItemSupplier route, final int unused1, final int unused2) {
         tracks.setRoute(key, route);
@@ -0,0 +1,205 @@
+package cgeo.geocaching.unifiedmap;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers which parts of the map have already been loaded, to support incremental loading of viewports.
+ * <br>
+ * The world is split into a fixed grid of cells per level (cell size 360° / 2^level, level chosen by viewport size).
+ * For each loaded cell the geocodes found in it and the load time are stored.
+ * A cell counts as loaded if it or one of its parent cells on coarser levels was loaded within the maximum age,
+ * so zooming in does not trigger any reloads. Missing cells are merged into as few rectangles as possible for loading.
+ * The least recently used cells are evicted if the maximum number of cells is exceeded.
+ * <br>
+ * Instances are not thread-safe.
+ */
+final class ViewportCellCache {
+
+    /** coarsest parent level considered when checking whether a cell is loaded */
+    private static final int MAX_PARENT_LEVELS = 6;
+    private static final int MAX_LEVEL = 24;
+
+    private final long maxAgeMillis;
+    private final int maxCells;
+    private final LinkedHashMap<Long, Cell> cells = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Cell {
+        private final long timestamp;
+        private final Set<String> geocodes = new HashSet<>();
+
+        Cell(final long timestamp) {
+            this.timestamp = timestamp;
+        }
+    }
+
+    ViewportCellCache(final long maxAgeMillis, final int maxCells) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxCells = maxCells;
+    }
+
+    /** returns the cell level to use for given viewport: cells are between half and full viewport height */
+    static int getLevel(@NonNull final Viewport viewport) {
+        final double span = Math.max(viewport.getLatitudeSpan(), 1e-6);
+        final int level = (int) Math.floor(Math.log(360 / span) / Math.log(2)) + 1;
+        return Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    /** returns the areas within given area which are not loaded yet, as rectangles of whole cells */
+    @NonNull
+    List<Viewport> getMissingAreas(@NonNull final Viewport area, final int level) {
+        final long now = System.currentTimeMillis();
+        final double cellSize = getCellSize(level);
+        final int minX = getIndex(area.getLongitudeMin() + 180, cellSize);
+        final int maxX = getIndex(area.getLongitudeMax() + 180, cellSize);
+        final int minY = getIndex(area.getLatitudeMin() + 90, cellSize);
+        final int maxY = getIndex(area.getLatitudeMax() + 90, cellSize);
+
+        // collect horizontal runs of missing cells per row, then merge runs with identical extent in adjacent rows
+        final List<int[]> rects = new ArrayList<>(); // minX, maxX, minY, maxY
+        List<int[]> previousRow = new ArrayList<>();
+        for (int y = minY; y <= maxY; y++) {
+            final List<int[]> row = new ArrayList<>();
+            int runStart = -1;
+            for (int x = minX; x <= maxX + 1; x++) {
+                final boolean missing = x <= maxX && !isLoaded(level, x, y, now);
+                if (missing && runStart < 0) {
+                    runStart = x;
+                } else if (!missing && runStart >= 0) {
+                    int[] rect = null;
+                    for (int[] previous : previousRow) {
+                        if (previous[0] == runStart && previous[1] == x - 1) {
+                            rect = previous;
+                            rect[3] = y;
+                            break;
+                        }
+                    }
+                    if (rect == null) {
+                        rect = new int[]{runStart, x - 1, y, y};
+                        rects.add(rect);
+                    }
+                    row.add(rect);
+                    runStart = -1;
+                }
+            }
+            previousRow = row;
+        }
+
+        final List<Viewport> result = new ArrayList<>();
+        for (int[] rect : rects) {
+            result.add(new Viewport(new Geopoint(rect[2] * cellSize - 90, rect[0] * cellSize - 180),
+                    new Geopoint(Math.min(90, (rect[3] + 1) * cellSize - 90), Math.min(180, (rect[1] + 1) * cellSize - 180))));
+        }
+        return result;
+    }
+
+    /**
+     * Marks all cells of given level completely within the given area as loaded, with the given caches as their content.
+     * If limit is given, only cells completely within this area are marked (e.g. if a search returned an incomplete result).
+     */
+    void setLoaded(@NonNull final Viewport area, final int level, @NonNull final Collection<Geocache> caches, @Nullable final Viewport limit) {
+        final Viewport loaded = limit == null ? area : intersection(area, limit);
+        if (loaded == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final double cellSize = getCellSize(level);
+        // tolerance: area borders are calculated from cell indexes
+        final double epsilon = cellSize * 1e-6;
+        final int minX = getIndex(loaded.getLongitudeMin() + 180 + epsilon, cellSize);
+        final int maxX = getIndex(loaded.getLongitudeMax() + 180 - epsilon, cellSize);
+        final int minY = getIndex(loaded.getLatitudeMin() + 90 + epsilon, cellSize);
+        final int maxY = getIndex(loaded.getLatitudeMax() + 90 - epsilon, cellSize);
+        final Map<Long, Cell> newCells = new LinkedHashMap<>();
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                final double cellMinLon = x * cellSize - 180;
+                final double cellMinLat = y * cellSize - 90;
+                final boolean complete = cellMinLon >= loaded.getLongitudeMin() - epsilon && cellMinLon + cellSize <= loaded.getLongitudeMax() + epsilon
+                        && cellMinLat >= loaded.getLatitudeMin() - epsilon && cellMinLat + cellSize <= loaded.getLatitudeMax() + epsilon;
+                if (complete) {
+                    newCells.put(getKey(level, x, y), new Cell(now));
+                }
+            }
+        }
+        for (Geocache cache : caches) {
+            final Geopoint coords = cache.getCoords();
+            if (coords != null) {
+                final Cell cell = newCells.get(getKey(level, getIndex(coords.getLongitude() + 180, cellSize), getIndex(coords.getLatitude() + 90, cellSize)));
+                if (cell != null) {
+                    cell.geocodes.add(cache.getGeocode());
+                }
+            }
+        }
+        cells.putAll(newCells);
+        while (cells.size() > maxCells) {
+            cells.remove(cells.keySet().iterator().next());
+        }
+    }
+
+    /** returns the geocodes of all caches in loaded cells intersecting given area */
+    @NonNull
+    Set<String> getGeocodes(@NonNull final Viewport area, final int level) {
+        final Set<String> result = new HashSet<>();
+        for (int l = level; l >= Math.max(0, level - MAX_PARENT_LEVELS); l--) {
+            final double cellSize = getCellSize(l);
+            for (int x = getIndex(area.getLongitudeMin() + 180, cellSize); x <= getIndex(area.getLongitudeMax() + 180, cellSize); x++) {
+                for (int y = getIndex(area.getLatitudeMin() + 90, cellSize); y <= getIndex(area.getLatitudeMax() + 90, cellSize); y++) {
+                    final Cell cell = cells.get(getKey(l, x, y));
+                    if (cell != null) {
+                        result.addAll(cell.geocodes);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return cells.size();
+    }
+
+    private boolean isLoaded(final int level, final int x, final int y, final long now) {
+        for (int l = level, lx = x, ly = y; l >= Math.max(0, level - MAX_PARENT_LEVELS); l--, lx >>= 1, ly >>= 1) {
+            final Cell cell = cells.get(getKey(l, lx, ly));
+            if (cell != null && now - cell.timestamp <= maxAgeMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static Viewport intersection(final Viewport a, final Viewport b) {
+        final double minLat = Math.max(a.getLatitudeMin(), b.getLatitudeMin());
+        final double maxLat = Math.min(a.getLatitudeMax(), b.getLatitudeMax());
+        final double minLon = Math.max(a.getLongitudeMin(), b.getLongitudeMin());
+        final double maxLon = Math.min(a.getLongitudeMax(), b.getLongitudeMax());
+        return minLat > maxLat || minLon > maxLon ? null : new Viewport(new Geopoint(minLat, minLon), new Geopoint(maxLat, maxLon));
+    }
+
+    private static double getCellSize(final int level) {
+        return 360.0 / (1 << level);
+    }
+
+    private static int getIndex(final double value, final double cellSize) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long getKey(final int level, final int x, final int y) {
+        return ((long) level << 58) | ((long) (x & 0x1FFFFFFF) << 29) | (y & 0x1FFFFFFF);
+    }
+
+}
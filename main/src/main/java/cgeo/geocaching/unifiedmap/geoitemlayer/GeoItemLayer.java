@@ -1,15 +1,18 @@
 package cgeo.geocaching.unifiedmap.geoitemlayer;
 
+import cgeo.geocaching.location.GeoSpatialIndex;
 import cgeo.geocaching.location.Geopoint;
 import cgeo.geocaching.location.Viewport;
 import cgeo.geocaching.models.geoitem.GeoGroup;
 import cgeo.geocaching.models.geoitem.GeoItem;
+import cgeo.geocaching.models.geoitem.GeoItemUtils;
 import cgeo.geocaching.models.geoitem.GeoPrimitive;
 import cgeo.geocaching.models.geoitem.ToScreenProjector;
 import cgeo.geocaching.utils.AsynchronousMapWrapper;
 import cgeo.geocaching.utils.CommonUtils;
 import cgeo.geocaching.utils.ContextLogger;
 import cgeo.geocaching.utils.Log;
+import cgeo.geocaching.utils.functions.Func0;
 
 import android.util.Pair;
 
@@ -22,6 +25,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * An abstracted Map Layer which allows to handle a group of related geo objects on a map layer
@@ -42,6 +46,12 @@ public class GeoItemLayer<K> {
     private static final ThreadLocal<Map<Integer, GeoPrimitive>> LOCAL_MAP_2 = CommonUtils.threadLocalWithInitial(HashMap::new);
     private final String id;
     private final Map<K, Pair<GeoItem, Boolean>> itemMap = new HashMap<>();
+    //spatial index over touch bounds of all items (visible or not), used to resolve taps and area queries
+    private final GeoSpatialIndex<K> spatialIndex = new GeoSpatialIndex<>();
+    //number of items per touch margin (in screen pixels), largest key is the margin to consider around a tap
+    private final TreeMap<Integer, Integer> touchMarginCounts = new TreeMap<>();
+    //maximum time in ms a batch of map changes of this layer may take on UI thread, 0 to use the default of the provider
+    private volatile int mapChangeTimeSliceMillis = 0;
     //private final Lock lock = new ReentrantLock(); //-> locking is done via synchronized
 
     //Key of mapWriter is always instance of either K or GeoGroupKey<K>
@@ -113,6 +123,7 @@ public class GeoItemLayer<K> {
 
         public final IProviderGeoItemLayer<Object> providerLayer;
         private final String logPraefix;
+        private final Func0<Integer> timeSliceMillis;
 
         private long addProcessed = 0;
         private long removeProcessed = 0;
@@ -122,9 +133,10 @@ public class GeoItemLayer<K> {
         private long replaceProcessedInBatch = 0;
 
         @SuppressWarnings("unchecked")
-        MapWriter(final String logPraefix, final IProviderGeoItemLayer<?> providerLayer) {
+        MapWriter(final String logPraefix, final IProviderGeoItemLayer<?> providerLayer, final Func0<Integer> timeSliceMillis) {
             this.providerLayer = (IProviderGeoItemLayer<Object>) providerLayer;
             this.logPraefix = logPraefix;
+            this.timeSliceMillis = timeSliceMillis;
         }
 
         @Override
@@ -217,6 +229,10 @@ public class GeoItemLayer<K> {
 
         @Override
         public boolean continueMapChangeExecutions(final long startTime, final  int queueLength) {
+            final int timeSlice = timeSliceMillis.call();
+            if (timeSlice > 0 && System.currentTimeMillis() - startTime >= timeSlice) {
+                return false;
+            }
             return providerLayer != null && providerLayer.continueMapChangeExecutions(startTime, queueLength);
         }
     }
@@ -234,6 +250,15 @@ public class GeoItemLayer<K> {
         return id;
     }
 
+    /**
+     * Limits the time a batch of map changes of this layer may take on UI thread, remaining changes are applied in the next batch.
+     * Layers whose items change frequently while the map is moved should use about one frame (16ms).
+     * Default is 0, which leaves the limit to the map provider (see {@link IProviderGeoItemLayer#continueMapChangeExecutions(long, int)}).
+     */
+    public void setMapChangeTimeSliceMillis(final int millis) {
+        this.mapChangeTimeSliceMillis = millis;
+    }
+
     /**
      * Destroys this layer and cleans up any resouces held by it. Do not use this object again
      * after calling destroy()!
@@ -258,7 +283,7 @@ public class GeoItemLayer<K> {
         Log.d(logPraefix + " init " + zLevel);
         providerLayer.init(zLevel);
         this.providerLayer = providerLayer;
-        this.mapWriter = new AsynchronousMapWrapper<>(new MapWriter(logPraefix, providerLayer));
+        this.mapWriter = new AsynchronousMapWrapper<>(new MapWriter(logPraefix, providerLayer, () -> mapChangeTimeSliceMillis));
         for (Map.Entry<K, Pair<GeoItem, Boolean>> entry : this.itemMap.entrySet()) {
             if (entry.getValue().second) {
                 putToMap(entry.getKey(), entry.getValue().first, null);
@@ -288,6 +313,11 @@ public class GeoItemLayer<K> {
         }
 
         itemMap.put(key, new Pair<>(item, show));
+        spatialIndex.put(key, GeoItemUtils.getTouchBounds(item));
+        if (previousItem != null) {
+            removeTouchMargin(previousItem.first);
+        }
+        addTouchMargin(item);
 
         //draw new item on map if necessary
         if (show) {
@@ -300,12 +330,30 @@ public class GeoItemLayer<K> {
         final Pair<GeoItem, Boolean> value = itemMap.get(key);
         if (value != null) {
             itemMap.remove(key);
+            spatialIndex.remove(key);
+            removeTouchMargin(value.first);
             if (value.second) {
                 removeFromMap(key, value.first);
             }
         }
     }
 
+    private void addTouchMargin(final GeoItem item) {
+        final int margin = GeoItemUtils.getTouchMarginPx(item);
+        final Integer count = touchMarginCounts.get(margin);
+        touchMarginCounts.put(margin, count == null ? 1 : count + 1);
+    }
+
+    private void removeTouchMargin(final GeoItem item) {
+        final int margin = GeoItemUtils.getTouchMarginPx(item);
+        final Integer count = touchMarginCounts.get(margin);
+        if (count == null || count <= 1) {
+            touchMarginCounts.remove(margin);
+        } else {
+            touchMarginCounts.put(margin, count - 1);
+        }
+    }
+
     /** Gets the object associated with the given key */
     public synchronized GeoItem get(final K key) {
         final Pair<GeoItem, Boolean> entry = itemMap.get(key);
@@ -462,6 +510,11 @@ public class GeoItemLayer<K> {
         return vpBuilder.getViewport();
     }
 
+    /** Gets keys of all objects (visible or invisible) whose bounding box intersects the given viewport */
+    public synchronized Set<K> getInViewport(@NonNull final Viewport viewport) {
+        return spatialIndex.query(viewport);
+    }
+
     /** Gets a list of all objects touched by a given geopoint. Only visible objects are considered */
     public synchronized Set<K> getTouched(final Geopoint tapped) {
         try (ContextLogger cLog = new ContextLogger(Log.LogLevel.DEBUG, "GeoItemLayer.getTouched")) {
@@ -476,13 +529,56 @@ public class GeoItemLayer<K> {
             cLog.add("scc=" + (toCoordFct != null));
 
             final Set<K> result = new HashSet<>();
-            for (Map.Entry<K, Pair<GeoItem, Boolean>> entry : this.itemMap.entrySet()) {
-                if (entry.getValue().second && entry.getValue().first.touches(tapped, toCoordFct)) {
-                    result.add(entry.getKey());
+            final Viewport tapArea = toCoordFct == null ? null : getTapArea(tapped, toCoordFct, touchMarginCounts.isEmpty() ? 0 : touchMarginCounts.lastKey());
+            if (tapArea == null) {
+                //no usable projection -> check all items
+                for (Map.Entry<K, Pair<GeoItem, Boolean>> entry : this.itemMap.entrySet()) {
+                    if (entry.getValue().second && entry.getValue().first.touches(tapped, toCoordFct)) {
+                        result.add(entry.getKey());
+                    }
                 }
+            } else {
+                final int[] candidates = new int[]{0};
+                spatialIndex.query(tapArea.getLatitudeMin(), tapArea.getLongitudeMin(), tapArea.getLatitudeMax(), tapArea.getLongitudeMax(), key -> {
+                    candidates[0]++;
+                    final Pair<GeoItem, Boolean> value = itemMap.get(key);
+                    if (value != null && value.second && value.first.touches(tapped, toCoordFct)) {
+                        result.add(key);
+                    }
+                });
+                cLog.add("c:" + candidates[0]);
             }
             cLog.add("t:" + result.size() + "/" + this, itemMap.size());
             return result;
         }
     }
+
+    /**
+     * Calculates the geographic area around a tapped point which may contain items touched by the tap, given the maximum number
+     * of pixels an item can be touched outside its bounding box. Returns null if the projection can't be used for this.
+     */
+    @Nullable
+    private static Viewport getTapArea(final Geopoint tapped, @NonNull final ToScreenProjector projector, final int marginPx) {
+        // measure pixels per degree in latitude (towards equator, where Mercator scale is smaller) and longitude direction.
+        // Distances are used instead of x/y deltas as the map might be rotated
+        final double lat = Math.max(-84, Math.min(84, tapped.getLatitude()));
+        final double lon = tapped.getLongitude();
+        final int[] basePt = projector.project(new Geopoint(lat, lon));
+        final int[] latPt = projector.project(new Geopoint(lat > 0 ? lat - 1 : lat + 1, lon));
+        final int[] lonPt = projector.project(new Geopoint(lat, lon > 0 ? lon - 1 : lon + 1));
+        if (basePt == null || latPt == null || lonPt == null) {
+            return null;
+        }
+        final double pxPerDegreeLat = Math.hypot(latPt[0] - basePt[0], latPt[1] - basePt[1]);
+        final double pxPerDegreeLon = Math.hypot(lonPt[0] - basePt[0], lonPt[1] - basePt[1]);
+        if (pxPerDegreeLat < 1 || pxPerDegreeLon < 1) {
+            return null;
+        }
+        // add some safety margin for rounding and Mercator distortion
+        final double marginLat = (marginPx + 2) * 1.2 / pxPerDegreeLat;
+        final double marginLon = (marginPx + 2) * 1.2 / pxPerDegreeLon;
+        // longitudes are not clamped: near the antimeridian the tap area extends beyond ±180°, which the spatial index handles
+        return new Viewport(new Geopoint(Math.max(-90, tapped.getLatitude() - marginLat), lon - marginLon),
+                new Geopoint(Math.min(90, tapped.getLatitude() + marginLat), lon + marginLon));
+    }
 }
@@ -69,6 +69,7 @@ public interface IProviderGeoItemLayer<C> {
         AndroidRxUtils.runOnUi(runnable);
     }
 
+    /** by default, map changes are processed in batches of up to 40ms. Layers may use shorter batches, see {@link GeoItemLayer#setMapChangeTimeSliceMillis(int)} */
     default boolean continueMapChangeExecutions(final long startTime, final  int queueLength) {
         return System.currentTimeMillis() - startTime < 40;
     }
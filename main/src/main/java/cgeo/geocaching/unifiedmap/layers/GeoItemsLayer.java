@@ -1,6 +1,9 @@
 package cgeo.geocaching.unifiedmap.layers;
 
 import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.location.GeoClusterIndex;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
 import cgeo.geocaching.maps.CacheMarker;
 import cgeo.geocaching.maps.MapStarUtils;
 import cgeo.geocaching.models.Geocache;
@@ -12,65 +15,102 @@ import cgeo.geocaching.storage.DataStore;
 import cgeo.geocaching.unifiedmap.LayerHelper;
 import cgeo.geocaching.unifiedmap.UnifiedMapViewModel;
 import cgeo.geocaching.unifiedmap.geoitemlayer.GeoItemLayer;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.CollectionDiff;
 import cgeo.geocaching.utils.CompactIconModeUtils;
+import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.MapMarkerUtils;
 
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.ViewModelProvider;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.core.Scheduler;
 
 public class GeoItemsLayer {
 
-    private Map<String, Integer> lastDisplayedGeocaches = new HashMap<>();
-    private Map<String, Integer> lastDisplayedWaypoints = new HashMap<>();
+    /** clustering is only done if more caches than this are loaded */
+    private static final int CLUSTER_MIN_CACHES = 200;
+    /** cluster radius in screen pixels (per 256px tile) */
+    private static final int CLUSTER_RADIUS_PX = 60;
+
+    private final Resources res;
+    private final GeoItemLayer<String> layer;
+
+    /**
+     * Marker creation and diffing is done by this worker, which executes its tasks one after the other. Changes are then handed over
+     * to the thread-safe GeoItemLayer, which applies them to the map on UI thread in time-sliced batches.
+     */
+    private final Scheduler.Worker markerWorker = AndroidRxUtils.computationScheduler.createWorker();
+
+    // only accessed by tasks of markerWorker
+    private Map<String, Long> lastDisplayedGeocaches = new HashMap<>();
+    private Map<String, Long> lastDisplayedWaypoints = new HashMap<>();
+    private Set<String> lastDisplayedClusters = new HashSet<>();
+
+    // newest requested update, older ones still queued are skipped
+    private final AtomicInteger cacheUpdateRequest = new AtomicInteger(0);
+    private final AtomicInteger waypointUpdateRequest = new AtomicInteger(0);
+
+    // current state, only accessed on UI thread
     private final CollectionDiff<String, String, String> lastDisplayedCacheStars = new CollectionDiff<>(k -> k);
     private boolean lastForceCompactIconMode = false;
-
+    private List<Geocache> currentCaches = new ArrayList<>();
+    private Viewport currentViewport = null;
+    private int currentZoom = -1;
+    private GeoClusterIndex clusterIndex = null;
+    private String[] clusterIndexGeocodes = new String[0];
+    private int clusterIndexGeneration = 0;
+    // input of the newest requested cluster index (which might still be built)
+    private String[] clusterInputGeocodes = null;
+    private int[] clusterInputLatitudes = null;
+    private int[] clusterInputLongitudes = null;
 
 
     public GeoItemsLayer(final AppCompatActivity activity, final GeoItemLayer<String> layer) {
         final UnifiedMapViewModel viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
+        this.res = activity.getResources();
+        this.layer = layer;
+        activity.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull final LifecycleOwner owner) {
+                markerWorker.dispose();
+            }
+        });
 
+        // create common markers while map is being set up
+        AndroidRxUtils.computationScheduler.scheduleDirect(() -> MapMarkerUtils.prewarmMarkers(res));
 
         viewModel.caches.observe(activity, caches -> { // this is always executed on UI thread, thus doesn't need to be thread save
 
-            final Map<String, Integer> currentlyDisplayedGeocaches = new HashMap<>();
-
             final boolean forceCompactIconMode = CompactIconModeUtils.forceCompactIconMode();
             if (lastForceCompactIconMode != forceCompactIconMode) {
                 lastForceCompactIconMode = forceCompactIconMode;
                 viewModel.waypoints.notifyDataChanged();
             }
 
-            for (Geocache cache : caches.getAsList()) { // Creates a clone to avoid ConcurrentModificationExceptions
-                final CacheMarker cm = forceCompactIconMode ? MapMarkerUtils.getCacheDotMarker(activity.getResources(), cache) : MapMarkerUtils.getCacheMarker(activity.getResources(), cache, null, true);
-                currentlyDisplayedGeocaches.put(cache.getGeocode(), cm.hashCode());
-
-                if (!lastDisplayedGeocaches.containsKey(cache.getGeocode()) || !lastDisplayedGeocaches.get(cache.getGeocode()).equals(cm.hashCode())) {
-
-                    layer.put(UnifiedMapViewModel.CACHE_KEY_PREFIX + cache.getGeocode(), GeoPrimitive.createMarker(cache.getCoords(),
-                        GeoIcon.builder()
-                            .setBitmap(cm.getBitmap())
-                            .setHotspot(forceCompactIconMode ? GeoIcon.Hotspot.CENTER : GeoIcon.Hotspot.BOTTOM_CENTER)
-                            .build()
-                    ).buildUpon().setZLevel(LayerHelper.ZINDEX_GEOCACHE).build());
-                }
-            }
-
-            for (String geocode : currentlyDisplayedGeocaches.keySet()) {
-                lastDisplayedGeocaches.remove(geocode);
-            }
-
-            for (String geocode : lastDisplayedGeocaches.keySet()) {
-                layer.remove(UnifiedMapViewModel.CACHE_KEY_PREFIX + geocode);
-            }
-
-            lastDisplayedGeocaches = currentlyDisplayedGeocaches;
+            currentCaches = caches.getAsList(); // Creates a clone to avoid ConcurrentModificationExceptions
+            rebuildClusterIndex();
+            requestCacheMarkerUpdate();
+        });
 
+        viewModel.viewportAndZoom.observe(activity, viewportAndZoom -> {
+            currentViewport = viewportAndZoom.first;
+            currentZoom = viewportAndZoom.second;
+            requestCacheMarkerUpdate();
         });
 
         viewModel.cachesWithStarDrawn.observe(activity, starCodes -> {
@@ -88,35 +128,197 @@ public class GeoItemsLayer {
 
 
         viewModel.waypoints.observe(activity, waypoints -> { // this is always executed on UI thread, thus doesn't need to be thread save
+            final Set<Waypoint> waypointsClone = new HashSet<>(waypoints); // Creates a clone to avoid ConcurrentModificationExceptions
+            final boolean forceCompactIconMode = lastForceCompactIconMode;
+            final int request = waypointUpdateRequest.incrementAndGet();
+            markerWorker.schedule(() -> {
+                if (request == waypointUpdateRequest.get()) {
+                    updateWaypointMarkers(waypointsClone, forceCompactIconMode);
+                }
+            });
+        });
 
-            final Map<String, Integer> currentlyDisplayedWaypoints = new HashMap<>();
+    }
 
-            for (Waypoint waypoint : (Set<Waypoint>) waypoints.clone()) { // Creates a clone to avoid ConcurrentModificationExceptions
-                final CacheMarker cm = lastForceCompactIconMode ? MapMarkerUtils.getWaypointDotMarker(activity.getResources(), waypoint) : MapMarkerUtils.getWaypointMarker(activity.getResources(), waypoint, true, true);
-                currentlyDisplayedWaypoints.put(waypoint.getFullGpxId(), cm.hashCode());
+    /** (re)builds the cluster index for current caches in background. Markers are updated once index is available */
+    private void rebuildClusterIndex() {
+        if (currentCaches.size() <= CLUSTER_MIN_CACHES) {
+            // also drops a build in progress
+            clusterIndexGeneration++;
+            clusterIndex = null;
+            clusterIndexGeocodes = new String[0];
+            clusterInputGeocodes = null;
+            clusterInputLatitudes = null;
+            clusterInputLongitudes = null;
+            return;
+        }
+        final String[] geocodes = new String[currentCaches.size()];
+        final int[] latitudes = new int[currentCaches.size()];
+        final int[] longitudes = new int[currentCaches.size()];
+        int count = 0;
+        for (Geocache cache : currentCaches) {
+            final Geopoint coords = cache.getCoords();
+            if (coords != null) {
+                geocodes[count] = cache.getGeocode();
+                latitudes[count] = coords.getLatitudeE6();
+                longitudes[count] = coords.getLongitudeE6();
+                count++;
+            }
+        }
+        final String[] inputGeocodes = Arrays.copyOf(geocodes, count);
+        final int[] inputLatitudes = Arrays.copyOf(latitudes, count);
+        final int[] inputLongitudes = Arrays.copyOf(longitudes, count);
+        if (Arrays.equals(inputLatitudes, clusterInputLatitudes) && Arrays.equals(inputLongitudes, clusterInputLongitudes) && Arrays.equals(inputGeocodes, clusterInputGeocodes)) {
+            // caches didn't change (only their display state might have), current index or the one being built is still valid
+            return;
+        }
+        final int generation = ++clusterIndexGeneration;
+        clusterInputGeocodes = inputGeocodes;
+        clusterInputLatitudes = inputLatitudes;
+        clusterInputLongitudes = inputLongitudes;
+        AndroidRxUtils.andThenOnUi(AndroidRxUtils.computationScheduler, () -> new GeoClusterIndex(inputLatitudes, inputLongitudes, inputLatitudes.length, CLUSTER_RADIUS_PX), index -> {
+            if (generation != clusterIndexGeneration) {
+                // outdated, a newer index is already being built
+                return;
+            }
+            clusterIndex = index;
+            clusterIndexGeocodes = inputGeocodes;
+            requestCacheMarkerUpdate();
+        });
+    }
 
-                if (!lastDisplayedWaypoints.containsKey(waypoint.getFullGpxId()) || !lastDisplayedWaypoints.get(waypoint.getFullGpxId()).equals(cm.hashCode())) {
+    /**
+     * Takes a snapshot of current state (on UI thread) and schedules a marker update for it in background.
+     * If further updates are requested before this one is started, only the newest one is executed.
+     */
+    private void requestCacheMarkerUpdate() {
+        final List<Geocache> caches = currentCaches;
+        final boolean forceCompactIconMode = lastForceCompactIconMode;
+        final GeoClusterIndex index = clusterIndex;
+        final String[] indexGeocodes = clusterIndexGeocodes;
+        final boolean clustered = index != null && currentViewport != null && currentZoom >= 0 && currentZoom < GeoClusterIndex.MAX_CLUSTER_ZOOM;
+        final Viewport viewport = currentViewport;
+        final int zoom = currentZoom;
+
+        final int request = cacheUpdateRequest.incrementAndGet();
+        markerWorker.schedule(() -> {
+            if (request == cacheUpdateRequest.get()) {
+                updateCacheMarkers(caches, forceCompactIconMode, clustered ? index : null, indexGeocodes, viewport, zoom);
+            }
+        });
+    }
 
-                    layer.put(UnifiedMapViewModel.WAYPOINT_KEY_PREFIX + waypoint.getFullGpxId(), GeoPrimitive.createMarker(waypoint.getCoords(),
+    /**
+     * Updates markers of caches and clusters in layer (runs on markerWorker). If a cluster index is given, single caches are only
+     * displayed if they are not part of a cluster on given zoom level, otherwise all caches are displayed. Only changed markers are touched.
+     */
+    private void updateCacheMarkers(final List<Geocache> caches, final boolean forceCompactIconMode, final GeoClusterIndex index, final String[] indexGeocodes,
+                                    final Viewport viewport, final int zoom) {
+        final long start = System.nanoTime();
+        final Map<String, Long> currentlyDisplayedGeocaches = new HashMap<>();
+        final Set<String> currentlyDisplayedClusters = new HashSet<>();
+        final Set<String> clusteredGeocodes = new HashSet<>();
+        int changed = 0;
+
+        if (index != null) {
+            for (GeoClusterIndex.Cluster cluster : index.getClusters(viewport.resize(2.0), zoom)) {
+                if (cluster.count == 1) {
+                    continue;
+                }
+                // id and count identify a cluster only within one index. Its center is part of the key as ids of a rebuilt index
+                // may denote other points: a reused marker then still has the right position and count
+                final String key = UnifiedMapViewModel.CLUSTER_KEY_PREFIX + cluster.id + "_" + cluster.count + "_"
+                        + cluster.center.getLatitudeE6() + "_" + cluster.center.getLongitudeE6();
+                currentlyDisplayedClusters.add(key);
+                if (!lastDisplayedClusters.contains(key)) {
+                    layer.put(key, GeoPrimitive.createMarker(cluster.center,
                             GeoIcon.builder()
-                                    .setBitmap(cm.getBitmap())
-                                    .setHotspot(lastForceCompactIconMode ? GeoIcon.Hotspot.CENTER : GeoIcon.Hotspot.BOTTOM_CENTER)
+                                    .setBitmap(MapMarkerUtils.getClusterMarker(res, cluster.count).getBitmap())
+                                    .setHotspot(GeoIcon.Hotspot.CENTER)
                                     .build()
-                    ).buildUpon().setZLevel(LayerHelper.ZINDEX_WAYPOINT).build());
+                    ).buildUpon().setZLevel(LayerHelper.ZINDEX_GEOCACHE).build());
+                    changed++;
+                }
+            }
+            // caches are hidden if they are part of any cluster (also outside of viewport, to avoid displaying them when panning)
+            final boolean[] clusteredPoints = index.getClusteredPoints(zoom);
+            for (int i = 0; i < clusteredPoints.length; i++) {
+                if (clusteredPoints[i]) {
+                    clusteredGeocodes.add(indexGeocodes[i]);
                 }
             }
+        }
 
-            for (String fullGpxId : currentlyDisplayedWaypoints.keySet()) {
-                lastDisplayedWaypoints.remove(fullGpxId);
+        for (Geocache cache : caches) {
+            if (clusteredGeocodes.contains(cache.getGeocode())) {
+                continue;
+            }
+            final CacheMarker cm = forceCompactIconMode ? MapMarkerUtils.getCacheDotMarker(res, cache) : MapMarkerUtils.getCacheMarker(res, cache, null, true);
+            currentlyDisplayedGeocaches.put(cache.getGeocode(), cm.getKey());
+
+            final Long lastKey = lastDisplayedGeocaches.remove(cache.getGeocode());
+            if (lastKey == null || lastKey != cm.getKey()) {
+
+                layer.put(UnifiedMapViewModel.CACHE_KEY_PREFIX + cache.getGeocode(), GeoPrimitive.createMarker(cache.getCoords(),
+                    GeoIcon.builder()
+                        .setBitmap(cm.getBitmap())
+                        .setHotspot(forceCompactIconMode ? GeoIcon.Hotspot.CENTER : GeoIcon.Hotspot.BOTTOM_CENTER)
+                        .build()
+                ).buildUpon().setZLevel(LayerHelper.ZINDEX_GEOCACHE).build());
+                changed++;
             }
+        }
+
+        // remaining entries are no longer displayed
+        for (String geocode : lastDisplayedGeocaches.keySet()) {
+            layer.remove(UnifiedMapViewModel.CACHE_KEY_PREFIX + geocode);
+        }
+        changed += lastDisplayedGeocaches.size();
+        lastDisplayedGeocaches = currentlyDisplayedGeocaches;
+
+        lastDisplayedClusters.removeAll(currentlyDisplayedClusters);
+        for (String key : lastDisplayedClusters) {
+            layer.remove(key);
+        }
+        changed += lastDisplayedClusters.size();
+        lastDisplayedClusters = currentlyDisplayedClusters;
+
+        Log.d("GeoItemsLayer: updated cache markers in " + (System.nanoTime() - start) / 1_000_000 + "ms (" + caches.size() + " caches, "
+                + currentlyDisplayedClusters.size() + " clusters, " + changed + " changes)");
+    }
 
-            for (String fullGpxId : lastDisplayedWaypoints.keySet()) {
-                layer.remove(UnifiedMapViewModel.WAYPOINT_KEY_PREFIX + fullGpxId);
+    /** Updates waypoint markers in layer (runs on markerWorker). Only changed markers are touched */
+    private void updateWaypointMarkers(final Set<Waypoint> waypoints, final boolean forceCompactIconMode) {
+        final long start = System.nanoTime();
+        final Map<String, Long> currentlyDisplayedWaypoints = new HashMap<>();
+        int changed = 0;
+
+        for (Waypoint waypoint : waypoints) {
+            final CacheMarker cm = forceCompactIconMode ? MapMarkerUtils.getWaypointDotMarker(res, waypoint) : MapMarkerUtils.getWaypointMarker(res, waypoint, true, true);
+            currentlyDisplayedWaypoints.put(waypoint.getFullGpxId(), cm.getKey());
+
+            final Long lastKey = lastDisplayedWaypoints.remove(waypoint.getFullGpxId());
+            if (lastKey == null || lastKey != cm.getKey()) {
+
+                layer.put(UnifiedMapViewModel.WAYPOINT_KEY_PREFIX + waypoint.getFullGpxId(), GeoPrimitive.createMarker(waypoint.getCoords(),
+                        GeoIcon.builder()
+                                .setBitmap(cm.getBitmap())
+                                .setHotspot(forceCompactIconMode ? GeoIcon.Hotspot.CENTER : GeoIcon.Hotspot.BOTTOM_CENTER)
+                                .build()
+                ).buildUpon().setZLevel(LayerHelper.ZINDEX_WAYPOINT).build());
+                changed++;
             }
+        }
 
-            lastDisplayedWaypoints = currentlyDisplayedWaypoints;
-        });
+        // remaining entries are no longer displayed
+        for (String fullGpxId : lastDisplayedWaypoints.keySet()) {
+            layer.remove(UnifiedMapViewModel.WAYPOINT_KEY_PREFIX + fullGpxId);
+        }
+        changed += lastDisplayedWaypoints.size();
+        lastDisplayedWaypoints = currentlyDisplayedWaypoints;
 
+        Log.d("GeoItemsLayer: updated waypoint markers in " + (System.nanoTime() - start) / 1_000_000 + "ms (" + waypoints.size() + " waypoints, "
+                + changed + " changes)");
     }
 
 }
@@ -0,0 +1,117 @@
+package cgeo.geocaching.unifiedmap.layers;
+
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.geoitem.GeoItem;
+import cgeo.geocaching.models.geoitem.GeoItemLod;
+import cgeo.geocaching.unifiedmap.UnifiedMapViewModel;
+import cgeo.geocaching.unifiedmap.geoitemlayer.GeoItemLayer;
+import cgeo.geocaching.utils.AndroidRxUtils;
+import cgeo.geocaching.utils.Log;
+
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewModelProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.reactivex.rxjava3.core.Scheduler;
+
+/**
+ * Displays large line items (tracks, routes, trails) on a GeoItemLayer using a zoom- and viewport-dependent
+ * level of detail (see {@link GeoItemLod}). Simplification and clipping run in background, one task after the other,
+ * items are only re-put on the layer if their displayed representation changes.
+ * If an item is put again before its previous version was processed, only the newest version is processed.
+ */
+class LodGeoItemDisplayer {
+
+    private final GeoItemLayer<String> layer;
+    private final Scheduler.Worker worker = AndroidRxUtils.computationScheduler.createWorker();
+    // items put but not yet processed by worker
+    private final Map<String, GeoItem> pending = new ConcurrentHashMap<>();
+
+    // only accessed by tasks of worker
+    private final Map<String, GeoItemLod> items = new HashMap<>();
+    private final Map<String, GeoItem> displayed = new HashMap<>();
+    private Viewport viewport = null;
+    private int zoom = -1;
+
+    LodGeoItemDisplayer(final AppCompatActivity activity, final GeoItemLayer<String> layer) {
+        this.layer = layer;
+        final UnifiedMapViewModel viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
+        final Pair<Viewport, Integer> current = viewModel.viewportAndZoom.getValue();
+        if (current != null) {
+            viewport = current.first;
+            zoom = current.second == null ? -1 : current.second;
+        }
+        viewModel.viewportAndZoom.observe(activity, viewportAndZoom -> setViewport(viewportAndZoom.first, viewportAndZoom.second == null ? -1 : viewportAndZoom.second));
+        activity.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull final LifecycleOwner owner) {
+                worker.dispose();
+            }
+        });
+    }
+
+    /**
+     * adds or replaces item with given key. The item itself is not changed.
+     * The LOD of a replaced item is reused for the unchanged parts of the new item (e.g. when points were appended to a line)
+     */
+    void put(final String key, final GeoItem item) {
+        if (pending.put(key, item) != null) {
+            // task for previous version is still queued and will process this version
+            return;
+        }
+        worker.schedule(() -> {
+            final GeoItem newest = pending.remove(key);
+            if (newest == null) {
+                return;
+            }
+            final GeoItemLod lod = new GeoItemLod(newest, items.get(key));
+            items.put(key, lod);
+            display(key, lod);
+        });
+    }
+
+    void remove(final String key) {
+        pending.remove(key);
+        worker.schedule(() -> {
+            items.remove(key);
+            displayed.remove(key);
+            layer.remove(key);
+        });
+    }
+
+    private void setViewport(final Viewport viewport, final int zoom) {
+        worker.schedule(() -> {
+            this.viewport = viewport;
+            this.zoom = zoom;
+            final long start = System.currentTimeMillis();
+            int changed = 0;
+            for (Map.Entry<String, GeoItemLod> entry : items.entrySet()) {
+                if (display(entry.getKey(), entry.getValue())) {
+                    changed++;
+                }
+            }
+            if (changed > 0) {
+                Log.d("LodGeoItemDisplayer: updated " + changed + "/" + items.size() + " items for zoom " + zoom + " in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        });
+    }
+
+    private boolean display(final String key, final GeoItemLod lod) {
+        final GeoItem item = lod.getForDisplay(viewport, zoom);
+        if (displayed.get(key) == item) {
+            return false;
+        }
+        displayed.put(key, item);
+        layer.put(key, item);
+        return true;
+    }
+
+}
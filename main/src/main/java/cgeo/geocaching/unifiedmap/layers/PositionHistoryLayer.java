@@ -22,7 +22,7 @@ import javax.annotation.Nullable;
 
 public class PositionHistoryLayer {
 
-    private final GeoItemLayer<String> layer;
+    private final LodGeoItemDisplayer displayer;
 
     /**
      * maximum distance (in meters) up to which two points in the trail get connected by a drawn line
@@ -40,9 +40,8 @@ public class PositionHistoryLayer {
             .build();
 
     public PositionHistoryLayer(final AppCompatActivity activity, final GeoItemLayer<String> layer) {
-        this.layer = layer;
-
         viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
+        displayer = new LodGeoItemDisplayer(activity, layer);
 
         viewModel.positionHistory.observe(activity, positionHistory -> drawHistory(null));
 
@@ -58,7 +57,7 @@ public class PositionHistoryLayer {
 
         // only draw if position history is currently enabled. Remove possible old history line if not.
         if (history == null || history.getHistory().isEmpty()) {
-            layer.remove(KEY_HISTORY_LINE);
+            displayer.remove(KEY_HISTORY_LINE);
             return;
         }
 
@@ -81,7 +80,7 @@ public class PositionHistoryLayer {
         }
         geoGroup.addItems(GeoPrimitive.createPolyline(segmentPoints, lineStyle).buildUpon().setZLevel(LayerHelper.ZINDEX_HISTORY).build());
 
-        layer.put(KEY_HISTORY_LINE, geoGroup.build());
+        displayer.put(KEY_HISTORY_LINE, geoGroup.build());
     }
 
 }
@@ -18,11 +18,12 @@ public class TracksLayer {
 
     public TracksLayer(final AppCompatActivity activity, final GeoItemLayer<String> layer) {
         viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
+        final LodGeoItemDisplayer displayer = new LodGeoItemDisplayer(activity, layer);
 
         viewModel.trackUpdater.observe(activity, event -> event.ifNotHandled((key -> {
             final Tracks.Track track = viewModel.getTracks().getTrack(key);
             if (track == null || track.getRoute().isHidden()) {
-                layer.remove(TRACK_KEY_PREFIX + key);
+                displayer.remove(TRACK_KEY_PREFIX + key);
             } else {
 
                 //Apply current chosen default color to all elements and display
@@ -36,7 +37,8 @@ public class TracksLayer {
                         .setStrokeColor(defaultStrokeColor)
                         .setStrokeWidth(defaultWidth).build();
 
-                layer.put(TRACK_KEY_PREFIX + key, track.getRoute().getItem().applyDefaultStyle(defaultStyle));
+                // track itself stays unchanged (used for export and elevation), only display is simplified
+                displayer.put(TRACK_KEY_PREFIX + key, track.getRoute().getItem().applyDefaultStyle(defaultStyle));
              }
         })));
 
@@ -1,18 +1,15 @@
 package cgeo.geocaching.unifiedmap.tileproviders;
 
-import cgeo.geocaching.storage.LocalStorage;
 import cgeo.geocaching.unifiedmap.LayerHelper;
 import cgeo.geocaching.unifiedmap.mapsforgevtm.MapsforgeVtmFragment;
 
 import android.net.Uri;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 
-import java.io.File;
 import java.util.Collections;
 
-import okhttp3.Cache;
-import okhttp3.OkHttpClient;
 import org.oscim.layers.tile.bitmap.BitmapTileLayer;
 import org.oscim.map.Map;
 import org.oscim.tiling.source.OkHttpEngine;
@@ -21,26 +18,39 @@ import org.oscim.tiling.source.bitmap.BitmapTileSource;
 class AbstractMapsforgeOnlineTileProvider extends AbstractMapsforgeTileProvider {
 
     private final String tilePath;
+    /** whether the tile server's usage policy permits loading tiles which are not (yet) displayed */
+    private final boolean allowsPrefetch;
+    private TilePrefetcher tilePrefetcher;
 
-    AbstractMapsforgeOnlineTileProvider(final String name, final Uri uri, final String tilePath, final int zoomMin, final int zoomMax, final Pair<String, Boolean> mapAttribution) {
+    AbstractMapsforgeOnlineTileProvider(final String name, final Uri uri, final String tilePath, final int zoomMin, final int zoomMax, final Pair<String, Boolean> mapAttribution, final boolean allowsPrefetch) {
         super(name, uri, zoomMin, zoomMax, mapAttribution);
         this.tilePath = tilePath;
+        this.allowsPrefetch = allowsPrefetch;
     }
 
     @Override
     public void addTileLayer(final MapsforgeVtmFragment fragment, final Map map) {
-        final OkHttpClient.Builder httpBuilder = new OkHttpClient.Builder();
-        final Cache cache = new Cache(new File(LocalStorage.getExternalPrivateCgeoDirectory(), "tiles"), 20 * 1024 * 1024);
-        httpBuilder.cache(cache);
         final BitmapTileSource tileSource = BitmapTileSource.builder()
                 .url(mapUri.toString())
                 .tilePath(tilePath)
                 .zoomMax(zoomMax)
                 .zoomMin(zoomMin)
                 .build();
-        tileSource.setHttpEngine(new OkHttpEngine.OkHttpFactory(httpBuilder));
-        tileSource.setHttpRequestHeaders(Collections.singletonMap("User-Agent", "cgeo-android"));
+        tileSource.setHttpEngine(new OkHttpEngine.OkHttpFactory(OnlineTileStore.getInstance().newHttpClientBuilder()));
+        tileSource.setHttpRequestHeaders(Collections.singletonMap("User-Agent", OnlineTileStore.USER_AGENT));
         fragment.addLayer(LayerHelper.ZINDEX_BASEMAP, new BitmapTileLayer(map, tileSource));
     }
 
+    @Override
+    @Nullable
+    public synchronized TilePrefetcher getTilePrefetcher() {
+        if (!allowsPrefetch) {
+            return null;
+        }
+        if (tilePrefetcher == null) {
+            tilePrefetcher = new TilePrefetcher(OnlineTileStore.getInstance(), mapUri.toString() + tilePath, zoomMin, zoomMax);
+        }
+        return tilePrefetcher;
+    }
+
 }
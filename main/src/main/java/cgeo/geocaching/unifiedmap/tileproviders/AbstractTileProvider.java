@@ -2,6 +2,7 @@ package cgeo.geocaching.unifiedmap.tileproviders;
 
 import cgeo.geocaching.unifiedmap.AbstractMapFragment;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 
 import java.util.HashMap;
@@ -76,6 +77,12 @@ public abstract class AbstractTileProvider {
 
     public abstract AbstractMapFragment createMapFragment();
 
+    /** returns a prefetcher for tiles of this provider, or null if tiles need not be prefetched (e.g. offline maps) */
+    @Nullable
+    public TilePrefetcher getTilePrefetcher() {
+        return null;
+    }
+
 
     public int getZoomMin() {
         return zoomMin;
@@ -9,6 +9,6 @@ import androidx.core.util.Pair;
 
 class CyclosmSource extends AbstractMapsforgeOnlineTileProvider {
     CyclosmSource() {
-        super("CyclOSM", Uri.parse("https://a.tile-cyclosm.openstreetmap.fr"), "/cyclosm/{Z}/{X}/{Y}.png", 0, 18, new Pair<>(CgeoApplication.getInstance().getString(R.string.map_attribution_cyclosm_html), true));
+        super("CyclOSM", Uri.parse("https://a.tile-cyclosm.openstreetmap.fr"), "/cyclosm/{Z}/{X}/{Y}.png", 0, 18, new Pair<>(CgeoApplication.getInstance().getString(R.string.map_attribution_cyclosm_html), true), false);
     }
 }
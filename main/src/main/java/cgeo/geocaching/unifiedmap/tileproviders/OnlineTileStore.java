@@ -0,0 +1,121 @@
+package cgeo.geocaching.unifiedmap.tileproviders;
+
+import cgeo.geocaching.settings.Settings;
+import cgeo.geocaching.storage.LocalStorage;
+import cgeo.geocaching.utils.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Shared on-disk store for tiles of all online map sources.
+ * <br>
+ * All online tile layers and the {@link TilePrefetcher}s use one HTTP cache with a common, configurable budget and LRU eviction
+ * (instead of one cache instance per added layer). Entries are keyed by tile URL, so every source has its own namespace
+ * (given by its base URL) inside the shared budget.
+ * If the network is not available, tiles are served from the store even if they are expired, so prefetched tiles can be used offline.
+ */
+public final class OnlineTileStore {
+
+    /** user agent to send to tile servers */
+    public static final String USER_AGENT = "cgeo-android";
+
+    private static final String TILES_DIRECTORY = "tiles";
+    /** maximum number of concurrent prefetch requests in total and per tile server */
+    private static final int PREFETCH_MAX_REQUESTS = 4;
+    private static final int PREFETCH_MAX_REQUESTS_PER_HOST = 2;
+
+    private static OnlineTileStore instance;
+
+    private final Cache cache;
+    private final OkHttpClient httpClient;
+    private final OkHttpClient prefetchClient;
+
+    OnlineTileStore(@NonNull final File directory, final long maxBytes) {
+        cache = new Cache(directory, maxBytes);
+        httpClient = new OkHttpClient.Builder()
+                .cache(cache)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(chain -> {
+                    try {
+                        return chain.proceed(chain.request());
+                    } catch (IOException e) {
+                        // offline: fall back to stored tile, regardless of its age
+                        final Response cached = chain.proceed(chain.request().newBuilder().cacheControl(CacheControl.FORCE_CACHE).build());
+                        if (cached.isSuccessful()) {
+                            return cached;
+                        }
+                        cached.close();
+                        throw e;
+                    }
+                })
+                .build();
+
+        // prefetching uses its own dispatcher, so it can be limited and cancelled independently of visible tiles
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(PREFETCH_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(PREFETCH_MAX_REQUESTS_PER_HOST);
+        prefetchClient = httpClient.newBuilder().dispatcher(dispatcher).build();
+    }
+
+    @NonNull
+    public static synchronized OnlineTileStore getInstance() {
+        if (instance == null) {
+            instance = new OnlineTileStore(new File(LocalStorage.getExternalPrivateCgeoDirectory(), TILES_DIRECTORY), Settings.getTileCacheSizeMB() * 1024L * 1024L);
+        }
+        return instance;
+    }
+
+    /** returns a builder for HTTP clients loading tiles through the shared store */
+    @NonNull
+    public OkHttpClient.Builder newHttpClientBuilder() {
+        return httpClient.newBuilder();
+    }
+
+    @NonNull
+    OkHttpClient getPrefetchClient() {
+        return prefetchClient;
+    }
+
+    /** checks whether a tile with given URL is in the store (regardless of its age), without network access */
+    boolean contains(@NonNull final String url) {
+        final Request request = new Request.Builder().url(url).cacheControl(CacheControl.FORCE_CACHE).build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            return response.isSuccessful();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** removes all stored tiles */
+    public void clear() {
+        try {
+            cache.evictAll();
+        } catch (IOException e) {
+            Log.w("OnlineTileStore: failed to clear tile store", e);
+        }
+    }
+
+    @NonNull
+    public String getStatistics() {
+        try {
+            return String.format(Locale.US, "OnlineTileStore: %.1f/%.1fMB, requests %d, network %d, hits %d",
+                    cache.size() / 1048576f, cache.maxSize() / 1048576f, cache.requestCount(), cache.networkCount(), cache.hitCount());
+        } catch (IOException e) {
+            return "OnlineTileStore: " + e.getMessage();
+        }
+    }
+
+}
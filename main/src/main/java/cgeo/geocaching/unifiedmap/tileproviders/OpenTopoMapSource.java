@@ -11,7 +11,7 @@ import static org.oscim.map.Viewport.MIN_ZOOM_LEVEL;
 
 class OpenTopoMapSource extends AbstractMapsforgeOnlineTileProvider {
     OpenTopoMapSource() {
-        super("OpenTopoMap", Uri.parse("https://c.tile.opentopomap.org"), "/{Z}/{X}/{Y}.png", MIN_ZOOM_LEVEL, 18, new Pair<>(CgeoApplication.getInstance().getString(R.string.map_attribution_opentopomap_html), true));
+        super("OpenTopoMap", Uri.parse("https://c.tile.opentopomap.org"), "/{Z}/{X}/{Y}.png", MIN_ZOOM_LEVEL, 18, new Pair<>(CgeoApplication.getInstance().getString(R.string.map_attribution_opentopomap_html), true), true);
     }
 
 }
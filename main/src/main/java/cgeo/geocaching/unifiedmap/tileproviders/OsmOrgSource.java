@@ -11,7 +11,7 @@ import static org.oscim.map.Viewport.MIN_ZOOM_LEVEL;
 
 class OsmOrgSource extends AbstractMapsforgeOnlineTileProvider {
     OsmOrgSource() {
-        super("OSM.org", Uri.parse("https://tile.openstreetmap.org"), "/{Z}/{X}/{Y}.png", MIN_ZOOM_LEVEL, 18, new Pair<>(CgeoApplication.getInstance().getString(R.string.map_attribution_openstreetmap_html), true));
+        super("OSM.org", Uri.parse("https://tile.openstreetmap.org"), "/{Z}/{X}/{Y}.png", MIN_ZOOM_LEVEL, 18, new Pair<>(CgeoApplication.getInstance().getString(R.string.map_attribution_openstreetmap_html), true), false);
     }
 
 }
@@ -0,0 +1,248 @@
+package cgeo.geocaching.unifiedmap.tileproviders;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.location.WebMercator;
+import cgeo.geocaching.utils.Log;
+import cgeo.geocaching.utils.functions.Action2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Prefetches tiles of an online map source into the {@link OnlineTileStore}.
+ * <br>
+ * Automatic prefetching ({@link #prefetchAround}) loads tiles surrounding the current viewport, the next zoom level
+ * and tiles ahead in moving direction or along the active route. A new call cancels prefetch requests still pending from the previous call.
+ * For offline use, all tiles along a route corridor can be loaded explicitly ({@link #prefetchCorridor}).
+ * <br>
+ * Prefetchers only exist for providers whose tile servers permit bulk loading. Automatic prefetching is opt-in
+ * ({@link cgeo.geocaching.settings.Settings#isMapTilePrefetch()}) and skipped on metered networks.
+ * <br>
+ * Tiles are identified by a long value encoding zoom level and tile coordinates (see {@link #tile(int, int, int)}).
+ */
+public class TilePrefetcher {
+
+    /** maximum number of tiles loaded by one automatic prefetch */
+    private static final int MAX_AUTO_PREFETCH_TILES = 64;
+    /** distance ahead in moving direction to prefetch, in viewport sizes */
+    private static final double AHEAD_VIEWPORTS = 2;
+    private static final double EARTH_CIRCUMFERENCE_KM = 40075.017;
+
+    private final OnlineTileStore store;
+    private final String urlTemplate;
+    private final int zoomMin;
+    private final int zoomMax;
+    private final Object autoPrefetchTag = new Object();
+
+    public TilePrefetcher(@NonNull final OnlineTileStore store, @NonNull final String urlTemplate, final int zoomMin, final int zoomMax) {
+        this.store = store;
+        this.urlTemplate = urlTemplate;
+        this.zoomMin = zoomMin;
+        this.zoomMax = zoomMax;
+    }
+
+    /** returns the URL of given tile, replacing the {X}, {Y} and {Z} placeholders of the URL template */
+    @NonNull
+    public String getTileUrl(final long tile) {
+        return urlTemplate.replace("{X}", String.valueOf(tileX(tile))).replace("{Y}", String.valueOf(tileY(tile))).replace("{Z}", String.valueOf(tileZoom(tile)));
+    }
+
+    /**
+     * Prefetches tiles around the given viewport on the current and the next zoom level, and - if position and bearing
+     * or a route is given - tiles ahead in moving direction resp. along the route near the viewport.
+     * Requests still pending from a previous call are cancelled.
+     */
+    public void prefetchAround(@NonNull final Viewport viewport, final int zoom, @Nullable final Geopoint position, final float bearing, @Nullable final List<Geopoint> route) {
+        cancelAutoPrefetch();
+        final int z = Math.max(zoomMin, Math.min(zoomMax, zoom));
+        final Set<Long> visible = getTiles(viewport, z);
+        final Set<Long> tiles = new LinkedHashSet<>();
+
+        if (position != null && !Float.isNaN(bearing)) {
+            final double distanceKm = viewport.getLatitudeSpan() * 111.32 * AHEAD_VIEWPORTS;
+            final Geopoint ahead = position.project(bearing, distanceKm);
+            tiles.addAll(getCorridorTiles(Arrays.asList(position, ahead), 0.5 * distanceKm / AHEAD_VIEWPORTS, z, z));
+        }
+        if (route != null && route.size() > 1) {
+            final Viewport near = viewport.resize(3);
+            for (long tile : getCorridorTiles(route, 0, z, z)) {
+                if (near.contains(tileCenter(tile))) {
+                    tiles.add(tile);
+                }
+            }
+        }
+        tiles.addAll(getTiles(viewport.resize(2), z));
+        if (z < zoomMax) {
+            tiles.addAll(getTiles(viewport, z + 1));
+        }
+        tiles.removeAll(visible);
+
+        int count = 0;
+        for (long tile : tiles) {
+            if (count++ >= MAX_AUTO_PREFETCH_TILES) {
+                break;
+            }
+            enqueue(tile, autoPrefetchTag);
+        }
+    }
+
+    /** cancels all automatic prefetch requests not yet finished */
+    public void cancelAutoPrefetch() {
+        for (Call call : store.getPrefetchClient().dispatcher().queuedCalls()) {
+            if (call.request().tag() == autoPrefetchTag) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * Loads all tiles of a corridor along given route on given zoom levels which are not yet stored.
+     * Blocks until done or cancelled, should be called from a background thread.
+     *
+     * @param widthKm  total width of the corridor
+     * @param progress optional callback, called with number of tiles processed and total number of tiles
+     * @param cancelled set to true to stop loading
+     * @return number of tiles loaded from network
+     */
+    public int prefetchCorridor(@NonNull final List<Geopoint> route, final double widthKm, final int minZoom, final int maxZoom,
+                                @Nullable final Action2<Integer, Integer> progress, @NonNull final AtomicBoolean cancelled) {
+        final Set<Long> tiles = getCorridorTiles(route, widthKm, Math.max(zoomMin, minZoom), Math.min(zoomMax, maxZoom));
+        int processed = 0;
+        int loaded = 0;
+        for (long tile : tiles) {
+            if (cancelled.get()) {
+                break;
+            }
+            final String url = getTileUrl(tile);
+            if (!store.contains(url)) {
+                try (Response response = store.getPrefetchClient().newCall(newRequest(url, null)).execute()) {
+                    if (response.isSuccessful()) {
+                        loaded++;
+                    }
+                } catch (IOException e) {
+                    Log.d("TilePrefetcher: failed to load " + url + ": " + e.getMessage());
+                }
+            }
+            processed++;
+            if (progress != null) {
+                progress.call(processed, tiles.size());
+            }
+        }
+        Log.d("TilePrefetcher: corridor prefetch " + processed + "/" + tiles.size() + " tiles processed, " + loaded + " loaded");
+        return loaded;
+    }
+
+    private void enqueue(final long tile, final Object tag) {
+        store.getPrefetchClient().newCall(newRequest(getTileUrl(tile), tag)).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull final Call call, @NonNull final IOException e) {
+                // prefetch is best effort only
+            }
+
+            @Override
+            public void onResponse(@NonNull final Call call, @NonNull final Response response) {
+                // reading the body stores the tile
+                try {
+                    response.body().bytes();
+                } catch (IOException ignore) {
+                    // prefetch is best effort only
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    private static Request newRequest(final String url, @Nullable final Object tag) {
+        return new Request.Builder().url(url).header("User-Agent", OnlineTileStore.USER_AGENT).tag(tag).build();
+    }
+
+    /** returns all tiles covering given viewport on given zoom level */
+    @NonNull
+    public static Set<Long> getTiles(@NonNull final Viewport viewport, final int zoom) {
+        final Set<Long> tiles = new LinkedHashSet<>();
+        final int minX = toTile(WebMercator.lonToX(viewport.getLongitudeMin()), zoom);
+        final int maxX = toTile(WebMercator.lonToX(viewport.getLongitudeMax()), zoom);
+        final int minY = toTile(WebMercator.latToY(viewport.getLatitudeMax()), zoom);
+        final int maxY = toTile(WebMercator.latToY(viewport.getLatitudeMin()), zoom);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                tiles.add(tile(x, y, zoom));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns all tiles within a corridor of given total width along the given route on given zoom levels.
+     * The route is sampled in steps of half a tile, so no tile crossed by the route is missed.
+     */
+    @NonNull
+    public static Set<Long> getCorridorTiles(@NonNull final List<Geopoint> route, final double widthKm, final int minZoom, final int maxZoom) {
+        final Set<Long> tiles = new LinkedHashSet<>();
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            final double step = 0.5 / (1 << zoom);
+            for (int i = 0; i < route.size(); i++) {
+                final Geopoint to = route.get(i);
+                final Geopoint from = i == 0 ? to : route.get(i - 1);
+                final double x1 = WebMercator.lonToX(from.getLongitude());
+                final double y1 = WebMercator.latToY(from.getLatitude());
+                final double x2 = WebMercator.lonToX(to.getLongitude());
+                final double y2 = WebMercator.latToY(to.getLatitude());
+                final int samples = Math.max(1, (int) Math.ceil(Math.hypot(x2 - x1, y2 - y1) / step));
+                for (int s = i == 0 ? 0 : 1; s <= samples; s++) {
+                    final double x = x1 + (x2 - x1) * s / samples;
+                    final double y = y1 + (y2 - y1) * s / samples;
+                    // half corridor width in normalized Mercator units at this latitude
+                    final double halfWidth = widthKm / 2 / (EARTH_CIRCUMFERENCE_KM * Math.cos(Math.toRadians(WebMercator.yToLat(y))));
+                    for (int tx = toTile(x - halfWidth, zoom); tx <= toTile(x + halfWidth, zoom); tx++) {
+                        for (int ty = toTile(y - halfWidth, zoom); ty <= toTile(y + halfWidth, zoom); ty++) {
+                            tiles.add(tile(tx, ty, zoom));
+                        }
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+    public static long tile(final int x, final int y, final int zoom) {
+        return ((long) zoom << 56) | ((long) x << 28) | y;
+    }
+
+    public static int tileX(final long tile) {
+        return (int) ((tile >>> 28) & 0xFFFFFFF);
+    }
+
+    public static int tileY(final long tile) {
+        return (int) (tile & 0xFFFFFFF);
+    }
+
+    public static int tileZoom(final long tile) {
+        return (int) (tile >>> 56);
+    }
+
+    private static Geopoint tileCenter(final long tile) {
+        final double size = 1.0 / (1 << tileZoom(tile));
+        return new Geopoint(WebMercator.yToLat((tileY(tile) + 0.5) * size), WebMercator.xToLon((tileX(tile) + 0.5) * size));
+    }
+
+    private static int toTile(final double normalized, final int zoom) {
+        final int count = 1 << zoom;
+        return Math.max(0, Math.min(count - 1, (int) Math.floor(normalized * count)));
+    }
+
+}
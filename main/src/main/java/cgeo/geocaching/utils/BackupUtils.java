@@ -539,8 +539,8 @@ public class BackupUtils {
             return;
         }
         final boolean settingsResult = createSettingsBackupInternal(backupDir, Settings.getBackupLoginData());
-        final Consumer<Boolean> consumer = dbResult -> {
-            showBackupCompletedStatusDialog(backupDir, settingsResult, dbResult, autobackup);
+        final Consumer<String> consumer = dbFileName -> {
+            showBackupCompletedStatusDialog(backupDir, settingsResult, dbFileName, autobackup);
 
             if (runAfterwards != null) {
                 runAfterwards.run();
@@ -608,20 +608,26 @@ public class BackupUtils {
         return success;
     }
 
-    private void createDatabaseBackupInternal(final Folder backupDir, final Consumer<Boolean> consumer) {
+    /**
+     * @param consumer called with the name of the written database backup file, or with {@code null} if the backup failed
+     */
+    private void createDatabaseBackupInternal(final Folder backupDir, final Consumer<String> consumer) {
         final ProgressDialog dialog = ProgressDialog.show(activityContext,
                 activityContext.getString(R.string.init_backup),
                 activityContext.getString(R.string.init_backup_running), true, false);
-        AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> DataStore.backupDatabaseInternal(backupDir), backupFile -> {
+        final String message = activityContext.getString(R.string.init_backup_running);
+        final Consumer<Integer> progress = percent -> AndroidRxUtils.runOnUi(() -> dialog.setMessage(message + " " + percent + "%"));
+        final boolean compress = Settings.getBackupCompressDatabase();
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> DataStore.backupDatabaseInternal(backupDir, compress, progress), backupFile -> {
             dialog.dismiss();
-            consumer.accept(backupFile != null);
+            consumer.accept(backupFile == null ? null : compress ? DataStore.DB_FILE_NAME_BACKUP_ZIP : DataStore.DB_FILE_NAME_BACKUP);
         });
     }
 
-    private void showBackupCompletedStatusDialog(final Folder backupDir, final Boolean settingsResult, final Boolean databaseResult, final boolean autobackup) {
+    private void showBackupCompletedStatusDialog(final Folder backupDir, final Boolean settingsResult, @Nullable final String databaseFileName, final boolean autobackup) {
         String msg;
         final String title;
-        if (settingsResult && databaseResult) {
+        if (settingsResult && databaseFileName != null) {
             if (autobackup) {
                 return; // We don't need to inform the user if everything went right
             }
@@ -630,8 +636,8 @@ public class BackupUtils {
         } else {
             title = activityContext.getString(R.string.init_backup_backup_failed);
 
-            if (databaseResult != null) {
-                msg = activityContext.getString(R.string.init_backup_success) + "\n" + backupDir.toUserDisplayableString() + "/" + DataStore.DB_FILE_NAME_BACKUP;
+            if (databaseFileName != null) {
+                msg = activityContext.getString(R.string.init_backup_success) + "\n" + backupDir.toUserDisplayableString() + "/" + databaseFileName;
             } else {
                 msg = activityContext.getString(R.string.init_backup_failed);
             }
@@ -670,7 +676,8 @@ public class BackupUtils {
 
     @Nullable
     private static ContentStorage.FileInformation getDatabaseFile(final Folder backupDir) {
-        return ContentStorage.get().getFileInfo(backupDir, DataStore.DB_FILE_NAME_BACKUP);
+        final ContentStorage.FileInformation file = ContentStorage.get().getFileInfo(backupDir, DataStore.DB_FILE_NAME_BACKUP);
+        return file != null ? file : ContentStorage.get().getFileInfo(backupDir, DataStore.DB_FILE_NAME_BACKUP_ZIP);
     }
 
     @Nullable
@@ -0,0 +1,78 @@
+package cgeo.geocaching.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.drew.metadata.Metadata;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+/**
+ * Process-wide, memory-bounded cache for decoded images, keyed by image URL and target size.
+ * <br>
+ * This is the memory tier in front of the image files on disk (see {@link cgeo.geocaching.network.HtmlImage}):
+ * images shown repeatedly (e.g. when scrolling a gallery back and forth, or reopening a listing) are not decoded again.
+ * The same URL may be cached in several sizes (e.g. as gallery thumbnail and in display size).
+ * Size of an entry is the allocation size of its bitmap, the least recently used entries are evicted first.
+ * <br>
+ * Entries are served without checking the freshness of the image, so only images whose copy on disk was fresh enough may be put here,
+ * and all sizes of an image must be removed when the image is downloaded again.
+ */
+public final class BitmapMemoryCache {
+
+    /** overall budget: 1/8 of heap, but not more than 48MB */
+    private static final long BUDGET_BYTES = Math.min(48L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8);
+
+    private static final BitmapMemoryCache INSTANCE = new BitmapMemoryCache(BUDGET_BYTES);
+
+    private final LruCache<String, ImmutablePair<BitmapDrawable, Metadata>> cache;
+
+    BitmapMemoryCache(final long maxBytes) {
+        cache = new LruCache<String, ImmutablePair<BitmapDrawable, Metadata>>((int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes))) {
+            @Override
+            protected int sizeOf(final String key, final ImmutablePair<BitmapDrawable, Metadata> image) {
+                final Bitmap bitmap = image.left == null ? null : image.left.getBitmap();
+                return bitmap == null ? 1 : Math.max(1, bitmap.getAllocationByteCount());
+            }
+        };
+    }
+
+    @NonNull
+    public static BitmapMemoryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** builds the cache key for an image URL decoded for given maximum size (and with or without its metadata) */
+    @NonNull
+    public static String getKey(@NonNull final String url, final int maxWidth, final int maxHeight, final boolean withMetadata) {
+        return maxWidth + "x" + maxHeight + (withMetadata ? "m|" : "|") + url;
+    }
+
+    @Nullable
+    public ImmutablePair<BitmapDrawable, Metadata> get(@NonNull final String key) {
+        return cache.get(key);
+    }
+
+    public void put(@NonNull final String key, @NonNull final ImmutablePair<BitmapDrawable, Metadata> image) {
+        if (image.left != null) {
+            cache.put(key, image);
+        }
+    }
+
+    /** removes all images for given URL, in all sizes (e.g. after the image was downloaded again) */
+    public void remove(@NonNull final String url) {
+        for (String key : cache.snapshot().keySet()) {
+            if (key.endsWith("|" + url)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+}
@@ -3,6 +3,7 @@ package cgeo.geocaching.utils;
 import cgeo.geocaching.R;
 import cgeo.geocaching.activity.ActivityMixin;
 import cgeo.geocaching.storage.ContentStorage;
+import cgeo.geocaching.storage.DataStore;
 import cgeo.geocaching.storage.PersistableFolder;
 import cgeo.geocaching.ui.TextParam;
 import cgeo.geocaching.ui.dialog.SimpleDialog;
@@ -19,7 +20,9 @@ import androidx.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.reactivex.rxjava3.schedulers.Schedulers;
@@ -47,6 +50,28 @@ public class DebugUtils {
         }, 1000);
     }
 
+    /** writes the collected database timings (see {@link cgeo.geocaching.storage.DataStoreMetrics}) as JSON file to the log folder */
+    public static void createDatabaseMetricsReport(@NonNull final Activity activity) {
+        final AtomicReference<Uri> result = new AtomicReference<>(null);
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> {
+            final Uri uri = ContentStorage.get().create(PersistableFolder.LOGFILES, FileNameCreator.DATABASE_METRICS, false);
+            try (OutputStream os = ContentStorage.get().openForWrite(uri)) {
+                if (os != null) {
+                    os.write(JsonUtils.nodeToString(DataStore.getMetrics().toJson()).getBytes(StandardCharsets.UTF_8));
+                    result.set(uri);
+                }
+            } catch (IOException e) {
+                Log.e("createDatabaseMetricsReport", e);
+            }
+        }, () -> {
+            if (result.get() != null) {
+                ShareUtils.shareOrDismissDialog(activity, result.get(), "application/json", R.string.init_database_metrics, activity.getString(R.string.init_database_metrics_written, UriUtils.toUserDisplayableString(result.get())));
+            } else {
+                ActivityMixin.showToast(activity, R.string.init_database_metrics_error);
+            }
+        });
+    }
+
     public static void askUserToReportProblem(@NonNull final Activity context, @Nullable final String errorMsg) {
         final StringBuilder message = new StringBuilder();
         if (errorMsg != null) {
@@ -0,0 +1,99 @@
+package cgeo.geocaching.utils;
+
+import android.view.Choreographer;
+import android.view.Display;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Measures UI frame times via {@link Choreographer} and periodically logs a summary
+ * (frames, janky frames exceeding the frame budget of the display's refresh rate, longest frame).
+ * <br>
+ * Meant for diagnosing UI thread load (e.g. while map markers are updated). Monitoring is only active while
+ * debug logging is enabled. All methods must be called on the UI thread.
+ */
+public class FrameTimeMonitor implements Choreographer.FrameCallback {
+
+    /** refresh rate assumed if display doesn't report a valid one */
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+    private static final long REPORT_INTERVAL_NANOS = 10_000_000_000L;
+
+    private final String name;
+    private boolean running = false;
+    /** budget for one frame at the refresh rate of the monitored display */
+    private long frameBudgetNanos;
+
+    private long lastFrameNanos;
+    private long intervalStartNanos;
+    private int frames;
+    private int jankyFrames;
+    private long maxFrameNanos;
+
+    public FrameTimeMonitor(@NonNull final String name) {
+        this.name = name;
+    }
+
+    /** starts monitoring frames shown on given display (if debug logging is enabled) */
+    public void start(@NonNull final Display display) {
+        if (running || !Log.isEnabled(Log.LogLevel.DEBUG)) {
+            return;
+        }
+        running = true;
+        // refresh rate may differ between displays and change over time (e.g. power saving), thus it is read on every start
+        final float refreshRate = display.getRefreshRate();
+        frameBudgetNanos = (long) (1_000_000_000L / (refreshRate >= 1f ? refreshRate : DEFAULT_REFRESH_RATE));
+        lastFrameNanos = 0;
+        resetInterval(0);
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /** stops monitoring and logs the summary of the current interval */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        report();
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (lastFrameNanos > 0) {
+            final long frameNanos = frameTimeNanos - lastFrameNanos;
+            frames++;
+            if (frameNanos > frameBudgetNanos) {
+                jankyFrames++;
+            }
+            maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+        }
+        if (intervalStartNanos == 0) {
+            intervalStartNanos = frameTimeNanos;
+        } else if (frameTimeNanos - intervalStartNanos > REPORT_INTERVAL_NANOS) {
+            report();
+            resetInterval(frameTimeNanos);
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void resetInterval(final long startNanos) {
+        intervalStartNanos = startNanos;
+        frames = 0;
+        jankyFrames = 0;
+        maxFrameNanos = 0;
+    }
+
+    private void report() {
+        if (frames > 0) {
+            Log.d(String.format(Locale.US, "[FrameTime:%s] %d frames, %d janky (%.1f%%, budget %.1fms), max %.1fms",
+                    name, frames, jankyFrames, jankyFrames * 100f / frames, frameBudgetNanos / 1_000_000f, maxFrameNanos / 1_000_000f));
+        }
+    }
+
+}
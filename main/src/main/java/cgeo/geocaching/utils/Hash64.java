@@ -0,0 +1,105 @@
+package cgeo.geocaching.utils;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Builds a 64-bit hash over a sequence of values, e.g. as key for the state values a marker drawable depends on,
+ * or to detect unchanged content before rewriting it in the database.
+ * <br>
+ * In contrast to a 32-bit {@link org.apache.commons.lang3.builder.HashCodeBuilder} hash (where collisions become likely with
+ * some ten thousand distinct values and lead e.g. to wrong markers being displayed), collisions of 64-bit hashes are
+ * practically impossible for the number of states a map can produce. Values are mixed in order, so the same values
+ * appended in a different order result in a different hash. Strings are prefixed by their length, so e.g. ("ab", "c") and ("a", "bc")
+ * differ, and {@code null} is distinguished from empty strings. Strings and enums are mixed by content and name, making hashes
+ * stable across app runs.
+ */
+public final class Hash64 {
+
+    private static final long PRIME1 = 0x9E3779B97F4A7C15L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long NULL_VALUE = 0x27BB2EE687B0B0FDL;
+
+    private long hash;
+
+    public Hash64() {
+        this.hash = PRIME2;
+    }
+
+    /** starts a hash for the given kind (e.g. of marker), to separate hashes of different kinds with otherwise identical values */
+    public Hash64(final String kind) {
+        this();
+        append(kind);
+    }
+
+    public Hash64 append(final long value) {
+        hash = Long.rotateLeft(hash ^ (value * PRIME1), 31) * PRIME2;
+        return this;
+    }
+
+    public Hash64 append(final int value) {
+        return append((long) value);
+    }
+
+    public Hash64 append(final boolean value) {
+        return append(value ? 1L : 2L);
+    }
+
+    public Hash64 append(final float value) {
+        return append((long) Float.floatToIntBits(value));
+    }
+
+    public Hash64 append(final double value) {
+        return append(Double.doubleToLongBits(value));
+    }
+
+    public Hash64 append(@Nullable final Integer value) {
+        return value == null ? append(NULL_VALUE) : append((long) value);
+    }
+
+    public Hash64 append(@Nullable final String value) {
+        if (value == null) {
+            return append(NULL_VALUE);
+        }
+        append(value.length());
+        final int length = value.length();
+        int i = 0;
+        // mix two chars at a time
+        for (; i + 1 < length; i += 2) {
+            append(((long) value.charAt(i) << 16) | value.charAt(i + 1));
+        }
+        if (i < length) {
+            append((long) value.charAt(i));
+        }
+        return this;
+    }
+
+    public Hash64 append(@Nullable final Enum<?> value) {
+        return value == null ? append(NULL_VALUE) : append(value.name());
+    }
+
+    public Hash64 append(@Nullable final Collection<Integer> values) {
+        if (values == null) {
+            return append(NULL_VALUE);
+        }
+        append(values.size());
+        for (Integer value : values) {
+            append(value);
+        }
+        return this;
+    }
+
+    /** returns the hash of all values appended so far. Zero is never returned (reserved for "no key") */
+    public long build() {
+        // final avalanche (MurmurHash3 fmix64), so that all input bits affect all key bits
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+}
@@ -20,10 +20,13 @@ import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * Helper class for retrieving of image data and keeping it in-memory
+ * <br>
+ * Decoded images are additionally kept in the process-wide {@link BitmapMemoryCache}, so they survive this instance.
  */
 public class ImageDataMemoryCache {
 
     private String htmlImageCode;
+    private final int thumbnailSize;
 
     private final Object imageCacheMutex = new Object();
     private final LeastRecentlyUsedMap<String, Pair<BitmapDrawable, Metadata>> imageCache;
@@ -31,8 +34,17 @@ public class ImageDataMemoryCache {
     private final CompositeDisposable imageCacheDisposable = new CompositeDisposable();
 
     public ImageDataMemoryCache(final int cacheSize) {
+        this(cacheSize, 0);
+    }
+
+    /**
+     * @param cacheSize     number of images to keep in this instance
+     * @param thumbnailSize if > 0: load images as thumbnails of this maximum size (see {@link HtmlImage#setThumbnailSize(int)})
+     */
+    public ImageDataMemoryCache(final int cacheSize, final int thumbnailSize) {
         this.htmlImageCode = HtmlImage.SHARED;
         this.imageCache = new LeastRecentlyUsedMap.LruCache<>(cacheSize);
+        this.thumbnailSize = thumbnailSize;
     }
 
     public void setCode(final String htmlImageCode) {
@@ -64,6 +76,7 @@ public class ImageDataMemoryCache {
             imageCacheListeners.put(imageUrl, new ArrayList<>(Collections.singletonList(action)));
             final HtmlImage imgGetter = new HtmlImage(this.htmlImageCode, true, false, false);
             imgGetter.setLoadMetadata(true);
+            imgGetter.setThumbnailSize(thumbnailSize);
             //TODO: continue editing here
             final Disposable disposable = imgGetter.fetchDrawableWithMetadata(imageUrl).observeOn(AndroidSchedulers.mainThread())
                     .subscribe(img -> {
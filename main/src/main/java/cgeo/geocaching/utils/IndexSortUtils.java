@@ -0,0 +1,239 @@
+package cgeo.geocaching.utils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.rxjava3.core.Scheduler;
+
+/**
+ * Helper to sort by index instead of sorting elements directly.
+ * <br>
+ * Callers precompute their sort keys into (parallel) arrays and provide an {@link IndexComparator}
+ * comparing two positions of those arrays. The resulting index permutation can then be applied
+ * to the original list via {@link #applyPermutation(List, int[])}.
+ * <br>
+ * Sorting is stable. Large inputs are sorted in parallel chunks on the computation scheduler which are merged afterwards.
+ */
+public final class IndexSortUtils {
+
+    /** Inputs with at least this many elements are sorted in parallel (if allowed by caller) */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /** Compares two indexes of precomputed key arrays. Must be thread-safe if used for parallel sorting. */
+    public interface IndexComparator {
+        int compare(int index1, int index2);
+    }
+
+    private IndexSortUtils() {
+        // utility class
+    }
+
+    /** returns the identity permutation of given size */
+    public static int[] identity(final int size) {
+        final int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    /**
+     * Sorts indexes 0 to size-1 using the given comparator and returns the resulting permutation:
+     * position i of the result contains the original index of the element which has to be placed at position i.
+     *
+     * @param allowParallel if true and size exceeds {@link #PARALLEL_THRESHOLD} then sorting is done in parallel.
+     *                      Given comparator must be thread-safe in this case.
+     */
+    public static int[] sortIndexes(final int size, final IndexComparator cmp, final boolean allowParallel) {
+        final int[] indexes = identity(size);
+        sort(indexes, cmp, allowParallel);
+        return indexes;
+    }
+
+    /** Sorts the given index array (stable) using the given comparator */
+    public static void sort(final int[] indexes, final IndexComparator cmp, final boolean allowParallel) {
+        if (allowParallel && PARALLELISM > 1 && indexes.length >= PARALLEL_THRESHOLD) {
+            sort(indexes, cmp, AndroidRxUtils.computationScheduler);
+        } else {
+            sortRange(indexes, new int[indexes.length], 0, indexes.length, cmp);
+        }
+    }
+
+    /** Sorts the given index array (stable) in parallel using the given scheduler */
+    @VisibleForTesting
+    static void sort(final int[] indexes, final IndexComparator cmp, final Scheduler scheduler) {
+        // parallel tasks work on a copy only: if the sort fails, tasks which can't be stopped anymore
+        // may still write to it, while the sequential fallback sorts the untouched input
+        final int[] work = indexes.clone();
+        final Throwable failure = sortParallel(work, new int[work.length], cmp, scheduler);
+        if (failure == null) {
+            System.arraycopy(work, 0, indexes, 0, work.length);
+            return;
+        }
+        Log.w("IndexSortUtils: parallel sort failed, falling back to sequential sort", failure);
+        sortRange(indexes, new int[indexes.length], 0, indexes.length, cmp);
+    }
+
+    /**
+     * Sorts a range of the given index array using insertion sort. This is the method of choice for
+     * nearly sorted data since it runs in O(n + number of inversions).
+     */
+    public static void insertionSort(final int[] indexes, final int from, final int to, final IndexComparator cmp) {
+        insertionSort(indexes, from, to, cmp, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #insertionSort(int[], int, int, IndexComparator)}, but gives up after the given number of element shifts.
+     * This protects against quadratic runtime if data turns out to be not nearly sorted.
+     *
+     * @return true if range was sorted completely, false if sort was aborted. In the latter case the
+     * array still contains a permutation of its original content, but it is only partially sorted
+     */
+    public static boolean insertionSort(final int[] indexes, final int from, final int to, final IndexComparator cmp, final long maxShifts) {
+        long shifts = 0;
+        for (int i = from + 1; i < to; i++) {
+            final int value = indexes[i];
+            int j = i - 1;
+            while (j >= from && cmp.compare(indexes[j], value) > 0) {
+                indexes[j + 1] = indexes[j];
+                j--;
+                shifts++;
+            }
+            indexes[j + 1] = value;
+            if (shifts > maxShifts) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** returns true if given permutation is the identity (e.g. a sort didn't change anything) */
+    public static boolean isIdentity(final int[] permutation) {
+        for (int i = 0; i < permutation.length; i++) {
+            if (permutation[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reorders the given list according to the given permutation (as returned by {@link #sortIndexes(int, IndexComparator, boolean)})
+     */
+    public static <T> void applyPermutation(final List<T> list, final int[] permutation) {
+        final List<T> copy = new ArrayList<>(list);
+        for (int i = 0; i < permutation.length; i++) {
+            list.set(i, copy.get(permutation[i]));
+        }
+    }
+
+    private static void sortRange(final int[] a, final int[] tmp, final int from, final int to, final IndexComparator cmp) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to, cmp);
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        sortRange(a, tmp, from, mid, cmp);
+        sortRange(a, tmp, mid, to, cmp);
+        merge(a, tmp, from, mid, to, cmp);
+    }
+
+    private static void merge(final int[] a, final int[] tmp, final int from, final int mid, final int to, final IndexComparator cmp) {
+        if (mid <= from || mid >= to || cmp.compare(a[mid - 1], a[mid]) <= 0) {
+            //ranges are already in order
+            return;
+        }
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            if (cmp.compare(tmp[j], tmp[i]) < 0) {
+                a[k++] = tmp[j++];
+            } else {
+                a[k++] = tmp[i++];
+            }
+        }
+        while (i < mid) {
+            a[k++] = tmp[i++];
+        }
+        while (j < to) {
+            a[k++] = tmp[j++];
+        }
+    }
+
+    /** sorts chunks in parallel and merges them pairwise afterwards. Returns the failure which aborted the sort, or null on success */
+    private static Throwable sortParallel(final int[] a, final int[] tmp, final IndexComparator cmp, final Scheduler scheduler) {
+        final int chunks = Math.min(PARALLELISM, Math.max(1, a.length / (PARALLEL_THRESHOLD / 2)));
+        final int[] bounds = new int[chunks + 1];
+        for (int c = 0; c <= chunks; c++) {
+            bounds[c] = (int) ((long) a.length * c / chunks);
+        }
+
+        final List<Runnable> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            final int from = bounds[c];
+            final int to = bounds[c + 1];
+            tasks.add(() -> sortRange(a, tmp, from, to, cmp));
+        }
+        Throwable failure = runParallel(tasks, scheduler);
+
+        //merge sorted chunks pairwise. Merges of one round work on disjoint ranges and may run in parallel
+        for (int width = 1; width < chunks && failure == null; width *= 2) {
+            tasks.clear();
+            for (int c = 0; c + width < chunks; c += 2 * width) {
+                final int from = bounds[c];
+                final int mid = bounds[c + width];
+                final int to = bounds[Math.min(c + 2 * width, chunks)];
+                tasks.add(() -> merge(a, tmp, from, mid, to, cmp));
+            }
+            failure = runParallel(tasks, scheduler);
+        }
+        return failure;
+    }
+
+    /**
+     * Runs the given tasks on the scheduler and waits for them. The calling thread takes part in the work: it runs
+     * all tasks no other thread has started yet, so it never waits for work which is still queued
+     * (which is important if this method is called from a computation thread itself)
+     *
+     * @return the first failure of a task (or the interruption of the calling thread), null if all tasks succeeded
+     */
+    private static Throwable runParallel(final List<Runnable> tasks, final Scheduler scheduler) {
+        final int count = tasks.size();
+        final AtomicInteger nextTask = new AtomicInteger(0);
+        final CountDownLatch tasksDone = new CountDownLatch(count);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            for (int t = nextTask.getAndIncrement(); t < count; t = nextTask.getAndIncrement()) {
+                try {
+                    tasks.get(t).run();
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    tasksDone.countDown();
+                }
+            }
+        };
+        for (int t = 1; t < count; t++) {
+            scheduler.scheduleDirect(worker);
+        }
+        worker.run();
+        try {
+            tasksDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        return failure.get();
+    }
+
+}
@@ -23,12 +23,16 @@ import static cgeo.geocaching.utils.DisplayUtils.SIZE_LIST_MARKER_DP;
 import static cgeo.geocaching.utils.EmojiUtils.NUMBER_START;
 
 import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.os.Build;
 import android.util.Pair;
-import android.util.SparseArray;
 import android.view.Gravity;
 
 import androidx.annotation.NonNull;
@@ -37,26 +41,30 @@ import androidx.core.content.res.ResourcesCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 public final class MapMarkerUtils {
 
     private static final Map<Integer, Integer> list2marker = new TreeMap<>();
-    private static Boolean listsRead = false;
+    private static volatile boolean listsRead = false;
+
+    /** overall memory budget for cached marker bitmaps: 1/16 of heap, at most 32MB */
+    private static final long MARKER_CACHE_BUDGET_BYTES = Math.min(32L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16);
 
     // the following vars depend on cache/wp scaling factor and need to be part of resetCache()
-    private static final SparseArray<CacheMarker> overlaysCache = new SparseArray<>();
-    private static final Map<String, EmojiUtils.EmojiPaint> emojiPaintMap = new HashMap<>();
-    private static float scalingFactorCacheIcons;
-    private static float scalingFactorWpIcons;
+    private static final MarkerBitmapCache markerCache = new MarkerBitmapCache(MARKER_CACHE_BUDGET_BYTES);
+    // markers are created concurrently (see MarkerBitmapCache), so helper state must be thread-safe
+    private static final Map<String, EmojiUtils.EmojiPaint> emojiPaintMap = new ConcurrentHashMap<>();
+    private static volatile float scalingFactorCacheIcons;
+    private static volatile float scalingFactorWpIcons;
 
     static {
         resetAllCaches();
@@ -70,7 +78,7 @@ public final class MapMarkerUtils {
      * clear all caches and reset scaling-related variables
      */
     public static synchronized void resetAllCaches() {
-        overlaysCache.clear();
+        markerCache.clear();
         emojiPaintMap.clear();
         scalingFactorCacheIcons = Settings.getInt(R.string.pref_mapCacheScaling, 100) / 100.0f;
         scalingFactorWpIcons = Settings.getInt(R.string.pref_mapWpScaling, 100) / 100.0f;
@@ -80,9 +88,13 @@ public final class MapMarkerUtils {
      * Clear the cache of drawable items.
      */
     public static void clearCachedItems() {
-        synchronized (overlaysCache) {
-            overlaysCache.clear();
-        }
+        markerCache.clear();
+    }
+
+    /** returns hit/miss/eviction statistics and memory usage of the marker cache */
+    @NonNull
+    public static String getMarkerCacheStatistics() {
+        return markerCache.getStatistics();
     }
 
     /**
@@ -99,7 +111,8 @@ public final class MapMarkerUtils {
     @NonNull
     public static CacheMarker getCacheMarker(final Resources res, final Geocache cache, @Nullable final CacheListType cacheListType, final boolean applyScaling) {
         final ArrayList<Integer> assignedMarkers = getAssignedMarkers(cache);
-        final int hashcode = new HashCodeBuilder()
+        final boolean dtMarkerEnabled = Settings.isDTMarkerEnabled();
+        final long key = new Hash64("cache")
                 .append(cache.getAssignedEmoji())
                 .append(cache.getType().id)
                 .append(cache.isDisabled())
@@ -118,20 +131,14 @@ public final class MapMarkerUtils {
                 .append(showPin(cacheListType))
                 .append(showFloppyOverlay(cacheListType))
                 .append(assignedMarkers)
-                .append(Settings.isDTMarkerEnabled() ? cache.getTerrain() : false)
-                .append(Settings.isDTMarkerEnabled() ? cache.getDifficulty() : false)
+                .append(dtMarkerEnabled)
+                .append(dtMarkerEnabled ? cache.getTerrain() : 0f)
+                .append(dtMarkerEnabled ? cache.getDifficulty() : 0f)
                 .append(CacheDownloaderService.isDownloadPending(cache))
                 .append(applyScaling)
-                .toHashCode();
+                .build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createCacheMarker(res, cache, cacheListType, assignedMarkers, applyScaling));
-                overlaysCache.put(hashcode, marker);
-            }
-            return marker;
-        }
+        return markerCache.get(MarkerBitmapCache.Pool.CACHE, key, () -> new CacheMarker(key, createCacheMarker(res, cache, cacheListType, assignedMarkers, applyScaling)));
     }
 
     /**
@@ -238,7 +245,7 @@ public final class MapMarkerUtils {
         final WaypointType waypointType = waypoint.getWaypointType();
         final String id = null == waypointType ? WaypointType.WAYPOINT.id : waypointType.id;
 
-        final HashCodeBuilder hcb = new HashCodeBuilder()
+        final Hash64 markerKey = new Hash64("waypoint")
                 .append(waypoint.isVisited())
                 .append(id)
                 .append(waypoint.getMapMarkerId())
@@ -246,24 +253,17 @@ public final class MapMarkerUtils {
                 .append(applyScaling);
         final Geocache cache = waypoint.getParentGeocache();
         if (null != cache) {
-            hcb.append(getAssignedMarkers(cache))
+            markerKey.append(getAssignedMarkers(cache))
                     .append(getMarkerIdIfLogged(cache))
                     .append(cache.isDisabled())
                     .append(cache.isArchived())
-                    .append(cache.isLinearAlc() ? waypoint.getPrefix() : false)
+                    .append(cache.isLinearAlc() ? waypoint.getPrefix() : null)
                     .append(cache.getAssignedEmoji())
                     .append(cache.getType());
         }
-        final int hashcode = hcb.toHashCode();
+        final long key = markerKey.build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createWaypointMarker(res, waypoint, cache, showPin, applyScaling));
-                overlaysCache.put(hashcode, marker);
-            }
-            return marker;
-        }
+        return markerCache.get(MarkerBitmapCache.Pool.WAYPOINT, key, () -> new CacheMarker(key, createWaypointMarker(res, waypoint, cache, showPin, applyScaling)));
     }
 
     /**
@@ -344,7 +344,7 @@ public final class MapMarkerUtils {
      */
     @NonNull
     public static CacheMarker getCacheDotMarker(final Resources res, final Geocache cache) {
-        final int hashcode = new HashCodeBuilder()
+        final long key = new Hash64("cacheDot")
                 .append(cache.getType().typeColor)
                 .append(cache.getMapDotMarkerId())
                 .append(cache.isFound())
@@ -354,16 +354,9 @@ public final class MapMarkerUtils {
                 .append(cache.getOfflineLogType())
                 .append(cache.hasUserModifiedCoords())
                 .append(cache.hasFinalDefined())
-                .toHashCode();
+                .build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createCacheDotMarker(res, cache));
-                overlaysCache.put(hashcode, marker);
-            }
-            return marker;
-        }
+        return markerCache.get(MarkerBitmapCache.Pool.DOT, key, () -> new CacheMarker(key, createCacheDotMarker(res, cache)));
     }
 
     /**
@@ -453,21 +446,80 @@ public final class MapMarkerUtils {
                 cacheIsArchived = cache.isArchived();
             }
         }
-        final int hashcode = new HashCodeBuilder()
+        final long key = new Hash64("waypointDot")
                 .append(waypoint.getMapDotMarkerId())
                 .append(waypoint.getWaypointType())
                 .append(cacheIsDisabled)
                 .append(cacheIsArchived)
-                .toHashCode();
+                .build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createWaypointDotMarker(res, waypoint));
-                overlaysCache.put(hashcode, marker);
+        return markerCache.get(MarkerBitmapCache.Pool.DOT, key, () -> new CacheMarker(key, createWaypointDotMarker(res, waypoint)));
+    }
+
+    /**
+     * Creates markers for the most common cache types and states in advance, so that the first display of a map
+     * finds them in cache. Meant to be called in background on map start.
+     *
+     * @param res the resources to use
+     */
+    public static void prewarmMarkers(final Resources res) {
+        final long start = System.currentTimeMillis();
+        final CacheType[] types = { CacheType.TRADITIONAL, CacheType.MULTI, CacheType.MYSTERY, CacheType.LETTERBOX, CacheType.EARTH,
+                CacheType.VIRTUAL, CacheType.WHERIGO, CacheType.EVENT };
+        for (CacheType type : types) {
+            // states: default, found, disabled, stored
+            for (int state = 0; state < 4; state++) {
+                final Geocache tempCache = new Geocache();
+                tempCache.setGeocode("GC1");
+                tempCache.setType(type);
+                tempCache.setHasLogOffline(false);
+                tempCache.setFound(state == 1);
+                tempCache.setDisabled(state == 2);
+                if (state == 3) {
+                    tempCache.setLists(Collections.singleton(StoredList.STANDARD_LIST_ID));
+                }
+                getCacheMarker(res, tempCache, null, true);
+                getCacheDotMarker(res, tempCache);
             }
-            return marker;
         }
+        Log.d("MapMarkerUtils: prewarmed markers in " + (System.currentTimeMillis() - start) + "ms. " + getMarkerCacheStatistics());
+    }
+
+    /**
+     * Obtain the marker for a cluster of caches, showing the (rounded) number of caches in it.
+     * Markers are shared between clusters with the same label.
+     *
+     * @param res   the resources to use
+     * @param count the number of caches in cluster
+     * @return a marker representing the cluster
+     */
+    @NonNull
+    public static CacheMarker getClusterMarker(final Resources res, final int count) {
+        final String label = count < 1000 ? String.valueOf(count) : count < 10000 ? (count / 1000) + "k+" : (count / 10000) + "0k+";
+        final long key = new Hash64("cluster").append(label).build();
+
+        return markerCache.get(MarkerBitmapCache.Pool.OTHER, key, () -> new CacheMarker(key, createClusterMarker(res, label)));
+    }
+
+    @NonNull
+    private static Drawable createClusterMarker(final Resources res, final String label) {
+        // circle grows slightly with label length
+        final int size = DisplayUtils.getPxFromDp(res, SIZE_CACHE_MARKER_DP, (0.8f + 0.1f * Math.min(4, label.length())) * getCacheScalingFactor(true));
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(ResourcesCompat.getColor(res, R.color.colorAccent, null));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, paint);
+        paint.setColor(Color.WHITE);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(size / 16f);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f - size / 32f, paint);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTypeface(Typeface.DEFAULT_BOLD);
+        paint.setTextSize(size / (label.length() > 3 ? 3.5f : 2.6f));
+        canvas.drawText(label, size / 2f, size / 2f - (paint.descent() + paint.ascent()) / 2, paint);
+        return new BitmapDrawable(res, bitmap);
     }
 
     /**
@@ -527,16 +579,9 @@ public final class MapMarkerUtils {
      * @return Layered Drawable
      */
     public static Drawable getWaypointTypeMarker(final Resources res, final WaypointType waypoint) {
-        final int hashcode = new HashCodeBuilder().append(waypoint.markerId).toHashCode();
+        final long key = new Hash64("waypointType").append(waypoint.markerId).build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createWaypointTypeMarker(res, waypoint));
-                overlaysCache.put(hashcode, marker);
-            }
-            return marker.getDrawable();
-        }
+        return markerCache.get(MarkerBitmapCache.Pool.OTHER, key, () -> new CacheMarker(key, createWaypointTypeMarker(res, waypoint))).getDrawable();
     }
 
     /**
@@ -657,16 +702,19 @@ public final class MapMarkerUtils {
         return cacheListType != CacheListType.OFFLINE; // also covers null check
     }
 
+    // markers may be created on UI and background threads, thus list2marker is only accessed under its lock
     private static void readLists() {
-        if (!listsRead) {
-            list2marker.clear();
-            final List<StoredList> lists = DataStore.getLists();
-            for (final StoredList temp : lists) {
-                if (temp.markerId != EmojiUtils.NO_EMOJI) {
-                    list2marker.put(temp.id, temp.markerId);
+        synchronized (list2marker) {
+            if (!listsRead) {
+                list2marker.clear();
+                final List<StoredList> lists = DataStore.getLists();
+                for (final StoredList temp : lists) {
+                    if (temp.markerId != EmojiUtils.NO_EMOJI) {
+                        list2marker.put(temp.id, temp.markerId);
+                    }
                 }
+                listsRead = true;
             }
-            listsRead = true;
         }
     }
 
@@ -679,26 +727,21 @@ public final class MapMarkerUtils {
 
         final ArrayList<Integer> result = new ArrayList<>();
         final Set<Integer> lists = cache.getLists();
-        for (final Integer list : lists) {
-            final Integer markerId = list2marker.get(list);
-            if (markerId != null) {
-                result.add(markerId);
+        synchronized (list2marker) {
+            for (final Integer list : lists) {
+                final Integer markerId = list2marker.get(list);
+                if (markerId != null) {
+                    result.add(markerId);
+                }
             }
         }
         return result;
     }
 
     private static Drawable getDTRatingMarker(final Resources res, final float difficulty, final float terrain, final boolean applyScaling) {
-        final int hashcode = new HashCodeBuilder().append(difficulty + "" + terrain).append(applyScaling).toHashCode(); // due to -1*-1 being the same as 1*1 this needs to be a string
+        final long key = new Hash64("dtRating").append(difficulty).append(terrain).append(applyScaling).build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createDTRatingMarker(res, difficulty, terrain, applyScaling));
-                overlaysCache.put(hashcode, marker);
-            }
-            return marker.getDrawable();
-        }
+        return markerCache.get(MarkerBitmapCache.Pool.OTHER, key, () -> new CacheMarker(key, createDTRatingMarker(res, difficulty, terrain, applyScaling))).getDrawable();
     }
 
     /**
@@ -739,10 +782,8 @@ public final class MapMarkerUtils {
     }
 
     private static BitmapDrawable getScaledEmojiDrawable(final Resources res, final int emoji, final String wantedSize, final boolean applyScaling) {
-        final EmojiUtils.EmojiPaint paint;
-        if (emojiPaintMap.containsKey(wantedSize + applyScaling)) {
-            paint = emojiPaintMap.get(wantedSize + applyScaling);
-        } else {
+        EmojiUtils.EmojiPaint paint = emojiPaintMap.get(wantedSize + applyScaling);
+        if (paint == null) {
             final float scalingFactor;
             final float size;
             switch (wantedSize) {
@@ -813,24 +854,16 @@ public final class MapMarkerUtils {
      * @return Layered Drawable
      */
     public static Drawable getTypeMarker(final Resources res, @NonNull final Geocache cache, final boolean withBorder, final boolean applyScaling, final boolean forCache) {
-        final int hashcode = new HashCodeBuilder()
-                .append("typeMarker")
+        final long key = new Hash64("typeMarker")
                 .append(cache.getType().id)
                 .append(cache.isDisabled())
                 .append(cache.isArchived())
                 .append(withBorder)
                 .append(forCache)
                 .append(applyScaling)
-                .toHashCode();
+                .build();
 
-        synchronized (overlaysCache) {
-            CacheMarker marker = overlaysCache.get(hashcode);
-            if (marker == null) {
-                marker = new CacheMarker(hashcode, createTypeMarker(res, cache, withBorder, applyScaling, forCache));
-                overlaysCache.put(hashcode, marker);
-            }
-            return marker.getDrawable();
-        }
+        return markerCache.get(MarkerBitmapCache.Pool.OTHER, key, () -> new CacheMarker(key, createTypeMarker(res, cache, withBorder, applyScaling, forCache))).getDrawable();
     }
 
     public static Drawable getTypeMarker(final Resources res, final Geocache cache) {
@@ -0,0 +1,98 @@
+package cgeo.geocaching.utils;
+
+import cgeo.geocaching.maps.CacheMarker;
+import cgeo.geocaching.utils.functions.Func0;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Memory-bounded cache for marker bitmaps, keyed by 64-bit {@link Hash64}s.
+ * <br>
+ * Markers are held in separate LRU pools per marker kind, each with its own share of the overall byte budget.
+ * Thus e.g. a map full of waypoints can't evict the cache markers and vice versa.
+ * Size of an entry is the allocation size of its bitmap.
+ * <br>
+ * Instances are thread-safe. Markers are created outside of any lock, so markers for different keys can be created in parallel.
+ * If the same missing marker is requested concurrently, it may be created more than once, then the first one cached is used.
+ */
+public final class MarkerBitmapCache {
+
+    /** marker pools with their share of total budget (percent) */
+    public enum Pool {
+        CACHE(50),
+        WAYPOINT(20),
+        DOT(10),
+        /** cluster markers, type icons, D/T markers and other helper drawables */
+        OTHER(20);
+
+        private final int budgetPercent;
+
+        Pool(final int budgetPercent) {
+            this.budgetPercent = budgetPercent;
+        }
+    }
+
+    private final Map<Pool, LruCache<Long, CacheMarker>> pools = new EnumMap<>(Pool.class);
+
+    public MarkerBitmapCache(final long totalBudgetBytes) {
+        for (Pool pool : Pool.values()) {
+            final int maxBytes = (int) Math.max(1, Math.min(Integer.MAX_VALUE, totalBudgetBytes * pool.budgetPercent / 100));
+            pools.put(pool, new LruCache<Long, CacheMarker>(maxBytes) {
+                @Override
+                protected int sizeOf(final Long key, final CacheMarker marker) {
+                    final Bitmap bitmap = marker.getBitmap();
+                    return bitmap == null ? 1 : Math.max(1, bitmap.getAllocationByteCount());
+                }
+            });
+        }
+    }
+
+    /** returns the marker for given key from given pool. If it is not cached yet, it is created using given factory and cached */
+    @NonNull
+    public CacheMarker get(@NonNull final Pool pool, final long key, @NonNull final Func0<CacheMarker> factory) {
+        final LruCache<Long, CacheMarker> cache = pools.get(pool);
+        final CacheMarker cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CacheMarker created = factory.call();
+        // LruCache synchronizes on itself, so this check-and-put is atomic
+        synchronized (cache) {
+            final CacheMarker previous = cache.put(key, created);
+            if (previous != null) {
+                // created concurrently by another thread, keep the one already handed out
+                cache.put(key, previous);
+                return previous;
+            }
+        }
+        return created;
+    }
+
+    /** removes all markers from all pools */
+    public void clear() {
+        for (LruCache<Long, CacheMarker> cache : pools.values()) {
+            cache.evictAll();
+        }
+    }
+
+    /** returns statistics of all pools (number of markers, bytes used and budget, hits, misses and evictions) */
+    @NonNull
+    public String getStatistics() {
+        final StringBuilder sb = new StringBuilder("MarkerBitmapCache");
+        for (Map.Entry<Pool, LruCache<Long, CacheMarker>> entry : pools.entrySet()) {
+            final LruCache<Long, CacheMarker> cache = entry.getValue();
+            sb.append(String.format(Locale.US, " | %s: %d markers, %.1f/%.1fMB, hits %d, misses %d, evictions %d",
+                    entry.getKey(), cache.snapshot().size(), cache.size() / 1048576f, cache.maxSize() / 1048576f,
+                    cache.hitCount(), cache.missCount(), cache.evictionCount()));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,112 @@
+package cgeo.geocaching.location;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CheapRulerTest {
+
+    private static Geopoint randomPointNear(final Random random, final Geopoint center, final double maxDistanceKm) {
+        return center.project(random.nextDouble() * 360, random.nextDouble() * maxDistanceKm);
+    }
+
+    @Test
+    public void testDistanceWithinErrorBounds() {
+        final Random random = new Random(4711);
+        for (int lat = -CheapRuler.MAX_ACCURATE_LATITUDE; lat <= CheapRuler.MAX_ACCURATE_LATITUDE; lat += 2) {
+            final Geopoint center = new Geopoint(lat + random.nextDouble(), random.nextDouble() * 360 - 180);
+            if (!CheapRuler.isAccurateForLatitude(center.getLatitudeE6())) {
+                continue;
+            }
+            for (int i = 0; i < 500; i++) {
+                final Geopoint target = randomPointNear(random, center, CheapRuler.MAX_ACCURATE_DISTANCE_KM);
+                final float exact = center.distanceTo(target);
+                final float approximated = CheapRuler.distanceKm(center, target);
+                assertThat(Math.abs(approximated - exact)).as("distance from " + center + " to " + target)
+                        .isLessThanOrEqualTo(CheapRuler.maxErrorKm(approximated, center.getLatitudeE6()));
+            }
+        }
+    }
+
+    @Test
+    public void testBulkDistancesEqualSingleDistances() {
+        final Random random = new Random(42);
+        final Geopoint center = new Geopoint(48.1, 11.5);
+        final int[] lats = new int[100];
+        final int[] lons = new int[100];
+        for (int i = 0; i < lats.length; i++) {
+            final Geopoint gp = randomPointNear(random, center, 50);
+            lats[i] = gp.getLatitudeE6();
+            lons[i] = gp.getLongitudeE6();
+        }
+        final float[] result = new float[lats.length];
+        CheapRuler.distancesKm(center.getLatitudeE6(), center.getLongitudeE6(), lats, lons, lats.length, result);
+        for (int i = 0; i < lats.length; i++) {
+            assertThat(result[i]).isEqualTo(CheapRuler.distanceKm(center.getLatitudeE6(), center.getLongitudeE6(), lats[i], lons[i]));
+        }
+    }
+
+    @Test
+    public void testDateLine() {
+        final Geopoint west = new Geopoint(10, 179.99);
+        final Geopoint east = new Geopoint(10, -179.99);
+        assertThat(CheapRuler.distanceKm(west, east)).isEqualTo(west.distanceTo(east), offset(0.01f));
+        assertThat(CheapRuler.bearing(west.getLatitudeE6(), west.getLongitudeE6(), east.getLatitudeE6(), east.getLongitudeE6())).isEqualTo(90f, offset(0.1f));
+    }
+
+    @Test
+    public void testBearing() {
+        final Geopoint center = new Geopoint(48.1, 11.5);
+        assertThat(CheapRuler.bearing(center.getLatitudeE6(), center.getLongitudeE6(), center.getLatitudeE6() + 1000, center.getLongitudeE6())).isEqualTo(0f);
+        assertThat(CheapRuler.bearing(center.getLatitudeE6(), center.getLongitudeE6(), center.getLatitudeE6(), center.getLongitudeE6() - 1000)).isEqualTo(270f);
+        final Geopoint target = new Geopoint(48.2, 11.7);
+        assertThat(CheapRuler.bearing(center.getLatitudeE6(), center.getLongitudeE6(), target.getLatitudeE6(), target.getLongitudeE6()))
+                .isEqualTo(center.bearingTo(target), offset(0.5f));
+    }
+
+    @Test
+    public void testOrderAmbiguities() {
+        final float[] distances = {100.0f, 1.0f, 5.0f, 1.00001f, 100.0f, 50.0f};
+        final boolean[] ambiguous = CheapRuler.findOrderAmbiguities(distances, new boolean[distances.length], distances.length, 48_000_000);
+        assertThat(ambiguous).containsExactly(true, true, false, true, true, false);
+    }
+
+    @Test
+    public void testOrderAmbiguitiesBeyondAccurateDistance() {
+        // a distance without error bound may be anywhere, so no order is certain anymore
+        final float[] distances = {1.0f, 5.0f, 300.0f};
+        assertThat(CheapRuler.hasErrorBound(distances[2], 48_000_000)).isFalse();
+        assertThat(CheapRuler.findOrderAmbiguities(distances, new boolean[distances.length], distances.length, 48_000_000)).containsExactly(true, true, true);
+
+        // once it is exact, the other distances keep their approximated order
+        distances[2] = 301.5f;
+        assertThat(CheapRuler.findOrderAmbiguities(distances, new boolean[]{false, false, true}, distances.length, 48_000_000)).containsExactly(false, false, false);
+        // ... unless they overlap an exact distance
+        assertThat(CheapRuler.findOrderAmbiguities(new float[]{1.0f, 150.0f, 150.001f}, new boolean[]{false, false, true}, 3, 48_000_000)).containsExactly(false, true, false);
+    }
+
+    @Test
+    public void testBulkRelativeError() {
+        final Random random = new Random(1);
+        final Geopoint center = new Geopoint(51.5, -0.1);
+        final int size = 10_000;
+        final Geopoint[] points = new Geopoint[size];
+        final int[] lats = new int[size];
+        final int[] lons = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = new Geopoint(center.getLatitude() + random.nextDouble() - 0.5, center.getLongitude() + random.nextDouble() - 0.5);
+            lats[i] = points[i].getLatitudeE6();
+            lons[i] = points[i].getLongitudeE6();
+        }
+        final float[] approximated = new float[size];
+        CheapRuler.distancesKm(center.getLatitudeE6(), center.getLongitudeE6(), lats, lons, size, approximated);
+        for (int i = 0; i < size; i++) {
+            final float exact = center.distanceTo(points[i]);
+            // short distances at a medium latitude: within the base error of 0.01%, plus float rounding
+            assertThat(Math.abs(approximated[i] - exact)).isLessThanOrEqualTo(exact * 1e-4f + 1e-4f);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package cgeo.geocaching.location;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class GeoClusterIndexTest {
+
+    private static final Viewport WORLD = new Viewport(new Geopoint(-85, -180), new Geopoint(85, 180));
+
+    private static GeoClusterIndex createIndex(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final int[] lat = new int[count];
+        final int[] lon = new int[count];
+        for (int i = 0; i < count; i++) {
+            lat[i] = (int) ((48 + random.nextDouble()) * 1e6);
+            lon[i] = (int) ((11 + random.nextDouble()) * 1e6);
+        }
+        return new GeoClusterIndex(lat, lon, count, 60);
+    }
+
+    private static int sumCounts(final List<GeoClusterIndex.Cluster> clusters) {
+        int sum = 0;
+        for (GeoClusterIndex.Cluster cluster : clusters) {
+            sum += cluster.count;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testClustersMergeOnLowZoom() {
+        final GeoClusterIndex index = createIndex(1000, 1);
+        assertThat(index.getPointCount()).isEqualTo(1000);
+
+        final List<GeoClusterIndex.Cluster> low = index.getClusters(WORLD, 4);
+        assertThat(low).hasSize(1);
+        assertThat(low.get(0).count).isEqualTo(1000);
+        assertThat(low.get(0).pointIndex).isEqualTo(-1);
+        assertThat(low.get(0).id).isEqualTo(0);
+        assertThat(low.get(0).center.getLatitude()).isBetween(48.0, 49.0);
+        assertThat(low.get(0).center.getLongitude()).isBetween(11.0, 12.0);
+
+        // number of clusters never decreases when zooming in, total count is always preserved
+        int lastClusterCount = 0;
+        for (int zoom = 0; zoom <= GeoClusterIndex.MAX_CLUSTER_ZOOM; zoom++) {
+            assertThat(index.getClusterCount(zoom)).isGreaterThanOrEqualTo(lastClusterCount);
+            lastClusterCount = index.getClusterCount(zoom);
+            assertThat(sumCounts(index.getClusters(WORLD, zoom))).isEqualTo(1000);
+        }
+    }
+
+    @Test
+    public void testMaxZoomReturnsSinglePoints() {
+        final GeoClusterIndex index = new GeoClusterIndex(new int[]{48_000_000, 48_000_001, 49_000_000}, new int[]{11_000_000, 11_000_000, 11_000_000}, 3, 60);
+        final List<GeoClusterIndex.Cluster> points = index.getClusters(WORLD, GeoClusterIndex.MAX_CLUSTER_ZOOM);
+        assertThat(points).hasSize(3);
+        for (GeoClusterIndex.Cluster point : points) {
+            assertThat(point.count).isEqualTo(1);
+            assertThat(point.pointIndex).isEqualTo(point.id);
+        }
+        // zoom levels above the maximum are treated as maximum
+        assertThat(index.getClusterCount(20)).isEqualTo(3);
+
+        // nearby points are clustered on all lower levels, the distant one is separate on medium levels
+        assertThat(index.getClusterCount(10)).isEqualTo(2);
+        final boolean[] clustered = index.getClusteredPoints(10);
+        assertThat(clustered).containsExactly(true, true, false);
+    }
+
+    @Test
+    public void testViewportQuery() {
+        final GeoClusterIndex index = new GeoClusterIndex(new int[]{48_000_000, 49_000_000}, new int[]{11_000_000, 11_000_000}, 2, 60);
+        final List<GeoClusterIndex.Cluster> clusters = index.getClusters(new Viewport(new Geopoint(47.5, 10.5), new Geopoint(48.5, 11.5)), 14);
+        assertThat(clusters).hasSize(1);
+        assertThat(clusters.get(0).pointIndex).isEqualTo(0);
+    }
+
+    @Test
+    public void testClustersAreHierarchical() {
+        final GeoClusterIndex index = createIndex(5000, 2);
+        for (int zoom = 0; zoom < GeoClusterIndex.MAX_CLUSTER_ZOOM; zoom++) {
+            // every cluster on a higher zoom level is part of exactly one cluster on the lower level
+            final Map<Integer, Integer> countsById = new HashMap<>();
+            for (GeoClusterIndex.Cluster cluster : index.getClusters(WORLD, zoom)) {
+                countsById.put(cluster.id, cluster.count);
+            }
+            int sumOfLowerIds = 0;
+            for (GeoClusterIndex.Cluster cluster : index.getClusters(WORLD, zoom + 1)) {
+                if (countsById.containsKey(cluster.id)) {
+                    assertThat(countsById.get(cluster.id)).isGreaterThanOrEqualTo(cluster.count);
+                    sumOfLowerIds++;
+                }
+            }
+            // ids of the lower level are all still present on the higher one
+            assertThat(sumOfLowerIds).isEqualTo(countsById.size());
+        }
+    }
+
+    @Test
+    public void testLargeIndex() {
+        final int count = 100_000;
+        final GeoClusterIndex index = createIndex(count, 3);
+        assertThat(index.getPointCount()).isEqualTo(count);
+
+        final List<GeoClusterIndex.Cluster> clusters = index.getClusters(WORLD, 10);
+        assertThat(sumCounts(clusters)).isEqualTo(count);
+        assertThat(clusters.size()).isLessThan(count / 10);
+
+        // every clustered point of a zoom level is counted in a cluster with more than one point
+        final boolean[] clustered = index.getClusteredPoints(10);
+        int clusteredCount = 0;
+        for (boolean c : clustered) {
+            clusteredCount += c ? 1 : 0;
+        }
+        int multiPointCount = 0;
+        for (GeoClusterIndex.Cluster cluster : clusters) {
+            multiPointCount += cluster.count > 1 ? cluster.count : 0;
+        }
+        assertThat(clusteredCount).isEqualTo(multiPointCount);
+    }
+
+}
@@ -0,0 +1,134 @@
+package cgeo.geocaching.location;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class GeoSpatialIndexTest {
+
+    private static double[][] createBoxes(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final double[][] boxes = new double[count][];
+        for (int i = 0; i < count; i++) {
+            final double lat = 47 + random.nextDouble() * 3;
+            final double lon = 8 + random.nextDouble() * 5;
+            // mostly markers (points), some small polygons, few long tracks
+            final int kind = random.nextInt(100);
+            final double size = kind < 90 ? 0 : kind < 99 ? random.nextDouble() * 0.01 : random.nextDouble() * 2;
+            boxes[i] = new double[]{lat, lon, lat + size, lon + size * 1.5};
+        }
+        return boxes;
+    }
+
+    private static GeoSpatialIndex<Integer> createIndex(final double[][] boxes) {
+        final GeoSpatialIndex<Integer> index = new GeoSpatialIndex<>();
+        for (int i = 0; i < boxes.length; i++) {
+            index.put(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+        return index;
+    }
+
+    private static Set<Integer> bruteForce(final double[][] boxes, final double minLat, final double minLon, final double maxLat, final double maxLon) {
+        final Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < boxes.length; i++) {
+            if (boxes[i] != null && boxes[i][0] <= maxLat && boxes[i][2] >= minLat && boxes[i][1] <= maxLon && boxes[i][3] >= minLon) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    private static <K> Set<K> query(final GeoSpatialIndex<K> index, final double minLat, final double minLon, final double maxLat, final double maxLon) {
+        final Set<K> result = new HashSet<>();
+        index.query(minLat, minLon, maxLat, maxLon, result::add);
+        return result;
+    }
+
+    @Test
+    public void testQueryMatchesBruteForce() {
+        final double[][] boxes = createBoxes(5000, 1);
+        final GeoSpatialIndex<Integer> index = createIndex(boxes);
+        assertThat(index.size()).isEqualTo(5000);
+
+        final Random random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            final double lat = 46.5 + random.nextDouble() * 4;
+            final double lon = 7.5 + random.nextDouble() * 6;
+            // small (tap) and large (viewport) query rectangles
+            final double size = i % 2 == 0 ? 0.001 : random.nextDouble() * 3;
+            assertThat(query(index, lat, lon, lat + size, lon + size)).isEqualTo(bruteForce(boxes, lat, lon, lat + size, lon + size));
+        }
+    }
+
+    @Test
+    public void testPutReplaceAndRemove() {
+        final GeoSpatialIndex<String> index = new GeoSpatialIndex<>();
+        index.put("a", 48, 11, 48, 11);
+        index.put("b", 10, 10, 10, 10);
+        final Viewport munich = new Viewport(new Geopoint(47.9, 10.9), new Geopoint(48.1, 11.1));
+        assertThat(index.query(munich)).containsExactly("a");
+
+        // replacing moves the item
+        index.put("a", 20, 20, 20, 20);
+        assertThat(index.query(munich)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+
+        assertThat(index.remove("b")).isTrue();
+        assertThat(index.remove("b")).isFalse();
+        assertThat(index.query(new Viewport(new Geopoint(-90, -180), new Geopoint(90, 180)))).containsExactly("a");
+
+        index.put("world", -80, -170, 80, 170);
+        assertThat(index.query(munich)).containsExactly("world");
+        index.clear();
+        assertThat(index.size()).isEqualTo(0);
+        assertThat(index.query(munich)).isEmpty();
+    }
+
+    /**
+     * Resolves many taps (tiny query rectangles) on 100k primitives, results must be the same as with a linear scan over all bounding boxes
+     */
+    @Test
+    public void testTapQueriesMatchLinearScan() {
+        final double[][] boxes = createBoxes(100_000, 3);
+        final GeoSpatialIndex<Integer> index = createIndex(boxes);
+
+        final Random random = new Random(4);
+        final double margin = 0.0005;
+        int hits = 0;
+        for (int i = 0; i < 1000; i++) {
+            final double lat = 47 + random.nextDouble() * 3;
+            final double lon = 8 + random.nextDouble() * 5;
+            final Set<Integer> expected = bruteForce(boxes, lat - margin, lon - margin, lat + margin, lon + margin);
+            assertThat(query(index, lat - margin, lon - margin, lat + margin, lon + margin)).isEqualTo(expected);
+            hits += expected.size();
+        }
+        assertThat(hits).isGreaterThan(0);
+    }
+
+    @Test
+    public void testAntimeridian() {
+        final GeoSpatialIndex<String> index = new GeoSpatialIndex<>();
+        index.put("east", 10, 179.9995, 10, 179.9995);
+        index.put("west", 10, -179.9995, 10, -179.9995);
+        index.put("crossing", 20, 179.5, 21, -179.5);
+        index.put("middle", 10, 0, 10, 0);
+
+        // query rectangle extending beyond +180 or below -180
+        assertThat(query(index, 9.999, 179.999, 10.001, 180.001)).containsOnly("east", "west");
+        assertThat(query(index, 9.999, -180.001, 10.001, -179.999)).containsOnly("east", "west");
+        // query rectangle given with minimum longitude greater than maximum longitude
+        assertThat(query(index, 9.999, 179.999, 10.001, -179.999)).containsOnly("east", "west");
+        assertThat(query(index, 19, 170, 22, -170)).containsOnly("crossing");
+        // item crossing the antimeridian is found from both sides, but only once
+        final List<String> found = new ArrayList<>();
+        index.query(19, 179.8, 22, 180.2, found::add);
+        assertThat(found).containsExactly("crossing");
+        assertThat(query(index, 9, -1, 11, 1)).containsOnly("middle");
+    }
+
+}
@@ -0,0 +1,164 @@
+package cgeo.geocaching.models.geoitem;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.location.WebMercator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class GeoItemLodTest {
+
+    /** a random walk track with given number of points, starting near Munich with steps of a few meters */
+    private static List<Geopoint> createTrack(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<Geopoint> points = new ArrayList<>();
+        double lat = 48.1;
+        double lon = 11.5;
+        double direction = 0;
+        for (int i = 0; i < count; i++) {
+            points.add(new Geopoint(lat, lon));
+            direction += (random.nextDouble() - 0.5) * 0.5;
+            lat += Math.sin(direction) * 0.00005;
+            lon += Math.cos(direction) * 0.00005;
+        }
+        return points;
+    }
+
+    private static int countPoints(final GeoItem item) {
+        final int[] count = new int[]{0};
+        GeoGroup.forAllPrimitives(item, p -> count[0] += p.getPoints().size());
+        return count[0];
+    }
+
+    private static double maxDeviation(final List<Geopoint> original, final List<Geopoint> simplified) {
+        // distance of each original point to the nearest simplified segment, in Mercator units
+        double max = 0;
+        for (Geopoint p : original) {
+            final double px = WebMercator.lonToX(p.getLongitude());
+            final double py = WebMercator.latToY(p.getLatitude());
+            double min = Double.MAX_VALUE;
+            for (int i = 1; i < simplified.size(); i++) {
+                final double ax = WebMercator.lonToX(simplified.get(i - 1).getLongitude());
+                final double ay = WebMercator.latToY(simplified.get(i - 1).getLatitude());
+                final double bx = WebMercator.lonToX(simplified.get(i).getLongitude());
+                final double by = WebMercator.latToY(simplified.get(i).getLatitude());
+                final double dx = bx - ax;
+                final double dy = by - ay;
+                final double lengthSquared = dx * dx + dy * dy;
+                final double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+                min = Math.min(min, Math.hypot(ax + t * dx - px, ay + t * dy - py));
+            }
+            max = Math.max(max, min);
+        }
+        return max;
+    }
+
+    @Test
+    public void testSimplifyWithinTolerance() {
+        final List<Geopoint> track = createTrack(5000, 1);
+        final double tolerance = WebMercator.pixelSize(12);
+        final List<Geopoint> simplified = GeoItemLod.simplify(track, tolerance, 2);
+
+        assertThat(simplified.size()).isLessThan(track.size() / 5);
+        assertThat(simplified.get(0)).isEqualTo(track.get(0));
+        assertThat(simplified.get(simplified.size() - 1)).isEqualTo(track.get(track.size() - 1));
+        assertThat(maxDeviation(track, simplified)).isLessThanOrEqualTo(tolerance * 1.0001);
+    }
+
+    @Test
+    public void testSimplifyKeepsSmallPolygons() {
+        final GeoPrimitive polygon = GeoPrimitive.createPolygon(createTrack(50, 2), GeoStyle.builder().build()).buildUpon().setZLevel(5).build();
+        // tolerance larger than whole polygon would collapse it
+        final GeoPrimitive simplified = (GeoPrimitive) GeoItemLod.simplify(polygon, 1);
+        assertThat(simplified.getPoints()).isEqualTo(polygon.getPoints());
+        assertThat(simplified.getZLevel()).isEqualTo(5);
+        assertThat(simplified.getType()).isEqualTo(GeoItem.GeoType.POLYGON);
+    }
+
+    @Test
+    public void testClipKeepsOnlyPartsNearArea() {
+        final List<Geopoint> points = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            points.add(new Geopoint(48, 10 + i * 0.01));
+        }
+        final GeoPrimitive line = GeoPrimitive.createPolyline(points, GeoStyle.builder().build());
+        final Viewport area = new Viewport(new Geopoint(47.9, 10.205), new Geopoint(48.1, 10.305));
+
+        final GeoItem clipped = GeoItemLod.clip(line, area);
+        // points 10.20 ... 10.31: one segment beyond each border is kept
+        assertThat(countPoints(clipped)).isEqualTo(12);
+        assertThat(((GeoGroup) clipped).getItems()).hasSize(1);
+
+        assertThat(countPoints(GeoItemLod.clip(line, new Viewport(new Geopoint(40, 10), new Geopoint(41, 11))))).isEqualTo(0);
+        // markers are never clipped
+        final GeoPrimitive marker = GeoPrimitive.createMarker(new Geopoint(0, 0), null);
+        assertThat(((GeoGroup) GeoItemLod.clip(marker, area)).getItems()).containsExactly(marker);
+    }
+
+    @Test
+    public void testGetForDisplay() {
+        final GeoPrimitive line = GeoPrimitive.createPolyline(createTrack(20000, 3), GeoStyle.builder().build());
+        final GeoItemLod lod = new GeoItemLod(line);
+        assertThat(lod.getForDisplay(null, 10)).isSameAs(line);
+
+        final Viewport viewport = new Viewport(new Geopoint(48.1, 11.5), 0.05, 0.05);
+        final GeoItem display = lod.getForDisplay(viewport, 10);
+        assertThat(countPoints(display)).isLessThan(line.getPoints().size() / 10);
+        // same instance as long as zoom band and clipped area fit
+        assertThat(lod.getForDisplay(viewport, 9)).isSameAs(display);
+        assertThat(lod.getForDisplay(viewport, 15)).isNotSameAs(display);
+
+        // highest zoom levels show the original geometry
+        final Viewport everything = new Viewport(new Geopoint(40, 5), new Geopoint(55, 20));
+        assertThat(lod.getForDisplay(everything, 19)).isSameAs(line);
+        assertThat(lod.getOriginal()).isSameAs(line);
+    }
+
+    @Test
+    public void testLargeTrackIsSimplifiedOnLowerZoomLevels() {
+        final GeoPrimitive line = GeoPrimitive.createPolyline(createTrack(200_000, 4), GeoStyle.builder().build());
+        final GeoItemLod lod = new GeoItemLod(line);
+        final Viewport viewport = line.getViewport();
+        assertThat(viewport).isNotNull();
+
+        int lastCount = 0;
+        for (int zoom = 4; zoom <= 14; zoom += 2) {
+            final int count = countPoints(lod.getForDisplay(viewport, zoom));
+            assertThat(count).isLessThan(line.getPoints().size() / 4);
+            // more details on higher zoom levels
+            assertThat(count).isGreaterThanOrEqualTo(lastCount);
+            lastCount = count;
+        }
+    }
+
+    @Test
+    public void testUpdatedLineReusesPreviousLod() {
+        final List<Geopoint> track = createTrack(6000, 5);
+        final GeoStyle style = GeoStyle.builder().build();
+        final Viewport everything = new Viewport(new Geopoint(40, 5), new Geopoint(55, 20));
+        final double tolerance = 0.7 * WebMercator.pixelSize(11);
+
+        GeoItemLod lod = new GeoItemLod(GeoPrimitive.createPolyline(track.subList(0, 3000), style));
+        lod.getForDisplay(everything, 10);
+        // extend line point by point (with a changing current position at the end), then also drop points at its start
+        for (int end = 3001; end < 6000; end += 250) {
+            final int start = end < 4500 ? 0 : end - 4500;
+            final List<Geopoint> points = new ArrayList<>(track.subList(start, end));
+            points.add(new Geopoint(48, 11.5 + end * 0.00001));
+            final GeoPrimitive line = GeoPrimitive.createPolyline(points, style);
+            lod = new GeoItemLod(line, lod);
+
+            final List<Geopoint> displayed = ((GeoPrimitive) lod.getForDisplay(everything, 10)).getPoints();
+            assertThat(displayed.size()).isLessThan(points.size() / 5);
+            assertThat(displayed.get(0)).isEqualTo(points.get(0));
+            assertThat(displayed.get(displayed.size() - 1)).isEqualTo(points.get(points.size() - 1));
+            assertThat(maxDeviation(points, displayed)).isLessThanOrEqualTo(tolerance * 1.0001);
+        }
+    }
+
+}
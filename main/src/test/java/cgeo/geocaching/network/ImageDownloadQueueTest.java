@@ -0,0 +1,130 @@
+package cgeo.geocaching.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ImageDownloadQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** fake downloader writing the URL into the file, tracking concurrency */
+    private static class FakeDownloader implements ImageDownloadQueue.Downloader {
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final Map<String, AtomicInteger> runningPerHost = new ConcurrentHashMap<>();
+        private final AtomicInteger maxRunningPerHost = new AtomicInteger();
+        private final AtomicInteger downloads = new AtomicInteger();
+        private final CountDownLatch release;
+        private final CountDownLatch started;
+
+        FakeDownloader(final CountDownLatch release, final CountDownLatch started) {
+            this.release = release;
+            this.started = started;
+        }
+
+        @Override
+        public ImageDownloadQueue.Result download(final String url, final File file) {
+            final AtomicInteger hostCount = runningPerHost.computeIfAbsent(ImageDownloadQueue.getHost(url), h -> new AtomicInteger());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            maxRunningPerHost.accumulateAndGet(hostCount.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                FileUtils.writeStringToFile(file, url, StandardCharsets.UTF_8);
+                downloads.incrementAndGet();
+                return ImageDownloadQueue.Result.DOWNLOADED;
+            } catch (InterruptedException | IOException e) {
+                return ImageDownloadQueue.Result.FAILED;
+            } finally {
+                hostCount.decrementAndGet();
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    public void testHost() {
+        assertThat(ImageDownloadQueue.getHost("https://img.Geocaching.com/cache/large/abc.jpg")).isEqualTo("img.geocaching.com");
+        assertThat(ImageDownloadQueue.getHost("http://example.com?x=1")).isEqualTo("example.com");
+    }
+
+    @Test
+    public void testConcurrencyLimits() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(6);
+        final FakeDownloader downloader = new FakeDownloader(release, started);
+        final ImageDownloadQueue queue = new ImageDownloadQueue(downloader, Schedulers.io());
+
+        final List<Single<ImageDownloadQueue.Result>> results = new ArrayList<>();
+        for (int host = 0; host < 5; host++) {
+            for (int i = 0; i < 10; i++) {
+                results.add(queue.download("https://host" + host + ".example.com/image" + i + ".jpg", new File(folder.getRoot(), host + "-" + i), false).cache());
+            }
+        }
+        for (Single<ImageDownloadQueue.Result> result : results) {
+            result.subscribe();
+        }
+        // downloads are blocked until released, so the limit must be reached and not exceeded
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(downloader.running.get()).isEqualTo(6);
+        assertThat(queue.getPendingCount()).isEqualTo(50);
+        release.countDown();
+        for (Single<ImageDownloadQueue.Result> result : results) {
+            assertThat(result.blockingGet()).isEqualTo(ImageDownloadQueue.Result.DOWNLOADED);
+        }
+
+        assertThat(downloader.downloads.get()).isEqualTo(50);
+        assertThat(downloader.maxRunning.get()).isEqualTo(6);
+        assertThat(downloader.maxRunningPerHost.get()).isEqualTo(2);
+        assertThat(queue.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDeduplication() throws IOException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final FakeDownloader downloader = new FakeDownloader(release, new CountDownLatch(1));
+        final ImageDownloadQueue queue = new ImageDownloadQueue(downloader, Schedulers.io());
+        final String url = "https://example.com/smiley.gif";
+        final File cache1 = new File(folder.newFolder("GC1"), "smiley");
+        final File cache2 = new File(folder.newFolder("GC2"), "smiley");
+        final File cache3 = new File(folder.newFolder("GC3"), "smiley");
+
+        // same URL requested while download is running: only one download
+        final Single<ImageDownloadQueue.Result> first = queue.download(url, cache1, false).cache();
+        final Single<ImageDownloadQueue.Result> second = queue.download(url, cache2, false).cache();
+        first.subscribe();
+        second.subscribe();
+        release.countDown();
+        assertThat(first.blockingGet()).isEqualTo(ImageDownloadQueue.Result.DOWNLOADED);
+        assertThat(second.blockingGet()).isEqualTo(ImageDownloadQueue.Result.COPIED);
+
+        // same URL requested later: copied from previous download, unless refresh is forced
+        assertThat(queue.download(url, cache3, false).blockingGet()).isEqualTo(ImageDownloadQueue.Result.COPIED);
+        assertThat(downloader.downloads.get()).isEqualTo(1);
+        assertThat(queue.download(url, cache3, true).blockingGet()).isEqualTo(ImageDownloadQueue.Result.DOWNLOADED);
+        assertThat(downloader.downloads.get()).isEqualTo(2);
+
+        for (File file : new File[]{cache1, cache2, cache3}) {
+            assertThat(FileUtils.readFileToString(file, StandardCharsets.UTF_8)).isEqualTo(url);
+        }
+        assertThat(queue.getStatistics()).contains("downloaded 2", "copied 2", "failed 0");
+    }
+
+}
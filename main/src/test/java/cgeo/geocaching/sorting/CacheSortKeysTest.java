@@ -0,0 +1,69 @@
+package cgeo.geocaching.sorting;
+
+import cgeo.geocaching.models.Geocache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CacheSortKeysTest {
+
+    private static List<Geocache> createCaches(final int count) {
+        final Random random = new Random(4711);
+        final List<Geocache> caches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode("GC" + Integer.toString(random.nextInt(100000), 36).toUpperCase());
+            // difficulty 0 can't be compared and will fall back to geocode ordering
+            cache.setDifficulty(random.nextInt(10) * 0.5f);
+            caches.add(cache);
+        }
+        return caches;
+    }
+
+    @Test
+    public void testKeyedSortEqualsComparatorSort() {
+        final DifficultyComparator comparator = new DifficultyComparator();
+        final List<Geocache> expected = createCaches(500);
+        final List<Geocache> actual = new ArrayList<>(expected);
+
+        Collections.sort(expected, comparator);
+        comparator.sort(actual);
+
+        assertThat(actual).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void testKeyedInverseSortEqualsComparatorSort() {
+        final CacheComparator comparator = new InverseComparator(new DifficultyComparator());
+        final List<Geocache> expected = createCaches(500);
+        final List<Geocache> actual = new ArrayList<>(expected);
+
+        Collections.sort(expected, comparator);
+        comparator.sort(actual);
+
+        assertThat(actual).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void testResortNearlySortedList() {
+        final DifficultyComparator comparator = new DifficultyComparator();
+        final List<Geocache> caches = createCaches(500);
+        comparator.sort(caches);
+        assertThat(comparator.resort(caches)).isFalse();
+
+        // move a few caches out of place
+        caches.get(10).setDifficulty(4.5f);
+        caches.get(400).setDifficulty(1.0f);
+        final List<Geocache> expected = new ArrayList<>(caches);
+        Collections.sort(expected, comparator);
+
+        assertThat(comparator.resort(caches)).isTrue();
+        assertThat(caches).containsExactlyElementsOf(expected);
+    }
+
+}
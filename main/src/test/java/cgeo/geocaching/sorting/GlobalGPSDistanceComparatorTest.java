@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
 
 public class GlobalGPSDistanceComparatorTest {
 
@@ -24,4 +25,30 @@ public class GlobalGPSDistanceComparatorTest {
         Collections.sort(caches, new GlobalGPSDistanceComparator());
     }
 
+    @Test
+    public void testSortKeepsCacheDistances() {
+        final List<Geocache> caches = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final Geocache cache = new Geocache();
+            // close to each other, so that some approximated distances are ambiguous
+            cache.setCoords(new Geopoint(0.5 + (i % 7) * 0.00001, 0.5 + (i % 5) * 0.00001));
+            caches.add(cache);
+        }
+        caches.get(3).setDistance(42f);
+        final GlobalGPSDistanceComparator comparator = new GlobalGPSDistanceComparator();
+        comparator.sort(caches);
+
+        for (int i = 1; i < caches.size(); i++) {
+            assertThat(comparator.compare(caches.get(i - 1), caches.get(i))).isLessThanOrEqualTo(0);
+        }
+        int withDistance = 0;
+        for (final Geocache cache : caches) {
+            if (cache.getDistance() != null) {
+                assertThat(cache.getDistance()).isEqualTo(42f);
+                withDistance++;
+            }
+        }
+        assertThat(withDistance).isEqualTo(1);
+    }
+
 }
@@ -0,0 +1,105 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.enumerations.CacheSize;
+import cgeo.geocaching.enumerations.CacheType;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CacheSummaryTableTest {
+
+    private static Geocache createCache(final String geocode, final double lat, final double lon) {
+        final Geocache cache = new Geocache();
+        cache.setGeocode(geocode);
+        cache.setCoords(new Geopoint(lat, lon));
+        cache.setType(CacheType.MULTI);
+        cache.setSize(CacheSize.SMALL);
+        cache.setDifficulty(2.5f);
+        cache.setTerrain(4f);
+        return cache;
+    }
+
+    @Test
+    public void testPutAndGet() {
+        final CacheSummaryTable table = new CacheSummaryTable(1);
+        final Geocache cache = createCache("GC1", 48.1, 11.5);
+        cache.setFound(true);
+        cache.setArchived(true);
+        cache.setLists(Collections.singleton(1));
+        table.put(cache);
+        table.put(createCache("GC2", 10, 10));
+
+        assertThat(table.size()).isEqualTo(2);
+        final int row = table.indexOf("GC1");
+        assertThat(table.getGeocode(row)).isEqualTo("GC1");
+        assertThat(table.getCoords(row)).isEqualTo(cache.getCoords());
+        assertThat(table.getType(row)).isEqualTo(CacheType.MULTI);
+        assertThat(table.getSize(row)).isEqualTo(CacheSize.SMALL);
+        assertThat(table.getDifficulty(row)).isEqualTo(2.5f);
+        assertThat(table.getTerrain(row)).isEqualTo(4f);
+        assertThat(table.hasFlag(row, CacheSummaryTable.FLAG_FOUND)).isTrue();
+        assertThat(table.hasFlag(row, CacheSummaryTable.FLAG_ARCHIVED)).isTrue();
+        assertThat(table.hasFlag(row, CacheSummaryTable.FLAG_STORED)).isTrue();
+        assertThat(table.hasFlag(row, CacheSummaryTable.FLAG_DISABLED)).isFalse();
+
+        // replacing a row does not add a new one
+        cache.setFound(false);
+        table.put(cache);
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.hasFlag(table.indexOf("GC1"), CacheSummaryTable.FLAG_FOUND)).isFalse();
+    }
+
+    @Test
+    public void testRemove() {
+        final CacheSummaryTable table = new CacheSummaryTable();
+        for (int i = 0; i < 10; i++) {
+            table.put(createCache("GC" + i, i, i));
+        }
+        assertThat(table.remove("GC3")).isTrue();
+        assertThat(table.remove("GC3")).isFalse();
+        assertThat(table.size()).isEqualTo(9);
+        assertThat(table.indexOf("GC3")).isEqualTo(-1);
+        // moved row is still found under its geocode
+        final int row = table.indexOf("GC9");
+        assertThat(table.getLatitudeE6(row)).isEqualTo(9_000_000);
+    }
+
+    @Test
+    public void testInViewport() {
+        final CacheSummaryTable table = new CacheSummaryTable();
+        table.put(createCache("GCIN", 48.1, 11.5));
+        table.put(createCache("GCOUT", 49.1, 11.5));
+        final Geocache noCoords = new Geocache();
+        noCoords.setGeocode("GCNOCOORDS");
+        table.put(noCoords);
+
+        final Viewport viewport = new Viewport(new Geopoint(48, 11), new Geopoint(48.5, 12));
+        assertThat(table.getGeocodesInViewport(viewport)).containsExactly("GCIN");
+        assertThat(table.hasCoords(table.indexOf("GCNOCOORDS"))).isFalse();
+    }
+
+    /**
+     * The estimated heap of a summary row (including its geocode and index entry) stays below 128 bytes
+     */
+    @Test
+    public void testEstimatedHeapUsage() {
+        final int count = 100_000;
+        final Random random = new Random(42);
+        final CacheSummaryTable table = new CacheSummaryTable(count);
+        final long emptyBytes = table.estimateHeapBytes();
+        for (int i = 0; i < count; i++) {
+            table.put(createCache("GC" + Integer.toString(i, 36).toUpperCase(), 40 + random.nextDouble() * 10, random.nextDouble() * 10));
+        }
+
+        assertThat(table.size()).isEqualTo(count);
+        assertThat(table.estimateHeapBytes()).isGreaterThan(emptyBytes);
+        assertThat(table.estimateHeapBytes()).isLessThan(count * 128L);
+    }
+
+}
@@ -0,0 +1,129 @@
+package cgeo.geocaching.storage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DataStoreMetricsTest {
+
+    @Test
+    public void testQueryShape() {
+        assertThat(DataStoreMetrics.toQueryShape("SELECT geocode FROM cg_caches WHERE latitude >= 48.1 AND latitude <= 48.25 AND type = 'traditional'"))
+                .isEqualTo("SELECT geocode FROM cg_caches WHERE latitude >= ? AND latitude <= ? AND type = ?");
+        // lists of different length have the same shape
+        assertThat(DataStoreMetrics.toQueryShape("SELECT * FROM cg_caches WHERE geocode IN ('GC1', 'GC2','it''s')  LIMIT 500"))
+                .isEqualTo("SELECT * FROM cg_caches WHERE geocode IN (?,…) LIMIT ?");
+        assertThat(DataStoreMetrics.toQueryShape("SELECT * FROM cg_logs WHERE geocode = ? AND _id > ?"))
+                .isEqualTo("SELECT * FROM cg_logs WHERE geocode = ? AND _id > ?");
+        // identifiers containing digits are kept
+        assertThat(DataStoreMetrics.toQueryShape("SELECT t1.geocode FROM cg_caches t1 WHERE t1.type = 2")).isEqualTo("SELECT t1.geocode FROM cg_caches t1 WHERE t1.type = ?");
+        assertThat(DataStoreMetrics.toQueryShape("SELECT 1e-5, -3")).isEqualTo("SELECT ?, -?");
+    }
+
+    @Test
+    public void testFullTableScans() {
+        // SQLite before 3.36
+        assertThat(DataStoreMetrics.findFullTableScans(Arrays.asList("SCAN TABLE cg_caches", "SEARCH TABLE cg_logs USING INDEX in_logs_geo (geocode=?)"))).containsExactly("cg_caches");
+        assertThat(DataStoreMetrics.findFullTableScans(Collections.singletonList("SCAN TABLE cg_caches AS c"))).containsExactly("cg_caches");
+        assertThat(DataStoreMetrics.findFullTableScans(Arrays.asList("SCAN TABLE cg_caches USING INDEX in_caches_lat", "SCAN SUBQUERY 1", "USE TEMP B-TREE FOR ORDER BY"))).isEmpty();
+        // SQLite 3.36 and newer
+        assertThat(DataStoreMetrics.findFullTableScans(Collections.singletonList("SCAN cg_caches_lists"))).containsExactly("cg_caches_lists");
+        assertThat(DataStoreMetrics.findFullTableScans(Arrays.asList("SEARCH cg_caches USING INDEX in_caches_geo (geocode=?)", "SCAN CONSTANT ROW"))).isEmpty();
+        assertThat(DataStoreMetrics.findFullTableScans(Arrays.asList("SCAN cg_logs USING COVERING INDEX in_logs_geo"))).isEmpty();
+        // scans of materialized subqueries are no table scans, even if they have the name of a table
+        assertThat(DataStoreMetrics.findFullTableScans(Arrays.asList("MATERIALIZE cg_logs", "SEARCH cg_logs USING INDEX in_logs_geo (geocode=?)", "SCAN cg_logs", "SEARCH cg_logImages USING INDEX in_logimagess_logid (log_id=?)"))).isEmpty();
+        assertThat(DataStoreMetrics.findFullTableScans(Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    public void testHistogram() {
+        final DataStoreMetrics metrics = new DataStoreMetrics(false);
+        final String shape = DataStoreMetrics.toQueryShape("SELECT * FROM cg_caches WHERE _id = 1");
+        metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = 1", null, TimeUnit.MICROSECONDS.toNanos(500), 1);
+        metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = 2", null, TimeUnit.MILLISECONDS.toNanos(5), 1);
+        metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = 3", null, TimeUnit.MILLISECONDS.toNanos(2000), 0);
+
+        final DataStoreMetrics.Histogram histogram = metrics.getQueryStatistics(shape);
+        assertThat(histogram).isNotNull();
+        assertThat(histogram.getCount()).isEqualTo(3);
+        assertThat(histogram.getRows()).isEqualTo(2);
+        assertThat(histogram.getMaxMillis()).isEqualTo(2000);
+        assertThat(histogram.getBuckets()).containsExactly(1, 0, 1, 0, 0, 0, 1);
+        assertThat(metrics.getQueryShapes()).containsExactly(shape);
+        assertThat(metrics.getLastQuery(shape).sql).isEqualTo("SELECT * FROM cg_caches WHERE _id = 3");
+
+        metrics.reset();
+        assertThat(metrics.getQueryShapes()).isEmpty();
+        assertThat(metrics.getQueryStatistics(shape)).isNull();
+    }
+
+    @Test
+    public void testShapeLimit() {
+        final DataStoreMetrics metrics = new DataStoreMetrics(false);
+        for (int i = 0; i < DataStoreMetrics.MAX_SHAPES + 10; i++) {
+            metrics.recordQuery("SELECT * FROM table" + i, null, 1000, 0);
+        }
+        assertThat(metrics.getQueryShapes()).hasSize(DataStoreMetrics.MAX_SHAPES + 1);
+        assertThat(metrics.getQueryStatistics(DataStoreMetrics.OTHER_SHAPE).getCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void testManySqlTextsOfSameShape() {
+        final DataStoreMetrics metrics = new DataStoreMetrics(false);
+        final int count = DataStoreMetrics.MAX_SQL_TEXTS + 100;
+        for (int i = 0; i < count; i++) {
+            metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = " + i, null, 1000, 1);
+        }
+        metrics.recordQuery("SELECT * FROM cg_logs", null, 1000, 1);
+        final String shape = DataStoreMetrics.toQueryShape("SELECT * FROM cg_caches WHERE _id = 1");
+        assertThat(metrics.getQueryShapes()).containsOnly(shape, "SELECT * FROM cg_logs");
+        assertThat(metrics.getQueryStatistics(shape).getCount()).isEqualTo(count);
+        assertThat(metrics.getLastQuery(shape).sql).isEqualTo("SELECT * FROM cg_caches WHERE _id = " + (count - 1));
+    }
+
+    @Test
+    public void testQueryTexts() {
+        final DataStoreMetrics metrics = new DataStoreMetrics(false);
+        metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = ?", new String[]{"1"}, 1000, 1);
+        metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = ?", new String[]{"2"}, 1000, 1);
+        // same shape, but a different SQL text
+        metrics.recordQuery("SELECT * FROM cg_caches WHERE _id = 3", null, 1000, 1);
+        assertThat(metrics.getQueryShapes()).hasSize(1);
+        assertThat(metrics.getQueryTexts()).containsOnly("SELECT * FROM cg_caches WHERE _id = ?", "SELECT * FROM cg_caches WHERE _id = 3");
+
+        metrics.reset();
+        assertThat(metrics.getQueryTexts()).isEmpty();
+    }
+
+    @Test
+    public void testExplainOnlySlowQueries() {
+        assertThat(new DataStoreMetrics(false).shouldExplain(TimeUnit.SECONDS.toNanos(10))).isFalse();
+        final DataStoreMetrics metrics = new DataStoreMetrics(true);
+        assertThat(metrics.shouldExplain(TimeUnit.MILLISECONDS.toNanos(DataStoreMetrics.SLOW_QUERY_MS))).isTrue();
+        assertThat(metrics.shouldExplain(TimeUnit.MILLISECONDS.toNanos(DataStoreMetrics.SLOW_QUERY_MS - 1))).isFalse();
+    }
+
+    @Test
+    public void testJsonReport() {
+        final DataStoreMetrics metrics = new DataStoreMetrics(true);
+        final String shape = DataStoreMetrics.toQueryShape("SELECT * FROM cg_caches");
+        metrics.recordQuery("SELECT * FROM cg_caches", null, TimeUnit.MILLISECONDS.toNanos(80), 1000);
+        metrics.recordSlowQuery(shape, TimeUnit.MILLISECONDS.toNanos(80), Collections.singletonList("SCAN cg_caches"));
+        metrics.recordLockWait(false, 1000);
+        metrics.recordLockWait(true, TimeUnit.MILLISECONDS.toNanos(3));
+
+        final ObjectNode report = metrics.toJson();
+        assertThat(report.get("queries").get(shape).get("count").asLong()).isEqualTo(1);
+        assertThat(report.get("queries").get(shape).get("rows").asLong()).isEqualTo(1000);
+        assertThat(report.get("queries").get(shape).get("histogram").get("<256ms").asLong()).isEqualTo(1);
+        assertThat(report.get("locks").get("access").get("count").asLong()).isEqualTo(1);
+        assertThat(report.get("locks").get("change").get("histogram").get("<4ms").asLong()).isEqualTo(1);
+        assertThat(report.get("slowQueries").get(0).get("shape").asText()).isEqualTo(shape);
+        assertThat(report.get("slowQueries").get(0).get("fullTableScans").get(0).asText()).isEqualTo("cg_caches");
+    }
+
+}
@@ -0,0 +1,62 @@
+package cgeo.geocaching.storage;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+
+public class TextCompressionTest {
+
+    private static final String LISTING = StringUtils.repeat("<p>Thanks for the cache! <span style=\"font-size:12px\">Stage 1 is at the parking.</span></p>\n", 40);
+
+    @Test
+    public void testRoundTrip() {
+        final byte[] compressed = TextCompression.compress(LISTING);
+        assertThat(compressed).isNotNull();
+        assertThat(compressed.length).isLessThan(LISTING.length() / 4);
+        assertThat(TextCompression.isCompressed(compressed)).isTrue();
+        assertThat(TextCompression.decompress(compressed)).isEqualTo(LISTING);
+    }
+
+    @Test
+    public void testNonAscii() {
+        final String text = StringUtils.repeat("Schöne Dose, danke für's Verstecken! € 😀 ", 20);
+        assertThat(TextCompression.decompress(TextCompression.compress(text))).isEqualTo(text);
+    }
+
+    @Test
+    public void testShortTextIsNotCompressed() {
+        assertThat(TextCompression.compress(null)).isNull();
+        assertThat(TextCompression.compress("")).isNull();
+        assertThat(TextCompression.compress("TFTC")).isNull();
+        assertThat(TextCompression.compress(StringUtils.repeat("a", TextCompression.MIN_LENGTH - 1))).isNull();
+        assertThat(TextCompression.compress(StringUtils.repeat("a", TextCompression.MIN_LENGTH))).isNotNull();
+    }
+
+    @Test
+    public void testIsCompressed() {
+        assertThat(TextCompression.isCompressed(null)).isFalse();
+        assertThat(TextCompression.isCompressed(new byte[0])).isFalse();
+        assertThat(TextCompression.isCompressed("plain text".getBytes())).isFalse();
+    }
+
+    @Test
+    public void testCorruptData() {
+        final byte[] compressed = TextCompression.compress(LISTING);
+        try {
+            TextCompression.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+            fail("truncated data must not be decompressed");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            TextCompression.decompress("plain text".getBytes());
+            fail("plain text must not be decompressed");
+        } catch (final IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
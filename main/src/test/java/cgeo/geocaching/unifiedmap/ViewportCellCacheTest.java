@@ -0,0 +1,122 @@
+package cgeo.geocaching.unifiedmap;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ViewportCellCacheTest {
+
+    private static final Viewport MUNICH = new Viewport(new Geopoint(48.1, 11.5), new Geopoint(48.2, 11.7));
+
+    private static Geocache cache(final String geocode, final double lat, final double lon) {
+        final Geocache cache = new Geocache();
+        cache.setGeocode(geocode);
+        cache.setCoords(new Geopoint(lat, lon));
+        return cache;
+    }
+
+    private static ViewportCellCache loadAll(final ViewportCellCache cells, final Viewport viewport, final int level) {
+        for (Viewport area : cells.getMissingAreas(viewport, level)) {
+            cells.setLoaded(area, level, Collections.emptyList(), null);
+        }
+        return cells;
+    }
+
+    @Test
+    public void testLevel() {
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final double cellSize = 360.0 / (1 << level);
+        assertThat(cellSize).isGreaterThan(MUNICH.getLatitudeSpan() / 2);
+        assertThat(cellSize).isLessThanOrEqualTo(MUNICH.getLatitudeSpan());
+    }
+
+    @Test
+    public void testEmptyCacheMissesWholeArea() {
+        final ViewportCellCache cells = new ViewportCellCache(60_000, 100);
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final List<Viewport> missing = cells.getMissingAreas(MUNICH, level);
+        assertThat(missing).hasSize(1);
+        assertThat(missing.get(0).includes(MUNICH)).isTrue();
+
+        loadAll(cells, MUNICH, level);
+        assertThat(cells.getMissingAreas(MUNICH, level)).isEmpty();
+    }
+
+    @Test
+    public void testPanningLoadsOnlyNewCells() {
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final double cellSize = 360.0 / (1 << level);
+        final ViewportCellCache cells = loadAll(new ViewportCellCache(60_000, 100), MUNICH, level);
+
+        // pan east by one viewport width: one strip of new cells
+        final Viewport east = new Viewport(new Geopoint(48.1, 11.7), new Geopoint(48.2, 11.9));
+        final List<Viewport> eastMissing = cells.getMissingAreas(east, level);
+        assertThat(eastMissing).hasSize(1);
+        assertThat(eastMissing.get(0).getLongitudeMin()).isGreaterThanOrEqualTo(11.7 - cellSize);
+        assertThat(eastMissing.get(0).getLatitudeSpan()).isLessThanOrEqualTo(MUNICH.getLatitudeSpan() + 2 * cellSize);
+
+        // pan diagonally: an L-shaped area of new cells, loaded as two rectangles
+        final Viewport diagonal = new Viewport(new Geopoint(48.2, 11.65), new Geopoint(48.3, 11.85));
+        final List<Viewport> diagonalMissing = cells.getMissingAreas(diagonal, level);
+        assertThat(diagonalMissing).hasSize(2);
+        for (Viewport area : diagonalMissing) {
+            assertThat(area.includes(MUNICH.resize(0.5))).isFalse();
+        }
+    }
+
+    @Test
+    public void testZoomingInUsesParentCells() {
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final ViewportCellCache cells = loadAll(new ViewportCellCache(60_000, 100), MUNICH.resize(2), level - 1);
+        assertThat(cells.getMissingAreas(MUNICH, level)).isEmpty();
+        assertThat(cells.getMissingAreas(MUNICH.resize(0.1), level + 3)).isEmpty();
+        // zooming out needs new cells
+        assertThat(cells.getMissingAreas(MUNICH.resize(8), level - 3)).isNotEmpty();
+    }
+
+    @Test
+    public void testGeocodesPerCell() {
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final ViewportCellCache cells = new ViewportCellCache(60_000, 100);
+        final Viewport area = cells.getMissingAreas(MUNICH, level).get(0);
+        cells.setLoaded(area, level, Arrays.asList(cache("GC1", 48.15, 11.6), cache("GC2", 48.11, 11.51), cache("GC3", 10, 10)), null);
+
+        assertThat(cells.getGeocodes(MUNICH, level)).containsOnly("GC1", "GC2");
+        assertThat(cells.getGeocodes(new Viewport(new Geopoint(40, 0), new Geopoint(41, 1)), level)).isEmpty();
+    }
+
+    @Test
+    public void testIncompleteResultMarksOnlyCoveredCells() {
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final ViewportCellCache cells = new ViewportCellCache(60_000, 100);
+        final Viewport area = cells.getMissingAreas(MUNICH.resize(4), level).get(0);
+        final Viewport covered = new Viewport(area.getCenter(), area.getLatitudeSpan(), area.getLongitudeSpan() / 2);
+        cells.setLoaded(area, level, Collections.emptyList(), covered);
+
+        assertThat(cells.getMissingAreas(covered.resize(0.5), level)).isEmpty();
+        final List<Viewport> missing = cells.getMissingAreas(area, level);
+        assertThat(missing).isNotEmpty();
+        for (Viewport uncovered : missing) {
+            assertThat(uncovered.contains(covered.getCenter())).isFalse();
+        }
+    }
+
+    @Test
+    public void testExpiryAndEviction() {
+        final int level = ViewportCellCache.getLevel(MUNICH);
+        final ViewportCellCache expired = loadAll(new ViewportCellCache(-1, 100), MUNICH, level);
+        assertThat(expired.getMissingAreas(MUNICH, level)).hasSize(1);
+
+        final ViewportCellCache small = loadAll(new ViewportCellCache(60_000, 4), MUNICH.resize(4), level);
+        assertThat(small.size()).isEqualTo(4);
+        assertThat(small.getMissingAreas(MUNICH.resize(4), level)).isNotEmpty();
+    }
+
+}
@@ -0,0 +1,124 @@
+package cgeo.geocaching.unifiedmap.tileproviders;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TilePrefetcherTest {
+
+    private static final List<Geopoint> ROUTE = Arrays.asList(new Geopoint(48.10, 11.50), new Geopoint(48.15, 11.60), new Geopoint(48.20, 11.58));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer tileServer;
+    private OnlineTileStore store;
+    private TilePrefetcher prefetcher;
+
+    @Before
+    public void before() throws IOException {
+        tileServer = new MockWebServer();
+        tileServer.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull final RecordedRequest request) {
+                return new MockResponse().setResponseCode(200).setHeader("Cache-Control", "max-age=60").setBody("tile " + request.getPath());
+            }
+        });
+        tileServer.start();
+        store = new OnlineTileStore(folder.newFolder("tiles"), 10 * 1024 * 1024);
+        prefetcher = new TilePrefetcher(store, tileServer.url("").toString() + "tiles/{Z}/{X}/{Y}.png", 0, 18);
+    }
+
+    @After
+    public void after() throws IOException {
+        tileServer.shutdown();
+    }
+
+    @Test
+    public void testTileEncoding() {
+        final long tile = TilePrefetcher.tile(139_000, 91_000, 18);
+        assertThat(TilePrefetcher.tileX(tile)).isEqualTo(139_000);
+        assertThat(TilePrefetcher.tileY(tile)).isEqualTo(91_000);
+        assertThat(TilePrefetcher.tileZoom(tile)).isEqualTo(18);
+        assertThat(prefetcher.getTileUrl(TilePrefetcher.tile(1, 2, 3))).endsWith("/tiles/3/1/2.png");
+    }
+
+    @Test
+    public void testViewportTiles() {
+        // Munich city center on zoom 14 is tile 8718/5685
+        final Set<Long> tiles = TilePrefetcher.getTiles(new Viewport(new Geopoint(48.137, 11.575), 0.001, 0.001), 14);
+        assertThat(tiles).containsExactly(TilePrefetcher.tile(8718, 5685, 14));
+        assertThat(TilePrefetcher.getTiles(new Viewport(new Geopoint(-90, -180), new Geopoint(90, 180)), 2)).hasSize(16);
+    }
+
+    @Test
+    public void testCorridorTiles() {
+        final Set<Long> narrow = TilePrefetcher.getCorridorTiles(ROUTE, 0, 12, 15);
+        final Set<Long> wide = TilePrefetcher.getCorridorTiles(ROUTE, 3, 12, 15);
+        assertThat(wide).containsAll(narrow);
+        assertThat(wide.size()).isGreaterThan(narrow.size());
+        // every route point is covered on every zoom level
+        for (Geopoint point : ROUTE) {
+            for (int zoom = 12; zoom <= 15; zoom++) {
+                assertThat(narrow).containsAll(TilePrefetcher.getTiles(new Viewport(point, 0, 0), zoom));
+            }
+        }
+    }
+
+    @Test
+    public void testCorridorPrefetchAndOfflineUse() throws IOException, InterruptedException {
+        final int[] lastProgress = new int[2];
+        final int loaded = prefetcher.prefetchCorridor(ROUTE, 1, 12, 14, (done, total) -> {
+            lastProgress[0] = done;
+            lastProgress[1] = total;
+        }, new AtomicBoolean(false));
+        final int expected = TilePrefetcher.getCorridorTiles(ROUTE, 1, 12, 14).size();
+        assertThat(loaded).isEqualTo(expected);
+        assertThat(lastProgress).containsExactly(expected, expected);
+        assertThat(tileServer.getRequestCount()).isEqualTo(expected);
+        assertThat(tileServer.takeRequest().getHeader("User-Agent")).isEqualTo(OnlineTileStore.USER_AGENT);
+
+        // second run finds all tiles in store
+        assertThat(prefetcher.prefetchCorridor(ROUTE, 1, 12, 14, null, new AtomicBoolean(false))).isEqualTo(0);
+        assertThat(tileServer.getRequestCount()).isEqualTo(expected);
+
+        // tile layers use prefetched tiles, even without network
+        final long tile = TilePrefetcher.getCorridorTiles(ROUTE, 1, 14, 14).iterator().next();
+        final String url = prefetcher.getTileUrl(tile);
+        tileServer.shutdown();
+        final OkHttpClient client = store.newHttpClientBuilder().build();
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            assertThat(response.isSuccessful()).isTrue();
+            assertThat(response.body().string()).endsWith(url.substring(url.indexOf("/tiles/")));
+        }
+    }
+
+    @Test
+    public void testCancelledCorridorPrefetch() {
+        assertThat(prefetcher.prefetchCorridor(ROUTE, 1, 12, 14, null, new AtomicBoolean(true))).isEqualTo(0);
+        assertThat(tileServer.getRequestCount()).isEqualTo(0);
+    }
+
+}
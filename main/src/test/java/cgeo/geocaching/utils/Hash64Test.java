@@ -0,0 +1,61 @@
+package cgeo.geocaching.utils;
+
+import cgeo.geocaching.enumerations.CacheType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class Hash64Test {
+
+    @Test
+    public void testSameValuesSameKey() {
+        final long key1 = new Hash64("cache").append(5).append(true).append("abc").append(CacheType.MULTI).append(Arrays.asList(1, 2)).build();
+        final long key2 = new Hash64("cache").append(5).append(true).append("abc").append(CacheType.MULTI).append(Arrays.asList(1, 2)).build();
+        assertThat(key1).isEqualTo(key2);
+        assertThat(key1).isNotEqualTo(0L);
+    }
+
+    @Test
+    public void testDifferentValuesDifferentKey() {
+        assertThat(new Hash64("cache").append(1).build()).isNotEqualTo(new Hash64("dot").append(1).build());
+        assertThat(new Hash64().append(1).append(2).build()).isNotEqualTo(new Hash64().append(2).append(1).build());
+        assertThat(new Hash64().append(true).build()).isNotEqualTo(new Hash64().append(false).build());
+        assertThat(new Hash64().append((String) null).build()).isNotEqualTo(new Hash64().append("").build());
+        assertThat(new Hash64().append("ab").append("c").build()).isNotEqualTo(new Hash64().append("a").append("bc").build());
+        assertThat(new Hash64().append(Collections.singletonList(1)).append(2).build())
+                .isNotEqualTo(new Hash64().append(Arrays.asList(1, 2)).build());
+        // -1 * -1 == 1 * 1 collides for some hash schemes
+        assertThat(new Hash64().append(-1f).append(-1f).build()).isNotEqualTo(new Hash64().append(1f).append(1f).build());
+        assertThat(new Hash64().append(1.5).build()).isNotEqualTo(new Hash64().append(2.5).build());
+        assertThat(new Hash64().append("").build()).isNotEqualTo(new Hash64().build());
+    }
+
+    /**
+     * Builds keys for many distinct cache marker like states, all of them must be different
+     */
+    @Test
+    public void testNoCollisions() {
+        final Set<Long> keys = new HashSet<>();
+        int count = 0;
+        for (CacheType type : CacheType.values()) {
+            for (int emoji = 0; emoji < 40; emoji++) {
+                for (int dt = 0; dt < 81; dt++) {
+                    for (int flags = 0; flags < 16; flags++) {
+                        final float difficulty = 1 + (dt / 9) * 0.5f;
+                        final float terrain = 1 + (dt % 9) * 0.5f;
+                        keys.add(new Hash64("cache").append(emoji).append(type.id).append((flags & 1) != 0).append((flags & 2) != 0)
+                                .append((flags & 4) != 0).append((flags & 8) != 0).append(terrain).append(difficulty).build());
+                        count++;
+                    }
+                }
+            }
+        }
+        assertThat(keys).hasSize(count);
+    }
+
+}
@@ -0,0 +1,50 @@
+package cgeo.geocaching.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class IndexSortUtilsTest {
+
+    @Test
+    public void testSortIsStable() {
+        final int[] keys = {3, 1, 2, 1, 3, 0};
+        final int[] result = IndexSortUtils.sortIndexes(keys.length, (i1, i2) -> Integer.compare(keys[i1], keys[i2]), false);
+        assertThat(result).containsExactly(5, 1, 3, 2, 0, 4);
+    }
+
+    @Test
+    public void testParallelSortEqualsSequentialSort() {
+        final Random random = new Random(42);
+        final int size = IndexSortUtils.PARALLEL_THRESHOLD * 5 + 17;
+        final double[] keys = new double[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt(100);
+        }
+        final IndexSortUtils.IndexComparator cmp = (i1, i2) -> Double.compare(keys[i1], keys[i2]);
+        final int[] parallel = IndexSortUtils.identity(size);
+        IndexSortUtils.sort(parallel, cmp, Schedulers.computation());
+        assertThat(parallel).isEqualTo(IndexSortUtils.sortIndexes(size, cmp, false));
+    }
+
+    @Test
+    public void testInsertionSortRange() {
+        final int[] keys = {5, 4, 3, 2, 1};
+        final int[] indexes = IndexSortUtils.identity(keys.length);
+        IndexSortUtils.insertionSort(indexes, 1, 4, (i1, i2) -> Integer.compare(keys[i1], keys[i2]));
+        assertThat(indexes).containsExactly(0, 3, 2, 1, 4);
+    }
+
+    @Test
+    public void testApplyPermutation() {
+        final List<String> list = new ArrayList<>(Arrays.asList("a", "b", "c"));
+        IndexSortUtils.applyPermutation(list, new int[]{2, 0, 1});
+        assertThat(list).containsExactly("c", "a", "b");
+    }
+
+}